@@ -0,0 +1,242 @@
+/*
+ * Copyright 2023. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.huawei.arengine.demos.common;
+
+import com.huawei.hiar.ARBody;
+import com.huawei.hiar.ARCamera;
+import com.huawei.hiar.ARCoordinateSystemType;
+import com.huawei.hiar.ARFrame;
+import com.huawei.hiar.ARHand;
+import com.huawei.hiar.ARLightEstimate;
+import com.huawei.hiar.ARPlane;
+import com.huawei.hiar.ARPointCloud;
+import com.huawei.hiar.ARPose;
+import com.huawei.hiar.ARSceneMesh;
+import com.huawei.hiar.ARSession;
+import com.huawei.hiar.ARTrackable;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+/**
+ * Live frame source, which updates the ARSession on every frame. The snapshot is captured only when
+ * {@link #getSnapshot()} is called, so that the data is not copied if nobody needs it. The scene mesh is not
+ * copied at all: the snapshot references the buffers of the acquired mesh, which stays acquired until
+ * {@link #releaseFrameResources()} is called at the end of the frame.
+ *
+ * @author HW
+ * @since 2023-06-12
+ */
+public class ArSessionFrameSource implements FrameSource {
+    /**
+     * Capture the point cloud.
+     */
+    public static final int CAPTURE_POINT_CLOUD = 1;
+
+    /**
+     * Capture the scene mesh. Enable it only when the session is configured with the scene mesh mode.
+     */
+    public static final int CAPTURE_SCENE_MESH = 1 << 1;
+
+    /**
+     * Capture planes.
+     */
+    public static final int CAPTURE_PLANES = 1 << 2;
+
+    /**
+     * Capture bodies.
+     */
+    public static final int CAPTURE_BODIES = 1 << 3;
+
+    /**
+     * Capture hands.
+     */
+    public static final int CAPTURE_HANDS = 1 << 4;
+
+    private static final float PROJ_MATRIX_NEAR = 0.1f;
+
+    private static final float PROJ_MATRIX_FAR = 100.0f;
+
+    private static final int BOX_EXTENT_SIZE = 2;
+
+    private final ARSession mSession;
+
+    private final FrameSnapshot mSnapshot = new FrameSnapshot();
+
+    private ARFrame mArFrame;
+
+    private NativeResourceTracker.Handle<ARSceneMesh> mSceneMesh;
+
+    private boolean mIsSnapshotValid = false;
+
+    private int mCaptureMask = CAPTURE_POINT_CLOUD | CAPTURE_PLANES | CAPTURE_BODIES | CAPTURE_HANDS;
+
+    /**
+     * Constructor.
+     *
+     * @param session AR session.
+     */
+    public ArSessionFrameSource(ARSession session) {
+        mSession = session;
+    }
+
+    /**
+     * Set the data to be captured in the snapshot.
+     *
+     * @param captureMask Combination of the CAPTURE_* flags.
+     */
+    public void setCaptureMask(int captureMask) {
+        mCaptureMask = captureMask;
+    }
+
+    @Override
+    public boolean update() {
+        releaseFrameResources();
+        mArFrame = mSession.update();
+        return mArFrame != null;
+    }
+
+    /**
+     * Release the native resources that the snapshot references, and clear the references from the snapshot.
+     * Call it on the GL thread at the end of each frame, after the snapshot has been drawn and recorded.
+     */
+    public void releaseFrameResources() {
+        mIsSnapshotValid = false;
+        if (mSceneMesh != null) {
+            mSnapshot.setSceneMesh(null, null);
+            mSceneMesh.close();
+            mSceneMesh = null;
+        }
+    }
+
+    /**
+     * Obtain the ARFrame of the latest update.
+     *
+     * @return ARFrame.
+     */
+    public ARFrame getArFrame() {
+        return mArFrame;
+    }
+
+    @Override
+    public FrameSnapshot getSnapshot() {
+        if (!mIsSnapshotValid && mArFrame != null) {
+            capture(mArFrame);
+            mIsSnapshotValid = true;
+        }
+        return mSnapshot;
+    }
+
+    private void capture(ARFrame frame) {
+        mSnapshot.clear();
+        mSnapshot.setTimestampNs(frame.getTimestampNs());
+        ARCamera camera = frame.getCamera();
+        mSnapshot.setCameraTracking(camera.getTrackingState() == ARTrackable.TrackingState.TRACKING);
+        copyPose(camera.getPose(), mSnapshot.getCameraPose());
+        camera.getViewMatrix(mSnapshot.getViewMatrix(), 0);
+        camera.getProjectionMatrix(mSnapshot.getProjectionMatrix(), 0, PROJ_MATRIX_NEAR, PROJ_MATRIX_FAR);
+        ARLightEstimate lightEstimate = frame.getLightEstimate();
+        if (lightEstimate != null && lightEstimate.getState() == ARLightEstimate.State.VALID) {
+            mSnapshot.setPixelIntensity(lightEstimate.getPixelIntensity());
+        }
+        if ((mCaptureMask & CAPTURE_POINT_CLOUD) != 0) {
+            try (NativeResourceTracker.Handle<ARPointCloud> pointCloud = NativeResourceTracker.acquire("point cloud",
+                frame.acquirePointCloud(), ARPointCloud::release)) {
+                mSnapshot.copyPointCloud(pointCloud.get().getPoints(), pointCloud.get().getTimestampNs());
+            }
+        }
+        if ((mCaptureMask & CAPTURE_SCENE_MESH) != 0) {
+            // The mesh is referenced instead of copied, and it is released at the end of the frame.
+            mSceneMesh = NativeResourceTracker.acquire("scene mesh", frame.acquireSceneMesh(), ARSceneMesh::release);
+            ARSceneMesh sceneMesh = mSceneMesh.get();
+            if (sceneMesh != null) {
+                mSnapshot.setSceneMesh(sceneMesh.getVertices(), sceneMesh.getTriangleIndices());
+            }
+        }
+        if ((mCaptureMask & CAPTURE_PLANES) != 0) {
+            for (ARPlane plane : mSession.getAllTrackables(ARPlane.class)) {
+                capturePlane(plane, mSnapshot.obtainTrackable(TrackableSnapshot.TYPE_PLANE));
+            }
+        }
+        if ((mCaptureMask & CAPTURE_BODIES) != 0) {
+            for (ARBody body : mSession.getAllTrackables(ARBody.class)) {
+                captureBody(body, mSnapshot.obtainTrackable(TrackableSnapshot.TYPE_BODY));
+            }
+        }
+        if ((mCaptureMask & CAPTURE_HANDS) != 0) {
+            for (ARHand hand : mSession.getAllTrackables(ARHand.class)) {
+                captureHand(hand, mSnapshot.obtainTrackable(TrackableSnapshot.TYPE_HAND));
+            }
+        }
+    }
+
+    private static void capturePlane(ARPlane plane, TrackableSnapshot snapshot) {
+        snapshot.setTracking(plane.getTrackingState() == ARTrackable.TrackingState.TRACKING);
+        copyPose(plane.getCenterPose(), snapshot.getPose());
+        snapshot.setLabel(plane.getLabel().ordinal());
+        snapshot.set3dCoordinate(true);
+        FloatBuffer polygon = plane.getPlanePolygon();
+        int position = polygon.position();
+        float[] points = snapshot.obtainPoints(polygon.remaining());
+        polygon.get(points);
+        polygon.position(position);
+        float[] box = snapshot.obtainBox(BOX_EXTENT_SIZE);
+        box[0] = plane.getExtentX();
+        box[1] = plane.getExtentZ();
+    }
+
+    private static void captureBody(ARBody body, TrackableSnapshot snapshot) {
+        snapshot.setTracking(body.getTrackingState() == ARTrackable.TrackingState.TRACKING);
+        snapshot.setLabel(body.getBodyAction());
+        boolean is3d = body.getCoordinateSystemType() == ARCoordinateSystemType.COORDINATE_SYSTEM_TYPE_3D_CAMERA;
+        snapshot.set3dCoordinate(is3d);
+        if (is3d) {
+            snapshot.setPoints(body.getSkeletonPoint3D());
+            snapshot.setPointFlags(body.getSkeletonPointIsExist3D());
+        } else {
+            snapshot.setPoints(body.getSkeletonPoint2D());
+            snapshot.setPointFlags(body.getSkeletonPointIsExist2D());
+        }
+        snapshot.setConnections(body.getBodySkeletonConnection());
+    }
+
+    private static void captureHand(ARHand hand, TrackableSnapshot snapshot) {
+        snapshot.setTracking(hand.getTrackingState() == ARTrackable.TrackingState.TRACKING);
+        snapshot.setLabel(hand.getGestureType());
+        snapshot.set3dCoordinate(
+            hand.getSkeletonCoordinateSystem() == ARCoordinateSystemType.COORDINATE_SYSTEM_TYPE_3D_CAMERA);
+        snapshot.setPoints(hand.getHandskeletonArray());
+        snapshot.setConnections(hand.getHandSkeletonConnection());
+        snapshot.setBox(hand.getGestureHandBox());
+    }
+
+    private static void copyPose(ARPose pose, float[] dst) {
+        if (pose == null) {
+            // Use the identity pose.
+            Arrays.fill(dst, 0.0f);
+            dst[6] = 1.0f;
+            return;
+        }
+        dst[0] = pose.tx();
+        dst[1] = pose.ty();
+        dst[2] = pose.tz();
+        dst[3] = pose.qx();
+        dst[4] = pose.qy();
+        dst[5] = pose.qz();
+        dst[6] = pose.qw();
+    }
+}
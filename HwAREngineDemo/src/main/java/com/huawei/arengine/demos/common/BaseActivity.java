@@ -115,6 +115,7 @@ public class BaseActivity extends Activity {
     protected void onCreate(@Nullable Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         mDisplayRotationManager = new DisplayRotationManager(this);
+        ShaderProgramRegistry.setCacheDir(getCodeCacheDir());
     }
 
     @Override
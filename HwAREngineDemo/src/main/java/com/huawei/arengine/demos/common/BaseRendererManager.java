@@ -19,7 +19,6 @@ package com.huawei.arengine.demos.common;
 import android.app.Activity;
 import android.opengl.GLES20;
 import android.opengl.GLSurfaceView;
-import android.view.MotionEvent;
 import android.widget.TextView;
 
 import com.huawei.arengine.demos.java.utils.CommonUtil;
@@ -50,16 +49,6 @@ import javax.microedition.khronos.opengles.GL10;
 public abstract class BaseRendererManager implements GLSurfaceView.Renderer {
     private static final String TAG = "BaseRenderManager";
 
-    private static final float SECOND_TO_MILLISECOND = 1000.0f;
-
-    private static final float MIN_INTERVAL = 0.5f;
-
-    private static final int PROJ_MATRIX_OFFSET = 0;
-
-    private static final float PROJ_MATRIX_NEAR = 0.1f;
-
-    private static final float PROJ_MATRIX_FAR = 100.0f;
-
     /**
      * The size of the projection matrix is 4 * 4.
      */
@@ -109,11 +98,19 @@ public abstract class BaseRendererManager implements GLSurfaceView.Renderer {
 
     private BaseRenderer mRenderer;
 
-    private int frames = 0;
+    private FrameStageTimer mFrameStageTimer = new FrameStageTimer();
+
+    private FrameTimeStats mFrameTimeStats = new FrameTimeStats();
+
+    private ArSessionFrameSource mLiveFrameSource;
+
+    private volatile FrameSource mFrameSource;
+
+    private FrameSnapshot mFrameSnapshot;
 
-    private long lastTime;
+    private int mCaptureMask = 0;
 
-    private float fps = 0.0f;
+    private volatile FrameRecorder mFrameRecorder;
 
     /**
      * Set the DisplayRotationManager object, which is used in onSurfaceChanged and onDrawFrame.
@@ -135,6 +132,12 @@ public abstract class BaseRendererManager implements GLSurfaceView.Renderer {
             return;
         }
         mSession = arSession;
+        boolean isLive = mFrameSource == mLiveFrameSource;
+        mLiveFrameSource = new ArSessionFrameSource(arSession);
+        mLiveFrameSource.setCaptureMask(mCaptureMask);
+        if (isLive) {
+            mFrameSource = mLiveFrameSource;
+        }
     }
 
     /**
@@ -175,22 +178,90 @@ public abstract class BaseRendererManager implements GLSurfaceView.Renderer {
     }
 
     /**
-     * Calculate and return the current frame rate.
+     * Obtain the per-stage timing of onDrawFrame, which should be queried on the GL thread.
+     *
+     * @return Stage timer of the latest frames.
+     */
+    public FrameStageTimer getFrameStageTimer() {
+        return mFrameStageTimer;
+    }
+
+    /**
+     * Obtain the frame time statistics, including the frame rate, frame time percentiles and jank counts.
+     * The statistics should be queried on the GL thread.
+     *
+     * @return Frame time statistics of the current session.
+     */
+    public FrameTimeStats getFrameTimeStats() {
+        return mFrameTimeStats;
+    }
+
+    /**
+     * Append the frame time statistics and the GL calls dropped by the state cache to the text displayed on the
+     * screen. Call it on the GL thread.
+     *
+     * @param sb String buffer.
+     */
+    protected void appendFrameSummary(StringBuilder sb) {
+        mFrameTimeStats.appendSummary(sb);
+        StateCachingGlApi stateCache = GlFacade.getStateCache();
+        if (stateCache != null) {
+            stateCache.appendSummary(sb);
+        }
+    }
+
+    /**
+     * Set the AR data that the live session copies into the frame snapshot. Each demo captures only the data
+     * that it draws from the snapshot.
      *
-     * @return fps Current frame rate of the screen.
+     * @param captureMask Combination of the ArSessionFrameSource.CAPTURE_* flags.
      */
-    protected float doFpsCalculate() {
-        ++frames;
-        long timeNow = System.currentTimeMillis();
-
-        // Convert millisecond to second.
-        float intervalTime = (timeNow - lastTime) / SECOND_TO_MILLISECOND;
-        if (intervalTime > MIN_INTERVAL) {
-            fps = (float) frames / intervalTime;
-            frames = 0;
-            lastTime = timeNow;
+    protected void setCaptureMask(int captureMask) {
+        mCaptureMask = captureMask;
+        if (mLiveFrameSource != null) {
+            mLiveFrameSource.setCaptureMask(captureMask);
         }
-        return fps;
+    }
+
+    /**
+     * Obtain the snapshot of the current frame, from which the renderer draws the point cloud, scene mesh,
+     * bodies and hands. It is valid only in BaseRenderer.drawFrame.
+     *
+     * @return Frame snapshot.
+     */
+    protected FrameSnapshot getFrameSnapshot() {
+        return mFrameSnapshot;
+    }
+
+    /**
+     * Obtain the source of the AR data that is drawn. Its snapshot contains plain copies of the AR data of
+     * the current frame, which can be recorded and replayed without a device.
+     *
+     * @return Frame source, or null if the session is not set.
+     */
+    public FrameSource getFrameSource() {
+        return mFrameSource;
+    }
+
+    /**
+     * Draw the AR data of another source, for example, a {@link ReplayFrameSource} that replays a recording
+     * over the live camera preview. The session still runs, and provides the camera preview and the data that
+     * the snapshot does not contain, such as hit test results.
+     *
+     * @param frameSource Frame source, or null to draw the data of the live session.
+     */
+    public void setFrameSource(FrameSource frameSource) {
+        mFrameSource = frameSource == null ? mLiveFrameSource : frameSource;
+    }
+
+    /**
+     * Set the recorder to which the snapshot of every frame is written, which is used to reproduce
+     * performance problems offline. The caller creates and closes the recorder.
+     *
+     * @param frameRecorder Frame recorder, or null to stop recording.
+     */
+    public void setFrameRecorder(FrameRecorder frameRecorder) {
+        mFrameRecorder = frameRecorder;
     }
 
     /**
@@ -198,13 +269,14 @@ public abstract class BaseRendererManager implements GLSurfaceView.Renderer {
      *
      * @param frame A snapshot of the AR Engine system.
      * @param camera AR camera instance.
-     * @param event Finger tap and move event.
+     * @param x X coordinate of the finger tap or move on the screen.
+     * @param y Y coordinate of the finger tap or move on the screen.
      * @return Return the tap result (ARHitResult type) if the tap event occurs on the AR plane or in the AR dot matrix;
      *         return null otherwise.
      */
-    protected ARHitResult hitTest4Result(ARFrame frame, ARCamera camera, MotionEvent event) {
+    protected ARHitResult hitTest4Result(ARFrame frame, ARCamera camera, float x, float y) {
         ARHitResult hitResult = null;
-        List<ARHitResult> hitTestResults = CommonUtil.hitTest(frame, event);
+        List<ARHitResult> hitTestResults = CommonUtil.hitTest(frame, x, y);
 
         for (int i = 0; i < hitTestResults.size(); i++) {
             // Determine whether the hit point is within the plane polygon.
@@ -235,8 +307,16 @@ public abstract class BaseRendererManager implements GLSurfaceView.Renderer {
 
     @Override
     public void onSurfaceCreated(GL10 gl, EGLConfig config) {
+        // Programs and GL state of a lost EGL context do not carry over to the new one.
+        ShaderProgramRegistry.onContextCreated();
+        LabelQuadGeometry.onContextCreated();
+        StateCachingGlApi stateCache = GlFacade.getStateCache();
+        if (stateCache != null) {
+            stateCache.invalidate();
+        }
+
         // Set the window color.
-        GLES20.glClearColor(0.1f, 0.1f, 0.1f, 1.0f);
+        GlFacade.get().glClearColor(0.1f, 0.1f, 0.1f, 1.0f);
         if (mBackgroundDisplay == null || mRenderer == null) {
             LogUtil.error(TAG, "surface create error.");
             return;
@@ -251,7 +331,7 @@ public abstract class BaseRendererManager implements GLSurfaceView.Renderer {
 
     @Override
     public void onSurfaceChanged(GL10 gl, int width, int height) {
-        GLES20.glViewport(0, 0, width, height);
+        GlFacade.get().glViewport(0, 0, width, height);
         if (mBackgroundDisplay == null || mDisplayRotationManager == null || mRenderer == null) {
             LogUtil.error(TAG, "surface change error.");
             return;
@@ -263,7 +343,7 @@ public abstract class BaseRendererManager implements GLSurfaceView.Renderer {
 
     @Override
     public void onDrawFrame(GL10 gl) {
-        GLES20.glClear(GLES20.GL_COLOR_BUFFER_BIT | GLES20.GL_DEPTH_BUFFER_BIT);
+        GlFacade.get().glClear(GLES20.GL_COLOR_BUFFER_BIT | GLES20.GL_DEPTH_BUFFER_BIT);
         if (mSession == null) {
             return;
         }
@@ -274,22 +354,87 @@ public abstract class BaseRendererManager implements GLSurfaceView.Renderer {
             mDisplayRotationManager.updateArSessionDisplayGeometry(mSession);
         }
         mSession.setCameraTextureName(mBackgroundDisplay.getExternalTextureId());
+        mFrameTimeStats.onFrame(System.nanoTime());
+        DynamicVertexBuffer.onFrameBegin();
+        GlErrorCheckPolicy.onFrameBegin();
+        StateCachingGlApi stateCache = GlFacade.getStateCache();
+        if (stateCache != null) {
+            stateCache.onFrameBegin();
+        }
+        mFrameStageTimer.beginFrame();
+        boolean isFrameCompleted = false;
+        try {
+            isFrameCompleted = drawFrameStages(gl);
+        } finally {
+            // Frames that end early would be recorded with zero-length stages, so they are discarded.
+            if (isFrameCompleted) {
+                mFrameStageTimer.endFrame();
+            } else {
+                mFrameStageTimer.abortFrame();
+            }
+
+            // The live snapshot references native buffers, which are released once the frame is drawn.
+            if (mLiveFrameSource != null) {
+                mLiveFrameSource.releaseFrameResources();
+            }
+
+            // Release the native resources that the renderer has not released, so that they do not pile up.
+            NativeResourceTracker.onFrameEnd();
+        }
+    }
+
+    /**
+     * Run the stages of a frame.
+     *
+     * @return false if the frame ends early.
+     */
+    private boolean drawFrameStages(GL10 gl) {
         try {
-            mArFrame = mSession.update();
+            mFrameStageTimer.beginStage(FrameStageTimer.STAGE_SESSION_UPDATE);
+            mLiveFrameSource.update();
+
+            // The session updates the camera texture without the GL facade, so the cached GL state is stale.
+            StateCachingGlApi stateCache = GlFacade.getStateCache();
+            if (stateCache != null) {
+                stateCache.invalidate();
+            }
+            mArFrame = mLiveFrameSource.getArFrame();
+            mFrameTimeStats.onSessionFrame(mArFrame.getTimestampNs());
+            FrameSource frameSource = mFrameSource;
+            if (frameSource != mLiveFrameSource) {
+                // A recording that has ended keeps its last frame.
+                frameSource.update();
+            }
+            mFrameStageTimer.endStage(FrameStageTimer.STAGE_SESSION_UPDATE);
+
+            mFrameStageTimer.beginStage(FrameStageTimer.STAGE_BACKGROUND_DRAW);
             mBackgroundDisplay.onDrawFrame(mArFrame);
+            mFrameStageTimer.endStage(FrameStageTimer.STAGE_BACKGROUND_DRAW);
+
+            mFrameStageTimer.beginStage(FrameStageTimer.STAGE_MATRIX_FETCH);
             mArCamera = mArFrame.getCamera();
-            mArCamera.getProjectionMatrix(mProjectionMatrix, PROJ_MATRIX_OFFSET, PROJ_MATRIX_NEAR, PROJ_MATRIX_FAR);
-            mArCamera.getViewMatrix(mViewMatrix, 0);
+            mFrameSnapshot = frameSource.getSnapshot();
+            System.arraycopy(mFrameSnapshot.getProjectionMatrix(), 0, mProjectionMatrix, 0, mProjectionMatrix.length);
+            System.arraycopy(mFrameSnapshot.getViewMatrix(), 0, mViewMatrix, 0, mViewMatrix.length);
+            mFrameStageTimer.endStage(FrameStageTimer.STAGE_MATRIX_FETCH);
+
+            FrameRecorder frameRecorder = mFrameRecorder;
+            if (frameRecorder != null) {
+                frameRecorder.record(mFrameSnapshot);
+            }
         } catch (ARSessionPausedException e) {
             LogUtil.error(TAG, "Invoke session.resume before invoking Session.update.");
-            return;
+            return false;
         } catch (ARFatalException | IllegalArgumentException | ARDeadlineExceededException
             | ARUnavailableServiceApkTooOldException | ArDemoRuntimeException exception) {
             // This prevents the app from crashing due to unhandled exceptions.
             LogUtil.warn(TAG, "Exception on the OpenGL thread, " + exception.getClass());
-            return;
+            return false;
         }
+        mFrameStageTimer.beginStage(FrameStageTimer.STAGE_RENDERER_DRAW);
         mRenderer.drawFrame(gl);
+        mFrameStageTimer.endStage(FrameStageTimer.STAGE_RENDERER_DRAW);
+        return true;
     }
 
     /**
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2023. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.huawei.arengine.demos.common;
+
+import android.opengl.GLES20;
+
+/**
+ * Draws labels that always face the camera. The vertex shader moves the anchor of a label into the camera
+ * coordinate system with the view matrix, and spans the {@link LabelQuadGeometry} quad along the X and Y axes of
+ * the camera there, so the CPU only supplies the anchor position of each label. The view and projection matrices
+ * are uploaded once per frame in {@link #begin}. All methods must be called on the GL thread.
+ *
+ * @author HW
+ * @since 2023-06-12
+ */
+public class BillboardLabelRenderer {
+    private static final String TAG = "BillboardLabelRenderer";
+
+    private final float mLabelWidth;
+
+    private final float mLabelHeight;
+
+    /**
+     * UV matrix applied to the quad coordinates, which rotates the texture by 180 degrees for bitmaps that are
+     * created upside down.
+     */
+    private final float[] mUvMatrix;
+
+    private int mProgram;
+
+    private int mPositionAttribute;
+
+    private int mViewMatrixUniform;
+
+    private int mProjectionMatrixUniform;
+
+    private int mAnchorUniform;
+
+    private int mLabelSizeUniform;
+
+    private int mUvMatrixUniform;
+
+    private int mTextureUniform;
+
+    /**
+     * Constructor.
+     *
+     * @param labelWidth Width of the label, in meters.
+     * @param labelHeight Height of the label, in meters.
+     * @param isBitmapRotated Whether the label bitmaps are rotated by 180 degrees.
+     */
+    public BillboardLabelRenderer(float labelWidth, float labelHeight, boolean isBitmapRotated) {
+        mLabelWidth = labelWidth;
+        mLabelHeight = labelHeight;
+        float uvScale = isBitmapRotated ? -1.0f : 1.0f;
+        mUvMatrix = new float[] {uvScale, 0.0f, 0.0f, uvScale};
+    }
+
+    /**
+     * Create the shader program on the OpenGL thread.
+     */
+    public void init() {
+        ShaderUtil.checkGlError(TAG, "program start.");
+        mProgram = ShaderUtil.getBillboardLabelProgram();
+        mPositionAttribute = GlFacade.get().glGetAttribLocation(mProgram, "inPosXZAlpha");
+        mViewMatrixUniform = GlFacade.get().glGetUniformLocation(mProgram, "inViewMatrix");
+        mProjectionMatrixUniform = GlFacade.get().glGetUniformLocation(mProgram, "inProjectionMatrix");
+        mAnchorUniform = GlFacade.get().glGetUniformLocation(mProgram, "inAnchor");
+        mLabelSizeUniform = GlFacade.get().glGetUniformLocation(mProgram, "inLabelSize");
+        mUvMatrixUniform = GlFacade.get().glGetUniformLocation(mProgram, "inPlanUVMatrix");
+        mTextureUniform = GlFacade.get().glGetUniformLocation(mProgram, "inTexture");
+        ShaderUtil.checkGlError(TAG, "program end.");
+    }
+
+    /**
+     * Set the GL state and the uniforms shared by the labels of a frame. Call {@link #draw} for each label and
+     * then {@link #end}.
+     *
+     * @param viewMatrix View matrix of the camera.
+     * @param projectionMatrix Projection matrix of the camera.
+     */
+    public void begin(float[] viewMatrix, float[] projectionMatrix) {
+        ShaderUtil.checkGlError(TAG, "Draw labels start.");
+        GlFacade.get().glDepthMask(false);
+        GlFacade.get().glEnable(GLES20.GL_BLEND);
+        GlFacade.get().glBlendFuncSeparate(GLES20.GL_DST_ALPHA, GLES20.GL_ONE, GLES20.GL_ZERO,
+            GLES20.GL_ONE_MINUS_SRC_ALPHA);
+        GlFacade.get().glUseProgram(mProgram);
+        GlFacade.get().glEnableVertexAttribArray(mPositionAttribute);
+        LabelQuadGeometry.bind(mPositionAttribute);
+        GlFacade.get().glUniformMatrix4fv(mViewMatrixUniform, 1, false, viewMatrix, 0);
+        GlFacade.get().glUniformMatrix4fv(mProjectionMatrixUniform, 1, false, projectionMatrix, 0);
+        GlFacade.get().glUniform2f(mLabelSizeUniform, mLabelWidth, mLabelHeight);
+        GlFacade.get().glUniformMatrix2fv(mUvMatrixUniform, 1, false, mUvMatrix, 0);
+        GlFacade.get().glActiveTexture(GLES20.GL_TEXTURE0);
+        GlFacade.get().glUniform1i(mTextureUniform, 0);
+    }
+
+    /**
+     * Draw a label centered at the anchor.
+     *
+     * @param texture Texture of the label bitmap.
+     * @param anchorX X coordinate of the anchor in the world coordinate system.
+     * @param anchorY Y coordinate of the anchor in the world coordinate system.
+     * @param anchorZ Z coordinate of the anchor in the world coordinate system.
+     */
+    public void draw(int texture, float anchorX, float anchorY, float anchorZ) {
+        GlFacade.get().glBindTexture(GLES20.GL_TEXTURE_2D, texture);
+        GlFacade.get().glUniform3f(mAnchorUniform, anchorX, anchorY, anchorZ);
+        LabelQuadGeometry.draw();
+    }
+
+    /**
+     * Restore the GL state changed by {@link #begin}.
+     */
+    public void end() {
+        GlFacade.get().glDisableVertexAttribArray(mPositionAttribute);
+        GlFacade.get().glDisable(GLES20.GL_BLEND);
+        GlFacade.get().glDepthMask(true);
+        ShaderUtil.checkGlError(TAG, "Draw labels end.");
+    }
+}
@@ -0,0 +1,838 @@
+/*
+ * Copyright 2023. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.huawei.arengine.demos.common;
+
+import android.opengl.GLES20;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * GL buffers of a triangle mesh that changes a little in each frame, such as the scene mesh of AR Engine. The
+ * triangles are split into cubic chunks by their centroids. Each chunk has its own vertices and indexes, which
+ * are stored in sub-allocations of one vertex buffer and one index buffer, together with a 64-bit hash and the
+ * lengths of its content. When the mesh is updated, only the chunks whose content has changed are uploaded, so
+ * that the unchanged part of a large room costs CPU time for hashing but no upload bandwidth.
+ * <p>
+ * Sub-allocations have a power-of-two size and are reused through free lists of their size. Index regions are
+ * sized in whole triangles, and the part of a region after the triangles of its chunk holds degenerate triangles,
+ * so that the chunks whose regions are adjacent in the index buffer are drawn with one draw call. When a buffer
+ * is full, it grows to twice its size and all chunks are uploaded again. All methods must be called on the GL
+ * thread.
+ *
+ * @author HW
+ * @since 2023-06-12
+ */
+public class ChunkedMeshBuffer {
+    /**
+     * Default edge length of a chunk, in meters.
+     */
+    public static final float DEFAULT_CHUNK_SIZE = 1.0f;
+
+    private static final String TAG = "ChunkedMeshBuffer";
+
+    private static final int FLOATS_PER_VERTEX = 3;
+
+    private static final int BYTES_PER_VERTEX = FLOATS_PER_VERTEX * Float.BYTES;
+
+    private static final int INDEXES_PER_TRIANGLE = 3;
+
+    private static final int BYTES_PER_INDEX = Integer.BYTES;
+
+    private static final int MIN_CHUNK_CAPACITY = 16;
+
+    private static final long HASH_OFFSET_BASIS = 0xCBF29CE484222325L;
+
+    private static final long HASH_PRIME = 0x100000001B3L;
+
+    private final float mInverseChunkSize;
+
+    private final RegionAllocator mVertexRegions;
+
+    private final RegionAllocator mIndexRegions;
+
+    private int mVertexBufferId = 0;
+
+    private int mIndexBufferId = 0;
+
+    private int mChunkCount = 0;
+
+    private long[] mChunkKeys = new long[MIN_CHUNK_CAPACITY];
+
+    private int[] mChunkTriangleCounts = new int[MIN_CHUNK_CAPACITY];
+
+    private int[] mChunkTriangleStarts = new int[MIN_CHUNK_CAPACITY];
+
+    private long[] mChunkHashes = new long[MIN_CHUNK_CAPACITY];
+
+    private int[] mChunkVertexCounts = new int[MIN_CHUNK_CAPACITY];
+
+    private int[] mChunkIndexCounts = new int[MIN_CHUNK_CAPACITY];
+
+    /**
+     * Offsets and sizes of the sub-allocations, in vertices and indexes. An offset of -1 means no allocation.
+     */
+    private int[] mChunkVertexOffsets = new int[MIN_CHUNK_CAPACITY];
+
+    private int[] mChunkVertexCapacities = new int[MIN_CHUNK_CAPACITY];
+
+    private int[] mChunkIndexOffsets = new int[MIN_CHUNK_CAPACITY];
+
+    private int[] mChunkIndexCapacities = new int[MIN_CHUNK_CAPACITY];
+
+    /**
+     * Number of indexes at the start of each index region after which the region holds only degenerate triangles.
+     */
+    private int[] mChunkIndexFillStarts = new int[MIN_CHUNK_CAPACITY];
+
+    private boolean[] mChunkIsChanged = new boolean[MIN_CHUNK_CAPACITY];
+
+    private int[] mChunkIdRemap = new int[MIN_CHUNK_CAPACITY];
+
+    /**
+     * Index ranges of the draw calls. Each range covers the regions of chunks that are adjacent in the index buffer.
+     */
+    private int[] mDrawStarts = new int[MIN_CHUNK_CAPACITY];
+
+    private int[] mDrawCounts = new int[MIN_CHUNK_CAPACITY];
+
+    private int mDrawCount = 0;
+
+    private boolean mIsDrawListDirty = true;
+
+    /**
+     * Index regions sorted by offset, each packed as offset << 32 | size, to find adjacent regions.
+     */
+    private long[] mSortedRegions = new long[MIN_CHUNK_CAPACITY];
+
+    /**
+     * Open-addressing table from chunk keys to chunk IDs, with a load factor of at most 0.5.
+     */
+    private long[] mTableKeys = new long[MIN_CHUNK_CAPACITY * 2];
+
+    private int[] mTableChunkIds = new int[MIN_CHUNK_CAPACITY * 2];
+
+    private int[] mTriangleChunkIds = new int[0];
+
+    private int[] mSortedTriangles = new int[0];
+
+    private int[] mVertexRemap = new int[0];
+
+    /**
+     * Marks the vertices of the mesh that have been remapped for the chunk that is being built.
+     */
+    private int[] mVertexStamps = new int[0];
+
+    private int mStamp = 0;
+
+    private FloatBuffer mChunkVertices = allocateFloats(MIN_CHUNK_CAPACITY * FLOATS_PER_VERTEX);
+
+    private IntBuffer mChunkIndexes = allocateInts(MIN_CHUNK_CAPACITY);
+
+    /**
+     * Degenerate triangles, which refer to vertex 0 only, to fill the unused part of index regions.
+     */
+    private IntBuffer mFillIndexes = allocateInts(0);
+
+    private int mTriangleCount = 0;
+
+    private int mLastUploadedChunkCount = 0;
+
+    private int mLastUploadedBytes = 0;
+
+    private long mUploadedBytes = 0L;
+
+    private long mReallocationCount = 0L;
+
+    /**
+     * Constructor.
+     *
+     * @param chunkSize Edge length of a chunk, in meters.
+     * @param initialVertexCapacity Initial capacity of the vertex buffer, in vertices.
+     * @param initialIndexCapacity Initial capacity of the index buffer, in indexes.
+     */
+    public ChunkedMeshBuffer(float chunkSize, int initialVertexCapacity, int initialIndexCapacity) {
+        if (chunkSize <= 0.0f) {
+            throw new IllegalArgumentException("The chunk size must be positive.");
+        }
+        mInverseChunkSize = 1.0f / chunkSize;
+        mVertexRegions = new RegionAllocator(initialVertexCapacity);
+
+        // Index regions are allocated in triangles, so that each region holds whole triangles.
+        mIndexRegions = new RegionAllocator(initialIndexCapacity / INDEXES_PER_TRIANGLE);
+        Arrays.fill(mTableKeys, VoxelPointMap.EMPTY_KEY);
+    }
+
+    /**
+     * Create the GL buffers. This method is called when the display is initialized on the GL thread. The chunks
+     * of an earlier GL context are forgotten, so that the next update uploads all of them.
+     */
+    public void init() {
+        int[] buffers = new int[2];
+        GlFacade.get().glGenBuffers(buffers.length, buffers, 0);
+        mVertexBufferId = buffers[0];
+        mIndexBufferId = buffers[1];
+        mVertexRegions.reset(mVertexRegions.getCapacity());
+        mIndexRegions.reset(mIndexRegions.getCapacity());
+        allocateBuffers();
+        mChunkCount = 0;
+        mIsDrawListDirty = true;
+        rebuildTable();
+        ShaderUtil.checkGlError(TAG, "init");
+    }
+
+    /**
+     * Update the mesh, and upload the chunks whose content has changed.
+     *
+     * @param vertices Vertex buffer, in which each vertex has three floats, up to its limit.
+     * @param triangleIndices Triangle index buffer, in which each triangle has three indexes, up to its limit.
+     */
+    public void update(FloatBuffer vertices, IntBuffer triangleIndices) {
+        int vertexCount = vertices.limit() / FLOATS_PER_VERTEX;
+        mTriangleCount = triangleIndices.limit() / INDEXES_PER_TRIANGLE;
+        if (mTriangleChunkIds.length < mTriangleCount) {
+            mTriangleChunkIds = new int[mTriangleCount];
+            mSortedTriangles = new int[mTriangleCount];
+        }
+        if (mVertexRemap.length < vertexCount) {
+            mVertexRemap = new int[vertexCount];
+            mVertexStamps = new int[vertexCount];
+            mStamp = 0;
+        }
+        assignTriangles(vertices, triangleIndices, vertexCount);
+        removeEmptyChunks();
+        sortTriangles();
+
+        findChangedChunks(vertices, triangleIndices);
+        if (!reserveChangedRegions()) {
+            growBuffers();
+        }
+        mLastUploadedChunkCount = 0;
+        mLastUploadedBytes = 0;
+        for (int chunk = 0; chunk < mChunkCount; chunk++) {
+            if (mChunkIsChanged[chunk]) {
+                buildChunk(chunk, vertices, triangleIndices);
+                uploadChunk(chunk);
+            }
+        }
+        mUploadedBytes += mLastUploadedBytes;
+    }
+
+    /**
+     * Bind the vertex buffer, so that the vertex attributes can be set up.
+     */
+    public void bindVertexBuffer() {
+        GlFacade.get().glBindBuffer(GLES20.GL_ARRAY_BUFFER, mVertexBufferId);
+    }
+
+    /**
+     * Draw the triangles of all chunks, with one draw call per run of chunks whose index regions are adjacent. The
+     * vertex attributes must be set up.
+     */
+    public void drawTriangles() {
+        if (mIsDrawListDirty) {
+            buildDrawList();
+        }
+        GlFacade.get().glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, mIndexBufferId);
+        for (int i = 0; i < mDrawCount; i++) {
+            GlFacade.get().glDrawElements(GLES20.GL_TRIANGLES, mDrawCounts[i], GLES20.GL_UNSIGNED_INT,
+                mDrawStarts[i] * BYTES_PER_INDEX);
+        }
+        GlFacade.get().glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, 0);
+    }
+
+    /**
+     * Obtain the number of chunks that have triangles.
+     *
+     * @return Number of chunks.
+     */
+    public int getChunkCount() {
+        return mChunkCount;
+    }
+
+    /**
+     * Obtain the number of triangles of the latest update, including the invalid triangles that are not drawn.
+     *
+     * @return Number of triangles.
+     */
+    public int getTriangleCount() {
+        return mTriangleCount;
+    }
+
+    /**
+     * Obtain the number of draw calls issued by {@link #drawTriangles}.
+     *
+     * @return Number of draw calls.
+     */
+    public int getDrawCallCount() {
+        if (mIsDrawListDirty) {
+            buildDrawList();
+        }
+        return mDrawCount;
+    }
+
+    /**
+     * Obtain the number of chunks uploaded by the latest update.
+     *
+     * @return Number of chunks.
+     */
+    public int getLastUploadedChunkCount() {
+        return mLastUploadedChunkCount;
+    }
+
+    /**
+     * Obtain the number of bytes uploaded by the latest update.
+     *
+     * @return Number of bytes.
+     */
+    public int getLastUploadedBytes() {
+        return mLastUploadedBytes;
+    }
+
+    /**
+     * Obtain the number of bytes uploaded since the buffers were created.
+     *
+     * @return Number of bytes.
+     */
+    public long getUploadedBytes() {
+        return mUploadedBytes;
+    }
+
+    /**
+     * Obtain the number of times that the buffers grew and all chunks were uploaded again.
+     *
+     * @return Number of reallocations.
+     */
+    public long getReallocationCount() {
+        return mReallocationCount;
+    }
+
+    /**
+     * Append the chunk and upload statistics to the information displayed on the screen.
+     *
+     * @param sb String builder to which the statistics are appended.
+     */
+    public void appendSummary(StringBuilder sb) {
+        sb.append("Mesh chunks uploaded/total=").append(mLastUploadedChunkCount).append('/').append(mChunkCount)
+            .append(", draws=").append(getDrawCallCount()).append(", triangles=").append(mTriangleCount)
+            .append(System.lineSeparator());
+        sb.append("Mesh upload bytes last/total=").append(mLastUploadedBytes).append('/').append(mUploadedBytes)
+            .append(", reallocations=").append(mReallocationCount).append(System.lineSeparator());
+    }
+
+    private void allocateBuffers() {
+        GlFacade.get().glBindBuffer(GLES20.GL_ARRAY_BUFFER, mVertexBufferId);
+        GlFacade.get().glBufferData(GLES20.GL_ARRAY_BUFFER, mVertexRegions.getCapacity() * BYTES_PER_VERTEX, null,
+            GLES20.GL_DYNAMIC_DRAW);
+        GlFacade.get().glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+        GlFacade.get().glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, mIndexBufferId);
+        GlFacade.get().glBufferData(GLES20.GL_ELEMENT_ARRAY_BUFFER,
+            mIndexRegions.getCapacity() * INDEXES_PER_TRIANGLE * BYTES_PER_INDEX, null, GLES20.GL_DYNAMIC_DRAW);
+        GlFacade.get().glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, 0);
+    }
+
+    /**
+     * Find the chunk of each triangle by its centroid, and count the triangles of each chunk.
+     */
+    private void assignTriangles(FloatBuffer vertices, IntBuffer triangleIndices, int vertexCount) {
+        Arrays.fill(mChunkTriangleCounts, 0, mChunkCount, 0);
+        for (int triangle = 0; triangle < mTriangleCount; triangle++) {
+            int index = triangle * INDEXES_PER_TRIANGLE;
+            int vertex0 = triangleIndices.get(index);
+            int vertex1 = triangleIndices.get(index + 1);
+            int vertex2 = triangleIndices.get(index + 2);
+            if (!isValidVertex(vertex0, vertexCount) || !isValidVertex(vertex1, vertexCount)
+                || !isValidVertex(vertex2, vertexCount)) {
+                mTriangleChunkIds[triangle] = -1;
+                continue;
+            }
+            float centroidX = 0.0f;
+            float centroidY = 0.0f;
+            float centroidZ = 0.0f;
+            for (int i = 0; i < INDEXES_PER_TRIANGLE; i++) {
+                int offset = triangleIndices.get(index + i) * FLOATS_PER_VERTEX;
+                centroidX += vertices.get(offset);
+                centroidY += vertices.get(offset + 1);
+                centroidZ += vertices.get(offset + 2);
+            }
+            long key = VoxelPointMap.toKey(centroidX / INDEXES_PER_TRIANGLE, centroidY / INDEXES_PER_TRIANGLE,
+                centroidZ / INDEXES_PER_TRIANGLE, mInverseChunkSize);
+            if (key == VoxelPointMap.EMPTY_KEY) {
+                mTriangleChunkIds[triangle] = -1;
+                continue;
+            }
+            int chunk = findOrAddChunk(key);
+            mTriangleChunkIds[triangle] = chunk;
+            mChunkTriangleCounts[chunk]++;
+        }
+    }
+
+    private static boolean isValidVertex(int vertex, int vertexCount) {
+        return vertex >= 0 && vertex < vertexCount;
+    }
+
+    /**
+     * Free the chunks that have no triangle left, and move the remaining chunks down to keep the IDs dense.
+     */
+    private void removeEmptyChunks() {
+        int liveCount = 0;
+        for (int chunk = 0; chunk < mChunkCount; chunk++) {
+            if (mChunkTriangleCounts[chunk] == 0) {
+                freeRegions(chunk);
+                mChunkIdRemap[chunk] = -1;
+                continue;
+            }
+            if (chunk != liveCount) {
+                moveChunk(chunk, liveCount);
+            }
+            mChunkIdRemap[chunk] = liveCount;
+            liveCount++;
+        }
+        if (liveCount == mChunkCount) {
+            return;
+        }
+        mIsDrawListDirty = true;
+        for (int triangle = 0; triangle < mTriangleCount; triangle++) {
+            int chunk = mTriangleChunkIds[triangle];
+            if (chunk >= 0) {
+                mTriangleChunkIds[triangle] = mChunkIdRemap[chunk];
+            }
+        }
+        mChunkCount = liveCount;
+        rebuildTable();
+    }
+
+    /**
+     * Order the triangles by chunk with a counting sort, keeping their order within a chunk.
+     */
+    private void sortTriangles() {
+        int start = 0;
+        for (int chunk = 0; chunk < mChunkCount; chunk++) {
+            mChunkTriangleStarts[chunk] = start;
+            start += mChunkTriangleCounts[chunk];
+        }
+        for (int triangle = 0; triangle < mTriangleCount; triangle++) {
+            int chunk = mTriangleChunkIds[triangle];
+            if (chunk >= 0) {
+                mSortedTriangles[mChunkTriangleStarts[chunk]++] = triangle;
+            }
+        }
+        for (int chunk = 0; chunk < mChunkCount; chunk++) {
+            mChunkTriangleStarts[chunk] -= mChunkTriangleCounts[chunk];
+        }
+    }
+
+    /**
+     * Build each chunk and compare it with its previous content.
+     */
+    private void findChangedChunks(FloatBuffer vertices, IntBuffer triangleIndices) {
+        for (int chunk = 0; chunk < mChunkCount; chunk++) {
+            long contentHash = buildChunk(chunk, vertices, triangleIndices);
+            int vertexCount = mChunkVertices.limit() / FLOATS_PER_VERTEX;
+            int indexCount = mChunkIndexes.limit();
+            mChunkIsChanged[chunk] = mChunkVertexOffsets[chunk] < 0 || mChunkIndexOffsets[chunk] < 0
+                || contentHash != mChunkHashes[chunk] || vertexCount != mChunkVertexCounts[chunk]
+                || indexCount != mChunkIndexCounts[chunk];
+            mChunkHashes[chunk] = contentHash;
+            mChunkVertexCounts[chunk] = vertexCount;
+            mChunkIndexCounts[chunk] = indexCount;
+        }
+    }
+
+    /**
+     * Make sure that the sub-allocations of the changed chunks can hold their content.
+     *
+     * @return false if a buffer has no room left.
+     */
+    private boolean reserveChangedRegions() {
+        for (int chunk = 0; chunk < mChunkCount; chunk++) {
+            if (mChunkIsChanged[chunk] && !reserveRegions(chunk)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Grow the buffers until all chunks fit in them, and lay out all chunks again, which uploads all of them.
+     */
+    private void growBuffers() {
+        int vertexCapacity = mVertexRegions.getCapacity() * 2;
+        int indexCapacity = mIndexRegions.getCapacity() * 2;
+        int requiredVertexCapacity = 0;
+        int requiredIndexCapacity = 0;
+        for (int chunk = 0; chunk < mChunkCount; chunk++) {
+            requiredVertexCapacity += RegionAllocator.toRegionSize(mChunkVertexCounts[chunk]);
+            requiredIndexCapacity += RegionAllocator.toRegionSize(mChunkIndexCounts[chunk] / INDEXES_PER_TRIANGLE);
+        }
+        while (vertexCapacity < requiredVertexCapacity) {
+            vertexCapacity *= 2;
+        }
+        while (indexCapacity < requiredIndexCapacity) {
+            indexCapacity *= 2;
+        }
+        mVertexRegions.reset(vertexCapacity);
+        mIndexRegions.reset(indexCapacity);
+        allocateBuffers();
+        mReallocationCount++;
+        for (int chunk = 0; chunk < mChunkCount; chunk++) {
+            mChunkVertexOffsets[chunk] = -1;
+            mChunkIndexOffsets[chunk] = -1;
+            mChunkIsChanged[chunk] = true;
+
+            // The regions of a fresh layout fit without gaps, so the reservation cannot fail.
+            reserveRegions(chunk);
+        }
+    }
+
+    /**
+     * Copy the vertices and indexes of a chunk into the chunk buffers, with the indexes relative to the first
+     * vertex of the chunk.
+     *
+     * @return 64-bit FNV-1a hash of the content of the chunk.
+     */
+    private long buildChunk(int chunk, FloatBuffer vertices, IntBuffer triangleIndices) {
+        int triangleCount = mChunkTriangleCounts[chunk];
+        int maxCount = triangleCount * INDEXES_PER_TRIANGLE;
+        ensureChunkCapacity(maxCount);
+        nextStamp();
+        long contentHash = HASH_OFFSET_BASIS;
+        int vertexCount = 0;
+        int indexCount = 0;
+        int triangleStart = mChunkTriangleStarts[chunk];
+        for (int i = triangleStart; i < triangleStart + triangleCount; i++) {
+            int index = mSortedTriangles[i] * INDEXES_PER_TRIANGLE;
+            for (int j = 0; j < INDEXES_PER_TRIANGLE; j++) {
+                int vertex = triangleIndices.get(index + j);
+                if (mVertexStamps[vertex] != mStamp) {
+                    mVertexStamps[vertex] = mStamp;
+                    mVertexRemap[vertex] = vertexCount;
+                    int srcOffset = vertex * FLOATS_PER_VERTEX;
+                    int dstOffset = vertexCount * FLOATS_PER_VERTEX;
+                    for (int k = 0; k < FLOATS_PER_VERTEX; k++) {
+                        float value = vertices.get(srcOffset + k);
+                        mChunkVertices.put(dstOffset + k, value);
+                        contentHash = (contentHash ^ Float.floatToRawIntBits(value)) * HASH_PRIME;
+                    }
+                    vertexCount++;
+                }
+                int localIndex = mVertexRemap[vertex];
+                mChunkIndexes.put(indexCount++, localIndex);
+                contentHash = (contentHash ^ localIndex) * HASH_PRIME;
+            }
+        }
+        mChunkVertices.limit(vertexCount * FLOATS_PER_VERTEX);
+        mChunkIndexes.limit(indexCount);
+        return contentHash;
+    }
+
+    private void uploadChunk(int chunk) {
+        // The indexes of GLES 2.0 draw calls are absolute, so they are offset by the first vertex of the chunk.
+        int vertexOffset = mChunkVertexOffsets[chunk];
+        for (int i = 0; i < mChunkIndexes.limit(); i++) {
+            mChunkIndexes.put(i, mChunkIndexes.get(i) + vertexOffset);
+        }
+        int vertexBytes = mChunkVertices.limit() * Float.BYTES;
+        int indexBytes = mChunkIndexes.limit() * BYTES_PER_INDEX;
+        GlFacade.get().glBindBuffer(GLES20.GL_ARRAY_BUFFER, mVertexBufferId);
+        GlFacade.get().glBufferSubData(GLES20.GL_ARRAY_BUFFER, vertexOffset * BYTES_PER_VERTEX, vertexBytes,
+            mChunkVertices.position(0));
+        GlFacade.get().glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+        GlFacade.get().glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, mIndexBufferId);
+        GlFacade.get().glBufferSubData(GLES20.GL_ELEMENT_ARRAY_BUFFER, mChunkIndexOffsets[chunk] * BYTES_PER_INDEX,
+            indexBytes, mChunkIndexes.position(0));
+
+        // Triangles that are left in the region by earlier content are replaced by degenerate ones.
+        int indexCount = mChunkIndexes.limit();
+        if (mChunkIndexFillStarts[chunk] > indexCount) {
+            int fillCount = mChunkIndexFillStarts[chunk] - indexCount;
+            if (mFillIndexes.capacity() < fillCount) {
+                mFillIndexes = allocateInts(RegionAllocator.toRegionSize(fillCount));
+            }
+            mFillIndexes.clear();
+            GlFacade.get().glBufferSubData(GLES20.GL_ELEMENT_ARRAY_BUFFER,
+                (mChunkIndexOffsets[chunk] + indexCount) * BYTES_PER_INDEX, fillCount * BYTES_PER_INDEX, mFillIndexes);
+            indexBytes += fillCount * BYTES_PER_INDEX;
+        }
+        mChunkIndexFillStarts[chunk] = indexCount;
+        GlFacade.get().glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, 0);
+        DynamicVertexBuffer.countFrameUpload(vertexBytes + indexBytes);
+        mLastUploadedChunkCount++;
+        mLastUploadedBytes += vertexBytes + indexBytes;
+    }
+
+    /**
+     * Make sure that the sub-allocations of a chunk can hold its content, and replace them if they cannot.
+     *
+     * @return false if a buffer has no room left.
+     */
+    private boolean reserveRegions(int chunk) {
+        int vertexCount = mChunkVertexCounts[chunk];
+        int indexCount = mChunkIndexCounts[chunk];
+        if (mChunkVertexOffsets[chunk] < 0 || mChunkVertexCapacities[chunk] < vertexCount) {
+            if (mChunkVertexOffsets[chunk] >= 0) {
+                mVertexRegions.free(mChunkVertexOffsets[chunk], mChunkVertexCapacities[chunk]);
+            }
+            mChunkVertexCapacities[chunk] = RegionAllocator.toRegionSize(vertexCount);
+            mChunkVertexOffsets[chunk] = mVertexRegions.allocate(mChunkVertexCapacities[chunk]);
+        }
+        if (mChunkIndexOffsets[chunk] < 0 || mChunkIndexCapacities[chunk] < indexCount) {
+            if (mChunkIndexOffsets[chunk] >= 0) {
+                freeIndexRegion(chunk);
+            }
+            int regionTriangles = RegionAllocator.toRegionSize(indexCount / INDEXES_PER_TRIANGLE);
+            int regionOffset = mIndexRegions.allocate(regionTriangles);
+            mChunkIndexCapacities[chunk] = regionTriangles * INDEXES_PER_TRIANGLE;
+            mChunkIndexOffsets[chunk] = regionOffset < 0 ? -1 : regionOffset * INDEXES_PER_TRIANGLE;
+
+            // The content of a new region is unknown, so all of it is written by the upload.
+            mChunkIndexFillStarts[chunk] = mChunkIndexCapacities[chunk];
+            mIsDrawListDirty = true;
+        }
+        return mChunkVertexOffsets[chunk] >= 0 && mChunkIndexOffsets[chunk] >= 0;
+    }
+
+    private void freeRegions(int chunk) {
+        if (mChunkVertexOffsets[chunk] >= 0) {
+            mVertexRegions.free(mChunkVertexOffsets[chunk], mChunkVertexCapacities[chunk]);
+        }
+        if (mChunkIndexOffsets[chunk] >= 0) {
+            freeIndexRegion(chunk);
+        }
+    }
+
+    private void freeIndexRegion(int chunk) {
+        mIndexRegions.free(mChunkIndexOffsets[chunk] / INDEXES_PER_TRIANGLE,
+            mChunkIndexCapacities[chunk] / INDEXES_PER_TRIANGLE);
+    }
+
+    /**
+     * Sort the index regions of the chunks by offset, and merge the adjacent ones into one draw range. The
+     * degenerate triangles at the end of the regions are drawn, and are discarded by the GPU before rasterization.
+     */
+    private void buildDrawList() {
+        int regionCount = 0;
+        for (int chunk = 0; chunk < mChunkCount; chunk++) {
+            if (mChunkIndexOffsets[chunk] >= 0) {
+                mSortedRegions[regionCount++] = ((long) mChunkIndexOffsets[chunk] << Integer.SIZE)
+                    | mChunkIndexCapacities[chunk];
+            }
+        }
+        Arrays.sort(mSortedRegions, 0, regionCount);
+        mDrawCount = 0;
+        for (int i = 0; i < regionCount; i++) {
+            int start = (int) (mSortedRegions[i] >>> Integer.SIZE);
+            int count = (int) mSortedRegions[i];
+            if (mDrawCount > 0 && mDrawStarts[mDrawCount - 1] + mDrawCounts[mDrawCount - 1] == start) {
+                mDrawCounts[mDrawCount - 1] += count;
+            } else {
+                mDrawStarts[mDrawCount] = start;
+                mDrawCounts[mDrawCount] = count;
+                mDrawCount++;
+            }
+        }
+        mIsDrawListDirty = false;
+    }
+
+    private void moveChunk(int from, int to) {
+        mChunkKeys[to] = mChunkKeys[from];
+        mChunkTriangleCounts[to] = mChunkTriangleCounts[from];
+        mChunkHashes[to] = mChunkHashes[from];
+        mChunkVertexCounts[to] = mChunkVertexCounts[from];
+        mChunkIndexCounts[to] = mChunkIndexCounts[from];
+        mChunkVertexOffsets[to] = mChunkVertexOffsets[from];
+        mChunkVertexCapacities[to] = mChunkVertexCapacities[from];
+        mChunkIndexOffsets[to] = mChunkIndexOffsets[from];
+        mChunkIndexCapacities[to] = mChunkIndexCapacities[from];
+        mChunkIndexFillStarts[to] = mChunkIndexFillStarts[from];
+        mChunkIsChanged[to] = mChunkIsChanged[from];
+    }
+
+    private int findOrAddChunk(long key) {
+        int mask = mTableKeys.length - 1;
+        int slot = VoxelPointMap.hash(key) & mask;
+        while (mTableKeys[slot] != VoxelPointMap.EMPTY_KEY) {
+            if (mTableKeys[slot] == key) {
+                return mTableChunkIds[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (mChunkCount == mChunkKeys.length) {
+            growChunks();
+        }
+        int chunk = mChunkCount++;
+        mChunkKeys[chunk] = key;
+        mChunkTriangleCounts[chunk] = 0;
+        mChunkHashes[chunk] = 0;
+        mChunkVertexCounts[chunk] = 0;
+        mChunkIndexCounts[chunk] = 0;
+        mChunkVertexOffsets[chunk] = -1;
+        mChunkVertexCapacities[chunk] = 0;
+        mChunkIndexOffsets[chunk] = -1;
+        mChunkIndexCapacities[chunk] = 0;
+        mChunkIndexFillStarts[chunk] = 0;
+        if (mChunkCount * 2 > mTableKeys.length) {
+            rebuildTable();
+        } else {
+            mTableKeys[slot] = key;
+            mTableChunkIds[slot] = chunk;
+        }
+        return chunk;
+    }
+
+    private void growChunks() {
+        int capacity = mChunkKeys.length * 2;
+        mChunkKeys = Arrays.copyOf(mChunkKeys, capacity);
+        mChunkTriangleCounts = Arrays.copyOf(mChunkTriangleCounts, capacity);
+        mChunkTriangleStarts = Arrays.copyOf(mChunkTriangleStarts, capacity);
+        mChunkHashes = Arrays.copyOf(mChunkHashes, capacity);
+        mChunkVertexCounts = Arrays.copyOf(mChunkVertexCounts, capacity);
+        mChunkIndexCounts = Arrays.copyOf(mChunkIndexCounts, capacity);
+        mChunkVertexOffsets = Arrays.copyOf(mChunkVertexOffsets, capacity);
+        mChunkVertexCapacities = Arrays.copyOf(mChunkVertexCapacities, capacity);
+        mChunkIndexOffsets = Arrays.copyOf(mChunkIndexOffsets, capacity);
+        mChunkIndexCapacities = Arrays.copyOf(mChunkIndexCapacities, capacity);
+        mChunkIndexFillStarts = Arrays.copyOf(mChunkIndexFillStarts, capacity);
+        mChunkIsChanged = Arrays.copyOf(mChunkIsChanged, capacity);
+        mChunkIdRemap = Arrays.copyOf(mChunkIdRemap, capacity);
+        mDrawStarts = Arrays.copyOf(mDrawStarts, capacity);
+        mDrawCounts = Arrays.copyOf(mDrawCounts, capacity);
+        mSortedRegions = Arrays.copyOf(mSortedRegions, capacity);
+    }
+
+    private void rebuildTable() {
+        int tableSize = mTableKeys.length;
+        while (mChunkCount * 2 > tableSize) {
+            tableSize *= 2;
+        }
+        if (tableSize != mTableKeys.length) {
+            mTableKeys = new long[tableSize];
+            mTableChunkIds = new int[tableSize];
+        }
+        Arrays.fill(mTableKeys, VoxelPointMap.EMPTY_KEY);
+        int mask = tableSize - 1;
+        for (int chunk = 0; chunk < mChunkCount; chunk++) {
+            int slot = VoxelPointMap.hash(mChunkKeys[chunk]) & mask;
+            while (mTableKeys[slot] != VoxelPointMap.EMPTY_KEY) {
+                slot = (slot + 1) & mask;
+            }
+            mTableKeys[slot] = mChunkKeys[chunk];
+            mTableChunkIds[slot] = chunk;
+        }
+    }
+
+    private void ensureChunkCapacity(int maxCount) {
+        if (mChunkIndexes.capacity() < maxCount) {
+            int capacity = Integer.highestOneBit(maxCount) << 1;
+            mChunkVertices = allocateFloats(capacity * FLOATS_PER_VERTEX);
+            mChunkIndexes = allocateInts(capacity);
+        }
+        mChunkVertices.clear();
+        mChunkIndexes.clear();
+    }
+
+    private void nextStamp() {
+        mStamp++;
+        if (mStamp == 0) {
+            // After the stamp wraps around, old stamps could look current again.
+            Arrays.fill(mVertexStamps, 0);
+            mStamp = 1;
+        }
+    }
+
+    private static FloatBuffer allocateFloats(int count) {
+        return ByteBuffer.allocateDirect(count * Float.BYTES).order(ByteOrder.nativeOrder()).asFloatBuffer();
+    }
+
+    private static IntBuffer allocateInts(int count) {
+        return ByteBuffer.allocateDirect(count * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer();
+    }
+
+    /**
+     * Allocator of power-of-two regions in a buffer. Freed regions are kept in a free list per size and reused
+     * for regions of the same size. New regions are taken from the end of the used part of the buffer.
+     *
+     * @author HW
+     * @since 2023-06-12
+     */
+    private static final class RegionAllocator {
+        private static final int MIN_REGION_SIZE = 64;
+
+        private static final int SIZE_CLASS_COUNT = Integer.SIZE;
+
+        private final int[][] mFreeOffsets = new int[SIZE_CLASS_COUNT][];
+
+        private final int[] mFreeCounts = new int[SIZE_CLASS_COUNT];
+
+        private int mCapacity;
+
+        private int mTop = 0;
+
+        RegionAllocator(int capacity) {
+            mCapacity = Math.max(MIN_REGION_SIZE, capacity);
+        }
+
+        static int toRegionSize(int count) {
+            int size = Integer.highestOneBit(Math.max(MIN_REGION_SIZE, count));
+            return size < count ? size << 1 : size;
+        }
+
+        int getCapacity() {
+            return mCapacity;
+        }
+
+        /**
+         * Forget all regions and change the capacity.
+         */
+        void reset(int capacity) {
+            mCapacity = capacity;
+            mTop = 0;
+            Arrays.fill(mFreeCounts, 0);
+        }
+
+        /**
+         * Allocate a region.
+         *
+         * @return Offset of the region, or -1 if the buffer is full.
+         */
+        int allocate(int size) {
+            int sizeClass = Integer.numberOfTrailingZeros(size);
+            if (mFreeCounts[sizeClass] > 0) {
+                return mFreeOffsets[sizeClass][--mFreeCounts[sizeClass]];
+            }
+            if (mCapacity - mTop < size) {
+                return -1;
+            }
+            int offset = mTop;
+            mTop += size;
+            return offset;
+        }
+
+        void free(int offset, int size) {
+            int sizeClass = Integer.numberOfTrailingZeros(size);
+            int[] offsets = mFreeOffsets[sizeClass];
+            if (offsets == null || offsets.length == mFreeCounts[sizeClass]) {
+                offsets = offsets == null ? new int[MIN_REGION_SIZE] : Arrays.copyOf(offsets, offsets.length * 2);
+                mFreeOffsets[sizeClass] = offsets;
+            }
+            offsets[mFreeCounts[sizeClass]++] = offset;
+        }
+    }
+}
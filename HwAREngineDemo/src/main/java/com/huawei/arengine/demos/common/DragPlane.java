@@ -0,0 +1,145 @@
+/*
+ * Copyright 2023. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.huawei.arengine.demos.common;
+
+import com.huawei.hiar.ARAnchor;
+import com.huawei.hiar.ARHitResult;
+import com.huawei.hiar.ARPose;
+import com.huawei.hiar.ARTrackable;
+
+/**
+ * Plane on which a virtual object is dragged. The plane is taken from the hit result of AR Engine when the drag
+ * starts: it passes through the hit point and is perpendicular to the Y axis of the hit pose, which is the normal
+ * of a plane or of an oriented point. While dragging, screen rays are intersected with this plane without calling
+ * AR Engine, and the object keeps the orientation of the hit pose. A single anchor is created when the drag ends.
+ *
+ * @author HW
+ * @since 2023-06-12
+ */
+public class DragPlane {
+    private static final String TAG = "DragPlane";
+
+    private static final int MATRIX_SIZE = 16;
+
+    /**
+     * Rays that are almost parallel to the plane are ignored, because their intersection is too far away.
+     */
+    private static final float MIN_COS_ANGLE = 1.0e-3f;
+
+    private final float[] mPoseMatrix = new float[MATRIX_SIZE];
+
+    private final float[] mNormal = new float[3];
+
+    private final float[] mRotation = new float[4];
+
+    private final float[] mTranslation = new float[3];
+
+    private ARTrackable mTrackable = null;
+
+    private boolean mIsActive = false;
+
+    /**
+     * Start a drag on the plane of a hit result.
+     *
+     * @param hitResult Hit result of AR Engine at the position where the drag starts.
+     */
+    public void begin(ARHitResult hitResult) {
+        ARPose hitPose = hitResult.getHitPose();
+        hitPose.toMatrix(mPoseMatrix, 0);
+        hitPose.getRotationQuaternion(mRotation, 0);
+        mNormal[0] = mPoseMatrix[4];
+        mNormal[1] = mPoseMatrix[5];
+        mNormal[2] = mPoseMatrix[6];
+        MatrixUtil.normalizeVec3(mNormal);
+        mTrackable = hitResult.getTrackable();
+        mIsActive = true;
+    }
+
+    /**
+     * Check whether a drag has begun and has not ended or been canceled.
+     *
+     * @return true if the drag is active.
+     */
+    public boolean isActive() {
+        return mIsActive;
+    }
+
+    /**
+     * Move the drag pose to the intersection of a ray with the plane.
+     *
+     * @param rayOrigin Origin of the ray in the world coordinate system.
+     * @param rayDirection Normalized direction of the ray.
+     * @return false if the drag is not active, or the ray does not hit the plane in front of its origin.
+     */
+    public boolean intersect(float[] rayOrigin, float[] rayDirection) {
+        if (!mIsActive) {
+            return false;
+        }
+        float cosAngle = mNormal[0] * rayDirection[0] + mNormal[1] * rayDirection[1] + mNormal[2] * rayDirection[2];
+        if (Math.abs(cosAngle) < MIN_COS_ANGLE) {
+            return false;
+        }
+        float distance = (mNormal[0] * (mPoseMatrix[12] - rayOrigin[0])
+            + mNormal[1] * (mPoseMatrix[13] - rayOrigin[1])
+            + mNormal[2] * (mPoseMatrix[14] - rayOrigin[2])) / cosAngle;
+        if (distance < 0.0f) {
+            return false;
+        }
+        mPoseMatrix[12] = rayOrigin[0] + rayDirection[0] * distance;
+        mPoseMatrix[13] = rayOrigin[1] + rayDirection[1] * distance;
+        mPoseMatrix[14] = rayOrigin[2] + rayDirection[2] * distance;
+        return true;
+    }
+
+    /**
+     * Obtain the current drag pose.
+     *
+     * @return Pose matrix 4 * 4, which must not be modified.
+     */
+    public float[] getPoseMatrix() {
+        return mPoseMatrix;
+    }
+
+    /**
+     * End the drag and anchor the current drag pose to the trackable that was hit when the drag started.
+     *
+     * @return New anchor, or null if the drag is not active or the trackable is no longer tracked.
+     */
+    public ARAnchor end() {
+        if (!mIsActive) {
+            return null;
+        }
+        ARTrackable trackable = mTrackable;
+        cancel();
+        if (trackable == null || trackable.getTrackingState() != ARTrackable.TrackingState.TRACKING) {
+            LogUtil.warn(TAG, "The dragged object is not anchored, because the trackable is not tracked.");
+            return null;
+        }
+        mTranslation[0] = mPoseMatrix[12];
+        mTranslation[1] = mPoseMatrix[13];
+        mTranslation[2] = mPoseMatrix[14];
+        return trackable.createAnchor(new ARPose(mTranslation, mRotation));
+    }
+
+    /**
+     * End the drag without creating an anchor.
+     */
+    public void cancel() {
+        mTrackable = null;
+        mIsActive = false;
+    }
+}
@@ -0,0 +1,318 @@
+/*
+ * Copyright 2023. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.huawei.arengine.demos.common;
+
+import android.opengl.GLES20;
+
+import java.nio.Buffer;
+
+/**
+ * Vertex or index buffer whose content is replaced every frame. Each upload orphans the old storage with
+ * glBufferData(null) before writing, so the driver can hand out new memory instead of waiting for the GPU
+ * to finish reading the previous frame. The capacity grows to the next power of two when the data does not
+ * fit, and shrinks when the buffer stays mostly empty for a while. All methods must be called on the GL
+ * thread.
+ *
+ * @author HW
+ * @since 2023-06-12
+ */
+public class DynamicVertexBuffer {
+    private static final String TAG = "DynamicVertexBuffer";
+
+    /**
+     * The capacity is checked for shrinking after this number of uploads.
+     */
+    private static final int SHRINK_CHECK_UPLOADS = 120;
+
+    /**
+     * The buffer shrinks if the largest upload in a check window uses less than 1 / SHRINK_RATIO of it.
+     */
+    private static final int SHRINK_RATIO = 4;
+
+    private static long sFrameUploadCount = 0L;
+
+    private static long sFrameUploadedBytes = 0L;
+
+    private static long sFrameReallocationCount = 0L;
+
+    private static long sLastFrameUploadCount = 0L;
+
+    private static long sLastFrameUploadedBytes = 0L;
+
+    private static long sLastFrameReallocationCount = 0L;
+
+    private final int mTarget;
+
+    private final int mInitialCapacity;
+
+    private int mBufferId = 0;
+
+    private int mCapacity;
+
+    private int mAllocatedCapacity = 0;
+
+    private int mSize = 0;
+
+    private int mPeakSize = 0;
+
+    private int mUploadsSinceCheck = 0;
+
+    private long mUploadCount = 0L;
+
+    private long mUploadedBytes = 0L;
+
+    private long mReallocationCount = 0L;
+
+    /**
+     * Constructor.
+     *
+     * @param target GLES20.GL_ARRAY_BUFFER or GLES20.GL_ELEMENT_ARRAY_BUFFER.
+     * @param initialCapacity Initial capacity in bytes, which is also the smallest capacity after shrinking.
+     */
+    public DynamicVertexBuffer(int target, int initialCapacity) {
+        mTarget = target;
+        mInitialCapacity = Math.max(1, initialCapacity);
+        mCapacity = mInitialCapacity;
+    }
+
+    /**
+     * Create the GL buffer. This method is called when the display is initialized on the GL thread.
+     */
+    public void init() {
+        int[] buffers = new int[1];
+        GlFacade.get().glGenBuffers(1, buffers, 0);
+        mBufferId = buffers[0];
+        GlFacade.get().glBindBuffer(mTarget, mBufferId);
+        GlFacade.get().glBufferData(mTarget, mCapacity, null, GLES20.GL_STREAM_DRAW);
+        GlFacade.get().glBindBuffer(mTarget, 0);
+        mAllocatedCapacity = mCapacity;
+        ShaderUtil.checkGlError(TAG, "init");
+    }
+
+    /**
+     * Delete the GL buffer on the GL thread. The buffer can be created again with {@link #init()}. The buffer of a
+     * lost GL context is deleted with the context, and does not need to be released.
+     */
+    public void release() {
+        if (mBufferId == 0) {
+            return;
+        }
+        GlFacade.get().glDeleteBuffers(1, new int[] {mBufferId}, 0);
+        mBufferId = 0;
+        mAllocatedCapacity = 0;
+        ShaderUtil.checkGlError(TAG, "release");
+    }
+
+    /**
+     * Replace the content of the buffer. The buffer is unbound after the upload.
+     *
+     * @param data Data to be uploaded, from its position.
+     * @param size Number of bytes to be uploaded.
+     */
+    public void upload(Buffer data, int size) {
+        beginUpload(size);
+        write(0, size, data);
+        endUpload();
+    }
+
+    /**
+     * Bind the buffer and orphan its storage, so that it can be filled by {@link #write}. Call
+     * {@link #endUpload()} after writing.
+     *
+     * @param size Total number of bytes to be written in this upload.
+     */
+    public void beginUpload(int size) {
+        GlFacade.get().glBindBuffer(mTarget, mBufferId);
+        updateCapacity(size);
+        if (mCapacity != mAllocatedCapacity) {
+            mReallocationCount++;
+            sFrameReallocationCount++;
+        }
+
+        // Orphaning: the old storage is released by the driver once the GPU no longer uses it.
+        GlFacade.get().glBufferData(mTarget, mCapacity, null, GLES20.GL_STREAM_DRAW);
+        mAllocatedCapacity = mCapacity;
+        mSize = size;
+        mUploadCount++;
+        sFrameUploadCount++;
+    }
+
+    /**
+     * Write data into the buffer that is being uploaded.
+     *
+     * @param offset Offset in the buffer, in bytes.
+     * @param size Number of bytes to be written.
+     * @param data Data to be written, from its position.
+     */
+    public void write(int offset, int size, Buffer data) {
+        if (size <= 0) {
+            return;
+        }
+        if (offset + size > mSize) {
+            LogUtil.error(TAG, "Write out of the range of the upload: " + (offset + size) + " > " + mSize);
+            return;
+        }
+        GlFacade.get().glBufferSubData(mTarget, offset, size, data);
+        mUploadedBytes += size;
+        sFrameUploadedBytes += size;
+    }
+
+    /**
+     * Finish the upload and unbind the buffer.
+     */
+    public void endUpload() {
+        GlFacade.get().glBindBuffer(mTarget, 0);
+    }
+
+    private void updateCapacity(int size) {
+        mPeakSize = Math.max(mPeakSize, size);
+        if (size > mCapacity) {
+            // If the buffer is not big enough, grow it to the next power of two.
+            mCapacity = Math.max(mInitialCapacity, nextPowerOfTwo(size));
+            mPeakSize = size;
+            mUploadsSinceCheck = 0;
+            return;
+        }
+        mUploadsSinceCheck++;
+        if (mUploadsSinceCheck < SHRINK_CHECK_UPLOADS) {
+            return;
+        }
+        if (mCapacity > mInitialCapacity && mPeakSize * SHRINK_RATIO <= mCapacity) {
+            // Keep twice the recent peak, so that the buffer does not grow again immediately.
+            mCapacity = Math.max(mInitialCapacity, nextPowerOfTwo(mPeakSize * 2));
+        }
+        mPeakSize = size;
+        mUploadsSinceCheck = 0;
+    }
+
+    private static int nextPowerOfTwo(int value) {
+        int highestBit = Integer.highestOneBit(Math.max(1, value));
+        return highestBit == value ? value : highestBit << 1;
+    }
+
+    /**
+     * Bind the buffer for drawing.
+     */
+    public void bind() {
+        GlFacade.get().glBindBuffer(mTarget, mBufferId);
+    }
+
+    /**
+     * Obtain the name of the GL buffer.
+     *
+     * @return Buffer name, or 0 before {@link #init()} or after {@link #release()}.
+     */
+    public int getBufferId() {
+        return mBufferId;
+    }
+
+    /**
+     * Obtain the size of the latest upload.
+     *
+     * @return Number of bytes.
+     */
+    public int getSize() {
+        return mSize;
+    }
+
+    /**
+     * Obtain the capacity of the GL buffer.
+     *
+     * @return Capacity in bytes.
+     */
+    public int getCapacity() {
+        return mCapacity;
+    }
+
+    /**
+     * Obtain the number of uploads of this buffer.
+     *
+     * @return Number of uploads.
+     */
+    public long getUploadCount() {
+        return mUploadCount;
+    }
+
+    /**
+     * Obtain the number of bytes uploaded to this buffer.
+     *
+     * @return Number of bytes.
+     */
+    public long getUploadedBytes() {
+        return mUploadedBytes;
+    }
+
+    /**
+     * Obtain the number of times that the capacity of this buffer changed.
+     *
+     * @return Number of reallocations.
+     */
+    public long getReallocationCount() {
+        return mReallocationCount;
+    }
+
+    /**
+     * Finish the upload statistics of the previous frame and start counting a new frame. This method is called
+     * at the beginning of each frame.
+     */
+    public static void onFrameBegin() {
+        sLastFrameUploadCount = sFrameUploadCount;
+        sLastFrameUploadedBytes = sFrameUploadedBytes;
+        sLastFrameReallocationCount = sFrameReallocationCount;
+        sFrameUploadCount = 0L;
+        sFrameUploadedBytes = 0L;
+        sFrameReallocationCount = 0L;
+    }
+
+    /**
+     * Add an upload to another GL buffer to the statistics of the current frame, so that the statistics cover
+     * all data sent to GL in the frame.
+     *
+     * @param size Number of bytes uploaded.
+     */
+    static void countFrameUpload(int size) {
+        sFrameUploadCount++;
+        sFrameUploadedBytes += size;
+    }
+
+    /**
+     * Obtain the number of uploads of all dynamic buffers in the previous frame.
+     *
+     * @return Number of uploads.
+     */
+    public static long getLastFrameUploadCount() {
+        return sLastFrameUploadCount;
+    }
+
+    /**
+     * Obtain the number of bytes uploaded to all dynamic buffers in the previous frame.
+     *
+     * @return Number of bytes.
+     */
+    public static long getLastFrameUploadedBytes() {
+        return sLastFrameUploadedBytes;
+    }
+
+    /**
+     * Obtain the number of capacity changes of all dynamic buffers in the previous frame.
+     *
+     * @return Number of reallocations.
+     */
+    public static long getLastFrameReallocationCount() {
+        return sLastFrameReallocationCount;
+    }
+}
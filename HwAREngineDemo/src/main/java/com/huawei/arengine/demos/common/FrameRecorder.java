@@ -0,0 +1,235 @@
+/*
+ * Copyright 2023. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.huawei.arengine.demos.common;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Append-only binary recorder of frame snapshots. The GL thread encodes each frame into a pooled direct
+ * buffer, and a background thread writes the buffers to the file through a FileChannel. If all buffers are
+ * waiting to be written, the frame is dropped instead of blocking the GL thread. The file can be replayed by
+ * {@link ReplayFrameSource#fromFile}.
+ *
+ * @author HW
+ * @since 2023-06-12
+ */
+public class FrameRecorder {
+    private static final String TAG = "FrameRecorder";
+
+    private static final int DEFAULT_BUFFER_COUNT = 8;
+
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Empty buffer that tells the flusher thread to stop.
+     */
+    private static final ByteBuffer END_OF_RECORDING = ByteBuffer.allocate(0);
+
+    private final FileChannel mChannel;
+
+    private final ArrayBlockingQueue<ByteBuffer> mFreeBuffers;
+
+    private final ArrayBlockingQueue<ByteBuffer> mPendingBuffers;
+
+    private final Thread mFlusher;
+
+    /**
+     * Lock that makes the check of {@link #mIsClosed} and the queuing of a frame atomic with respect to
+     * {@link #close}, so that no frame is queued after the end of the recording.
+     */
+    private final Object mQueueLock = new Object();
+
+    private final AtomicLong mWrittenBytes = new AtomicLong(0L);
+
+    private long mRecordedFrameCount = 0L;
+
+    private long mDroppedFrameCount = 0L;
+
+    private volatile IOException mWriteException;
+
+    private volatile boolean mIsClosed = false;
+
+    /**
+     * Create a recorder with the default number of buffers. The file is truncated and the file header is
+     * written immediately.
+     *
+     * @param file Recording file.
+     * @throws IOException If the file cannot be opened.
+     */
+    public FrameRecorder(File file) throws IOException {
+        this(file, DEFAULT_BUFFER_COUNT);
+    }
+
+    /**
+     * Create a recorder.
+     *
+     * @param file Recording file.
+     * @param bufferCount Number of frames that can wait to be written.
+     * @throws IOException If the file cannot be opened.
+     */
+    public FrameRecorder(File file, int bufferCount) throws IOException {
+        if (bufferCount <= 0) {
+            throw new IllegalArgumentException("bufferCount must be positive: " + bufferCount);
+        }
+        mChannel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer header = ByteBuffer.allocate(FrameSnapshotCodec.FILE_HEADER_SIZE)
+            .order(FrameSnapshotCodec.BYTE_ORDER);
+        FrameSnapshotCodec.writeFileHeader(header);
+        header.flip();
+        try {
+            writeFully(header);
+        } catch (IOException exception) {
+            mChannel.close();
+            throw exception;
+        }
+        mFreeBuffers = new ArrayBlockingQueue<>(bufferCount);
+        mPendingBuffers = new ArrayBlockingQueue<>(bufferCount + 1);
+        for (int i = 0; i < bufferCount; i++) {
+            mFreeBuffers.add(allocateBuffer(INITIAL_BUFFER_SIZE));
+        }
+        mFlusher = new Thread(this::flushLoop, TAG);
+        mFlusher.start();
+    }
+
+    /**
+     * Encode a frame and queue it for writing. This method does not wait for the disk and should be called on
+     * the GL thread.
+     *
+     * @param frame Frame snapshot.
+     * @return true if the frame is queued; false if it is dropped because the writer cannot keep up or the
+     *         recorder is closed.
+     */
+    public boolean record(FrameSnapshot frame) {
+        if (mIsClosed || mWriteException != null) {
+            return false;
+        }
+        ByteBuffer buffer = mFreeBuffers.poll();
+        if (buffer == null) {
+            mDroppedFrameCount++;
+            return false;
+        }
+        int size = FrameSnapshotCodec.getEncodedSize(frame);
+        if (buffer.capacity() < size) {
+            buffer = allocateBuffer(Math.max(size, buffer.capacity() * 2));
+        }
+        buffer.clear();
+        FrameSnapshotCodec.encode(frame, buffer);
+        buffer.flip();
+        synchronized (mQueueLock) {
+            if (mIsClosed) {
+                mFreeBuffers.add(buffer);
+                return false;
+            }
+            mPendingBuffers.add(buffer);
+        }
+        mRecordedFrameCount++;
+        return true;
+    }
+
+    /**
+     * Write the queued frames, stop the background thread and close the file.
+     *
+     * @throws IOException If a frame could not be written or the file could not be closed.
+     */
+    public void close() throws IOException {
+        synchronized (mQueueLock) {
+            if (mIsClosed) {
+                return;
+            }
+            mIsClosed = true;
+            mPendingBuffers.add(END_OF_RECORDING);
+        }
+        try {
+            mFlusher.join();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            LogUtil.warn(TAG, "Interrupted while waiting for the recording to be written.");
+        }
+        mChannel.close();
+        if (mWriteException != null) {
+            throw mWriteException;
+        }
+    }
+
+    /**
+     * Obtain the number of frames queued for writing.
+     *
+     * @return Number of recorded frames.
+     */
+    public long getRecordedFrameCount() {
+        return mRecordedFrameCount;
+    }
+
+    /**
+     * Obtain the number of frames dropped because the writer could not keep up.
+     *
+     * @return Number of dropped frames.
+     */
+    public long getDroppedFrameCount() {
+        return mDroppedFrameCount;
+    }
+
+    /**
+     * Obtain the number of bytes written to the file, including the file header.
+     *
+     * @return Number of bytes.
+     */
+    public long getWrittenBytes() {
+        return mWrittenBytes.get();
+    }
+
+    private void flushLoop() {
+        while (true) {
+            ByteBuffer buffer;
+            try {
+                buffer = mPendingBuffers.take();
+            } catch (InterruptedException exception) {
+                LogUtil.warn(TAG, "Recording flusher is interrupted.");
+                return;
+            }
+            if (buffer == END_OF_RECORDING) {
+                return;
+            }
+            if (mWriteException == null) {
+                try {
+                    writeFully(buffer);
+                } catch (IOException exception) {
+                    LogUtil.error(TAG, "Write recording failed, " + exception.getClass());
+                    mWriteException = exception;
+                }
+            }
+            mFreeBuffers.add(buffer);
+        }
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            mWrittenBytes.addAndGet(mChannel.write(buffer));
+        }
+    }
+
+    private static ByteBuffer allocateBuffer(int size) {
+        return ByteBuffer.allocateDirect(size).order(FrameSnapshotCodec.BYTE_ORDER);
+    }
+}
@@ -0,0 +1,344 @@
+/*
+ * Copyright 2023. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.huawei.arengine.demos.common;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Plain data copy of the AR data in a frame: camera, light estimate, point cloud, scene mesh and trackables.
+ * It does not reference any AR Engine object, except that the live source sets the scene mesh buffers of AR Engine
+ * without copying them. The snapshot is reused from frame to frame by the {@link FrameSource}, so its content is
+ * valid only until the end of the frame.
+ *
+ * @author HW
+ * @since 2023-06-12
+ */
+public class FrameSnapshot {
+    /**
+     * Number of floats of each point cloud point: x, y, z and confidence.
+     */
+    public static final int FLOATS_PER_CLOUD_POINT = 4;
+
+    /**
+     * Number of floats of each scene mesh vertex: x, y and z.
+     */
+    public static final int FLOATS_PER_MESH_VERTEX = 3;
+
+    private static final int MATRIX_SIZE = 16;
+
+    private static final int BYTES_PER_FLOAT = 4;
+
+    private static final FloatBuffer EMPTY_FLOAT_BUFFER = FloatBuffer.allocate(0);
+
+    private static final IntBuffer EMPTY_INT_BUFFER = IntBuffer.allocate(0);
+
+    private long mTimestampNs;
+
+    private boolean mIsCameraTracking;
+
+    private final float[] mCameraPose = new float[TrackableSnapshot.POSE_SIZE];
+
+    private final float[] mViewMatrix = new float[MATRIX_SIZE];
+
+    private final float[] mProjectionMatrix = new float[MATRIX_SIZE];
+
+    private float mPixelIntensity = 1.0f;
+
+    private FloatBuffer mPointCloud = EMPTY_FLOAT_BUFFER;
+
+    private long mPointCloudTimestampNs;
+
+    private FloatBuffer mMeshVertices = EMPTY_FLOAT_BUFFER;
+
+    private IntBuffer mMeshIndices = EMPTY_INT_BUFFER;
+
+    private FloatBuffer mOwnedPointCloud = EMPTY_FLOAT_BUFFER;
+
+    private long mOwnedPointCloudTimestampNs;
+
+    private boolean mHasOwnedPointCloud = false;
+
+    private final List<TrackableSnapshot> mPlanes = new ArrayList<>();
+
+    private final List<TrackableSnapshot> mBodies = new ArrayList<>();
+
+    private final List<TrackableSnapshot> mHands = new ArrayList<>();
+
+    private final List<TrackableSnapshot> mPlanePool = new ArrayList<>();
+
+    private final List<TrackableSnapshot> mBodyPool = new ArrayList<>();
+
+    private final List<TrackableSnapshot> mHandPool = new ArrayList<>();
+
+    /**
+     * Clear the data of the previous frame. Buffers and trackable objects are kept for reuse.
+     */
+    public void clear() {
+        mTimestampNs = 0L;
+        mIsCameraTracking = false;
+        mPixelIntensity = 1.0f;
+        mPointCloud = EMPTY_FLOAT_BUFFER;
+        mPointCloudTimestampNs = 0L;
+        mMeshVertices = EMPTY_FLOAT_BUFFER;
+        mMeshIndices = EMPTY_INT_BUFFER;
+        mPlanes.clear();
+        mBodies.clear();
+        mHands.clear();
+    }
+
+    /**
+     * Obtain the timestamp of the frame.
+     *
+     * @return Frame timestamp, in nanoseconds.
+     */
+    public long getTimestampNs() {
+        return mTimestampNs;
+    }
+
+    /**
+     * Set the timestamp of the frame.
+     *
+     * @param timestampNs Frame timestamp, in nanoseconds.
+     */
+    public void setTimestampNs(long timestampNs) {
+        mTimestampNs = timestampNs;
+    }
+
+    /**
+     * Check whether the camera is in the TRACKING state. The pose and matrices are not reliable otherwise.
+     *
+     * @return true if the camera is tracking.
+     */
+    public boolean isCameraTracking() {
+        return mIsCameraTracking;
+    }
+
+    /**
+     * Set whether the camera is in the TRACKING state.
+     *
+     * @param isCameraTracking true if the camera is tracking.
+     */
+    public void setCameraTracking(boolean isCameraTracking) {
+        mIsCameraTracking = isCameraTracking;
+    }
+
+    /**
+     * Obtain the camera pose, which is stored as translation (x, y, z) and rotation quaternion (x, y, z, w).
+     *
+     * @return Camera pose array. The array is not copied.
+     */
+    public float[] getCameraPose() {
+        return mCameraPose;
+    }
+
+    /**
+     * Obtain the view matrix.
+     *
+     * @return 4 * 4 view matrix. The array is not copied.
+     */
+    public float[] getViewMatrix() {
+        return mViewMatrix;
+    }
+
+    /**
+     * Obtain the projection matrix.
+     *
+     * @return 4 * 4 projection matrix. The array is not copied.
+     */
+    public float[] getProjectionMatrix() {
+        return mProjectionMatrix;
+    }
+
+    /**
+     * Obtain the pixel intensity of the light estimate.
+     *
+     * @return Pixel intensity, or 1 if the light estimate is not valid.
+     */
+    public float getPixelIntensity() {
+        return mPixelIntensity;
+    }
+
+    /**
+     * Set the pixel intensity of the light estimate.
+     *
+     * @param pixelIntensity Pixel intensity.
+     */
+    public void setPixelIntensity(float pixelIntensity) {
+        mPixelIntensity = pixelIntensity;
+    }
+
+    /**
+     * Obtain the point cloud, in which each point has {@link #FLOATS_PER_CLOUD_POINT} floats.
+     *
+     * @return Point cloud buffer, from position to limit.
+     */
+    public FloatBuffer getPointCloud() {
+        return mPointCloud;
+    }
+
+    /**
+     * Obtain the timestamp of the point cloud. AR Engine keeps the timestamp when tracking has not produced new
+     * points, so renderers can skip the upload of a cloud whose timestamp has not changed.
+     *
+     * @return Point cloud timestamp, in nanoseconds.
+     */
+    public long getPointCloudTimestampNs() {
+        return mPointCloudTimestampNs;
+    }
+
+    /**
+     * Set the point cloud without copying the data.
+     *
+     * @param pointCloud Point cloud buffer, from position to limit.
+     * @param timestampNs Timestamp of the point cloud.
+     */
+    public void setPointCloud(FloatBuffer pointCloud, long timestampNs) {
+        mPointCloud = pointCloud == null ? EMPTY_FLOAT_BUFFER : pointCloud;
+        mPointCloudTimestampNs = timestampNs;
+    }
+
+    /**
+     * Copy the point cloud into the buffer owned by this snapshot. The copy is skipped if the buffer already holds
+     * the cloud of the same timestamp.
+     *
+     * @param pointCloud Point cloud buffer, from position to limit. Its position is not changed.
+     * @param timestampNs Timestamp of the point cloud.
+     */
+    public void copyPointCloud(FloatBuffer pointCloud, long timestampNs) {
+        if (!mHasOwnedPointCloud || timestampNs != mOwnedPointCloudTimestampNs) {
+            mOwnedPointCloud = copyOf(pointCloud, mOwnedPointCloud);
+            mOwnedPointCloudTimestampNs = timestampNs;
+            mHasOwnedPointCloud = true;
+        }
+        mPointCloud = mOwnedPointCloud;
+        mPointCloudTimestampNs = timestampNs;
+    }
+
+    /**
+     * Obtain the scene mesh vertices, in which each vertex has {@link #FLOATS_PER_MESH_VERTEX} floats. The live
+     * source does not copy them, so the buffer must not be kept after the frame.
+     *
+     * @return Vertex buffer, from position to limit. It is empty if the scene mesh is not captured.
+     */
+    public FloatBuffer getMeshVertices() {
+        return mMeshVertices;
+    }
+
+    /**
+     * Obtain the scene mesh triangle indexes, in which each triangle has three indexes. The live source does not
+     * copy them, so the buffer must not be kept after the frame.
+     *
+     * @return Triangle index buffer, from position to limit. It is empty if the scene mesh is not captured.
+     */
+    public IntBuffer getMeshIndices() {
+        return mMeshIndices;
+    }
+
+    /**
+     * Set the scene mesh without copying the data.
+     *
+     * @param vertices Vertex buffer, in which each vertex has {@link #FLOATS_PER_MESH_VERTEX} floats.
+     * @param indices Triangle index buffer, in which each triangle has three indexes.
+     */
+    public void setSceneMesh(FloatBuffer vertices, IntBuffer indices) {
+        mMeshVertices = vertices == null ? EMPTY_FLOAT_BUFFER : vertices;
+        mMeshIndices = indices == null ? EMPTY_INT_BUFFER : indices;
+    }
+
+    /**
+     * Obtain the planes of this frame.
+     *
+     * @return Plane snapshots. The list is not copied.
+     */
+    public List<TrackableSnapshot> getPlanes() {
+        return mPlanes;
+    }
+
+    /**
+     * Obtain the bodies of this frame.
+     *
+     * @return Body snapshots. The list is not copied.
+     */
+    public List<TrackableSnapshot> getBodies() {
+        return mBodies;
+    }
+
+    /**
+     * Obtain the hands of this frame.
+     *
+     * @return Hand snapshots. The list is not copied.
+     */
+    public List<TrackableSnapshot> getHands() {
+        return mHands;
+    }
+
+    /**
+     * Add a trackable of the specified type to this frame. Trackable objects of previous frames are reused.
+     *
+     * @param type Trackable type, for example {@link TrackableSnapshot#TYPE_PLANE}.
+     * @return Trackable snapshot to be filled in.
+     */
+    public TrackableSnapshot obtainTrackable(int type) {
+        List<TrackableSnapshot> list;
+        List<TrackableSnapshot> pool;
+        switch (type) {
+            case TrackableSnapshot.TYPE_PLANE:
+                list = mPlanes;
+                pool = mPlanePool;
+                break;
+            case TrackableSnapshot.TYPE_BODY:
+                list = mBodies;
+                pool = mBodyPool;
+                break;
+            case TrackableSnapshot.TYPE_HAND:
+                list = mHands;
+                pool = mHandPool;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown trackable type: " + type);
+        }
+        int index = list.size();
+        if (index >= pool.size()) {
+            pool.add(new TrackableSnapshot(type));
+        }
+        TrackableSnapshot trackable = pool.get(index);
+        list.add(trackable);
+        return trackable;
+    }
+
+    private static FloatBuffer copyOf(FloatBuffer src, FloatBuffer reuse) {
+        if (src == null) {
+            return EMPTY_FLOAT_BUFFER;
+        }
+        int count = src.remaining();
+        FloatBuffer dst = reuse;
+        if (dst.capacity() < count) {
+            dst = ByteBuffer.allocateDirect(count * BYTES_PER_FLOAT).order(ByteOrder.nativeOrder()).asFloatBuffer();
+        }
+        int position = src.position();
+        dst.clear();
+        dst.put(src);
+        dst.flip();
+        src.position(position);
+        return dst;
+    }
+}
@@ -0,0 +1,304 @@
+/*
+ * Copyright 2023. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.huawei.arengine.demos.common;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.List;
+
+/**
+ * Binary encoding of {@link FrameSnapshot}. A recording starts with a file header followed by frame records.
+ * Each frame record starts with a magic number and the length of its body, so that a truncated last frame
+ * can be detected. All data is little-endian and 4-byte aligned, and decoded point clouds and scene meshes
+ * are views of the source buffer without copying.
+ *
+ * @author HW
+ * @since 2023-06-12
+ */
+public final class FrameSnapshotCodec {
+    /**
+     * Byte order of the encoded data.
+     */
+    public static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    /**
+     * Size of the file header, in bytes.
+     */
+    public static final int FILE_HEADER_SIZE = 8;
+
+    /**
+     * Size of the frame record header, in bytes.
+     */
+    public static final int FRAME_HEADER_SIZE = 8;
+
+    private static final int FILE_MAGIC = 0x52534441;
+
+    private static final int FILE_VERSION = 2;
+
+    private static final int FRAME_MAGIC = 0x52464441;
+
+    private static final int MATRIX_SIZE = 16;
+
+    private static final int BYTES_PER_VALUE = 4;
+
+    private static final int BYTES_PER_LONG = 8;
+
+    /**
+     * Fixed part of a frame body: timestamp, camera tracking flag, camera pose, view matrix, projection matrix,
+     * pixel intensity, point cloud timestamp, and the counts of point cloud floats, mesh vertex floats, mesh
+     * indexes and trackables.
+     */
+    private static final int FRAME_FIXED_SIZE = BYTES_PER_LONG * 2
+        + BYTES_PER_VALUE * (1 + TrackableSnapshot.POSE_SIZE + MATRIX_SIZE * 2 + 1 + 4);
+
+    /**
+     * Fixed part of a trackable: type, tracking flag, pose, label, coordinate flag and the lengths of the
+     * points, point flags, connections and box.
+     */
+    private static final int TRACKABLE_FIXED_SIZE = BYTES_PER_VALUE * (2 + TrackableSnapshot.POSE_SIZE + 2 + 4);
+
+    private FrameSnapshotCodec() {
+    }
+
+    /**
+     * Write the file header.
+     *
+     * @param out Output buffer, whose byte order must be {@link #BYTE_ORDER}.
+     */
+    public static void writeFileHeader(ByteBuffer out) {
+        out.putInt(FILE_MAGIC);
+        out.putInt(FILE_VERSION);
+    }
+
+    /**
+     * Read and check the file header.
+     *
+     * @param in Input buffer, whose byte order must be {@link #BYTE_ORDER}.
+     * @return true if the header is valid; false otherwise.
+     */
+    public static boolean readFileHeader(ByteBuffer in) {
+        if (in.remaining() < FILE_HEADER_SIZE) {
+            return false;
+        }
+        return in.getInt() == FILE_MAGIC && in.getInt() == FILE_VERSION;
+    }
+
+    /**
+     * Obtain the size of the frame record at the specified position without decoding it.
+     *
+     * @param in Input buffer, whose byte order must be {@link #BYTE_ORDER}.
+     * @param position Position of the frame record.
+     * @return Size of the record including the frame header, or -1 if there is no complete record.
+     */
+    public static int getRecordSize(ByteBuffer in, int position) {
+        if (in.limit() - position < FRAME_HEADER_SIZE || in.getInt(position) != FRAME_MAGIC) {
+            return -1;
+        }
+        int bodySize = in.getInt(position + BYTES_PER_VALUE);
+        if (bodySize < FRAME_FIXED_SIZE || bodySize > in.limit() - position - FRAME_HEADER_SIZE) {
+            return -1;
+        }
+        return FRAME_HEADER_SIZE + bodySize;
+    }
+
+    /**
+     * Calculate the size of the encoded frame record, including the frame header.
+     *
+     * @param frame Frame snapshot.
+     * @return Size in bytes.
+     */
+    public static int getEncodedSize(FrameSnapshot frame) {
+        int size = FRAME_HEADER_SIZE + FRAME_FIXED_SIZE;
+        size += BYTES_PER_VALUE * (frame.getPointCloud().remaining() + frame.getMeshVertices().remaining()
+            + frame.getMeshIndices().remaining());
+        size += getTrackablesSize(frame.getPlanes());
+        size += getTrackablesSize(frame.getBodies());
+        size += getTrackablesSize(frame.getHands());
+        return size;
+    }
+
+    private static int getTrackablesSize(List<TrackableSnapshot> trackables) {
+        int size = 0;
+        for (TrackableSnapshot trackable : trackables) {
+            size += TRACKABLE_FIXED_SIZE + BYTES_PER_VALUE * (trackable.getPoints().length
+                + trackable.getPointFlags().length + trackable.getConnections().length + trackable.getBox().length);
+        }
+        return size;
+    }
+
+    /**
+     * Encode a frame record. The buffers of the frame are not consumed.
+     *
+     * @param frame Frame snapshot.
+     * @param out Output buffer, whose byte order must be {@link #BYTE_ORDER} and whose remaining space must be at
+     *        least {@link #getEncodedSize}.
+     */
+    public static void encode(FrameSnapshot frame, ByteBuffer out) {
+        out.putInt(FRAME_MAGIC);
+        out.putInt(getEncodedSize(frame) - FRAME_HEADER_SIZE);
+        out.putLong(frame.getTimestampNs());
+        out.putInt(frame.isCameraTracking() ? 1 : 0);
+        putFloats(out, frame.getCameraPose());
+        putFloats(out, frame.getViewMatrix());
+        putFloats(out, frame.getProjectionMatrix());
+        out.putFloat(frame.getPixelIntensity());
+
+        out.putLong(frame.getPointCloudTimestampNs());
+        FloatBuffer pointCloud = frame.getPointCloud();
+        out.putInt(pointCloud.remaining());
+        for (int i = pointCloud.position(); i < pointCloud.limit(); i++) {
+            out.putFloat(pointCloud.get(i));
+        }
+        FloatBuffer vertices = frame.getMeshVertices();
+        out.putInt(vertices.remaining());
+        for (int i = vertices.position(); i < vertices.limit(); i++) {
+            out.putFloat(vertices.get(i));
+        }
+        IntBuffer indices = frame.getMeshIndices();
+        out.putInt(indices.remaining());
+        for (int i = indices.position(); i < indices.limit(); i++) {
+            out.putInt(indices.get(i));
+        }
+
+        out.putInt(frame.getPlanes().size() + frame.getBodies().size() + frame.getHands().size());
+        encodeTrackables(frame.getPlanes(), out);
+        encodeTrackables(frame.getBodies(), out);
+        encodeTrackables(frame.getHands(), out);
+    }
+
+    private static void encodeTrackables(List<TrackableSnapshot> trackables, ByteBuffer out) {
+        for (TrackableSnapshot trackable : trackables) {
+            out.putInt(trackable.getType());
+            out.putInt(trackable.isTracking() ? 1 : 0);
+            putFloats(out, trackable.getPose());
+            out.putInt(trackable.getLabel());
+            out.putInt(trackable.is3dCoordinate() ? 1 : 0);
+            out.putInt(trackable.getPoints().length);
+            out.putInt(trackable.getPointFlags().length);
+            out.putInt(trackable.getConnections().length);
+            out.putInt(trackable.getBox().length);
+            putFloats(out, trackable.getPoints());
+            putInts(out, trackable.getPointFlags());
+            putInts(out, trackable.getConnections());
+            putFloats(out, trackable.getBox());
+        }
+    }
+
+    /**
+     * Decode the frame record at the position of the input buffer and move the position to the next record.
+     * The point cloud and scene mesh of the frame are views of the input buffer.
+     *
+     * @param in Input buffer, whose byte order must be {@link #BYTE_ORDER}.
+     * @param frame Frame snapshot to be filled in.
+     * @return true if a complete frame is decoded; false if there is no complete frame left.
+     */
+    public static boolean decode(ByteBuffer in, FrameSnapshot frame) {
+        int start = in.position();
+        int recordSize = getRecordSize(in, start);
+        if (recordSize < 0) {
+            return false;
+        }
+        in.position(start + FRAME_HEADER_SIZE);
+        frame.clear();
+        frame.setTimestampNs(in.getLong());
+        frame.setCameraTracking(in.getInt() != 0);
+        getFloats(in, frame.getCameraPose());
+        getFloats(in, frame.getViewMatrix());
+        getFloats(in, frame.getProjectionMatrix());
+        frame.setPixelIntensity(in.getFloat());
+
+        long pointCloudTimestampNs = in.getLong();
+        int pointCloudCount = in.getInt();
+        frame.setPointCloud(sliceFloats(in, pointCloudCount), pointCloudTimestampNs);
+        int vertexCount = in.getInt();
+        FloatBuffer vertices = sliceFloats(in, vertexCount);
+        int indexCount = in.getInt();
+        IntBuffer indices = sliceInts(in, indexCount);
+        frame.setSceneMesh(vertices, indices);
+
+        int trackableCount = in.getInt();
+        for (int i = 0; i < trackableCount; i++) {
+            decodeTrackable(in, frame);
+        }
+        in.position(start + recordSize);
+        return true;
+    }
+
+    private static void decodeTrackable(ByteBuffer in, FrameSnapshot frame) {
+        TrackableSnapshot trackable = frame.obtainTrackable(in.getInt());
+        trackable.setTracking(in.getInt() != 0);
+        getFloats(in, trackable.getPose());
+        trackable.setLabel(in.getInt());
+        trackable.set3dCoordinate(in.getInt() != 0);
+        int pointsLength = in.getInt();
+        int flagsLength = in.getInt();
+        int connectionsLength = in.getInt();
+        int boxLength = in.getInt();
+        getFloats(in, trackable.obtainPoints(pointsLength));
+        getInts(in, trackable.obtainPointFlags(flagsLength));
+        getInts(in, trackable.obtainConnections(connectionsLength));
+        getFloats(in, trackable.obtainBox(boxLength));
+    }
+
+    private static FloatBuffer sliceFloats(ByteBuffer in, int count) {
+        int position = in.position();
+        int end = position + count * BYTES_PER_VALUE;
+        int limit = in.limit();
+        in.limit(end);
+        FloatBuffer view = in.slice().order(BYTE_ORDER).asFloatBuffer();
+        in.limit(limit);
+        in.position(end);
+        return view;
+    }
+
+    private static IntBuffer sliceInts(ByteBuffer in, int count) {
+        int position = in.position();
+        int end = position + count * BYTES_PER_VALUE;
+        int limit = in.limit();
+        in.limit(end);
+        IntBuffer view = in.slice().order(BYTE_ORDER).asIntBuffer();
+        in.limit(limit);
+        in.position(end);
+        return view;
+    }
+
+    private static void putFloats(ByteBuffer out, float[] values) {
+        for (float value : values) {
+            out.putFloat(value);
+        }
+    }
+
+    private static void putInts(ByteBuffer out, int[] values) {
+        for (int value : values) {
+            out.putInt(value);
+        }
+    }
+
+    private static void getFloats(ByteBuffer in, float[] values) {
+        for (int i = 0; i < values.length; i++) {
+            values[i] = in.getFloat();
+        }
+    }
+
+    private static void getInts(ByteBuffer in, int[] values) {
+        for (int i = 0; i < values.length; i++) {
+            values[i] = in.getInt();
+        }
+    }
+}
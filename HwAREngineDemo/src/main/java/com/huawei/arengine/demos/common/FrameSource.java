@@ -0,0 +1,41 @@
+/*
+ * Copyright 2023. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.huawei.arengine.demos.common;
+
+/**
+ * Source of AR frame data. The live implementation reads the data from an ARSession, and the replay
+ * implementation reads recorded data, so that the CPU side of rendering can run without a device.
+ *
+ * @author HW
+ * @since 2023-06-12
+ */
+public interface FrameSource {
+    /**
+     * Advance to the next frame. This method is called once per frame on the GL thread.
+     *
+     * @return true if a new frame is available; false otherwise.
+     */
+    boolean update();
+
+    /**
+     * Obtain the data of the current frame. The returned object is reused, so its content is valid only
+     * until the next {@link #update()}.
+     *
+     * @return Snapshot of the current frame.
+     */
+    FrameSnapshot getSnapshot();
+}
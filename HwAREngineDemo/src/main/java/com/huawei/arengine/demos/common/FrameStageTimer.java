@@ -0,0 +1,251 @@
+/*
+ * Copyright 2023. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.huawei.arengine.demos.common;
+
+import java.util.Arrays;
+
+/**
+ * Records the time spent in each stage of a frame into a fixed-size ring buffer. Recording does not allocate
+ * memory, and the statistics are read on the GL thread through the query methods.
+ *
+ * @author HW
+ * @since 2023-06-12
+ */
+public class FrameStageTimer {
+    /**
+     * Stage of ARSession.update.
+     */
+    public static final int STAGE_SESSION_UPDATE = 0;
+
+    /**
+     * Stage of drawing the camera preview background.
+     */
+    public static final int STAGE_BACKGROUND_DRAW = 1;
+
+    /**
+     * Stage of obtaining the frame snapshot, including the projection matrix and view matrix.
+     */
+    public static final int STAGE_MATRIX_FETCH = 2;
+
+    /**
+     * Stage of drawing by the AR feature renderer.
+     */
+    public static final int STAGE_RENDERER_DRAW = 3;
+
+    /**
+     * Number of stages in a frame.
+     */
+    public static final int STAGE_COUNT = 4;
+
+    /**
+     * Default number of frames kept in the ring buffer.
+     */
+    public static final int DEFAULT_CAPACITY = 256;
+
+    private static final String[] STAGE_NAMES = {"SessionUpdate", "BackgroundDraw", "MatrixFetch", "RendererDraw"};
+
+    private static final float NANOSECOND_TO_MILLISECOND = 1000000.0f;
+
+    private static final float PERCENT_MAX = 100.0f;
+
+    private final int mCapacity;
+
+    /**
+     * Stage durations in nanoseconds, indexed by [frame slot * STAGE_COUNT + stage].
+     */
+    private final long[] mDurations;
+
+    /**
+     * Scratch array used to sort the samples of one stage when percentiles are queried.
+     */
+    private final long[] mSortBuffer;
+
+    private final long[] mStageStartTimes = new long[STAGE_COUNT];
+
+    private int mWriteIndex = 0;
+
+    private int mFrameCount = 0;
+
+    private long mAbortedFrameCount = 0L;
+
+    /**
+     * Constructor, which keeps the latest {@link #DEFAULT_CAPACITY} frames.
+     */
+    public FrameStageTimer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param capacity Number of latest frames kept in the ring buffer.
+     */
+    public FrameStageTimer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        mCapacity = capacity;
+        mDurations = new long[capacity * STAGE_COUNT];
+        mSortBuffer = new long[capacity];
+    }
+
+    /**
+     * Start a new frame. Durations of stages that are not reached in this frame are recorded as 0.
+     */
+    public void beginFrame() {
+        int base = mWriteIndex * STAGE_COUNT;
+        for (int i = 0; i < STAGE_COUNT; i++) {
+            mDurations[base + i] = 0L;
+            mStageStartTimes[i] = 0L;
+        }
+    }
+
+    /**
+     * Mark the start of a stage.
+     *
+     * @param stage Stage index, for example {@link #STAGE_SESSION_UPDATE}.
+     */
+    public void beginStage(int stage) {
+        mStageStartTimes[stage] = System.nanoTime();
+    }
+
+    /**
+     * Mark the end of a stage and record its duration into the current frame.
+     *
+     * @param stage Stage index, for example {@link #STAGE_SESSION_UPDATE}.
+     */
+    public void endStage(int stage) {
+        if (mStageStartTimes[stage] == 0L) {
+            return;
+        }
+        mDurations[mWriteIndex * STAGE_COUNT + stage] = System.nanoTime() - mStageStartTimes[stage];
+    }
+
+    /**
+     * Commit the current frame into the ring buffer.
+     */
+    public void endFrame() {
+        mWriteIndex = (mWriteIndex + 1) % mCapacity;
+        if (mFrameCount < mCapacity) {
+            mFrameCount++;
+        }
+    }
+
+    /**
+     * Discard the current frame, for example, when the session is paused or an exception ends the frame early.
+     * The stages that are not reached would otherwise be recorded as 0 and pull the percentiles down.
+     */
+    public void abortFrame() {
+        int base = mWriteIndex * STAGE_COUNT;
+        for (int i = 0; i < STAGE_COUNT; i++) {
+            mDurations[base + i] = 0L;
+        }
+        mAbortedFrameCount++;
+    }
+
+    /**
+     * Obtain the number of frames discarded by {@link #abortFrame()}.
+     *
+     * @return Number of aborted frames.
+     */
+    public long getAbortedFrameCount() {
+        return mAbortedFrameCount;
+    }
+
+    /**
+     * Obtain the number of frames currently held in the ring buffer.
+     *
+     * @return Number of recorded frames, which does not exceed the capacity.
+     */
+    public int getFrameCount() {
+        return mFrameCount;
+    }
+
+    /**
+     * Obtain the stage durations of the latest frames, from the oldest to the newest.
+     *
+     * @param stage Stage index.
+     * @param frameNum Number of latest frames to be obtained.
+     * @param out Output array of durations in nanoseconds, whose length must be at least frameNum.
+     * @return Number of durations actually written to out.
+     */
+    public int getLastFrames(int stage, int frameNum, long[] out) {
+        int count = Math.min(Math.min(frameNum, mFrameCount), out.length);
+        int start = mWriteIndex - count;
+        for (int i = 0; i < count; i++) {
+            int slot = (start + i + mCapacity) % mCapacity;
+            out[i] = mDurations[slot * STAGE_COUNT + stage];
+        }
+        return count;
+    }
+
+    /**
+     * Obtain the percentile of a stage duration over the frames held in the ring buffer.
+     *
+     * @param stage Stage index.
+     * @param percentile Percentile in the range [0, 100], for example 50, 95 or 99.
+     * @return Stage duration in nanoseconds. If no frame is recorded, 0 is returned.
+     */
+    public long getPercentile(int stage, float percentile) {
+        int count = getLastFrames(stage, mFrameCount, mSortBuffer);
+        if (count == 0) {
+            return 0L;
+        }
+        Arrays.sort(mSortBuffer, 0, count);
+        float clamped = Math.max(0.0f, Math.min(PERCENT_MAX, percentile));
+        int index = (int) Math.ceil(clamped / PERCENT_MAX * count) - 1;
+        return mSortBuffer[Math.max(0, index)];
+    }
+
+    /**
+     * Obtain the name of a stage for display.
+     *
+     * @param stage Stage index.
+     * @return Stage name.
+     */
+    public static String getStageName(int stage) {
+        return STAGE_NAMES[stage];
+    }
+
+    /**
+     * Append p50/p95/p99 of each stage in milliseconds to the string, which is used for the on-screen text.
+     *
+     * @param sb String builder to which the statistics are appended.
+     */
+    public void appendSummary(StringBuilder sb) {
+        for (int stage = 0; stage < STAGE_COUNT; stage++) {
+            sb.append(STAGE_NAMES[stage])
+                .append(" p50/p95/p99(ms)=")
+                .append(getPercentile(stage, 50.0f) / NANOSECOND_TO_MILLISECOND).append('/')
+                .append(getPercentile(stage, 95.0f) / NANOSECOND_TO_MILLISECOND).append('/')
+                .append(getPercentile(stage, 99.0f) / NANOSECOND_TO_MILLISECOND)
+                .append(System.lineSeparator());
+        }
+        sb.append("Aborted frames=").append(mAbortedFrameCount).append(System.lineSeparator());
+    }
+
+    /**
+     * Clear all recorded frames.
+     */
+    public void reset() {
+        Arrays.fill(mDurations, 0L);
+        Arrays.fill(mStageStartTimes, 0L);
+        mWriteIndex = 0;
+        mFrameCount = 0;
+        mAbortedFrameCount = 0L;
+    }
+}
@@ -0,0 +1,442 @@
+/*
+ * Copyright 2023. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.huawei.arengine.demos.common;
+
+import java.util.Arrays;
+
+/**
+ * Frame time statistics, which records the interval between frames in nanoseconds into a log-linear
+ * histogram (HDR histogram style, about 3% precision) and counts janky and dropped frames. Recording
+ * does not allocate memory. All methods should be called on the GL thread.
+ * <p>
+ * ARSession.update() paces the frames to the camera, so jank is measured against the frame period of the
+ * session rather than the display vsync. The period is the shortest interval between camera timestamps in a
+ * window of frames, because the renderer can skip camera frames but never receives them faster than the camera
+ * produces them. A frame is janky if it takes more than half a period longer than expected.
+ * <p>
+ * Frames over the fixed budgets of 16.6 ms and 33 ms are counted as well, so that the statistics can be compared
+ * between devices and sessions whose frame periods differ.
+ *
+ * @author HW
+ * @since 2023-06-12
+ */
+public class FrameTimeStats {
+    /**
+     * Frame period used until the period of the session is measured: AR Engine delivers camera frames at
+     * 30 fps, in nanoseconds.
+     */
+    public static final long DEFAULT_FRAME_PERIOD_NS = 33333333L;
+
+    /**
+     * Number of camera timestamp intervals over which the shortest one is taken as the frame period.
+     */
+    private static final int FRAME_PERIOD_WINDOW = 30;
+
+    /**
+     * Frame budget of a 60 Hz display, in nanoseconds.
+     */
+    private static final long FRAME_BUDGET_60_FPS_NS = 16600000L;
+
+    /**
+     * Frame budget of a 30 Hz display, in nanoseconds.
+     */
+    private static final long FRAME_BUDGET_30_FPS_NS = 33000000L;
+
+    /**
+     * Intervals up to this fraction of a period longer than the expected length are treated as jitter.
+     */
+    private static final float JANK_TOLERANCE = 0.5f;
+
+    /**
+     * Frames that take at least this number of periods, plus the tolerance, are counted as severe jank.
+     */
+    private static final int SEVERE_JANK_PERIODS = 2;
+
+    /**
+     * Intervals longer than this are treated as a pause (for example, the activity was in the background)
+     * and are not recorded.
+     */
+    private static final long PAUSE_THRESHOLD_NS = 1000000000L;
+
+    private static final long NANOSECOND_TO_MICROSECOND = 1000L;
+
+    private static final float MICROSECOND_TO_MILLISECOND = 1000.0f;
+
+    private static final float SECOND_TO_NANOSECOND = 1000000000.0f;
+
+    private static final long FPS_WINDOW_NS = 500000000L;
+
+    /**
+     * Values below 2^LINEAR_BITS microseconds are stored in one bucket each.
+     */
+    private static final int LINEAR_BITS = 6;
+
+    private static final int LINEAR_COUNT = 1 << LINEAR_BITS;
+
+    private static final int SUB_BUCKET_COUNT = LINEAR_COUNT / 2;
+
+    /**
+     * The largest recorded value is 2^MAX_VALUE_BITS - 1 microseconds, about 2.1 seconds.
+     */
+    private static final int MAX_VALUE_BITS = 21;
+
+    private static final long MAX_VALUE_US = (1L << MAX_VALUE_BITS) - 1;
+
+    private static final int BUCKET_COUNT = LINEAR_COUNT + (MAX_VALUE_BITS - LINEAR_BITS) * SUB_BUCKET_COUNT;
+
+    private static final float PERCENT_MAX = 100.0f;
+
+    private final long[] mBuckets = new long[BUCKET_COUNT];
+
+    private long mLastFrameTimeNs = 0L;
+
+    private long mFrameCount = 0L;
+
+    private long mTotalTimeNs = 0L;
+
+    private long mMaxFrameTimeNs = 0L;
+
+    private long mJankFrameCount = 0L;
+
+    private long mSevereJankFrameCount = 0L;
+
+    private long mDroppedFrameCount = 0L;
+
+    private long mOver16msFrameCount = 0L;
+
+    private long mOver33msFrameCount = 0L;
+
+    private int mCurrentDroppedRun = 0;
+
+    private int mMaxConsecutiveDroppedFrames = 0;
+
+    private long mFramePeriodNs = DEFAULT_FRAME_PERIOD_NS;
+
+    private long mLastSessionTimestampNs = 0L;
+
+    private long mWindowMinPeriodNs = Long.MAX_VALUE;
+
+    private int mWindowPeriodCount = 0;
+
+    private long mFpsWindowStartNs = 0L;
+
+    private int mFpsWindowFrames = 0;
+
+    private float mFps = 0.0f;
+
+    /**
+     * Record a frame at the specified time. The interval from the previous frame is added to the statistics.
+     *
+     * @param frameTimeNs Frame time obtained by {@link System#nanoTime()}.
+     */
+    public void onFrame(long frameTimeNs) {
+        updateFps(frameTimeNs);
+        long lastFrameTimeNs = mLastFrameTimeNs;
+        mLastFrameTimeNs = frameTimeNs;
+        if (lastFrameTimeNs == 0L) {
+            return;
+        }
+        long intervalNs = frameTimeNs - lastFrameTimeNs;
+        if (intervalNs <= 0L || intervalNs > PAUSE_THRESHOLD_NS) {
+            return;
+        }
+        record(intervalNs);
+    }
+
+    /**
+     * Record the camera timestamp of the frame returned by the session, which is used to measure the frame
+     * period. Frames without a new camera image, whose timestamp has not changed, are ignored.
+     *
+     * @param timestampNs Camera timestamp of the frame, in nanoseconds.
+     */
+    public void onSessionFrame(long timestampNs) {
+        long lastTimestampNs = mLastSessionTimestampNs;
+        mLastSessionTimestampNs = timestampNs;
+        if (lastTimestampNs == 0L) {
+            return;
+        }
+        long periodNs = timestampNs - lastTimestampNs;
+        if (periodNs <= 0L || periodNs > PAUSE_THRESHOLD_NS) {
+            return;
+        }
+        mWindowMinPeriodNs = Math.min(mWindowMinPeriodNs, periodNs);
+        mWindowPeriodCount++;
+        if (mWindowPeriodCount >= FRAME_PERIOD_WINDOW) {
+            mFramePeriodNs = mWindowMinPeriodNs;
+            mWindowMinPeriodNs = Long.MAX_VALUE;
+            mWindowPeriodCount = 0;
+        }
+    }
+
+    /**
+     * Set the frame period explicitly, for example, when the frames are replayed at a fixed rate. The period is
+     * measured again from the next {@link #onSessionFrame} calls.
+     *
+     * @param framePeriodNs Frame period in nanoseconds.
+     */
+    public void setFramePeriodNs(long framePeriodNs) {
+        if (framePeriodNs <= 0L) {
+            throw new IllegalArgumentException("The frame period must be positive.");
+        }
+        mFramePeriodNs = framePeriodNs;
+    }
+
+    /**
+     * Obtain the frame period against which the jank is measured.
+     *
+     * @return Frame period in nanoseconds.
+     */
+    public long getFramePeriodNs() {
+        return mFramePeriodNs;
+    }
+
+    /**
+     * Add a frame duration to the statistics.
+     *
+     * @param frameDurationNs Frame duration in nanoseconds.
+     */
+    public void record(long frameDurationNs) {
+        mBuckets[getBucketIndex(frameDurationNs / NANOSECOND_TO_MICROSECOND)]++;
+        mFrameCount++;
+        mTotalTimeNs += frameDurationNs;
+        mMaxFrameTimeNs = Math.max(mMaxFrameTimeNs, frameDurationNs);
+        if (frameDurationNs > FRAME_BUDGET_60_FPS_NS) {
+            mOver16msFrameCount++;
+        }
+        if (frameDurationNs > FRAME_BUDGET_30_FPS_NS) {
+            mOver33msFrameCount++;
+        }
+
+        // A frame that takes n periods, within the tolerance, means that n - 1 camera frames are not presented.
+        long toleranceNs = (long) (mFramePeriodNs * JANK_TOLERANCE);
+        int droppedFrames = (int) ((frameDurationNs - toleranceNs) / mFramePeriodNs);
+        if (droppedFrames <= 0) {
+            mCurrentDroppedRun = 0;
+            return;
+        }
+        mJankFrameCount++;
+        if (droppedFrames >= SEVERE_JANK_PERIODS) {
+            mSevereJankFrameCount++;
+        }
+        mDroppedFrameCount += droppedFrames;
+
+        // Janky frames in a row extend the run, and the next frame on time ends it.
+        mCurrentDroppedRun += droppedFrames;
+        mMaxConsecutiveDroppedFrames = Math.max(mMaxConsecutiveDroppedFrames, mCurrentDroppedRun);
+    }
+
+    private void updateFps(long frameTimeNs) {
+        if (mFpsWindowStartNs == 0L) {
+            mFpsWindowStartNs = frameTimeNs;
+            return;
+        }
+        mFpsWindowFrames++;
+        long windowNs = frameTimeNs - mFpsWindowStartNs;
+        if (windowNs > FPS_WINDOW_NS) {
+            mFps = mFpsWindowFrames * SECOND_TO_NANOSECOND / windowNs;
+            mFpsWindowFrames = 0;
+            mFpsWindowStartNs = frameTimeNs;
+        }
+    }
+
+    private static int getBucketIndex(long valueUs) {
+        long value = Math.max(0L, Math.min(valueUs, MAX_VALUE_US));
+        if (value < LINEAR_COUNT) {
+            return (int) value;
+        }
+
+        // Each power of two above the linear range is split into SUB_BUCKET_COUNT equal buckets.
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - LINEAR_BITS + 1;
+        int subIndex = (int) (value >>> shift) - SUB_BUCKET_COUNT;
+        return LINEAR_COUNT + (shift - 1) * SUB_BUCKET_COUNT + subIndex;
+    }
+
+    private static long getBucketMiddleValue(int index) {
+        if (index < LINEAR_COUNT) {
+            return index;
+        }
+        int shift = (index - LINEAR_COUNT) / SUB_BUCKET_COUNT + 1;
+        long subIndex = (index - LINEAR_COUNT) % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+        return (subIndex << shift) + (1L << (shift - 1));
+    }
+
+    /**
+     * Obtain the frame rate measured over the latest 0.5 second window.
+     *
+     * @return Frame rate.
+     */
+    public float getFps() {
+        return mFps;
+    }
+
+    /**
+     * Obtain the number of recorded frames.
+     *
+     * @return Number of frames.
+     */
+    public long getFrameCount() {
+        return mFrameCount;
+    }
+
+    /**
+     * Obtain the percentile of the frame time.
+     *
+     * @param percentile Percentile in the range [0, 100], for example 50, 95 or 99.
+     * @return Frame time in milliseconds. If no frame is recorded, 0 is returned.
+     */
+    public float getPercentileMs(float percentile) {
+        if (mFrameCount == 0L) {
+            return 0.0f;
+        }
+        float clamped = Math.max(0.0f, Math.min(PERCENT_MAX, percentile));
+        long target = Math.max(1L, (long) Math.ceil(clamped / PERCENT_MAX * mFrameCount));
+        long count = 0L;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            count += mBuckets[i];
+            if (count >= target) {
+                return getBucketMiddleValue(i) / MICROSECOND_TO_MILLISECOND;
+            }
+        }
+        return getBucketMiddleValue(BUCKET_COUNT - 1) / MICROSECOND_TO_MILLISECOND;
+    }
+
+    /**
+     * Obtain the average frame time.
+     *
+     * @return Average frame time in milliseconds.
+     */
+    public float getMeanMs() {
+        if (mFrameCount == 0L) {
+            return 0.0f;
+        }
+        return mTotalTimeNs / NANOSECOND_TO_MICROSECOND / MICROSECOND_TO_MILLISECOND / mFrameCount;
+    }
+
+    /**
+     * Obtain the longest frame time.
+     *
+     * @return Longest frame time in milliseconds.
+     */
+    public float getMaxMs() {
+        return mMaxFrameTimeNs / NANOSECOND_TO_MICROSECOND / MICROSECOND_TO_MILLISECOND;
+    }
+
+    /**
+     * Obtain the number of frames longer than one and a half frame periods, which miss at least one camera frame.
+     *
+     * @return Number of janky frames.
+     */
+    public long getJankFrameCount() {
+        return mJankFrameCount;
+    }
+
+    /**
+     * Obtain the number of frames longer than two and a half frame periods, which miss at least two camera
+     * frames.
+     *
+     * @return Number of severely janky frames.
+     */
+    public long getSevereJankFrameCount() {
+        return mSevereJankFrameCount;
+    }
+
+    /**
+     * Obtain the number of frames longer than 16.6 ms, the frame budget of a 60 Hz display, regardless of the
+     * frame period of the session.
+     *
+     * @return Number of frames over 16.6 ms.
+     */
+    public long getOver16msFrameCount() {
+        return mOver16msFrameCount;
+    }
+
+    /**
+     * Obtain the number of frames longer than 33 ms, the frame budget of a 30 Hz display, regardless of the frame
+     * period of the session.
+     *
+     * @return Number of frames over 33 ms.
+     */
+    public long getOver33msFrameCount() {
+        return mOver33msFrameCount;
+    }
+
+    /**
+     * Obtain the total number of frame periods in which no new frame is presented.
+     *
+     * @return Number of dropped frames.
+     */
+    public long getDroppedFrameCount() {
+        return mDroppedFrameCount;
+    }
+
+    /**
+     * Obtain the largest number of frames dropped in a row, over consecutive janky frames without a frame on
+     * time in between.
+     *
+     * @return Largest number of consecutive dropped frames.
+     */
+    public int getMaxConsecutiveDroppedFrames() {
+        return mMaxConsecutiveDroppedFrames;
+    }
+
+    /**
+     * Append the frame rate, frame time percentiles and jank counts to the string, which is used for the
+     * on-screen text.
+     *
+     * @param sb String builder to which the statistics are appended.
+     */
+    public void appendSummary(StringBuilder sb) {
+        sb.append("FPS=").append(mFps).append(System.lineSeparator());
+        sb.append("FrameTime p50/p95/p99(ms)=")
+            .append(getPercentileMs(50.0f)).append('/')
+            .append(getPercentileMs(95.0f)).append('/')
+            .append(getPercentileMs(99.0f))
+            .append(System.lineSeparator());
+        sb.append("Over 16.6/33(ms)=").append(mOver16msFrameCount).append('/').append(mOver33msFrameCount)
+            .append(System.lineSeparator());
+        sb.append("Jank >1.5/>2.5 periods=").append(mJankFrameCount).append('/').append(mSevereJankFrameCount)
+            .append(", MaxDroppedRun=").append(mMaxConsecutiveDroppedFrames)
+            .append(", Period(ms)=").append(mFramePeriodNs / NANOSECOND_TO_MICROSECOND / MICROSECOND_TO_MILLISECOND)
+            .append(System.lineSeparator());
+    }
+
+    /**
+     * Clear all statistics, and measure the frame period again from the default period.
+     */
+    public void reset() {
+        Arrays.fill(mBuckets, 0L);
+        mLastFrameTimeNs = 0L;
+        mFrameCount = 0L;
+        mTotalTimeNs = 0L;
+        mMaxFrameTimeNs = 0L;
+        mJankFrameCount = 0L;
+        mSevereJankFrameCount = 0L;
+        mDroppedFrameCount = 0L;
+        mCurrentDroppedRun = 0;
+        mMaxConsecutiveDroppedFrames = 0;
+        mOver16msFrameCount = 0L;
+        mOver33msFrameCount = 0L;
+        mFramePeriodNs = DEFAULT_FRAME_PERIOD_NS;
+        mLastSessionTimestampNs = 0L;
+        mWindowMinPeriodNs = Long.MAX_VALUE;
+        mWindowPeriodCount = 0;
+        mFpsWindowStartNs = 0L;
+        mFpsWindowFrames = 0;
+        mFps = 0.0f;
+    }
+}
@@ -21,8 +21,6 @@ import android.opengl.GLSurfaceView;
 import android.view.GestureDetector;
 import android.view.MotionEvent;
 
-import java.util.concurrent.ArrayBlockingQueue;
-
 /**
  * Listen to and control some gestures.
  *
@@ -36,49 +34,87 @@ public class GestureDetectorUtils {
      * @param context The Context
      * @param tag Log printing tag.
      * @param surfaceView Control for previewing the drawing.
-     * @param queuedSingleTaps Gesture type queue.
+     * @param gestureEvents Gesture ring that is read on the GL thread.
      */
     public static void initGestureDetector(Context context, String tag, GLSurfaceView surfaceView,
-        ArrayBlockingQueue<GestureEvent> queuedSingleTaps) {
-        GestureDetector gestureDetector = new GestureDetector(context, new GestureDetector.SimpleOnGestureListener() {
-            @Override
-            public boolean onDoubleTap(MotionEvent motionEvent) {
-                onGestureEvent(GestureEvent.createDoubleTapEvent(motionEvent), tag, queuedSingleTaps);
-                return true;
-            }
-
-            @Override
-            public boolean onSingleTapConfirmed(MotionEvent motionEvent) {
-                onGestureEvent(GestureEvent.createSingleTapConfirmEvent(motionEvent), tag, queuedSingleTaps);
-                return true;
-            }
-
-            @Override
-            public boolean onDown(MotionEvent motionEvent) {
-                return true;
-            }
-
-            @Override
-            public boolean onScroll(MotionEvent e1, MotionEvent e2, float distanceX, float distanceY) {
-                onGestureEvent(GestureEvent.createScrollEvent(e1, e2, distanceX, distanceY), tag, queuedSingleTaps);
-                return true;
-            }
-        });
+        GestureEventRing gestureEvents) {
+        GestureListener gestureListener = new GestureListener(tag, gestureEvents);
+        GestureDetector gestureDetector = new GestureDetector(context, gestureListener);
 
         if (surfaceView == null) {
             LogUtil.warn(tag, "surfaceView params is invalid");
             return;
         }
-        surfaceView.setOnTouchListener((view, event) -> gestureDetector.onTouchEvent(event));
+        surfaceView.setOnTouchListener((view, event) -> {
+            boolean isHandled = gestureDetector.onTouchEvent(event);
+            int action = event.getActionMasked();
+            if (action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL) {
+                gestureListener.onTouchEnd(event);
+            }
+            return isHandled;
+        });
     }
 
-    private static void onGestureEvent(GestureEvent gestureEvent, String tag,
-        ArrayBlockingQueue<GestureEvent> queuedSingleTaps) {
-        boolean isSuccess = queuedSingleTaps.offer(gestureEvent);
+    private static void onGestureEvent(int type, MotionEvent motionEvent, float distanceX, float distanceY,
+        String tag, GestureEventRing gestureEvents) {
+        if (motionEvent == null) {
+            return;
+        }
+        boolean isSuccess = gestureEvents.offer(type, motionEvent.getX(), motionEvent.getY(), distanceX, distanceY,
+            motionEvent.getPointerId(motionEvent.getActionIndex()));
         if (isSuccess) {
             LogUtil.debug(tag, "Successfully joined the queue.");
         } else {
             LogUtil.warn(tag, "Failed to join queue.");
         }
     }
+
+    /**
+     * Records the gestures detected on the UI thread, and a scroll end event when the finger that scrolled is lifted.
+     */
+    private static class GestureListener extends GestureDetector.SimpleOnGestureListener {
+        private final String mTag;
+
+        private final GestureEventRing mGestureEvents;
+
+        private boolean mIsScrolling = false;
+
+        GestureListener(String tag, GestureEventRing gestureEvents) {
+            mTag = tag;
+            mGestureEvents = gestureEvents;
+        }
+
+        @Override
+        public boolean onDoubleTap(MotionEvent motionEvent) {
+            onGestureEvent(GestureEvent.GESTURE_EVENT_TYPE_DOUBLETAP, motionEvent, 0.0f, 0.0f, mTag, mGestureEvents);
+            return true;
+        }
+
+        @Override
+        public boolean onSingleTapConfirmed(MotionEvent motionEvent) {
+            onGestureEvent(GestureEvent.GESTURE_EVENT_TYPE_SINGLETAPCONFIRMED, motionEvent, 0.0f, 0.0f, mTag,
+                mGestureEvents);
+            return true;
+        }
+
+        @Override
+        public boolean onDown(MotionEvent motionEvent) {
+            return true;
+        }
+
+        @Override
+        public boolean onScroll(MotionEvent e1, MotionEvent e2, float distanceX, float distanceY) {
+            mIsScrolling = true;
+            onGestureEvent(GestureEvent.GESTURE_EVENT_TYPE_SCROLL, e2, distanceX, distanceY, mTag, mGestureEvents);
+            return true;
+        }
+
+        void onTouchEnd(MotionEvent motionEvent) {
+            if (!mIsScrolling) {
+                return;
+            }
+            mIsScrolling = false;
+            onGestureEvent(GestureEvent.GESTURE_EVENT_TYPE_SCROLLEND, motionEvent, 0.0f, 0.0f, mTag, mGestureEvents);
+        }
+    }
 }
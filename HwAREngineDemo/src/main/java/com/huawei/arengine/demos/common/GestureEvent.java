@@ -16,10 +16,10 @@
 
 package com.huawei.arengine.demos.common;
 
-import android.view.MotionEvent;
-
 /**
- * Gesture event management class for storing and creating gestures.
+ * Gesture record that is passed from the UI thread to the GL thread. It only holds primitive values, so records
+ * can be preallocated and reused by {@link GestureEventRing} and {@link GestureEventPipeline} instead of being
+ * created for each touch, and no MotionEvent is retained after the touch callback returns.
  *
  * @author HW
  * @since 2019-06-13
@@ -55,107 +55,114 @@ public class GestureEvent {
      */
     public static final int GESTURE_EVENT_TYPE_DOUBLETAP = 5;
 
-    private int type;
+    /**
+     * Define the constant 6, indicating that the finger is lifted after scrolling.
+     */
+    public static final int GESTURE_EVENT_TYPE_SCROLLEND = 6;
+
+    private int type = GESTURE_EVENT_TYPE_UNKNOW;
 
-    private MotionEvent eventFirst;
+    private float x;
 
-    private MotionEvent eventSecond;
+    private float y;
 
     private float distanceX;
 
     private float distanceY;
 
-    private GestureEvent() {
-    }
+    private int pointerId;
 
-    public float getDistanceX() {
-        return distanceX;
+    /**
+     * Time when the gesture was recorded on the UI thread, in System.nanoTime() units.
+     */
+    private long createTimeNs;
+
+    public int getType() {
+        return type;
     }
 
-    public float getDistanceY() {
-        return distanceY;
+    /**
+     * Obtain the X coordinate on the screen: the tap position, or the current finger position of a scroll.
+     *
+     * @return X coordinate in pixels.
+     */
+    public float getX() {
+        return x;
     }
 
-    public int getType() {
-        return type;
+    /**
+     * Obtain the Y coordinate on the screen: the tap position, or the current finger position of a scroll.
+     *
+     * @return Y coordinate in pixels.
+     */
+    public float getY() {
+        return y;
     }
 
-    public MotionEvent getEventFirst() {
-        return eventFirst;
+    public float getDistanceX() {
+        return distanceX;
     }
 
-    public MotionEvent getEventSecond() {
-        return eventSecond;
+    public float getDistanceY() {
+        return distanceY;
     }
 
     /**
-     * Create a gesture type: DOWN.
+     * Obtain the ID of the pointer that made the gesture, as reported by MotionEvent.getPointerId.
      *
-     * @param motionEvent The gesture motion event: DOWN.
-     * @return GestureEvent.
+     * @return Pointer ID.
      */
-    static GestureEvent createDownEvent(MotionEvent motionEvent) {
-        GestureEvent ret = new GestureEvent();
-        ret.type = GESTURE_EVENT_TYPE_DOWN;
-        ret.eventFirst = motionEvent;
-        return ret;
+    public int getPointerId() {
+        return pointerId;
     }
 
     /**
-     * Create a gesture type: SINGLETAPUP.
+     * Obtain the time when the gesture was recorded on the UI thread, which gives the input latency when it is
+     * compared with System.nanoTime() on the GL thread.
      *
-     * @param motionEvent The gesture motion event: SINGLETAPUP.
-     * @return GestureEvent(SINGLETAPUP).
+     * @return Record time in nanoseconds, in System.nanoTime() units.
      */
-    static GestureEvent createSingleTapUpEvent(MotionEvent motionEvent) {
-        GestureEvent ret = new GestureEvent();
-        ret.type = GESTURE_EVENT_TYPE_SINGLETAPUP;
-        ret.eventFirst = motionEvent;
-        return ret;
+    public long getCreateTimeNs() {
+        return createTimeNs;
     }
 
     /**
-     * Create a gesture type: SINGLETAPCONFIRM.
+     * Check whether the gesture is a tap, which selects or places an object.
      *
-     * @param motionEvent The gesture motion event: SINGLETAPCONFIRM.
-     * @return GestureEvent(SINGLETAPCONFIRM).
+     * @return true for single tap and double tap events.
      */
-    public static GestureEvent createSingleTapConfirmEvent(MotionEvent motionEvent) {
-        GestureEvent ret = new GestureEvent();
-        ret.type = GESTURE_EVENT_TYPE_SINGLETAPCONFIRMED;
-        ret.eventFirst = motionEvent;
-        return ret;
+    public boolean isTap() {
+        return type == GESTURE_EVENT_TYPE_SINGLETAPCONFIRMED || type == GESTURE_EVENT_TYPE_DOUBLETAP;
     }
 
     /**
-     * Create a gesture type: DOUBLETAP.
+     * Overwrite all values of the record.
      *
-     * @param motionEvent The gesture motion event: DOUBLETAP.
-     * @return GestureEvent(DOUBLETAP).
+     * @param eventType Gesture type.
+     * @param eventX X coordinate on the screen.
+     * @param eventY Y coordinate on the screen.
+     * @param eventDistanceX Scrolled distance along the X axis, or 0 for other gestures.
+     * @param eventDistanceY Scrolled distance along the Y axis, or 0 for other gestures.
+     * @param eventPointerId Pointer ID of the touch.
+     * @param eventCreateTimeNs Time when the gesture was recorded, in System.nanoTime() units.
      */
-    public static GestureEvent createDoubleTapEvent(MotionEvent motionEvent) {
-        GestureEvent ret = new GestureEvent();
-        ret.type = GESTURE_EVENT_TYPE_DOUBLETAP;
-        ret.eventFirst = motionEvent;
-        return ret;
+    void set(int eventType, float eventX, float eventY, float eventDistanceX, float eventDistanceY,
+        int eventPointerId, long eventCreateTimeNs) {
+        type = eventType;
+        x = eventX;
+        y = eventY;
+        distanceX = eventDistanceX;
+        distanceY = eventDistanceY;
+        pointerId = eventPointerId;
+        createTimeNs = eventCreateTimeNs;
     }
 
     /**
-     * Create a gesture type: SCROLL.
+     * Copy all values of another record.
      *
-     * @param e1 The first down motion event that started the scrolling.
-     * @param e2 The second down motion event that ended the scrolling.
-     * @param distanceX The distance along the X axis that has been scrolled since the last call to onScroll.
-     * @param distanceY The distance along the Y axis that has been scrolled since the last call to onScroll.
-     * @return GestureEvent(SCROLL).
+     * @param other Source record.
      */
-    public static GestureEvent createScrollEvent(MotionEvent e1, MotionEvent e2, float distanceX, float distanceY) {
-        GestureEvent ret = new GestureEvent();
-        ret.type = GESTURE_EVENT_TYPE_SCROLL;
-        ret.eventFirst = e1;
-        ret.eventSecond = e2;
-        ret.distanceX = distanceX;
-        ret.distanceY = distanceY;
-        return ret;
+    void copyFrom(GestureEvent other) {
+        set(other.type, other.x, other.y, other.distanceX, other.distanceY, other.pointerId, other.createTimeNs);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2023. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.huawei.arengine.demos.common;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Consumer side of the gesture ring filled by {@link GestureDetectorUtils}. Each frame, {@link #drain} takes
+ * all pending events instead of one and copies them into records that are reused by the next frame. The events
+ * keep their original order, except that each run of consecutive scroll events is replaced by one that moves by
+ * their total distance, so a drag is applied once per frame at its latest position. A tap or a scroll end event
+ * ends the run, so no scroll is moved across it.
+ * The pipeline also records the queue depth and the latency from the creation of an event to its application.
+ * All methods except the constructor must be called on the GL thread.
+ *
+ * @author HW
+ * @since 2023-06-12
+ */
+public class GestureEventPipeline {
+    private static final float NANOSECOND_TO_MILLISECOND = 1000000.0f;
+
+    private final GestureEventRing mRing;
+
+    private final GestureEvent[] mDrained;
+
+    private final List<GestureEvent> mEvents;
+
+    private int mLastQueueDepth = 0;
+
+    private int mMaxQueueDepth = 0;
+
+    private long mCoalescedCount = 0L;
+
+    private long mAppliedCount = 0L;
+
+    private long mTotalLatencyNs = 0L;
+
+    private long mLastLatencyNs = 0L;
+
+    private long mMaxLatencyNs = 0L;
+
+    /**
+     * Constructor.
+     *
+     * @param ring Gesture ring filled on the UI thread.
+     */
+    public GestureEventPipeline(GestureEventRing ring) {
+        mRing = ring;
+        mDrained = new GestureEvent[ring.capacity()];
+        for (int i = 0; i < mDrained.length; i++) {
+            mDrained[i] = new GestureEvent();
+        }
+        mEvents = new ArrayList<>(mDrained.length);
+    }
+
+    /**
+     * Take all pending events. The returned list and its records are reused by the next call.
+     *
+     * @return Events in their original order, where each run of consecutive scroll events is replaced by one.
+     */
+    public List<GestureEvent> drain() {
+        mEvents.clear();
+        int drainedCount = 0;
+
+        // Events recorded while draining wait for the next frame, so a fast producer cannot stall the frame.
+        while (drainedCount < mDrained.length && mRing.poll(mDrained[drainedCount])) {
+            drainedCount++;
+        }
+        mLastQueueDepth = drainedCount;
+        mMaxQueueDepth = Math.max(mMaxQueueDepth, mLastQueueDepth);
+
+        // Each run of consecutive scrolls is replaced by its first record, which takes the position of the last one.
+        GestureEvent firstScroll = null;
+        float distanceX = 0.0f;
+        float distanceY = 0.0f;
+        for (int i = 0; i < drainedCount; i++) {
+            GestureEvent event = mDrained[i];
+            if (event.getType() == GestureEvent.GESTURE_EVENT_TYPE_SCROLL) {
+                if (firstScroll == null) {
+                    firstScroll = event;
+                    distanceX = 0.0f;
+                    distanceY = 0.0f;
+                } else {
+                    mCoalescedCount++;
+                }
+                distanceX += event.getDistanceX();
+                distanceY += event.getDistanceY();
+                firstScroll.set(GestureEvent.GESTURE_EVENT_TYPE_SCROLL, event.getX(), event.getY(), distanceX,
+                    distanceY, event.getPointerId(), firstScroll.getCreateTimeNs());
+                continue;
+            }
+            if (firstScroll != null) {
+                mEvents.add(firstScroll);
+                firstScroll = null;
+            }
+            mEvents.add(event);
+        }
+        if (firstScroll != null) {
+            mEvents.add(firstScroll);
+        }
+        return mEvents;
+    }
+
+    /**
+     * Record that an event returned by {@link #drain} has been applied.
+     *
+     * @param event Gesture event.
+     */
+    public void onEventApplied(GestureEvent event) {
+        mLastLatencyNs = System.nanoTime() - event.getCreateTimeNs();
+        mMaxLatencyNs = Math.max(mMaxLatencyNs, mLastLatencyNs);
+        mTotalLatencyNs += mLastLatencyNs;
+        mAppliedCount++;
+    }
+
+    /**
+     * Obtain the number of events taken by the latest {@link #drain()}, before the scrolls are coalesced.
+     *
+     * @return Number of events.
+     */
+    public int getLastQueueDepth() {
+        return mLastQueueDepth;
+    }
+
+    /**
+     * Obtain the largest number of events taken by one {@link #drain()}.
+     *
+     * @return Number of events.
+     */
+    public int getMaxQueueDepth() {
+        return mMaxQueueDepth;
+    }
+
+    /**
+     * Obtain the total number of scroll events that were merged into a preceding scroll event.
+     *
+     * @return Number of dropped scroll events.
+     */
+    public long getCoalescedCount() {
+        return mCoalescedCount;
+    }
+
+    /**
+     * Append the queue depth and latency statistics to the text displayed on the screen.
+     *
+     * @param sb String buffer.
+     */
+    public void appendSummary(StringBuilder sb) {
+        float averageLatencyMs = mAppliedCount == 0 ? 0.0f
+            : mTotalLatencyNs / NANOSECOND_TO_MILLISECOND / mAppliedCount;
+        sb.append("Gesture queue depth last/max=").append(mLastQueueDepth).append('/').append(mMaxQueueDepth)
+            .append(", coalesced=").append(mCoalescedCount).append(System.lineSeparator());
+        sb.append("Gesture latency last/avg/max(ms)=")
+            .append(mLastLatencyNs / NANOSECOND_TO_MILLISECOND).append('/')
+            .append(averageLatencyMs).append('/')
+            .append(mMaxLatencyNs / NANOSECOND_TO_MILLISECOND).append(System.lineSeparator());
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2023. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.huawei.arengine.demos.common;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free ring buffer of preallocated {@link GestureEvent} records for one producer thread (the UI thread) and
+ * one consumer thread (the GL thread). The producer writes the values into the next free record and then
+ * publishes it by advancing the tail; the consumer copies the record out and then releases it by advancing the
+ * head. No object is allocated after construction.
+ * <p>
+ * Scroll events are refused once the ring is filled up to the tap reserve, so that taps can still be recorded
+ * while a long drag is waiting for the GL thread. Refused scrolls only lose their distance, because the consumer
+ * applies scrolls at the latest finger position.
+ *
+ * @author HW
+ * @since 2023-06-12
+ */
+public class GestureEventRing {
+    private static final int TAP_RESERVE_DIVISOR = 4;
+
+    private final GestureEvent[] mRecords;
+
+    private final int mMask;
+
+    private final int mTapReserve;
+
+    /**
+     * Index of the next record to be read. Only the consumer advances it.
+     */
+    private final AtomicLong mHead = new AtomicLong();
+
+    /**
+     * Index of the next record to be written. Only the producer advances it.
+     */
+    private final AtomicLong mTail = new AtomicLong();
+
+    /**
+     * Constructor.
+     *
+     * @param capacity Minimum number of records, which is rounded up to a power of two.
+     */
+    public GestureEventRing(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("The capacity must be positive.");
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        mRecords = new GestureEvent[size];
+        for (int i = 0; i < size; i++) {
+            mRecords[i] = new GestureEvent();
+        }
+        mMask = size - 1;
+        mTapReserve = size / TAP_RESERVE_DIVISOR;
+    }
+
+    /**
+     * Record a gesture. Call it only on the producer thread.
+     *
+     * @param type Gesture type.
+     * @param x X coordinate on the screen.
+     * @param y Y coordinate on the screen.
+     * @param distanceX Scrolled distance along the X axis, or 0 for other gestures.
+     * @param distanceY Scrolled distance along the Y axis, or 0 for other gestures.
+     * @param pointerId Pointer ID of the touch.
+     * @return false if the ring is full.
+     */
+    public boolean offer(int type, float x, float y, float distanceX, float distanceY, int pointerId) {
+        long tail = mTail.get();
+        int limit = type == GestureEvent.GESTURE_EVENT_TYPE_SCROLL ? mRecords.length - mTapReserve : mRecords.length;
+        if (tail - mHead.get() >= limit) {
+            return false;
+        }
+        mRecords[(int) (tail & mMask)].set(type, x, y, distanceX, distanceY, pointerId, System.nanoTime());
+
+        // The ordered store publishes the values of the record before the new tail.
+        mTail.lazySet(tail + 1);
+        return true;
+    }
+
+    /**
+     * Take the oldest gesture. Call it only on the consumer thread.
+     *
+     * @param out Record that receives the values of the gesture.
+     * @return false if the ring is empty.
+     */
+    public boolean poll(GestureEvent out) {
+        long head = mHead.get();
+        if (head == mTail.get()) {
+            return false;
+        }
+        out.copyFrom(mRecords[(int) (head & mMask)]);
+
+        // The ordered store lets the producer reuse the record only after it has been copied.
+        mHead.lazySet(head + 1);
+        return true;
+    }
+
+    /**
+     * Obtain the number of pending gestures. The value may be outdated when it is read.
+     *
+     * @return Number of pending gestures.
+     */
+    public int size() {
+        return (int) (mTail.get() - mHead.get());
+    }
+
+    /**
+     * Obtain the number of records, which is the requested capacity rounded up to a power of two. Scrolls can use
+     * all of them except the tap reserve of a quarter.
+     *
+     * @return Number of records.
+     */
+    public int capacity() {
+        return mRecords.length;
+    }
+}
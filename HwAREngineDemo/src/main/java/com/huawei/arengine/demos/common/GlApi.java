@@ -0,0 +1,615 @@
+/*
+ * Copyright 2023. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.huawei.arengine.demos.common;
+
+import android.graphics.Bitmap;
+
+import java.nio.Buffer;
+
+/**
+ * OpenGL ES API used by the displays. The methods have the same names and parameters as those of
+ * android.opengl.GLES20 and GLES30, and texImage2D has the same parameters as GLUtils.texImage2D. Displays
+ * call GL through {@link GlFacade#get()} instead of the static GLES methods, so that the GL commands can be
+ * counted on a JVM without a GPU.
+ * <p>
+ * Every method must be called on the GL thread, which holds the current EGL context, and acts on the objects and
+ * the state of that context. The methods mapped to GLES30 additionally require an OpenGL ES 3.0 context, see
+ * {@link ShaderProgramRegistry#getGlesMajorVersion()}. Errors are reported by {@link #glGetError()} as in GLES;
+ * implementations do not throw for GL errors. A {@link StateCachingGlApi} may drop a call that sets the state to
+ * its current value, which has no visible effect on the context.
+ *
+ * @author HW
+ * @since 2023-06-12
+ */
+public interface GlApi {
+    // Buffers.
+
+    /**
+     * Generate buffer object names. Maps to GLES20.glGenBuffers.
+     *
+     * @param count Number of names to generate.
+     * @param buffers Array that receives the names.
+     * @param offset Index in the array of the first name.
+     */
+    void glGenBuffers(int count, int[] buffers, int offset);
+
+    /**
+     * Delete buffer objects, which also unbinds them from their targets. Names that are 0 or unknown are
+     * ignored. Maps to GLES20.glDeleteBuffers.
+     *
+     * @param count Number of names to delete.
+     * @param buffers Array that holds the names.
+     * @param offset Index in the array of the first name.
+     */
+    void glDeleteBuffers(int count, int[] buffers, int offset);
+
+    /**
+     * Bind a buffer object to a target, or unbind the target with 0. Maps to GLES20.glBindBuffer.
+     *
+     * @param target Target, for example, GL_ARRAY_BUFFER or GL_ELEMENT_ARRAY_BUFFER.
+     * @param buffer Buffer name, or 0.
+     */
+    void glBindBuffer(int target, int buffer);
+
+    /**
+     * Create the data store of the buffer bound to the target, replacing its previous store. Maps to
+     * GLES20.glBufferData.
+     *
+     * @param target Target to which the buffer is bound.
+     * @param size Size of the data store in bytes.
+     * @param data Data copied from its position, or null to leave the store uninitialized.
+     * @param usage Usage hint, for example, GL_STATIC_DRAW or GL_DYNAMIC_DRAW.
+     */
+    void glBufferData(int target, int size, Buffer data, int usage);
+
+    /**
+     * Replace a range of the data store of the buffer bound to the target. The range must lie within the store
+     * created by {@link #glBufferData}. Maps to GLES20.glBufferSubData.
+     *
+     * @param target Target to which the buffer is bound.
+     * @param offset Offset of the range in bytes.
+     * @param size Size of the range in bytes.
+     * @param data Data copied from its position.
+     */
+    void glBufferSubData(int target, int offset, int size, Buffer data);
+
+    // Textures.
+
+    /**
+     * Generate texture names. Maps to GLES20.glGenTextures.
+     *
+     * @param count Number of names to generate.
+     * @param textures Array that receives the names.
+     * @param offset Index in the array of the first name.
+     */
+    void glGenTextures(int count, int[] textures, int offset);
+
+    /**
+     * Delete textures, which also unbinds them from all texture units. Names that are 0 or unknown are ignored.
+     * Maps to GLES20.glDeleteTextures.
+     *
+     * @param count Number of names to delete.
+     * @param textures Array that holds the names.
+     * @param offset Index in the array of the first name.
+     */
+    void glDeleteTextures(int count, int[] textures, int offset);
+
+    /**
+     * Select the texture unit on which the texture calls act. Maps to GLES20.glActiveTexture.
+     *
+     * @param texture Texture unit, GL_TEXTURE0 + unit index.
+     */
+    void glActiveTexture(int texture);
+
+    /**
+     * Bind a texture to a target of the active texture unit, or unbind the target with 0. Maps to
+     * GLES20.glBindTexture.
+     *
+     * @param target Target, for example, GL_TEXTURE_2D or GL_TEXTURE_EXTERNAL_OES.
+     * @param texture Texture name, or 0.
+     */
+    void glBindTexture(int target, int texture);
+
+    /**
+     * Set an integer parameter of the texture bound to the target of the active unit. Maps to
+     * GLES20.glTexParameteri.
+     *
+     * @param target Target to which the texture is bound.
+     * @param pname Parameter, for example, GL_TEXTURE_MIN_FILTER, or GL_TEXTURE_MAX_LEVEL on OpenGL ES 3.0.
+     * @param param Value of the parameter.
+     */
+    void glTexParameteri(int target, int pname, int param);
+
+    /**
+     * Set a float parameter of the texture bound to the target of the active unit. Maps to
+     * GLES20.glTexParameterf.
+     *
+     * @param target Target to which the texture is bound.
+     * @param pname Parameter, for example, GL_TEXTURE_WRAP_S.
+     * @param param Value of the parameter.
+     */
+    void glTexParameterf(int target, int pname, float param);
+
+    /**
+     * Specify a level of the texture bound to the target of the active unit. Maps to GLES20.glTexImage2D.
+     *
+     * @param target Target to which the texture is bound.
+     * @param level Mipmap level, 0 for the base level.
+     * @param internalFormat Internal format of the texture.
+     * @param width Width in pixels.
+     * @param height Height in pixels.
+     * @param border Border, which must be 0.
+     * @param format Format of the pixel data.
+     * @param type Type of the pixel data.
+     * @param pixels Pixel data read from its position, or null to leave the level uninitialized.
+     */
+    void glTexImage2D(int target, int level, int internalFormat, int width, int height, int border, int format,
+        int type, Buffer pixels);
+
+    /**
+     * Specify a level of the texture bound to the target of the active unit from a bitmap, with the format and
+     * type of the bitmap. Maps to GLUtils.texImage2D.
+     *
+     * @param target Target to which the texture is bound.
+     * @param level Mipmap level, 0 for the base level.
+     * @param bitmap Bitmap, which is not recycled.
+     * @param border Border, which must be 0.
+     */
+    void texImage2D(int target, int level, Bitmap bitmap, int border);
+
+    /**
+     * Generate all mipmap levels of the texture bound to the target of the active unit from its base level. Maps
+     * to GLES20.glGenerateMipmap.
+     *
+     * @param target Target to which the texture is bound.
+     */
+    void glGenerateMipmap(int target);
+
+    // Shaders and programs.
+
+    /**
+     * Create an empty shader object. Maps to GLES20.glCreateShader.
+     *
+     * @param type Shader type, GL_VERTEX_SHADER or GL_FRAGMENT_SHADER.
+     * @return Shader name, or 0 if the shader cannot be created.
+     */
+    int glCreateShader(int type);
+
+    /**
+     * Replace the source code of a shader. Maps to GLES20.glShaderSource.
+     *
+     * @param shader Shader name.
+     * @param source GLSL source code.
+     */
+    void glShaderSource(int shader, String source);
+
+    /**
+     * Compile the source code of a shader. The result is queried with {@link #glGetShaderiv} and
+     * GL_COMPILE_STATUS. Maps to GLES20.glCompileShader.
+     *
+     * @param shader Shader name.
+     */
+    void glCompileShader(int shader);
+
+    /**
+     * Query a parameter of a shader. Maps to GLES20.glGetShaderiv.
+     *
+     * @param shader Shader name.
+     * @param pname Parameter, for example, GL_COMPILE_STATUS.
+     * @param params Array that receives the value.
+     * @param offset Index in the array of the value.
+     */
+    void glGetShaderiv(int shader, int pname, int[] params, int offset);
+
+    /**
+     * Obtain the information log of the latest compilation of a shader. Maps to GLES20.glGetShaderInfoLog.
+     *
+     * @param shader Shader name.
+     * @return Information log, which may be empty.
+     */
+    String glGetShaderInfoLog(int shader);
+
+    /**
+     * Delete a shader. A shader attached to a program is deleted when it is no longer attached. Maps to
+     * GLES20.glDeleteShader.
+     *
+     * @param shader Shader name, or 0, which is ignored.
+     */
+    void glDeleteShader(int shader);
+
+    /**
+     * Create an empty program object. Maps to GLES20.glCreateProgram.
+     *
+     * @return Program name, or 0 if the program cannot be created.
+     */
+    int glCreateProgram();
+
+    /**
+     * Attach a shader to a program before the program is linked. Maps to GLES20.glAttachShader.
+     *
+     * @param program Program name.
+     * @param shader Shader name.
+     */
+    void glAttachShader(int program, int shader);
+
+    /**
+     * Link the attached shaders of a program. The result is queried with {@link #glGetProgramiv} and
+     * GL_LINK_STATUS. Maps to GLES20.glLinkProgram.
+     *
+     * @param program Program name.
+     */
+    void glLinkProgram(int program);
+
+    /**
+     * Query a parameter of a program. Maps to GLES20.glGetProgramiv.
+     *
+     * @param program Program name.
+     * @param pname Parameter, for example, GL_LINK_STATUS or GL_PROGRAM_BINARY_LENGTH on OpenGL ES 3.0.
+     * @param params Array that receives the value.
+     * @param offset Index in the array of the value.
+     */
+    void glGetProgramiv(int program, int pname, int[] params, int offset);
+
+    /**
+     * Obtain the information log of the latest link or validation of a program. Maps to
+     * GLES20.glGetProgramInfoLog.
+     *
+     * @param program Program name.
+     * @return Information log, which may be empty.
+     */
+    String glGetProgramInfoLog(int program);
+
+    /**
+     * Delete a program. A program in use is deleted when it is no longer in use. Maps to GLES20.glDeleteProgram.
+     *
+     * @param program Program name, or 0, which is ignored.
+     */
+    void glDeleteProgram(int program);
+
+    /**
+     * Install a program for the following draw calls, or none with 0. Maps to GLES20.glUseProgram.
+     *
+     * @param program Program name, or 0.
+     */
+    void glUseProgram(int program);
+
+    /**
+     * Obtain the location of a vertex attribute of a linked program. Maps to GLES20.glGetAttribLocation.
+     *
+     * @param program Program name.
+     * @param name Name of the attribute in the shader.
+     * @return Attribute location, or -1 if the program has no active attribute of that name.
+     */
+    int glGetAttribLocation(int program, String name);
+
+    /**
+     * Obtain the location of a uniform of a linked program. Maps to GLES20.glGetUniformLocation.
+     *
+     * @param program Program name.
+     * @param name Name of the uniform in the shader.
+     * @return Uniform location, or -1 if the program has no active uniform of that name.
+     */
+    int glGetUniformLocation(int program, String name);
+
+    /**
+     * Set a parameter of a program, for example, GL_PROGRAM_BINARY_RETRIEVABLE_HINT before the program is linked.
+     * Requires OpenGL ES 3.0. Maps to GLES30.glProgramParameteri.
+     *
+     * @param program Program name.
+     * @param pname Parameter.
+     * @param value Value of the parameter.
+     */
+    void glProgramParameteri(int program, int pname, int value);
+
+    /**
+     * Obtain the binary of a linked program. Requires OpenGL ES 3.0. Maps to GLES30.glGetProgramBinary.
+     *
+     * @param program Program name.
+     * @param bufSize Size of the binary buffer in bytes.
+     * @param length Array that receives the number of bytes written.
+     * @param lengthOffset Index in the array of the length.
+     * @param binaryFormat Array that receives the format of the binary.
+     * @param binaryFormatOffset Index in the array of the format.
+     * @param binary Buffer that receives the binary.
+     */
+    void glGetProgramBinary(int program, int bufSize, int[] length, int lengthOffset, int[] binaryFormat,
+        int binaryFormatOffset, Buffer binary);
+
+    /**
+     * Load a program from a binary obtained by {@link #glGetProgramBinary}. The load fails, which is reported by
+     * GL_LINK_STATUS, if the driver no longer accepts the binary. Requires OpenGL ES 3.0. Maps to
+     * GLES30.glProgramBinary.
+     *
+     * @param program Program name.
+     * @param binaryFormat Format of the binary.
+     * @param binary Buffer that holds the binary.
+     * @param length Length of the binary in bytes.
+     */
+    void glProgramBinary(int program, int binaryFormat, Buffer binary, int length);
+
+    // Uniforms.
+
+    /**
+     * Set an int or sampler uniform of the program in use. Maps to GLES20.glUniform1i.
+     *
+     * @param location Uniform location, or -1, which is ignored.
+     * @param x Value.
+     */
+    void glUniform1i(int location, int x);
+
+    /**
+     * Set a float uniform of the program in use. Maps to GLES20.glUniform1f.
+     *
+     * @param location Uniform location, or -1, which is ignored.
+     * @param x Value.
+     */
+    void glUniform1f(int location, float x);
+
+    /**
+     * Set a vec2 uniform of the program in use. Maps to GLES20.glUniform2f.
+     *
+     * @param location Uniform location, or -1, which is ignored.
+     * @param x First component.
+     * @param y Second component.
+     */
+    void glUniform2f(int location, float x, float y);
+
+    /**
+     * Set a vec3 uniform of the program in use. Maps to GLES20.glUniform3f.
+     *
+     * @param location Uniform location, or -1, which is ignored.
+     * @param x First component.
+     * @param y Second component.
+     * @param z Third component.
+     */
+    void glUniform3f(int location, float x, float y, float z);
+
+    /**
+     * Set a vec4 uniform of the program in use. Maps to GLES20.glUniform4f.
+     *
+     * @param location Uniform location, or -1, which is ignored.
+     * @param x First component.
+     * @param y Second component.
+     * @param z Third component.
+     * @param w Fourth component.
+     */
+    void glUniform4f(int location, float x, float y, float z, float w);
+
+    /**
+     * Set a vec4 uniform, or an array of them, of the program in use. Maps to GLES20.glUniform4fv.
+     *
+     * @param location Uniform location, or -1, which is ignored.
+     * @param count Number of vectors.
+     * @param value Array that holds the vectors.
+     * @param offset Index in the array of the first component.
+     */
+    void glUniform4fv(int location, int count, float[] value, int offset);
+
+    /**
+     * Set a mat2 uniform, or an array of them, of the program in use. Maps to GLES20.glUniformMatrix2fv.
+     *
+     * @param location Uniform location, or -1, which is ignored.
+     * @param count Number of matrices.
+     * @param transpose Whether to transpose the matrices, which must be false on OpenGL ES 2.0.
+     * @param value Array that holds the matrices in column-major order.
+     * @param offset Index in the array of the first element.
+     */
+    void glUniformMatrix2fv(int location, int count, boolean transpose, float[] value, int offset);
+
+    /**
+     * Set a mat4 uniform, or an array of them, of the program in use. Maps to GLES20.glUniformMatrix4fv.
+     *
+     * @param location Uniform location, or -1, which is ignored.
+     * @param count Number of matrices.
+     * @param transpose Whether to transpose the matrices, which must be false on OpenGL ES 2.0.
+     * @param value Array that holds the matrices in column-major order.
+     * @param offset Index in the array of the first element.
+     */
+    void glUniformMatrix4fv(int location, int count, boolean transpose, float[] value, int offset);
+
+    // Vertex attributes and drawing.
+
+    /**
+     * Enable a vertex attribute array, so that draw calls read the attribute from its pointer. Maps to
+     * GLES20.glEnableVertexAttribArray.
+     *
+     * @param index Attribute location.
+     */
+    void glEnableVertexAttribArray(int index);
+
+    /**
+     * Disable a vertex attribute array, so that draw calls use the constant value of the attribute. Maps to
+     * GLES20.glDisableVertexAttribArray.
+     *
+     * @param index Attribute location.
+     */
+    void glDisableVertexAttribArray(int index);
+
+    /**
+     * Point a vertex attribute at the buffer bound to GL_ARRAY_BUFFER, which must be bound when this is called.
+     * Maps to GLES20.glVertexAttribPointer.
+     *
+     * @param index Attribute location.
+     * @param size Number of components per vertex, 1 to 4.
+     * @param type Type of the components, for example, GL_FLOAT.
+     * @param normalized Whether integer components are normalized to [0, 1] or [-1, 1].
+     * @param stride Bytes between consecutive vertices, or 0 for tightly packed vertices.
+     * @param offset Offset of the first component in the buffer, in bytes.
+     */
+    void glVertexAttribPointer(int index, int size, int type, boolean normalized, int stride, int offset);
+
+    /**
+     * Point a vertex attribute at client memory, with no buffer bound to GL_ARRAY_BUFFER. The buffer must be
+     * direct and stay valid until the draw calls that use it are issued. Maps to GLES20.glVertexAttribPointer.
+     *
+     * @param index Attribute location.
+     * @param size Number of components per vertex, 1 to 4.
+     * @param type Type of the components, for example, GL_FLOAT.
+     * @param normalized Whether integer components are normalized to [0, 1] or [-1, 1].
+     * @param stride Bytes between consecutive vertices, or 0 for tightly packed vertices.
+     * @param pointer Vertex data read from its position.
+     */
+    void glVertexAttribPointer(int index, int size, int type, boolean normalized, int stride, Buffer pointer);
+
+    /**
+     * Set the rate at which a vertex attribute advances in instanced draw calls. Requires OpenGL ES 3.0. Maps to
+     * GLES30.glVertexAttribDivisor.
+     *
+     * @param index Attribute location.
+     * @param divisor 0 to advance per vertex, or the number of instances per attribute value.
+     */
+    void glVertexAttribDivisor(int index, int divisor);
+
+    /**
+     * Draw primitives from consecutive vertices of the enabled attribute arrays. Maps to GLES20.glDrawArrays.
+     *
+     * @param mode Primitive type, for example, GL_TRIANGLES or GL_POINTS.
+     * @param first First vertex.
+     * @param count Number of vertices.
+     */
+    void glDrawArrays(int mode, int first, int count);
+
+    /**
+     * Draw primitives from the indexes in the buffer bound to GL_ELEMENT_ARRAY_BUFFER, which must be bound when
+     * this is called. GL_UNSIGNED_INT indexes require OpenGL ES 3.0 or the OES_element_index_uint extension. Maps
+     * to GLES20.glDrawElements.
+     *
+     * @param mode Primitive type, for example, GL_TRIANGLES.
+     * @param count Number of indexes.
+     * @param type Type of the indexes, for example, GL_UNSIGNED_SHORT.
+     * @param offset Offset of the first index in the buffer, in bytes.
+     */
+    void glDrawElements(int mode, int count, int type, int offset);
+
+    /**
+     * Draw primitives from indexes in client memory, with no buffer bound to GL_ELEMENT_ARRAY_BUFFER. Maps to
+     * GLES20.glDrawElements.
+     *
+     * @param mode Primitive type, for example, GL_TRIANGLES.
+     * @param count Number of indexes.
+     * @param type Type of the indexes, for example, GL_UNSIGNED_SHORT.
+     * @param indices Indexes read from their position, in a direct buffer.
+     */
+    void glDrawElements(int mode, int count, int type, Buffer indices);
+
+    /**
+     * Draw several instances of indexed primitives from the buffer bound to GL_ELEMENT_ARRAY_BUFFER. Requires
+     * OpenGL ES 3.0. Maps to GLES30.glDrawElementsInstanced.
+     *
+     * @param mode Primitive type, for example, GL_TRIANGLES.
+     * @param count Number of indexes per instance.
+     * @param type Type of the indexes, for example, GL_UNSIGNED_SHORT.
+     * @param offset Offset of the first index in the buffer, in bytes.
+     * @param instanceCount Number of instances.
+     */
+    void glDrawElementsInstanced(int mode, int count, int type, int offset, int instanceCount);
+
+    // Fixed function state and framebuffer.
+
+    /**
+     * Enable a capability, for example, GL_BLEND or GL_DEPTH_TEST. Maps to GLES20.glEnable.
+     *
+     * @param cap Capability.
+     */
+    void glEnable(int cap);
+
+    /**
+     * Disable a capability, for example, GL_BLEND or GL_DEPTH_TEST. Maps to GLES20.glDisable.
+     *
+     * @param cap Capability.
+     */
+    void glDisable(int cap);
+
+    /**
+     * Set the same blend factors for the color and alpha channels. Takes effect while GL_BLEND is enabled. Maps
+     * to GLES20.glBlendFunc.
+     *
+     * @param sfactor Source factor.
+     * @param dfactor Destination factor.
+     */
+    void glBlendFunc(int sfactor, int dfactor);
+
+    /**
+     * Set separate blend factors for the color and alpha channels. Takes effect while GL_BLEND is enabled. Maps
+     * to GLES20.glBlendFuncSeparate.
+     *
+     * @param srcRgb Source factor of the color channels.
+     * @param dstRgb Destination factor of the color channels.
+     * @param srcAlpha Source factor of the alpha channel.
+     * @param dstAlpha Destination factor of the alpha channel.
+     */
+    void glBlendFuncSeparate(int srcRgb, int dstRgb, int srcAlpha, int dstAlpha);
+
+    /**
+     * Enable or disable writing to the depth buffer. Maps to GLES20.glDepthMask.
+     *
+     * @param flag Whether depth values are written.
+     */
+    void glDepthMask(boolean flag);
+
+    /**
+     * Set the width of rasterized lines. Widths other than 1 may be clamped by the driver. Maps to
+     * GLES20.glLineWidth.
+     *
+     * @param width Line width in pixels.
+     */
+    void glLineWidth(float width);
+
+    /**
+     * Set the viewport of the current framebuffer. Maps to GLES20.glViewport.
+     *
+     * @param x Left edge in pixels.
+     * @param y Bottom edge in pixels.
+     * @param width Width in pixels.
+     * @param height Height in pixels.
+     */
+    void glViewport(int x, int y, int width, int height);
+
+    /**
+     * Set the color used by {@link #glClear} for the color buffer. Maps to GLES20.glClearColor.
+     *
+     * @param red Red component, in [0, 1].
+     * @param green Green component, in [0, 1].
+     * @param blue Blue component, in [0, 1].
+     * @param alpha Alpha component, in [0, 1].
+     */
+    void glClearColor(float red, float green, float blue, float alpha);
+
+    /**
+     * Clear buffers of the current framebuffer. The depth mask must be enabled for the depth buffer to be
+     * cleared. Maps to GLES20.glClear.
+     *
+     * @param mask Bitwise OR of GL_COLOR_BUFFER_BIT, GL_DEPTH_BUFFER_BIT, and GL_STENCIL_BUFFER_BIT.
+     */
+    void glClear(int mask);
+
+    /**
+     * Obtain and clear the oldest recorded error of the context. Maps to GLES20.glGetError.
+     *
+     * @return Error code, or GL_NO_ERROR if no error is recorded.
+     */
+    int glGetError();
+
+    /**
+     * Obtain a string that describes the context, for example, GL_VERSION or GL_EXTENSIONS. Maps to
+     * GLES20.glGetString.
+     *
+     * @param name Name of the string.
+     * @return String, or null if the name is not valid.
+     */
+    String glGetString(int name);
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2023. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.huawei.arengine.demos.common;
+
+import android.opengl.GLES20;
+
+import com.huawei.arengine.demos.BuildConfig;
+
+import java.util.Locale;
+
+/**
+ * Policy of {@link ShaderUtil#checkGlError}. glGetError may stall the GL pipeline, so the policy decides whether
+ * a check is performed:
+ * <ul>
+ *     <li>OFF: no check is performed, which costs one field read per call. Used by release builds.</li>
+ *     <li>SAMPLED: all checks of one frame in every {@link #setSampleInterval sample interval} are performed,
+ *     and errors are logged. Used by canary builds.</li>
+ *     <li>FULL: all checks are performed, and an error throws {@link ArDemoRuntimeException}. Used by debug
+ *     builds.</li>
+ * </ul>
+ * The default mode is set by the GL_ERROR_CHECK_MODE field of the build type. Before a sampled frame, the errors
+ * left by earlier frames are cleared, so that each error is reported with the label of the check that follows
+ * the GL calls which caused it.
+ *
+ * @author HW
+ * @since 2023-06-12
+ */
+public final class GlErrorCheckPolicy {
+    /**
+     * GL error checking mode.
+     *
+     * @author HW
+     * @since 2023-06-12
+     */
+    public enum Mode {
+        /**
+         * No check is performed.
+         */
+        OFF,
+
+        /**
+         * Checks are performed in sampled frames, and errors are logged.
+         */
+        SAMPLED,
+
+        /**
+         * All checks are performed, and errors are thrown.
+         */
+        FULL
+    }
+
+    private static final String TAG = "GlErrorCheckPolicy";
+
+    private static final int DEFAULT_SAMPLE_INTERVAL = 60;
+
+    private static volatile Mode sMode = parseMode(BuildConfig.GL_ERROR_CHECK_MODE);
+
+    private static volatile int sSampleInterval = DEFAULT_SAMPLE_INTERVAL;
+
+    private static long sFrameIndex = 0L;
+
+    /**
+     * Whether the checks of the current frame are performed in the SAMPLED mode. The checks before the first
+     * frame, which are made when the displays are initialized, are always performed.
+     */
+    private static boolean sIsFrameSampled = true;
+
+    private static long sCheckCount = 0L;
+
+    private static long sErrorCount = 0L;
+
+    private static String sLastErrorLabel = "";
+
+    private GlErrorCheckPolicy() {
+    }
+
+    /**
+     * Set the checking mode.
+     *
+     * @param mode Checking mode.
+     */
+    public static void setMode(Mode mode) {
+        if (mode == null) {
+            throw new IllegalArgumentException("mode is null");
+        }
+        sMode = mode;
+    }
+
+    /**
+     * Obtain the checking mode.
+     *
+     * @return Checking mode.
+     */
+    public static Mode getMode() {
+        return sMode;
+    }
+
+    /**
+     * Set how often frames are checked in the SAMPLED mode.
+     *
+     * @param frameInterval One frame in every frameInterval frames is checked.
+     */
+    public static void setSampleInterval(int frameInterval) {
+        sSampleInterval = Math.max(1, frameInterval);
+    }
+
+    /**
+     * Decide whether the checks of the new frame are performed. This method is called on the GL thread at the
+     * beginning of each frame.
+     */
+    public static void onFrameBegin() {
+        if (sMode != Mode.SAMPLED) {
+            return;
+        }
+        sFrameIndex++;
+        sIsFrameSampled = sFrameIndex % sSampleInterval == 0;
+        if (!sIsFrameSampled) {
+            return;
+        }
+
+        // Errors raised in frames that were not checked cannot be attributed to a label.
+        int error = GlFacade.get().glGetError();
+        while (error != GLES20.GL_NO_ERROR) {
+            LogUtil.warn(TAG, "glError " + error + " raised before frame " + sFrameIndex);
+            error = GlFacade.get().glGetError();
+        }
+    }
+
+    /**
+     * Check whether {@link ShaderUtil#checkGlError} calls glGetError now.
+     *
+     * @return true if the check is performed.
+     */
+    static boolean isCheckEnabled() {
+        switch (sMode) {
+            case FULL:
+                sCheckCount++;
+                return true;
+            case SAMPLED:
+                if (sIsFrameSampled) {
+                    sCheckCount++;
+                }
+                return sIsFrameSampled;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Record an error found by a check.
+     *
+     * @param tag Tag of the caller.
+     * @param label Label of the check.
+     * @param error Last GL error.
+     * @return true if the error is thrown, which is the case in the FULL mode.
+     */
+    static boolean onError(String tag, String label, int error) {
+        sErrorCount++;
+        sLastErrorLabel = tag + ": " + label;
+        if (sMode == Mode.FULL) {
+            return true;
+        }
+        LogUtil.error(TAG, "glError " + error + " at " + sLastErrorLabel + " in frame " + sFrameIndex);
+        return false;
+    }
+
+    /**
+     * Obtain the number of checks performed since the app started.
+     *
+     * @return Number of checks.
+     */
+    public static long getCheckCount() {
+        return sCheckCount;
+    }
+
+    /**
+     * Obtain the number of checks that found errors since the app started.
+     *
+     * @return Number of checks.
+     */
+    public static long getErrorCount() {
+        return sErrorCount;
+    }
+
+    /**
+     * Obtain the tag and label of the latest check that found errors.
+     *
+     * @return Tag and label, or an empty string if no error is found.
+     */
+    public static String getLastErrorLabel() {
+        return sLastErrorLabel;
+    }
+
+    private static Mode parseMode(String mode) {
+        try {
+            return Mode.valueOf(mode.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException exception) {
+            LogUtil.warn(TAG, "Unknown GL error check mode: " + mode);
+            return Mode.OFF;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2023. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.huawei.arengine.demos.common;
+
+/**
+ * Holder of the {@link GlApi} used by all displays. By default, GL calls pass through a
+ * {@link StateCachingGlApi}, which drops redundant state changes, and are then forwarded to GLES. The unit tests
+ * replace it with a headless implementation that counts the GL commands before the displays are initialized, to
+ * measure the GL command cost of each frame without a GPU.
+ *
+ * @author HW
+ * @since 2023-06-12
+ */
+public final class GlFacade {
+    private static StateCachingGlApi sStateCache = new StateCachingGlApi(new GlesApi());
+
+    private static GlApi sGlApi = sStateCache;
+
+    private GlFacade() {
+    }
+
+    /**
+     * Obtain the current GL API.
+     *
+     * @return GL API.
+     */
+    public static GlApi get() {
+        return sGlApi;
+    }
+
+    /**
+     * Replace the GL API. Call it before any display is initialized, on the thread that renders.
+     *
+     * @param glApi GL API, for example, {@link GlesApi}.
+     */
+    public static void set(GlApi glApi) {
+        if (glApi == null) {
+            throw new IllegalArgumentException("glApi is null");
+        }
+        sGlApi = glApi;
+        sStateCache = glApi instanceof StateCachingGlApi ? (StateCachingGlApi) glApi : null;
+    }
+
+    /**
+     * Obtain the state cache of the current GL API.
+     *
+     * @return State cache, or null if the current GL API does not cache the state.
+     */
+    public static StateCachingGlApi getStateCache() {
+        return sStateCache;
+    }
+}
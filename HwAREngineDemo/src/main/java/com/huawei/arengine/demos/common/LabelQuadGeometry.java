@@ -0,0 +1,147 @@
+/*
+ * Copyright 2023. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.huawei.arengine.demos.common;
+
+import android.opengl.GLES20;
+import android.opengl.Matrix;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+
+/**
+ * Quad geometry shared by the label displays. The vertices of a unit quad centered at the origin are uploaded
+ * once per EGL context to a vertex buffer and an index buffer, and every label is drawn from these buffers with
+ * its size applied by {@link #scaleModelMatrix}. Each vertex has the X and Z coordinates in the label plane
+ * followed by the alpha, as expected by {@link ShaderUtil#LABEL_VERTEX}. As the X and Z coordinates range from
+ * -0.5 to 0.5, the UV matrix of the label shader is the identity matrix. All methods must be called on the GL
+ * thread.
+ *
+ * @author HW
+ * @since 2023-06-12
+ */
+public final class LabelQuadGeometry {
+    /**
+     * Number of coordinates of each vertex.
+     */
+    public static final int COORDS_PER_VERTEX = 3;
+
+    private static final String TAG = "LabelQuadGeometry";
+
+    private static final int BYTES_PER_FLOAT = 4;
+
+    private static final int BYTES_PER_SHORT = 2;
+
+    private static final float HALF_SIZE = 0.5f;
+
+    private static final float[] VERTICES = {-HALF_SIZE, -HALF_SIZE, 1.0f, -HALF_SIZE, HALF_SIZE, 1.0f, HALF_SIZE,
+        HALF_SIZE, 1.0f, HALF_SIZE, -HALF_SIZE, 1.0f};
+
+    /**
+     * Two triangles that form the quad.
+     */
+    private static final short[] INDICES = {0, 1, 2, 0, 2, 3};
+
+    private static int sVertexBufferId = 0;
+
+    private static int sIndexBufferId = 0;
+
+    private static long sUploadCount = 0L;
+
+    private LabelQuadGeometry() {
+    }
+
+    /**
+     * Forget the buffers of the previous EGL context, whose names are no longer valid. This method is called
+     * when the GL surface is created.
+     */
+    public static void onContextCreated() {
+        sVertexBufferId = 0;
+        sIndexBufferId = 0;
+    }
+
+    /**
+     * Bind the quad buffers and point the position attribute of the label shader to the vertex buffer. The
+     * buffers are created on the first call in an EGL context. Call this method once before drawing the labels
+     * of a frame, and then call {@link #draw} for each label.
+     *
+     * @param positionAttribute Location of the inPosXZAlpha attribute.
+     */
+    public static void bind(int positionAttribute) {
+        if (sVertexBufferId == 0 || sIndexBufferId == 0) {
+            upload();
+        }
+        GlFacade.get().glBindBuffer(GLES20.GL_ARRAY_BUFFER, sVertexBufferId);
+        GlFacade.get().glVertexAttribPointer(positionAttribute, COORDS_PER_VERTEX, GLES20.GL_FLOAT, false,
+            BYTES_PER_FLOAT * COORDS_PER_VERTEX, 0);
+        GlFacade.get().glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, sIndexBufferId);
+    }
+
+    /**
+     * Draw a label with the buffers bound by {@link #bind}.
+     */
+    public static void draw() {
+        GlFacade.get().glDrawElements(GLES20.GL_TRIANGLES, INDICES.length, GLES20.GL_UNSIGNED_SHORT, 0);
+    }
+
+    /**
+     * Scale the model matrix of a label so that the unit quad has the size of the label.
+     *
+     * @param modelMatrix Model matrix of the label, which is scaled in place.
+     * @param width Width of the label along the X axis of the label plane.
+     * @param height Height of the label along the Z axis of the label plane.
+     */
+    public static void scaleModelMatrix(float[] modelMatrix, float width, float height) {
+        Matrix.scaleM(modelMatrix, 0, width, 1.0f, height);
+    }
+
+    /**
+     * Obtain the number of times that the quad has been uploaded, which is once per EGL context.
+     *
+     * @return Number of uploads.
+     */
+    public static long getUploadCount() {
+        return sUploadCount;
+    }
+
+    private static void upload() {
+        ShaderUtil.checkGlError(TAG, "Upload label quad start.");
+        int[] buffers = new int[2];
+        GlFacade.get().glGenBuffers(buffers.length, buffers, 0);
+        sVertexBufferId = buffers[0];
+        sIndexBufferId = buffers[1];
+
+        FloatBuffer vertexBuffer = ByteBuffer.allocateDirect(BYTES_PER_FLOAT * VERTICES.length)
+            .order(ByteOrder.nativeOrder()).asFloatBuffer();
+        vertexBuffer.put(VERTICES);
+        vertexBuffer.rewind();
+        GlFacade.get().glBindBuffer(GLES20.GL_ARRAY_BUFFER, sVertexBufferId);
+        GlFacade.get().glBufferData(GLES20.GL_ARRAY_BUFFER, BYTES_PER_FLOAT * VERTICES.length, vertexBuffer,
+            GLES20.GL_STATIC_DRAW);
+
+        ShortBuffer indexBuffer = ByteBuffer.allocateDirect(BYTES_PER_SHORT * INDICES.length)
+            .order(ByteOrder.nativeOrder()).asShortBuffer();
+        indexBuffer.put(INDICES);
+        indexBuffer.rewind();
+        GlFacade.get().glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, sIndexBufferId);
+        GlFacade.get().glBufferData(GLES20.GL_ELEMENT_ARRAY_BUFFER, BYTES_PER_SHORT * INDICES.length, indexBuffer,
+            GLES20.GL_STATIC_DRAW);
+        sUploadCount++;
+        ShaderUtil.checkGlError(TAG, "Upload label quad end.");
+    }
+}
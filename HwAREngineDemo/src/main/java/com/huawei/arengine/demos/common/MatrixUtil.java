@@ -49,6 +49,57 @@ public class MatrixUtil {
         }
     }
 
+    /**
+     * Multiply two 4 * 4 column-major matrices, in the same way as Matrix.multiplyMM. The product is computed in
+     * Java code, so that the per-frame matrix math does not depend on the Android framework. The result must not
+     * overlap the operands.
+     *
+     * @param result Array that receives the product lhs * rhs.
+     * @param resultOffset Index of the first float of the result.
+     * @param lhs Array that contains the left-hand matrix.
+     * @param lhsOffset Index of the first float of the left-hand matrix.
+     * @param rhs Array that contains the right-hand matrix.
+     * @param rhsOffset Index of the first float of the right-hand matrix.
+     */
+    public static void multiplyMM(float[] result, int resultOffset, float[] lhs, int lhsOffset, float[] rhs,
+        int rhsOffset) {
+        for (int column = 0; column < 4; column++) {
+            int rhsColumn = rhsOffset + column * 4;
+            float rhs0 = rhs[rhsColumn];
+            float rhs1 = rhs[rhsColumn + 1];
+            float rhs2 = rhs[rhsColumn + 2];
+            float rhs3 = rhs[rhsColumn + 3];
+            for (int row = 0; row < 4; row++) {
+                result[resultOffset + column * 4 + row] = lhs[lhsOffset + row] * rhs0
+                    + lhs[lhsOffset + 4 + row] * rhs1 + lhs[lhsOffset + 8 + row] * rhs2
+                    + lhs[lhsOffset + 12 + row] * rhs3;
+            }
+        }
+    }
+
+    /**
+     * Multiply a 4 * 4 column-major matrix by a 4-component vector, in the same way as Matrix.multiplyMV. The
+     * result must not overlap the operands.
+     *
+     * @param result Array that receives the product lhs * rhs.
+     * @param resultOffset Index of the first float of the result.
+     * @param lhs Array that contains the matrix.
+     * @param lhsOffset Index of the first float of the matrix.
+     * @param rhs Array that contains the vector.
+     * @param rhsOffset Index of the first float of the vector.
+     */
+    public static void multiplyMV(float[] result, int resultOffset, float[] lhs, int lhsOffset, float[] rhs,
+        int rhsOffset) {
+        float rhs0 = rhs[rhsOffset];
+        float rhs1 = rhs[rhsOffset + 1];
+        float rhs2 = rhs[rhsOffset + 2];
+        float rhs3 = rhs[rhsOffset + 3];
+        for (int row = 0; row < 4; row++) {
+            result[resultOffset + row] = lhs[lhsOffset + row] * rhs0 + lhs[lhsOffset + 4 + row] * rhs1
+                + lhs[lhsOffset + 8 + row] * rhs2 + lhs[lhsOffset + 12 + row] * rhs3;
+        }
+    }
+
     /**
      * Three-dimensional data standardization method, which divides each
      * number by the root of the sum of squares of all numbers.
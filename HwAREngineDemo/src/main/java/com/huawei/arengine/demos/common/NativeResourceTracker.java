@@ -0,0 +1,253 @@
+/*
+ * Copyright 2023. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.huawei.arengine.demos.common;
+
+import com.huawei.arengine.demos.BuildConfig;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks native resources of AR Engine, such as point clouds, scene meshes and face geometries, which must be
+ * released after they are acquired. A resource is wrapped in a scoped handle that releases it when closed, for
+ * example:
+ * <pre>
+ * try (NativeResourceTracker.Handle&lt;ARPointCloud&gt; pointCloud = NativeResourceTracker.acquire("point cloud",
+ *     frame.acquirePointCloud(), ARPointCloud::release)) {
+ *     pointCloudRenderer.onDrawFrame(pointCloud.get(), viewMatrix, projectionMatrix);
+ * }
+ * </pre>
+ * Handles that are still open when {@link #onFrameEnd} is called on their thread are leaks: they are released
+ * and counted, so that native memory does not grow over long sessions. Debug builds also log each leak with the
+ * stack trace of its acquisition. Handles are pooled per thread, so a handle must not be used after it is closed.
+ *
+ * @author HW
+ * @since 2023-06-12
+ */
+public final class NativeResourceTracker {
+    private static final String TAG = "NativeResourceTracker";
+
+    /**
+     * Whether the acquisition sites are recorded for leak reports, which costs a stack trace per acquisition.
+     */
+    private static final boolean IS_LEAK_REPORT_ENABLED = BuildConfig.DEBUG;
+
+    private static final ThreadLocal<NativeResourceTracker> TRACKERS =
+        ThreadLocal.withInitial(NativeResourceTracker::new);
+
+    private static final AtomicInteger OPEN_COUNT = new AtomicInteger();
+
+    private static final AtomicLong ACQUIRED_COUNT = new AtomicLong();
+
+    private static final AtomicLong LEAKED_COUNT = new AtomicLong();
+
+    private final ArrayList<Handle<?>> mOpenHandles = new ArrayList<>();
+
+    private final ArrayDeque<Handle<?>> mFreeHandles = new ArrayDeque<>();
+
+    private NativeResourceTracker() {
+    }
+
+    /**
+     * Releases a native resource.
+     *
+     * @param <T> Type of the resource.
+     * @author HW
+     * @since 2023-06-12
+     */
+    @FunctionalInterface
+    public interface Releaser<T> {
+        /**
+         * Release the resource.
+         *
+         * @param resource Resource, which is not null.
+         */
+        void release(T resource);
+    }
+
+    /**
+     * Scoped handle of a native resource, which releases the resource when it is closed.
+     *
+     * @param <T> Type of the resource.
+     * @author HW
+     * @since 2023-06-12
+     */
+    public static final class Handle<T> implements AutoCloseable {
+        private final NativeResourceTracker mTracker;
+
+        private T mResource;
+
+        private Releaser<? super T> mReleaser;
+
+        private String mLabel;
+
+        private Throwable mAcquireSite;
+
+        private int mIndex = -1;
+
+        private Handle(NativeResourceTracker tracker) {
+            mTracker = tracker;
+        }
+
+        /**
+         * Obtain the resource.
+         *
+         * @return Resource, or null if AR Engine returned none.
+         */
+        public T get() {
+            if (mIndex < 0) {
+                throw new IllegalStateException("The native resource is already released.");
+            }
+            return mResource;
+        }
+
+        /**
+         * Release the resource and return the handle to the pool of the current thread.
+         */
+        @Override
+        public void close() {
+            if (mIndex < 0) {
+                LogUtil.warn(TAG, "The native resource handle is closed twice.");
+                return;
+            }
+            mTracker.release(this);
+        }
+
+        private void releaseResource() {
+            T resource = mResource;
+            Releaser<? super T> releaser = mReleaser;
+            mResource = null;
+            mReleaser = null;
+            mLabel = null;
+            mAcquireSite = null;
+            mIndex = -1;
+            if (resource != null) {
+                releaser.release(resource);
+            }
+        }
+    }
+
+    /**
+     * Track a native resource on the current thread.
+     *
+     * @param label Name of the resource in leak reports.
+     * @param resource Acquired resource, which may be null.
+     * @param releaser Function that releases the resource.
+     * @param <T> Type of the resource.
+     * @return Open handle of the resource.
+     */
+    public static <T> Handle<T> acquire(String label, T resource, Releaser<? super T> releaser) {
+        if (releaser == null) {
+            throw new IllegalArgumentException("releaser is null");
+        }
+        return TRACKERS.get().open(label, resource, releaser);
+    }
+
+    /**
+     * Release the handles of the current thread that are still open. Call it at the end of each frame on the
+     * thread that acquired the resources.
+     *
+     * @return Number of leaked handles.
+     */
+    public static int onFrameEnd() {
+        return TRACKERS.get().releaseLeaks();
+    }
+
+    /**
+     * Obtain the number of open handles of all threads.
+     *
+     * @return Number of open handles.
+     */
+    public static int getOpenCount() {
+        return OPEN_COUNT.get();
+    }
+
+    /**
+     * Obtain the number of resources acquired by all threads since the application started.
+     *
+     * @return Number of acquired resources.
+     */
+    public static long getAcquiredCount() {
+        return ACQUIRED_COUNT.get();
+    }
+
+    /**
+     * Obtain the number of handles that were released at the end of a frame instead of being closed.
+     *
+     * @return Number of leaked handles.
+     */
+    public static long getLeakedCount() {
+        return LEAKED_COUNT.get();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Handle<T> open(String label, T resource, Releaser<? super T> releaser) {
+        Handle<T> handle = (Handle<T>) mFreeHandles.pollFirst();
+        if (handle == null) {
+            handle = new Handle<>(this);
+        }
+        handle.mResource = resource;
+        handle.mReleaser = releaser;
+        handle.mLabel = label;
+        handle.mAcquireSite = IS_LEAK_REPORT_ENABLED ? new Throwable("Acquired here") : null;
+        handle.mIndex = mOpenHandles.size();
+        mOpenHandles.add(handle);
+        OPEN_COUNT.incrementAndGet();
+        ACQUIRED_COUNT.incrementAndGet();
+        return handle;
+    }
+
+    private void release(Handle<?> handle) {
+        // Move the last open handle into the slot of the closed one, so that removal does not shift the list.
+        int index = handle.mIndex;
+        Handle<?> last = mOpenHandles.remove(mOpenHandles.size() - 1);
+        if (last != handle) {
+            last.mIndex = index;
+            mOpenHandles.set(index, last);
+        }
+        OPEN_COUNT.decrementAndGet();
+        try {
+            handle.releaseResource();
+        } finally {
+            mFreeHandles.addFirst(handle);
+        }
+    }
+
+    private int releaseLeaks() {
+        int leakCount = mOpenHandles.size();
+        while (!mOpenHandles.isEmpty()) {
+            Handle<?> handle = mOpenHandles.get(mOpenHandles.size() - 1);
+            if (IS_LEAK_REPORT_ENABLED) {
+                LogUtil.error(TAG, "The native resource " + handle.mLabel + " is not released in its frame."
+                    + System.lineSeparator() + getStackTrace(handle.mAcquireSite));
+            }
+            release(handle);
+        }
+        LEAKED_COUNT.addAndGet(leakCount);
+        return leakCount;
+    }
+
+    private static String getStackTrace(Throwable throwable) {
+        StringWriter writer = new StringWriter();
+        throwable.printStackTrace(new PrintWriter(writer));
+        return writer.toString();
+    }
+}
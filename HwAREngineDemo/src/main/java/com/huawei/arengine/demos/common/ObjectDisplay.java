@@ -20,9 +20,7 @@ import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.opengl.GLES20;
-import android.opengl.GLUtils;
 import android.opengl.Matrix;
-import android.view.MotionEvent;
 
 import de.javagl.obj.Obj;
 import de.javagl.obj.ObjData;
@@ -40,7 +38,9 @@ import java.util.Arrays;
 import java.util.Optional;
 
 /**
- * Draw a virtual object based on the specified parameters.
+ * Draw a virtual object based on the specified parameters. Several objects are drawn with one instanced draw
+ * call on OpenGL ES 3.0 or later. On OpenGL ES 2.0, the program, texture, and buffers are bound once for all
+ * objects, and each object only updates its uniforms before its draw call.
  *
  * @author HW
  * @since 2020-04-11
@@ -59,6 +59,24 @@ public class ObjectDisplay {
 
     private static final int MATRIX_SIZE = 16;
 
+    private static final int MATRIX_COLUMNS = 4;
+
+    private static final int COLOR_SIZE = 4;
+
+    /**
+     * Each instance has a model matrix and a color.
+     */
+    private static final int FLOATS_PER_INSTANCE = MATRIX_SIZE + COLOR_SIZE;
+
+    private static final int BYTES_PER_INSTANCE = FLOAT_BYTE_SIZE * FLOATS_PER_INSTANCE;
+
+    private static final int INITIAL_INSTANCE_NUM = 16;
+
+    private static final int MIN_INSTANCING_GLES_VERSION = 3;
+
+    private final DynamicVertexBuffer mInstanceBuffer =
+        new DynamicVertexBuffer(GLES20.GL_ARRAY_BUFFER, INITIAL_INSTANCE_NUM * BYTES_PER_INSTANCE);
+
     /**
      * Light direction (x, y, z, w).
      */
@@ -94,7 +112,32 @@ public class ObjectDisplay {
 
     private int mColorUniform;
 
-    private float[] mModelMatrixs = new float[MATRIX_SIZE];
+    private int mInstancedProgram = 0;
+
+    private int mInstancedViewUniform;
+
+    private int mInstancedProjectionUniform;
+
+    private int mInstancedLightIntensityUniform;
+
+    private int mInstancedTextureUniform;
+
+    private int mInstancedPositionAttribute;
+
+    private int mInstancedNormalAttribute;
+
+    private int mInstancedTexCoordAttribute;
+
+    /**
+     * Location of the first column of the per-instance model matrix. The other columns follow it.
+     */
+    private int mInstancedModelMatrixAttribute;
+
+    private int mInstancedColorAttribute;
+
+    private boolean mIsInstancingEnabled = true;
+
+    private int mLastDrawCallCount = 0;
 
     private float[] mModelViewMatrixs = new float[MATRIX_SIZE];
 
@@ -109,6 +152,28 @@ public class ObjectDisplay {
 
     private float mHeight;
 
+    private final float[] mInverseModelMatrix = new float[MATRIX_SIZE];
+
+    private final float[] mInverseViewProjectionMatrix = new float[MATRIX_SIZE];
+
+    private final float[] mNdcPoint = new float[4];
+
+    private final float[] mWorldPoint = new float[4];
+
+    private final float[] mRayOrigin = new float[3];
+
+    private final float[] mRayDirection = new float[3];
+
+    private ObjectPicker mPicker = null;
+
+    private int[] mPickSlots = new int[0];
+
+    private VirtualObjectStore mPickedStore = null;
+
+    private int mPickedVisibleVersion = -1;
+
+    private int mPickedTransformVersion = -1;
+
     /**
      * If the surface size is changed, update the changed size of the record synchronously.
      *
@@ -123,41 +188,69 @@ public class ObjectDisplay {
     /**
      * Create a shader program to read the data of the virtual object.
      *
-     * @param context Context.
+     * @param context Context, or null if the objects are drawn without the model and its texture.
      */
     public void init(Context context) {
         ShaderUtil.checkGlError(TAG, "Init start.");
         createProgram();
+        if (ShaderProgramRegistry.getGlesMajorVersion() >= MIN_INSTANCING_GLES_VERSION) {
+            createInstancedProgram();
+        }
 
         // Coordinate and index.
         int[] buffers = new int[2];
-        GLES20.glGenBuffers(2, buffers, 0);
+        GlFacade.get().glGenBuffers(2, buffers, 0);
         mVertexBufferId = buffers[0];
         mIndexBufferId = buffers[1];
-        GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
-        GLES20.glGenTextures(mTextures.length, mTextures, 0);
-        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, mTextures[0]);
-        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_LINEAR_MIPMAP_LINEAR);
-        initGlTextureData(context);
-        initializeGlObjectData(context);
+        GlFacade.get().glActiveTexture(GLES20.GL_TEXTURE0);
+        GlFacade.get().glGenTextures(mTextures.length, mTextures, 0);
+        GlFacade.get().glBindTexture(GLES20.GL_TEXTURE_2D, mTextures[0]);
+        GlFacade.get().glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER,
+            GLES20.GL_LINEAR_MIPMAP_LINEAR);
+        if (context == null) {
+            // The draw calls are issued without the model, for example, when they are measured off the device.
+            LogUtil.debug(TAG, "Model loading skipped, no context.");
+        } else {
+            initGlTextureData(context);
+            initializeGlObjectData(context);
+        }
         ShaderUtil.checkGlError(TAG, "Init end.");
     }
 
     private void createProgram() {
         ShaderUtil.checkGlError(TAG, "Create program start.");
         mGlProgram = WorldShaderUtil.getObjectProgram();
-        mModelViewUniform = GLES20.glGetUniformLocation(mGlProgram, "inViewMatrix");
-        mModelViewProjectionUniform = GLES20.glGetUniformLocation(mGlProgram, "inMVPMatrix");
-        mPositionAttribute = GLES20.glGetAttribLocation(mGlProgram, "inObjectPosition");
-        mNormalAttribute = GLES20.glGetAttribLocation(mGlProgram, "inObjectNormalVector");
-        mTexCoordAttribute = GLES20.glGetAttribLocation(mGlProgram, "inTexCoordinate");
-        mTextureUniform = GLES20.glGetUniformLocation(mGlProgram, "inObjectTexture");
-        mLightingParametersUniform = GLES20.glGetUniformLocation(mGlProgram, "inLight");
-        mColorUniform = GLES20.glGetUniformLocation(mGlProgram, "inObjectColor");
-        Matrix.setIdentityM(mModelMatrixs, 0);
+        mModelViewUniform = GlFacade.get().glGetUniformLocation(mGlProgram, "inViewMatrix");
+        mModelViewProjectionUniform = GlFacade.get().glGetUniformLocation(mGlProgram, "inMVPMatrix");
+        mPositionAttribute = GlFacade.get().glGetAttribLocation(mGlProgram, "inObjectPosition");
+        mNormalAttribute = GlFacade.get().glGetAttribLocation(mGlProgram, "inObjectNormalVector");
+        mTexCoordAttribute = GlFacade.get().glGetAttribLocation(mGlProgram, "inTexCoordinate");
+        mTextureUniform = GlFacade.get().glGetUniformLocation(mGlProgram, "inObjectTexture");
+        mLightingParametersUniform = GlFacade.get().glGetUniformLocation(mGlProgram, "inLight");
+        mColorUniform = GlFacade.get().glGetUniformLocation(mGlProgram, "inObjectColor");
         ShaderUtil.checkGlError(TAG, "Create program end.");
     }
 
+    private void createInstancedProgram() {
+        ShaderUtil.checkGlError(TAG, "Create instanced program start.");
+        mInstancedProgram = WorldShaderUtil.getInstancedObjectProgram();
+        if (mInstancedProgram == 0) {
+            LogUtil.warn(TAG, "Instanced program is unavailable, objects are drawn one by one.");
+            return;
+        }
+        mInstancedViewUniform = GlFacade.get().glGetUniformLocation(mInstancedProgram, "inViewMatrix");
+        mInstancedProjectionUniform = GlFacade.get().glGetUniformLocation(mInstancedProgram, "inProjectionMatrix");
+        mInstancedLightIntensityUniform = GlFacade.get().glGetUniformLocation(mInstancedProgram, "inLightIntensity");
+        mInstancedTextureUniform = GlFacade.get().glGetUniformLocation(mInstancedProgram, "inObjectTexture");
+        mInstancedPositionAttribute = GlFacade.get().glGetAttribLocation(mInstancedProgram, "inObjectPosition");
+        mInstancedNormalAttribute = GlFacade.get().glGetAttribLocation(mInstancedProgram, "inObjectNormalVector");
+        mInstancedTexCoordAttribute = GlFacade.get().glGetAttribLocation(mInstancedProgram, "inTexCoordinate");
+        mInstancedModelMatrixAttribute = GlFacade.get().glGetAttribLocation(mInstancedProgram, "inModelMatrix");
+        mInstancedColorAttribute = GlFacade.get().glGetAttribLocation(mInstancedProgram, "inObjectColor");
+        mInstanceBuffer.init();
+        ShaderUtil.checkGlError(TAG, "Create instanced program end.");
+    }
+
     private void initGlTextureData(Context context) {
         ShaderUtil.checkGlError(TAG, "Init gl texture data start.");
         Bitmap textureBitmap;
@@ -168,9 +261,9 @@ public class ObjectDisplay {
             return;
         }
 
-        GLUtils.texImage2D(GLES20.GL_TEXTURE_2D, 0, textureBitmap, 0);
-        GLES20.glGenerateMipmap(GLES20.GL_TEXTURE_2D);
-        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, 0);
+        GlFacade.get().texImage2D(GLES20.GL_TEXTURE_2D, 0, textureBitmap, 0);
+        GlFacade.get().glGenerateMipmap(GLES20.GL_TEXTURE_2D);
+        GlFacade.get().glBindTexture(GLES20.GL_TEXTURE_2D, 0);
         textureBitmap.recycle();
         ShaderUtil.checkGlError(TAG, "Init gl texture data end.");
     }
@@ -187,20 +280,20 @@ public class ObjectDisplay {
         mTexCoordsBaseAddress = FLOAT_BYTE_SIZE * objectData.mObjectIndices.limit();
         mNormalsBaseAddress = mTexCoordsBaseAddress + FLOAT_BYTE_SIZE * objectData.mTexCoords.limit();
         final int totalBytes = mNormalsBaseAddress + FLOAT_BYTE_SIZE * objectData.mNormals.limit();
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, mVertexBufferId);
-        GLES20.glBufferData(GLES20.GL_ARRAY_BUFFER, totalBytes, null, GLES20.GL_STATIC_DRAW);
-        GLES20.glBufferSubData(GLES20.GL_ARRAY_BUFFER, 0,
+        GlFacade.get().glBindBuffer(GLES20.GL_ARRAY_BUFFER, mVertexBufferId);
+        GlFacade.get().glBufferData(GLES20.GL_ARRAY_BUFFER, totalBytes, null, GLES20.GL_STATIC_DRAW);
+        GlFacade.get().glBufferSubData(GLES20.GL_ARRAY_BUFFER, 0,
             FLOAT_BYTE_SIZE * objectData.mObjectVertices.limit(), objectData.mObjectVertices);
-        GLES20.glBufferSubData(GLES20.GL_ARRAY_BUFFER, mTexCoordsBaseAddress,
+        GlFacade.get().glBufferSubData(GLES20.GL_ARRAY_BUFFER, mTexCoordsBaseAddress,
             FLOAT_BYTE_SIZE * objectData.mTexCoords.limit(), objectData.mTexCoords);
-        GLES20.glBufferSubData(GLES20.GL_ARRAY_BUFFER, mNormalsBaseAddress,
+        GlFacade.get().glBufferSubData(GLES20.GL_ARRAY_BUFFER, mNormalsBaseAddress,
             FLOAT_BYTE_SIZE * objectData.mNormals.limit(), objectData.mNormals);
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
-        GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, mIndexBufferId);
+        GlFacade.get().glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+        GlFacade.get().glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, mIndexBufferId);
         mIndexCount = objectData.mIndices.limit();
-        GLES20.glBufferData(GLES20.GL_ELEMENT_ARRAY_BUFFER, INDEX_COUNT_RATIO * mIndexCount,
+        GlFacade.get().glBufferData(GLES20.GL_ELEMENT_ARRAY_BUFFER, INDEX_COUNT_RATIO * mIndexCount,
             objectData.mIndices, GLES20.GL_STATIC_DRAW);
-        GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, 0);
+        GlFacade.get().glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, 0);
         ShaderUtil.checkGlError(TAG, "obj buffer load");
     }
 
@@ -271,56 +364,183 @@ public class ObjectDisplay {
      */
     public void onDrawFrame(float[] cameraView, float[] cameraProjection, float lightIntensity, VirtualObject obj) {
         ShaderUtil.checkGlError(TAG, "onDrawFrame start.");
-        mModelMatrixs = obj.getModelArPoseMatrix();
-        Matrix.multiplyMM(mModelViewMatrixs, 0, cameraView, 0, mModelMatrixs, 0);
-        Matrix.multiplyMM(mModelViewProjectionMatrixs, 0, cameraProjection, 0, mModelViewMatrixs, 0);
-        GLES20.glUseProgram(mGlProgram);
-        Matrix.multiplyMV(mViewLightDirections, 0, mModelViewMatrixs, 0, LIGHT_DIRECTIONS, 0);
+        mLastDrawCallCount = 0;
+        beginBatch();
+        drawObject(cameraProjection, lightIntensity, obj.getTransform().getWorldViewMatrix(cameraView),
+            obj.getColor(), 0);
+        unbindMesh(mPositionAttribute, mNormalAttribute, mTexCoordAttribute);
+        ShaderUtil.checkGlError(TAG, "onDrawFrame end.");
+    }
+
+    /**
+     * Draw virtual objects. On OpenGL ES 3.0 or later, all objects are drawn with one instanced draw call.
+     * Otherwise, the GL state is set once and each object is drawn with its own draw call.
+     *
+     * @param cameraView The viewMatrix is a 4 * 4 matrix.
+     * @param cameraProjection The ProjectionMatrix is a 4 * 4 matrix.
+     * @param lightIntensity The lighting intensity.
+     * @param store The virtual objects, of which the visible objects of the current frame are drawn.
+     */
+    public void onDrawFrame(float[] cameraView, float[] cameraProjection, float lightIntensity,
+        VirtualObjectStore store) {
+        mLastDrawCallCount = 0;
+        if (store.getVisibleCount() == 0) {
+            return;
+        }
+        ShaderUtil.checkGlError(TAG, "onDrawFrame start.");
+        if (isInstancingUsed()) {
+            drawInstanced(cameraView, cameraProjection, lightIntensity, store);
+        } else {
+            beginBatch();
+            float[] modelMatrices = store.getModelMatrices();
+            float[] colors = store.getDisplayColors();
+            for (int i = 0; i < store.getVisibleCount(); i++) {
+                int slot = store.getVisibleSlot(i);
+                MatrixUtil.multiplyMM(mModelViewMatrixs, 0, cameraView, 0, modelMatrices,
+                    slot * VirtualObjectStore.MATRIX_SIZE);
+                drawObject(cameraProjection, lightIntensity, mModelViewMatrixs, colors,
+                    slot * VirtualObjectStore.COLOR_SIZE);
+            }
+            unbindMesh(mPositionAttribute, mNormalAttribute, mTexCoordAttribute);
+        }
+        ShaderUtil.checkGlError(TAG, "onDrawFrame end.");
+    }
+
+    private void beginBatch() {
+        GlFacade.get().glUseProgram(mGlProgram);
+        GlFacade.get().glActiveTexture(GLES20.GL_TEXTURE0);
+        GlFacade.get().glBindTexture(GLES20.GL_TEXTURE_2D, mTextures[0]);
+        GlFacade.get().glUniform1i(mTextureUniform, 0);
+        bindMesh(mPositionAttribute, mNormalAttribute, mTexCoordAttribute);
+    }
+
+    private void drawObject(float[] cameraProjection, float lightIntensity, float[] modelViewMatrix, float[] color,
+        int colorOffset) {
+        MatrixUtil.multiplyMM(mModelViewProjectionMatrixs, 0, cameraProjection, 0, modelViewMatrix, 0);
+        MatrixUtil.multiplyMV(mViewLightDirections, 0, modelViewMatrix, 0, LIGHT_DIRECTIONS, 0);
         MatrixUtil.normalizeVec3(mViewLightDirections);
 
         // Light direction.
-        GLES20.glUniform4f(mLightingParametersUniform,
+        GlFacade.get().glUniform4f(mLightingParametersUniform,
             mViewLightDirections[0], mViewLightDirections[1], mViewLightDirections[2], lightIntensity);
-        float[] objColors = obj.getColor();
+        GlFacade.get().glUniform4fv(mColorUniform, 1, color, colorOffset);
+        GlFacade.get().glUniformMatrix4fv(
+            mModelViewUniform, 1, false, modelViewMatrix, 0);
+        GlFacade.get().glUniformMatrix4fv(
+            mModelViewProjectionUniform, 1, false, mModelViewProjectionMatrixs, 0);
+        GlFacade.get().glDrawElements(GLES20.GL_TRIANGLES, mIndexCount, GLES20.GL_UNSIGNED_SHORT, 0);
+        mLastDrawCallCount++;
+    }
+
+    private void drawInstanced(float[] cameraView, float[] cameraProjection, float lightIntensity,
+        VirtualObjectStore store) {
+        int instanceCount = store.getVisibleCount();
+        float[] modelMatrices = store.getModelMatrices();
+        float[] colors = store.getDisplayColors();
+        try (StagingBuffer instances = StagingBuffer.acquire(instanceCount * FLOATS_PER_INSTANCE)) {
+            for (int i = 0; i < instanceCount; i++) {
+                int slot = store.getVisibleSlot(i);
+                instances.put(modelMatrices, slot * VirtualObjectStore.MATRIX_SIZE, MATRIX_SIZE);
+                instances.put(colors, slot * VirtualObjectStore.COLOR_SIZE, COLOR_SIZE);
+            }
+            mInstanceBuffer.upload(instances.flip(), instances.getByteSize());
+        }
 
-        GLES20.glUniform4fv(mColorUniform, 1, objColors, 0);
-        GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
-        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, mTextures[0]);
-        GLES20.glUniform1i(mTextureUniform, 0);
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, mVertexBufferId);
+        GlFacade.get().glUseProgram(mInstancedProgram);
+        GlFacade.get().glActiveTexture(GLES20.GL_TEXTURE0);
+        GlFacade.get().glBindTexture(GLES20.GL_TEXTURE_2D, mTextures[0]);
+        GlFacade.get().glUniform1i(mInstancedTextureUniform, 0);
+        GlFacade.get().glUniformMatrix4fv(mInstancedViewUniform, 1, false, cameraView, 0);
+        GlFacade.get().glUniformMatrix4fv(mInstancedProjectionUniform, 1, false, cameraProjection, 0);
+        GlFacade.get().glUniform1f(mInstancedLightIntensityUniform, lightIntensity);
+        bindMesh(mInstancedPositionAttribute, mInstancedNormalAttribute, mInstancedTexCoordAttribute);
+
+        // The model matrix takes one attribute location per column.
+        mInstanceBuffer.bind();
+        for (int i = 0; i < MATRIX_COLUMNS; i++) {
+            int location = mInstancedModelMatrixAttribute + i;
+            GlFacade.get().glEnableVertexAttribArray(location);
+            GlFacade.get().glVertexAttribPointer(location, MATRIX_COLUMNS, GLES20.GL_FLOAT, false,
+                BYTES_PER_INSTANCE, i * MATRIX_COLUMNS * FLOAT_BYTE_SIZE);
+            GlFacade.get().glVertexAttribDivisor(location, 1);
+        }
+        GlFacade.get().glEnableVertexAttribArray(mInstancedColorAttribute);
+        GlFacade.get().glVertexAttribPointer(mInstancedColorAttribute, COLOR_SIZE, GLES20.GL_FLOAT, false,
+            BYTES_PER_INSTANCE, MATRIX_SIZE * FLOAT_BYTE_SIZE);
+        GlFacade.get().glVertexAttribDivisor(mInstancedColorAttribute, 1);
+
+        GlFacade.get().glDrawElementsInstanced(GLES20.GL_TRIANGLES, mIndexCount, GLES20.GL_UNSIGNED_SHORT, 0,
+            instanceCount);
+        mLastDrawCallCount++;
+
+        // Divisors are not part of the program, so reset them before other displays use these locations.
+        for (int i = 0; i < MATRIX_COLUMNS; i++) {
+            GlFacade.get().glVertexAttribDivisor(mInstancedModelMatrixAttribute + i, 0);
+            GlFacade.get().glDisableVertexAttribArray(mInstancedModelMatrixAttribute + i);
+        }
+        GlFacade.get().glVertexAttribDivisor(mInstancedColorAttribute, 0);
+        GlFacade.get().glDisableVertexAttribArray(mInstancedColorAttribute);
+        unbindMesh(mInstancedPositionAttribute, mInstancedNormalAttribute, mInstancedTexCoordAttribute);
+    }
+
+    private void bindMesh(int positionAttribute, int normalAttribute, int texCoordAttribute) {
+        GlFacade.get().glBindBuffer(GLES20.GL_ARRAY_BUFFER, mVertexBufferId);
 
         // The coordinate dimension of the read virtual object is 3.
-        GLES20.glVertexAttribPointer(
-            mPositionAttribute, 3, GLES20.GL_FLOAT, false, 0, 0);
+        GlFacade.get().glVertexAttribPointer(
+            positionAttribute, 3, GLES20.GL_FLOAT, false, 0, 0);
 
         // The dimension of the normal vector is 3.
-        GLES20.glVertexAttribPointer(
-            mNormalAttribute, 3, GLES20.GL_FLOAT, false, 0, mNormalsBaseAddress);
+        GlFacade.get().glVertexAttribPointer(
+            normalAttribute, 3, GLES20.GL_FLOAT, false, 0, mNormalsBaseAddress);
 
         // The dimension of the texture coordinate is 2.
-        GLES20.glVertexAttribPointer(
-            mTexCoordAttribute, 2, GLES20.GL_FLOAT, false, 0, mTexCoordsBaseAddress);
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
-        GLES20.glUniformMatrix4fv(
-            mModelViewUniform, 1, false, mModelViewMatrixs, 0);
-        GLES20.glUniformMatrix4fv(
-            mModelViewProjectionUniform, 1, false, mModelViewProjectionMatrixs, 0);
-        GLES20.glEnableVertexAttribArray(mPositionAttribute);
-        GLES20.glEnableVertexAttribArray(mNormalAttribute);
-        GLES20.glEnableVertexAttribArray(mTexCoordAttribute);
+        GlFacade.get().glVertexAttribPointer(
+            texCoordAttribute, 2, GLES20.GL_FLOAT, false, 0, mTexCoordsBaseAddress);
+        GlFacade.get().glEnableVertexAttribArray(positionAttribute);
+        GlFacade.get().glEnableVertexAttribArray(normalAttribute);
+        GlFacade.get().glEnableVertexAttribArray(texCoordAttribute);
 
         ShaderUtil.checkGlError(TAG, "onDrawFrame glBindBuffer");
-        GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, mIndexBufferId);
-        GLES20.glDrawElements(GLES20.GL_TRIANGLES, mIndexCount, GLES20.GL_UNSIGNED_SHORT, 0);
-        GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, 0);
+        GlFacade.get().glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, mIndexBufferId);
+    }
 
+    private void unbindMesh(int positionAttribute, int normalAttribute, int texCoordAttribute) {
         ShaderUtil.checkGlError(TAG, "onDrawFrame glDisableVertexAttribArray");
-        GLES20.glDisableVertexAttribArray(mPositionAttribute);
-        GLES20.glDisableVertexAttribArray(mNormalAttribute);
-        GLES20.glDisableVertexAttribArray(mTexCoordAttribute);
+        GlFacade.get().glDisableVertexAttribArray(positionAttribute);
+        GlFacade.get().glDisableVertexAttribArray(normalAttribute);
+        GlFacade.get().glDisableVertexAttribArray(texCoordAttribute);
+    }
 
-        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, 0);
-        ShaderUtil.checkGlError(TAG, "onDrawFrame end.");
+    private boolean isInstancingUsed() {
+        return mIsInstancingEnabled && mInstancedProgram != 0;
+    }
+
+    /**
+     * Check whether instanced drawing is available, which requires OpenGL ES 3.0.
+     *
+     * @return true if several objects can be drawn with one draw call.
+     */
+    public boolean isInstancingSupported() {
+        return mInstancedProgram != 0;
+    }
+
+    /**
+     * Enable or disable instanced drawing, for example, to compare it with the OpenGL ES 2.0 path.
+     *
+     * @param isEnabled Whether instanced drawing is used when it is supported.
+     */
+    public void setInstancingEnabled(boolean isEnabled) {
+        mIsInstancingEnabled = isEnabled;
+    }
+
+    /**
+     * Obtain the number of draw calls of the latest onDrawFrame call.
+     *
+     * @return Number of draw calls.
+     */
+    public int getLastDrawCallCount() {
+        return mLastDrawCallCount;
     }
 
     /**
@@ -329,85 +549,131 @@ public class ObjectDisplay {
      * @param cameraView The viewMatrix 4 * 4.
      * @param cameraPerspective The ProjectionMatrix 4 * 4.
      * @param obj The virtual object data.
-     * @param event The gesture event.
+     * @param x X coordinate of the tap on the screen.
+     * @param y Y coordinate of the tap on the screen.
      * @return Return the click result for determining whether the input virtual object is clicked
      */
-    public boolean hitTest(float[] cameraView, float[] cameraPerspective, VirtualObject obj, MotionEvent event) {
-        mModelMatrixs = obj.getModelArPoseMatrix();
-        Matrix.multiplyMM(mModelViewMatrixs, 0, cameraView, 0, mModelMatrixs, 0);
-        Matrix.multiplyMM(mModelViewProjectionMatrixs, 0, cameraPerspective, 0, mModelViewMatrixs, 0);
-
-        // Calculate the coordinates of the smallest bounding box in the coordinate system of the device screen.
-        float[] screenPos = calculateScreenPos(mBoundingBoxs[0], mBoundingBoxs[1], mBoundingBoxs[2]);
-
-        // Record the largest bounding rectangle of an object (minX/minY/maxX/maxY).
-        float[] boundarys = new float[4];
-        boundarys[0] = screenPos[0];
-        boundarys[1] = screenPos[0];
-        boundarys[2] = screenPos[1];
-        boundarys[3] = screenPos[1];
-
-        // Determine whether a screen position corresponding to (maxX, maxY, maxZ) is clicked.
-        boundarys = findMaximum(boundarys, new int[]{3, 4, 5});
-        if (determineWhetherToClick(event, boundarys)) {
-            return true;
-        }
-
-        // Determine whether a screen position corresponding to (minX, minY, maxZ) is clicked.
-        boundarys = findMaximum(boundarys, new int[]{0, 1, 5});
-        if (determineWhetherToClick(event, boundarys)) {
-            return true;
+    public boolean hitTest(float[] cameraView, float[] cameraPerspective, VirtualObject obj, float x, float y) {
+        if (!calculateTapRay(cameraView, cameraPerspective, x, y)) {
+            return false;
         }
-
-        // Determine whether a screen position corresponding to (minX, maxY, minZ) is clicked.
-        boundarys = findMaximum(boundarys, new int[]{0, 4, 2});
-        if (determineWhetherToClick(event, boundarys)) {
-            return true;
+        if (!Matrix.invertM(mInverseModelMatrix, 0, obj.getModelArPoseMatrix(), 0)) {
+            return false;
         }
+        return ObjectPicker.intersectObb(mBoundingBoxs, mInverseModelMatrix, 0, mRayOrigin, mRayDirection) >= 0.0f;
+    }
 
-        // Determine whether a screen position corresponding to (minX, maxY, maxZ) is clicked.
-        boundarys = findMaximum(boundarys, new int[]{0, 4, 5});
-        if (determineWhetherToClick(event, boundarys)) {
-            return true;
+    /**
+     * Find the nearest virtual object of the store that is clicked. Only the objects drawn in the current frame
+     * can be clicked, so objects whose anchors are not tracking are skipped. The tap is converted into a ray,
+     * which is intersected with the oriented bounding boxes of the objects through a bounding volume hierarchy.
+     * The hierarchy is rebuilt when the set of drawn objects changes, and refitted when they move.
+     *
+     * @param cameraView The viewMatrix 4 * 4.
+     * @param cameraPerspective The ProjectionMatrix 4 * 4.
+     * @param store The virtual objects.
+     * @param x X coordinate of the tap on the screen.
+     * @param y Y coordinate of the tap on the screen.
+     * @return Handle of the clicked object, or {@link VirtualObjectStore#INVALID_HANDLE} if none is clicked.
+     */
+    public int hitTest(float[] cameraView, float[] cameraPerspective, VirtualObjectStore store, float x, float y) {
+        if (!calculateTapRay(cameraView, cameraPerspective, x, y)) {
+            return VirtualObjectStore.INVALID_HANDLE;
         }
+        updatePicker(store);
+        int index = mPicker.pick(mRayOrigin, mRayDirection);
+        return index == ObjectPicker.NO_HIT ? VirtualObjectStore.INVALID_HANDLE
+            : store.getSlotHandle(mPickSlots[index]);
+    }
 
-        // Determine whether a screen position corresponding to (maxX, minY, minZ) is clicked.
-        boundarys = findMaximum(boundarys, new int[]{3, 1, 2});
-        if (determineWhetherToClick(event, boundarys)) {
-            return true;
+    /**
+     * Convert a tap into a ray in the world coordinate system.
+     *
+     * @param cameraView The viewMatrix 4 * 4.
+     * @param cameraPerspective The ProjectionMatrix 4 * 4.
+     * @param x X coordinate of the tap on the screen.
+     * @param y Y coordinate of the tap on the screen.
+     * @param rayOrigin Array that receives the origin of the ray on the near plane.
+     * @param rayDirection Array that receives the normalized direction of the ray.
+     * @return false if the ray cannot be calculated.
+     */
+    public boolean getTapRay(float[] cameraView, float[] cameraPerspective, float x, float y, float[] rayOrigin,
+        float[] rayDirection) {
+        if (!calculateTapRay(cameraView, cameraPerspective, x, y)) {
+            return false;
         }
+        System.arraycopy(mRayOrigin, 0, rayOrigin, 0, 3);
+        System.arraycopy(mRayDirection, 0, rayDirection, 0, 3);
+        return true;
+    }
 
-        // Determine whether a screen position corresponding to (maxX, minY, maxZ) is clicked.
-        boundarys = findMaximum(boundarys, new int[]{3, 1, 5});
-        if (determineWhetherToClick(event, boundarys)) {
-            return true;
+    private void updatePicker(VirtualObjectStore store) {
+        if (mPicker == null) {
+            mPicker = new ObjectPicker(mBoundingBoxs);
         }
-
-        // Determine whether a screen position corresponding to (maxX, maxY, maxZ) is clicked.
-        if (determineWhetherToClick(event, boundarys)) {
-            return true;
+        if (store != mPickedStore || store.getVisibleVersion() != mPickedVisibleVersion) {
+            int count = store.getVisibleCount();
+            if (mPickSlots.length < count) {
+                mPickSlots = new int[count];
+            }
+            for (int i = 0; i < count; i++) {
+                mPickSlots[i] = store.getVisibleSlot(i);
+            }
+            mPicker.build(store.getModelMatrices(), mPickSlots, count);
+        } else if (store.getTransformVersion() != mPickedTransformVersion) {
+            mPicker.refit(store.getModelMatrices());
+        } else {
+            return;
         }
-        return false;
+        mPickedStore = store;
+        mPickedVisibleVersion = store.getVisibleVersion();
+        mPickedTransformVersion = store.getTransformVersion();
     }
 
     /**
-     * Determine whether the click happens within the valid boundary.
+     * Convert a tap into a ray in the world coordinate system, from the near plane towards the far plane.
      *
-     * @param event The gesture event.
-     * @param boundarys Record the largest bounding rectangle of an object (minX/minY/maxX/maxY).
-     * @return Determine whether the corresponding screen position is tapped.
+     * @param cameraView The viewMatrix 4 * 4.
+     * @param cameraPerspective The ProjectionMatrix 4 * 4.
+     * @param x X coordinate of the tap on the screen.
+     * @param y Y coordinate of the tap on the screen.
+     * @return false if the ray cannot be calculated.
      */
-    private boolean determineWhetherToClick(MotionEvent event, float[] boundarys) {
-        // The size of the click boundary rectangle array is 4.
-        if (event == null || boundarys.length < 4) {
+    private boolean calculateTapRay(float[] cameraView, float[] cameraPerspective, float x, float y) {
+        if (mWidth <= 0.0f || mHeight <= 0.0f) {
             return false;
         }
-        // Determine whether the click point is within the valid boundary.
-        if (((event.getX() > boundarys[0]) && (event.getX() < boundarys[1]))
-            && ((event.getY() > boundarys[2]) && (event.getY() < boundarys[3]))) {
-            return true;
+        Matrix.multiplyMM(mModelViewProjectionMatrixs, 0, cameraPerspective, 0, cameraView, 0);
+        if (!Matrix.invertM(mInverseViewProjectionMatrix, 0, mModelViewProjectionMatrixs, 0)) {
+            return false;
+        }
+
+        // Screen coordinates grow downwards, while normalized device coordinates grow upwards.
+        float ndcX = x * 2.0f / mWidth - 1.0f;
+        float ndcY = 1.0f - y * 2.0f / mHeight;
+        if (!unproject(ndcX, ndcY, -1.0f, mRayOrigin) || !unproject(ndcX, ndcY, 1.0f, mRayDirection)) {
+            return false;
+        }
+        mRayDirection[0] -= mRayOrigin[0];
+        mRayDirection[1] -= mRayOrigin[1];
+        mRayDirection[2] -= mRayOrigin[2];
+        MatrixUtil.normalizeVec3(mRayDirection);
+        return true;
+    }
+
+    private boolean unproject(float ndcX, float ndcY, float ndcZ, float[] result) {
+        mNdcPoint[0] = ndcX;
+        mNdcPoint[1] = ndcY;
+        mNdcPoint[2] = ndcZ;
+        mNdcPoint[3] = 1.0f;
+        Matrix.multiplyMV(mWorldPoint, 0, mInverseViewProjectionMatrix, 0, mNdcPoint, 0);
+        if (Math.abs(mWorldPoint[3]) < Float.MIN_NORMAL) {
+            return false;
         }
-        return false;
+        result[0] = mWorldPoint[0] / mWorldPoint[3];
+        result[1] = mWorldPoint[1] / mWorldPoint[3];
+        result[2] = mWorldPoint[2] / mWorldPoint[3];
+        return true;
     }
 
     /**
@@ -419,62 +685,6 @@ public class ObjectDisplay {
         return Arrays.copyOf(mBoundingBoxs, mBoundingBoxs.length);
     }
 
-    // The size of minXmaxXminYmaxY is 4, and the size of index is 3.
-    private float[] findMaximum(float[] minXmaxXminYmaxY, int[] index) {
-        float[] screenPos = calculateScreenPos(mBoundingBoxs[index[0]],
-                mBoundingBoxs[index[1]], mBoundingBoxs[index[2]]);
-        if (screenPos[0] < minXmaxXminYmaxY[0]) {
-            minXmaxXminYmaxY[0] = screenPos[0];
-        }
-        if (screenPos[0] > minXmaxXminYmaxY[1]) {
-            minXmaxXminYmaxY[1] = screenPos[0];
-        }
-        if (screenPos[1] < minXmaxXminYmaxY[2]) {
-            minXmaxXminYmaxY[2] = screenPos[1];
-        }
-        if (screenPos[1] > minXmaxXminYmaxY[3]) {
-            minXmaxXminYmaxY[3] = screenPos[1];
-        }
-        return minXmaxXminYmaxY;
-    }
-
-    // Convert the input coordinates to the plane coordinate system.
-    private float[] calculateScreenPos(float coordinateX, float coordinateY, float coordinateZ) {
-        // The coordinates of the point are four-dimensional (x, y, z, w).
-        float[] vecs = new float[4];
-        vecs[0] = coordinateX;
-        vecs[1] = coordinateY;
-        vecs[2] = coordinateZ;
-        vecs[3] = 1.0f;
-
-        // Store the coordinate values in the clip coordinate system.
-        float[] rets = new float[4];
-        Matrix.multiplyMV(rets, 0, mModelViewProjectionMatrixs, 0, vecs, 0);
-
-        // Divide by the w component of the coordinates.
-        rets[0] /= rets[3];
-        rets[1] /= rets[3];
-        rets[2] /= rets[3];
-
-        // In the current coordinate system, left is negative, right is positive, downward
-        // is positive, and upward is negative.Adding 1 to the left of the X coordinate is
-        // equivalent to moving the coordinate system leftwards. Such an operation on the Y
-        // axis is equivalent to moving the coordinate system upwards.
-        rets[0] += 1.0f;
-        rets[1] = 1.0f - rets[1];
-
-        // Convert to pixel coordinates.
-        rets[0] *= mWidth;
-        rets[1] *= mHeight;
-
-        // When the w component is set to 1, the xy component caused by coordinate system
-        // movement is eliminated and doubled.
-        rets[3] = 1.0f;
-        rets[0] /= 2.0f;
-        rets[1] /= 2.0f;
-        return rets;
-    }
-
     // Bounding box [minX, minY, minZ, maxX, maxY, maxZ].
     private void calculateBoundingBox(FloatBuffer vertices) {
         if (vertices.limit() < 3) {
@@ -0,0 +1,483 @@
+/*
+ * Copyright 2023. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.huawei.arengine.demos.common;
+
+import java.util.Arrays;
+
+/**
+ * Ray picking of objects that share one local bounding box, for example, the virtual objects drawn by
+ * {@link ObjectDisplay}. Each object is an oriented bounding box: the local box transformed by the model matrix
+ * of the object. The world-space AABBs of the boxes are kept in a bounding volume hierarchy, so a ray only tests
+ * the boxes whose AABBs it crosses, and the nearest hit is returned.
+ * <p>
+ * {@link #build} creates the hierarchy when objects are added or removed, and {@link #refit} updates its bounds
+ * in place when the objects move, which keeps the tree topology. Picking does not allocate memory. The class does
+ * not depend on Android, so it is measured on the JVM by ObjectPickerBenchmark in the benchmark module.
+ *
+ * @author HW
+ * @since 2023-06-12
+ */
+public class ObjectPicker {
+    /**
+     * Value returned when no object is hit.
+     */
+    public static final int NO_HIT = -1;
+
+    private static final int MATRIX_SIZE = 16;
+
+    /**
+     * Number of floats of a box: minX, minY, minZ, maxX, maxY, and maxZ.
+     */
+    private static final int BOX_SIZE = 6;
+
+    private static final int MAX_LEAF_SIZE = 4;
+
+    /**
+     * The depth of a median split tree is about log2(count / MAX_LEAF_SIZE), far below this bound.
+     */
+    private static final int MAX_STACK_SIZE = 64;
+
+    private static final float MIN_DETERMINANT = 1.0e-12f;
+
+    private final float[] mLocalBox = new float[BOX_SIZE];
+
+    private final int[] mStack = new int[MAX_STACK_SIZE];
+
+    private int mObjectCount = 0;
+
+    private int[] mSlots = new int[0];
+
+    private float[] mInverseMatrices = new float[0];
+
+    private float[] mObjectBoxes = new float[0];
+
+    private float[] mCentroids = new float[0];
+
+    /**
+     * Object indexes ordered so that each leaf covers a contiguous range.
+     */
+    private int[] mOrder = new int[0];
+
+    private int mNodeCount = 0;
+
+    private float[] mNodeBoxes = new float[0];
+
+    /**
+     * Index of the left child of a node, or -1 for a leaf. The right child follows the subtree of the left one.
+     */
+    private int[] mNodeLeft = new int[0];
+
+    private int[] mNodeRight = new int[0];
+
+    private int[] mNodeStart = new int[0];
+
+    private int[] mNodeCountInLeaf = new int[0];
+
+    private float mHitDistance = Float.POSITIVE_INFINITY;
+
+    /**
+     * Constructor.
+     *
+     * @param localBox Local bounding box shared by the objects (minX, minY, minZ, maxX, maxY, maxZ).
+     */
+    public ObjectPicker(float[] localBox) {
+        System.arraycopy(localBox, 0, mLocalBox, 0, BOX_SIZE);
+    }
+
+    /**
+     * Build the hierarchy for a set of objects.
+     *
+     * @param modelMatrices Packed model matrices, 16 floats per slot.
+     * @param slots Slot of each object in the matrix array. The index of an object in this array is returned by
+     *              {@link #pick}.
+     * @param count Number of objects.
+     */
+    public void build(float[] modelMatrices, int[] slots, int count) {
+        ensureCapacity(count);
+        mObjectCount = count;
+        System.arraycopy(slots, 0, mSlots, 0, count);
+        for (int i = 0; i < count; i++) {
+            updateObject(modelMatrices, i);
+            mOrder[i] = i;
+        }
+        mNodeCount = 0;
+        if (count > 0) {
+            buildNode(0, count);
+        }
+    }
+
+    /**
+     * Update the bounds after the objects have moved. The set of objects must be the same as in {@link #build}.
+     *
+     * @param modelMatrices Packed model matrices, 16 floats per slot.
+     */
+    public void refit(float[] modelMatrices) {
+        for (int i = 0; i < mObjectCount; i++) {
+            updateObject(modelMatrices, i);
+        }
+
+        // Children always have larger indexes than their parent, so a reverse pass visits them first.
+        for (int node = mNodeCount - 1; node >= 0; node--) {
+            if (mNodeLeft[node] < 0) {
+                computeLeafBox(node);
+            } else {
+                int offset = node * BOX_SIZE;
+                int left = mNodeLeft[node] * BOX_SIZE;
+                int right = mNodeRight[node] * BOX_SIZE;
+                for (int axis = 0; axis < 3; axis++) {
+                    mNodeBoxes[offset + axis] = Math.min(mNodeBoxes[left + axis], mNodeBoxes[right + axis]);
+                    mNodeBoxes[offset + axis + 3] =
+                        Math.max(mNodeBoxes[left + axis + 3], mNodeBoxes[right + axis + 3]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Find the nearest object hit by a ray.
+     *
+     * @param origin Origin of the ray (x, y, z).
+     * @param direction Direction of the ray (x, y, z).
+     * @return Index of the object passed to {@link #build}, or {@link #NO_HIT}.
+     */
+    public int pick(float[] origin, float[] direction) {
+        mHitDistance = Float.POSITIVE_INFINITY;
+        if (mNodeCount == 0) {
+            return NO_HIT;
+        }
+        float invX = 1.0f / direction[0];
+        float invY = 1.0f / direction[1];
+        float invZ = 1.0f / direction[2];
+        int hitObject = NO_HIT;
+        int stackSize = 0;
+        mStack[stackSize++] = 0;
+        while (stackSize > 0) {
+            int node = mStack[--stackSize];
+            if (intersectAabb(mNodeBoxes, node * BOX_SIZE, origin, invX, invY, invZ, mHitDistance) < 0.0f) {
+                continue;
+            }
+            if (mNodeLeft[node] >= 0) {
+                mStack[stackSize++] = mNodeRight[node];
+                mStack[stackSize++] = mNodeLeft[node];
+                continue;
+            }
+            int end = mNodeStart[node] + mNodeCountInLeaf[node];
+            for (int i = mNodeStart[node]; i < end; i++) {
+                int object = mOrder[i];
+                float distance = intersectObb(mLocalBox, mInverseMatrices, object * MATRIX_SIZE, origin, direction);
+                if (distance >= 0.0f && distance < mHitDistance) {
+                    mHitDistance = distance;
+                    hitObject = object;
+                }
+            }
+        }
+        return hitObject;
+    }
+
+    /**
+     * Obtain the distance of the latest hit along the ray, in units of the length of the ray direction.
+     *
+     * @return Distance, or positive infinity if the latest pick missed.
+     */
+    public float getHitDistance() {
+        return mHitDistance;
+    }
+
+    /**
+     * Obtain the number of objects in the hierarchy.
+     *
+     * @return Number of objects passed to the latest {@link #build}.
+     */
+    public int getObjectCount() {
+        return mObjectCount;
+    }
+
+    /**
+     * Obtain the number of nodes in the hierarchy, including the leaves.
+     *
+     * @return Number of nodes, or 0 if no object was built.
+     */
+    public int getNodeCount() {
+        return mNodeCount;
+    }
+
+    /**
+     * Intersect a ray with an oriented box. The ray is moved into the local space of the box, where the box is
+     * axis aligned. Distances are preserved by the affine transformation.
+     *
+     * @param localBox Local bounding box (minX, minY, minZ, maxX, maxY, maxZ).
+     * @param inverseMatrices Array that contains the inverse model matrix of the box.
+     * @param offset Index of the first float of the inverse model matrix.
+     * @param origin Origin of the ray.
+     * @param direction Direction of the ray.
+     * @return Distance to the entry point, 0 if the origin is inside the box, or a negative value for a miss.
+     */
+    public static float intersectObb(float[] localBox, float[] inverseMatrices, int offset, float[] origin,
+        float[] direction) {
+        float[] m = inverseMatrices;
+        float originX = m[offset] * origin[0] + m[offset + 4] * origin[1] + m[offset + 8] * origin[2] + m[offset + 12];
+        float originY = m[offset + 1] * origin[0] + m[offset + 5] * origin[1] + m[offset + 9] * origin[2]
+            + m[offset + 13];
+        float originZ = m[offset + 2] * origin[0] + m[offset + 6] * origin[1] + m[offset + 10] * origin[2]
+            + m[offset + 14];
+        float dirX = m[offset] * direction[0] + m[offset + 4] * direction[1] + m[offset + 8] * direction[2];
+        float dirY = m[offset + 1] * direction[0] + m[offset + 5] * direction[1] + m[offset + 9] * direction[2];
+        float dirZ = m[offset + 2] * direction[0] + m[offset + 6] * direction[1] + m[offset + 10] * direction[2];
+        float t1 = (localBox[0] - originX) / dirX;
+        float t2 = (localBox[3] - originX) / dirX;
+
+        // A ray parallel to a slab and starting on one of its planes gives a NaN for that plane and an infinity
+        // for the other one. Ordering a pair with t1 > t2 keeps the NaN in place, and the NaN fails the
+        // comparisons below, so the axis does not clip the interval.
+        float tEnter = 0.0f;
+        float tExit = Float.POSITIVE_INFINITY;
+        if ((t1 > t2 ? t2 : t1) > tEnter) {
+            tEnter = t1 > t2 ? t2 : t1;
+        }
+        if ((t1 > t2 ? t1 : t2) < tExit) {
+            tExit = t1 > t2 ? t1 : t2;
+        }
+        t1 = (localBox[1] - originY) / dirY;
+        t2 = (localBox[4] - originY) / dirY;
+        if ((t1 > t2 ? t2 : t1) > tEnter) {
+            tEnter = t1 > t2 ? t2 : t1;
+        }
+        if ((t1 > t2 ? t1 : t2) < tExit) {
+            tExit = t1 > t2 ? t1 : t2;
+        }
+        t1 = (localBox[2] - originZ) / dirZ;
+        t2 = (localBox[5] - originZ) / dirZ;
+        if ((t1 > t2 ? t2 : t1) > tEnter) {
+            tEnter = t1 > t2 ? t2 : t1;
+        }
+        if ((t1 > t2 ? t1 : t2) < tExit) {
+            tExit = t1 > t2 ? t1 : t2;
+        }
+        return tEnter <= tExit ? tEnter : -1.0f;
+    }
+
+    private static float intersectAabb(float[] boxes, int offset, float[] origin, float invX, float invY,
+        float invZ, float maxDistance) {
+        // The slabs are compared as in intersectObb, so that a NaN does not clip the interval.
+        float tEnter = 0.0f;
+        float tExit = maxDistance;
+        float t1 = (boxes[offset] - origin[0]) * invX;
+        float t2 = (boxes[offset + 3] - origin[0]) * invX;
+        if ((t1 > t2 ? t2 : t1) > tEnter) {
+            tEnter = t1 > t2 ? t2 : t1;
+        }
+        if ((t1 > t2 ? t1 : t2) < tExit) {
+            tExit = t1 > t2 ? t1 : t2;
+        }
+        t1 = (boxes[offset + 1] - origin[1]) * invY;
+        t2 = (boxes[offset + 4] - origin[1]) * invY;
+        if ((t1 > t2 ? t2 : t1) > tEnter) {
+            tEnter = t1 > t2 ? t2 : t1;
+        }
+        if ((t1 > t2 ? t1 : t2) < tExit) {
+            tExit = t1 > t2 ? t1 : t2;
+        }
+        t1 = (boxes[offset + 2] - origin[2]) * invZ;
+        t2 = (boxes[offset + 5] - origin[2]) * invZ;
+        if ((t1 > t2 ? t2 : t1) > tEnter) {
+            tEnter = t1 > t2 ? t2 : t1;
+        }
+        if ((t1 > t2 ? t1 : t2) < tExit) {
+            tExit = t1 > t2 ? t1 : t2;
+        }
+        return tEnter <= tExit ? tEnter : -1.0f;
+    }
+
+    private void ensureCapacity(int count) {
+        if (mSlots.length >= count) {
+            return;
+        }
+        int nodeCapacity = Math.max(1, 2 * count - 1);
+        mSlots = new int[count];
+        mInverseMatrices = new float[count * MATRIX_SIZE];
+        mObjectBoxes = new float[count * BOX_SIZE];
+        mCentroids = new float[count * 3];
+        mOrder = new int[count];
+        mNodeBoxes = new float[nodeCapacity * BOX_SIZE];
+        mNodeLeft = new int[nodeCapacity];
+        mNodeRight = new int[nodeCapacity];
+        mNodeStart = new int[nodeCapacity];
+        mNodeCountInLeaf = new int[nodeCapacity];
+    }
+
+    /**
+     * Compute the inverse model matrix and the world AABB of an object.
+     */
+    private void updateObject(float[] modelMatrices, int object) {
+        int matrixOffset = mSlots[object] * MATRIX_SIZE;
+        if (!invertAffine(modelMatrices, matrixOffset, mInverseMatrices, object * MATRIX_SIZE)) {
+            // A degenerate box cannot be hit.
+            Arrays.fill(mInverseMatrices, object * MATRIX_SIZE, (object + 1) * MATRIX_SIZE, 0.0f);
+            mInverseMatrices[object * MATRIX_SIZE + 12] = Float.POSITIVE_INFINITY;
+        }
+
+        // The world AABB of a box is centered at the transformed center, with extents summed over the absolute
+        // values of the rotation and scale part.
+        int boxOffset = object * BOX_SIZE;
+        for (int axis = 0; axis < 3; axis++) {
+            float center = modelMatrices[matrixOffset + 12 + axis];
+            float extent = 0.0f;
+            for (int column = 0; column < 3; column++) {
+                float value = modelMatrices[matrixOffset + column * 4 + axis];
+                center += value * (mLocalBox[column] + mLocalBox[column + 3]) * 0.5f;
+                extent += Math.abs(value) * (mLocalBox[column + 3] - mLocalBox[column]) * 0.5f;
+            }
+            mObjectBoxes[boxOffset + axis] = center - extent;
+            mObjectBoxes[boxOffset + axis + 3] = center + extent;
+            mCentroids[object * 3 + axis] = center;
+        }
+    }
+
+    private int buildNode(int start, int count) {
+        int node = mNodeCount++;
+        mNodeStart[node] = start;
+        mNodeCountInLeaf[node] = count;
+        mNodeLeft[node] = -1;
+        mNodeRight[node] = -1;
+        computeLeafBox(node);
+        if (count <= MAX_LEAF_SIZE) {
+            return node;
+        }
+
+        // Split at the median centroid along the longest axis of the node.
+        int offset = node * BOX_SIZE;
+        int axis = 0;
+        for (int i = 1; i < 3; i++) {
+            if (mNodeBoxes[offset + i + 3] - mNodeBoxes[offset + i]
+                > mNodeBoxes[offset + axis + 3] - mNodeBoxes[offset + axis]) {
+                axis = i;
+            }
+        }
+        int half = count / 2;
+        selectMedian(start, start + count - 1, start + half, axis);
+        mNodeLeft[node] = buildNode(start, half);
+        mNodeRight[node] = buildNode(start + half, count - half);
+        return node;
+    }
+
+    private void computeLeafBox(int node) {
+        int offset = node * BOX_SIZE;
+        for (int axis = 0; axis < 3; axis++) {
+            mNodeBoxes[offset + axis] = Float.POSITIVE_INFINITY;
+            mNodeBoxes[offset + axis + 3] = Float.NEGATIVE_INFINITY;
+        }
+        int end = mNodeStart[node] + mNodeCountInLeaf[node];
+        for (int i = mNodeStart[node]; i < end; i++) {
+            int boxOffset = mOrder[i] * BOX_SIZE;
+            for (int axis = 0; axis < 3; axis++) {
+                mNodeBoxes[offset + axis] = Math.min(mNodeBoxes[offset + axis], mObjectBoxes[boxOffset + axis]);
+                mNodeBoxes[offset + axis + 3] =
+                    Math.max(mNodeBoxes[offset + axis + 3], mObjectBoxes[boxOffset + axis + 3]);
+            }
+        }
+    }
+
+    /**
+     * Reorder mOrder[left..right] so that the object at index k has the k-th smallest centroid along the axis,
+     * with smaller centroids before it and larger ones after it.
+     */
+    private void selectMedian(int left, int right, int k, int axis) {
+        int low = left;
+        int high = right;
+        while (low < high) {
+            float pivot = mCentroids[mOrder[(low + high) >>> 1] * 3 + axis];
+            int i = low;
+            int j = high;
+            while (i <= j) {
+                while (mCentroids[mOrder[i] * 3 + axis] < pivot) {
+                    i++;
+                }
+                while (mCentroids[mOrder[j] * 3 + axis] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    int temp = mOrder[i];
+                    mOrder[i] = mOrder[j];
+                    mOrder[j] = temp;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                high = j;
+            } else if (k >= i) {
+                low = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Invert an affine column-major matrix, whose last row is (0, 0, 0, 1).
+     *
+     * @return false if the matrix is singular.
+     */
+    static boolean invertAffine(float[] src, int srcOffset, float[] dest, int destOffset) {
+        float a00 = src[srcOffset];
+        float a10 = src[srcOffset + 1];
+        float a20 = src[srcOffset + 2];
+        float a01 = src[srcOffset + 4];
+        float a11 = src[srcOffset + 5];
+        float a21 = src[srcOffset + 6];
+        float a02 = src[srcOffset + 8];
+        float a12 = src[srcOffset + 9];
+        float a22 = src[srcOffset + 10];
+        float c00 = a11 * a22 - a12 * a21;
+        float c01 = a02 * a21 - a01 * a22;
+        float c02 = a01 * a12 - a02 * a11;
+        float det = a00 * c00 + a10 * c01 + a20 * c02;
+        if (Math.abs(det) < MIN_DETERMINANT) {
+            return false;
+        }
+        float invDet = 1.0f / det;
+        float i00 = c00 * invDet;
+        float i01 = c01 * invDet;
+        float i02 = c02 * invDet;
+        float i10 = (a12 * a20 - a10 * a22) * invDet;
+        float i11 = (a00 * a22 - a02 * a20) * invDet;
+        float i12 = (a02 * a10 - a00 * a12) * invDet;
+        float i20 = (a10 * a21 - a11 * a20) * invDet;
+        float i21 = (a01 * a20 - a00 * a21) * invDet;
+        float i22 = (a00 * a11 - a01 * a10) * invDet;
+        float tx = src[srcOffset + 12];
+        float ty = src[srcOffset + 13];
+        float tz = src[srcOffset + 14];
+        dest[destOffset] = i00;
+        dest[destOffset + 1] = i10;
+        dest[destOffset + 2] = i20;
+        dest[destOffset + 3] = 0.0f;
+        dest[destOffset + 4] = i01;
+        dest[destOffset + 5] = i11;
+        dest[destOffset + 6] = i21;
+        dest[destOffset + 7] = 0.0f;
+        dest[destOffset + 8] = i02;
+        dest[destOffset + 9] = i12;
+        dest[destOffset + 10] = i22;
+        dest[destOffset + 11] = 0.0f;
+        dest[destOffset + 12] = -(i00 * tx + i01 * ty + i02 * tz);
+        dest[destOffset + 13] = -(i10 * tx + i11 * ty + i12 * tz);
+        dest[destOffset + 14] = -(i20 * tx + i21 * ty + i22 * tz);
+        dest[destOffset + 15] = 1.0f;
+        return true;
+    }
+}
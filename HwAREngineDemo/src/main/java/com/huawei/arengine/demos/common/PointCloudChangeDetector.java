@@ -0,0 +1,53 @@
+/*
+ * Copyright 2023. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.huawei.arengine.demos.common;
+
+/**
+ * Detects whether a point cloud differs from the previous one, so that an unchanged cloud is not uploaded again.
+ * AR Engine returns a new point cloud object in every frame, even if tracking has not produced new points, so the
+ * objects cannot be compared by identity. Clouds are compared by their timestamps, which recorded frames keep
+ * as well.
+ *
+ * @author HW
+ * @since 2023-06-12
+ */
+public class PointCloudChangeDetector {
+    private boolean mHasTimestamp = false;
+
+    private long mLastTimestampNs = 0L;
+
+    /**
+     * Check a point cloud.
+     *
+     * @param timestampNs Timestamp of the point cloud.
+     * @return true if the timestamp differs from the previous one, or no cloud has been checked yet.
+     */
+    public boolean isChanged(long timestampNs) {
+        boolean isChanged = !mHasTimestamp || timestampNs != mLastTimestampNs;
+        mHasTimestamp = true;
+        mLastTimestampNs = timestampNs;
+        return isChanged;
+    }
+
+    /**
+     * Forget the previous point cloud, so that the next one is reported as changed. Call it when the uploaded
+     * data is lost, for example, when the GL context is recreated.
+     */
+    public void reset() {
+        mHasTimestamp = false;
+    }
+}
@@ -0,0 +1,284 @@
+/*
+ * Copyright 2023. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.huawei.arengine.demos.common;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+/**
+ * Stage that reduces a point cloud before it is uploaded. It drops the points whose confidence is below a
+ * threshold and keeps only the first point of each cell of a cubic grid. If more points remain than the point
+ * budget, a reservoir sample of the budget is kept, so every remaining point has the same chance to be kept
+ * wherever it is in the buffer. The kept points are written into a {@link StagingBuffer}, which is then uploaded
+ * to the streaming vertex buffer as it is, so dense clouds cost less upload bandwidth and fewer fragments.
+ * <p>
+ * The occupied cells of a cloud are tracked in an open-addressing set of voxel keys. Each slot carries the
+ * stamp of the cloud that filled it, so the set is emptied for the next cloud by increasing the stamp instead of
+ * clearing the arrays. All methods must be called on one thread.
+ *
+ * @author HW
+ * @since 2023-06-12
+ */
+public class PointCloudFilter {
+    /**
+     * Default minimum confidence of a kept point.
+     */
+    public static final float DEFAULT_MIN_CONFIDENCE = 0.1f;
+
+    /**
+     * Default edge length of a grid cell, in meters.
+     */
+    public static final float DEFAULT_CELL_SIZE = 0.01f;
+
+    /**
+     * Default maximum number of kept points per cloud.
+     */
+    public static final int DEFAULT_POINT_BUDGET = 4096;
+
+    private static final int FLOATS_PER_POINT = VoxelPointMap.FLOATS_PER_POINT;
+
+    /**
+     * Seed of the sampling, which is fixed so that the same cloud is always reduced to the same points.
+     */
+    private static final long RANDOM_SEED = 0x9E3779B97F4A7C15L;
+
+    private float mMinConfidence;
+
+    private float mInverseCellSize;
+
+    private int mPointBudget;
+
+    private long[] mCellKeys;
+
+    private int[] mCellStamps;
+
+    private int mCellMask;
+
+    private int mCellCount = 0;
+
+    private long mRandomState = RANDOM_SEED;
+
+    private int mStamp = 0;
+
+    private int mLastInputCount = 0;
+
+    private int mLastOutputCount = 0;
+
+    /**
+     * Constructor with the default settings.
+     */
+    public PointCloudFilter() {
+        this(DEFAULT_MIN_CONFIDENCE, DEFAULT_CELL_SIZE, DEFAULT_POINT_BUDGET);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param minConfidence Minimum confidence of a kept point.
+     * @param cellSize Edge length of a grid cell in meters, or 0 to keep all points of a cell.
+     * @param pointBudget Maximum number of kept points per cloud.
+     */
+    public PointCloudFilter(float minConfidence, float cellSize, int pointBudget) {
+        setMinConfidence(minConfidence);
+        setCellSize(cellSize);
+        setPointBudget(pointBudget);
+    }
+
+    /**
+     * Set the minimum confidence of a kept point.
+     *
+     * @param minConfidence Minimum confidence in the range [0, 1].
+     */
+    public void setMinConfidence(float minConfidence) {
+        mMinConfidence = minConfidence;
+    }
+
+    /**
+     * Set the edge length of a grid cell.
+     *
+     * @param cellSize Edge length in meters, or 0 to keep all points of a cell.
+     */
+    public void setCellSize(float cellSize) {
+        if (cellSize < 0.0f) {
+            throw new IllegalArgumentException("The cell size must not be negative.");
+        }
+        mInverseCellSize = cellSize == 0.0f ? 0.0f : 1.0f / cellSize;
+    }
+
+    /**
+     * Set the maximum number of kept points per cloud.
+     *
+     * @param pointBudget Point budget.
+     */
+    public void setPointBudget(int pointBudget) {
+        if (pointBudget <= 0) {
+            throw new IllegalArgumentException("The point budget must be positive.");
+        }
+        mPointBudget = pointBudget;
+
+        // The set grows for clouds that occupy more cells, and starts with room for the budget.
+        int tableSize = Integer.highestOneBit(pointBudget) << 2;
+        if (mCellKeys == null || mCellKeys.length < tableSize) {
+            mCellKeys = new long[tableSize];
+            mCellStamps = new int[tableSize];
+            mCellMask = tableSize - 1;
+            mStamp = 0;
+        }
+    }
+
+    /**
+     * Obtain the maximum number of floats that {@link #filter} writes for a cloud.
+     *
+     * @param points Points with four floats each, from the position to the limit.
+     * @return Maximum number of floats.
+     */
+    public int getMaxFloatCount(FloatBuffer points) {
+        return Math.min(points.remaining() / FLOATS_PER_POINT, mPointBudget) * FLOATS_PER_POINT;
+    }
+
+    /**
+     * Write the kept points of a cloud into a staging buffer.
+     *
+     * @param points Points with four floats each: X, Y, Z and confidence, from the position to the limit. The
+     *        position is not changed.
+     * @param out Staging buffer with room for {@link #getMaxFloatCount} floats.
+     * @return Number of kept points.
+     */
+    public int filter(FloatBuffer points, StagingBuffer out) {
+        nextStamp();
+        mRandomState = RANDOM_SEED;
+        int candidateCount = 0;
+        int end = points.limit() - FLOATS_PER_POINT;
+        for (int i = points.position(); i <= end; i += FLOATS_PER_POINT) {
+            float confidence = points.get(i + 3);
+            if (confidence < mMinConfidence) {
+                continue;
+            }
+            float x = points.get(i);
+            float y = points.get(i + 1);
+            float z = points.get(i + 2);
+            if (mInverseCellSize > 0.0f && !addCell(x, y, z)) {
+                continue;
+            }
+
+            // Reservoir sampling: the n-th candidate replaces a random kept point with probability budget / n.
+            if (candidateCount < mPointBudget) {
+                out.put(x, y, z, confidence);
+            } else {
+                int index = nextRandomIndex(candidateCount + 1);
+                if (index < mPointBudget) {
+                    out.set(index * FLOATS_PER_POINT, x, y, z, confidence);
+                }
+            }
+            candidateCount++;
+        }
+        mLastInputCount = (points.limit() - points.position()) / FLOATS_PER_POINT;
+        mLastOutputCount = Math.min(candidateCount, mPointBudget);
+        return mLastOutputCount;
+    }
+
+    /**
+     * Obtain the number of points read from the last cloud. Every point of the cloud is read, including the
+     * points that are dropped.
+     *
+     * @return Number of input points.
+     */
+    public int getLastInputCount() {
+        return mLastInputCount;
+    }
+
+    /**
+     * Obtain the number of points kept from the last cloud.
+     *
+     * @return Number of output points.
+     */
+    public int getLastOutputCount() {
+        return mLastOutputCount;
+    }
+
+    /**
+     * Obtain a pseudo-random index with xorshift, which is cheaper than java.util.Random in the per-point loop.
+     *
+     * @param bound Exclusive upper bound, which must be positive.
+     * @return Index in the range [0, bound).
+     */
+    private int nextRandomIndex(int bound) {
+        long state = mRandomState;
+        state ^= state << 13;
+        state ^= state >>> 7;
+        state ^= state << 17;
+        mRandomState = state;
+        return (int) (((state >>> 32) * bound) >>> 32);
+    }
+
+    private void nextStamp() {
+        mCellCount = 0;
+        mStamp++;
+        if (mStamp == 0) {
+            // After the stamp wraps around, old stamps could look current again.
+            Arrays.fill(mCellStamps, 0);
+            mStamp = 1;
+        }
+    }
+
+    /**
+     * Mark the cell of a point as occupied in the current cloud.
+     *
+     * @return false if the cell is already occupied, or the point is out of range.
+     */
+    private boolean addCell(float x, float y, float z) {
+        long key = VoxelPointMap.toKey(x, y, z, mInverseCellSize);
+        if (key == VoxelPointMap.EMPTY_KEY) {
+            return false;
+        }
+        int slot = VoxelPointMap.hash(key) & mCellMask;
+        while (mCellStamps[slot] == mStamp) {
+            if (mCellKeys[slot] == key) {
+                return false;
+            }
+            slot = (slot + 1) & mCellMask;
+        }
+        mCellKeys[slot] = key;
+        mCellStamps[slot] = mStamp;
+
+        // Keep the load factor of the set at most 0.5, so that probe sequences stay short.
+        mCellCount++;
+        if (mCellCount * 2 > mCellKeys.length) {
+            growCells();
+        }
+        return true;
+    }
+
+    private void growCells() {
+        long[] oldKeys = mCellKeys;
+        int[] oldStamps = mCellStamps;
+        mCellKeys = new long[oldKeys.length * 2];
+        mCellStamps = new int[oldKeys.length * 2];
+        mCellMask = mCellKeys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldStamps[i] != mStamp) {
+                continue;
+            }
+            int slot = VoxelPointMap.hash(oldKeys[i]) & mCellMask;
+            while (mCellStamps[slot] == mStamp) {
+                slot = (slot + 1) & mCellMask;
+            }
+            mCellKeys[slot] = oldKeys[i];
+            mCellStamps[slot] = mStamp;
+        }
+    }
+}
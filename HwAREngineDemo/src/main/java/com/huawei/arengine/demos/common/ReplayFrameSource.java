@@ -0,0 +1,172 @@
+/*
+ * Copyright 2023. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.huawei.arengine.demos.common;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Replay frame source, which streams recorded frames encoded by {@link FrameSnapshotCodec}, for example,
+ * files written by {@link FrameRecorder}. It does not depend on AR Engine, so it can drive the CPU side of
+ * rendering deterministically on a JVM. Point clouds and scene meshes of the replayed frames are views of
+ * the recording buffer, which is memory-mapped when the recording is loaded from a file.
+ *
+ * @author HW
+ * @since 2023-06-12
+ */
+public class ReplayFrameSource implements FrameSource {
+    private static final int INITIAL_INDEX_SIZE = 256;
+
+    private final ByteBuffer mRecording;
+
+    private final int mFirstFramePosition;
+
+    private final FrameSnapshot mSnapshot = new FrameSnapshot();
+
+    private int[] mFrameOffsets;
+
+    private int mFrameCount;
+
+    private boolean mIsLooping = false;
+
+    private int mFrameIndex = -1;
+
+    /**
+     * Constructor.
+     *
+     * @param recording Recorded data, starting with the file header.
+     * @throws IOException If the file header is invalid.
+     */
+    public ReplayFrameSource(ByteBuffer recording) throws IOException {
+        mRecording = recording.duplicate().order(FrameSnapshotCodec.BYTE_ORDER);
+        if (!FrameSnapshotCodec.readFileHeader(mRecording)) {
+            throw new IOException("Invalid AR recording header.");
+        }
+        mFirstFramePosition = mRecording.position();
+        indexFrames();
+    }
+
+    /**
+     * Memory-map a recording file and create a replay frame source. The file is read by the OS on demand, and
+     * the mapping remains valid after this method returns.
+     *
+     * @param file Recording file.
+     * @return Replay frame source.
+     * @throws IOException If the file cannot be mapped or is not a recording.
+     */
+    public static ReplayFrameSource fromFile(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("AR recording is too large: " + size);
+            }
+            return new ReplayFrameSource(channel.map(FileChannel.MapMode.READ_ONLY, 0L, size));
+        }
+    }
+
+    /**
+     * Obtain the number of complete frames in the recording. A truncated last frame is not counted.
+     *
+     * @return Number of frames.
+     */
+    public int getFrameCount() {
+        return mFrameCount;
+    }
+
+    /**
+     * Move to the specified frame, so that the next {@link #update()} replays it.
+     *
+     * @param frameIndex Frame index in the range [0, getFrameCount()).
+     */
+    public void seekToFrame(int frameIndex) {
+        if (frameIndex < 0 || frameIndex >= mFrameCount) {
+            throw new IllegalArgumentException("Frame index out of range: " + frameIndex);
+        }
+        mRecording.position(mFrameOffsets[frameIndex]);
+        mFrameIndex = frameIndex - 1;
+    }
+
+    /**
+     * Set whether to restart from the first frame after the last frame is replayed.
+     *
+     * @param isLooping true: loop; false: stop at the last frame.
+     */
+    public void setLooping(boolean isLooping) {
+        mIsLooping = isLooping;
+    }
+
+    /**
+     * Obtain the index of the current frame in the recording.
+     *
+     * @return Frame index, or -1 if no frame is replayed.
+     */
+    public int getFrameIndex() {
+        return mFrameIndex;
+    }
+
+    /**
+     * Restart from the first frame.
+     */
+    public void rewind() {
+        mRecording.position(mFirstFramePosition);
+        mFrameIndex = -1;
+    }
+
+    @Override
+    public boolean update() {
+        if (FrameSnapshotCodec.decode(mRecording, mSnapshot)) {
+            mFrameIndex++;
+            return true;
+        }
+        if (!mIsLooping || mFrameCount == 0) {
+            return false;
+        }
+        rewind();
+        if (FrameSnapshotCodec.decode(mRecording, mSnapshot)) {
+            mFrameIndex++;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public FrameSnapshot getSnapshot() {
+        return mSnapshot;
+    }
+
+    private void indexFrames() {
+        mFrameOffsets = new int[INITIAL_INDEX_SIZE];
+        mFrameCount = 0;
+        int position = mFirstFramePosition;
+        int limit = mRecording.limit();
+        while (limit - position >= FrameSnapshotCodec.FRAME_HEADER_SIZE) {
+            int recordSize = FrameSnapshotCodec.getRecordSize(mRecording, position);
+            if (recordSize <= 0) {
+                break;
+            }
+            if (mFrameCount == mFrameOffsets.length) {
+                mFrameOffsets = Arrays.copyOf(mFrameOffsets, mFrameCount * 2);
+            }
+            mFrameOffsets[mFrameCount++] = position;
+            position += recordSize;
+        }
+    }
+}
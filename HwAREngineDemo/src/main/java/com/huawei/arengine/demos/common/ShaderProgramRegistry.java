@@ -0,0 +1,354 @@
+/*
+ * Copyright 2023. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.huawei.arengine.demos.common;
+
+import android.opengl.GLES20;
+import android.opengl.GLES30;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Registry of the shader programs of the current EGL context. Programs are keyed by a hash of their vertex and
+ * fragment shader code, so that displays with the same shaders share one program. Like the other GL objects of
+ * the demos, programs are kept until the EGL context is destroyed, which deletes them. On OpenGL ES 3.0 or later,
+ * a newly linked program is saved with glGetProgramBinary to the cache directory, and is loaded with
+ * glProgramBinary on the next launch instead of being compiled. A saved binary is discarded if it was created by
+ * another GPU driver or if the driver rejects it. All methods except {@link #setCacheDir} must be called on the
+ * GL thread.
+ *
+ * @author HW
+ * @since 2023-06-12
+ */
+public final class ShaderProgramRegistry {
+    private static final String TAG = "ShaderProgramRegistry";
+
+    private static final String CACHE_DIR_NAME = "shader_programs";
+
+    private static final String BINARY_FILE_SUFFIX = ".bin";
+
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+    private static final String GLES_VERSION_PREFIX = "OpenGL ES ";
+
+    private static final int MIN_BINARY_GLES_VERSION = 3;
+
+    /**
+     * Magic number at the beginning of a binary file.
+     */
+    private static final int BINARY_FILE_MAGIC = 0x48575350;
+
+    /**
+     * Binaries larger than this size are neither saved nor loaded.
+     */
+    private static final int MAX_BINARY_SIZE = 4 * 1024 * 1024;
+
+    private static final int BYTES_PER_INT = Integer.SIZE / 8;
+
+    private static final int DECIMAL_RADIX = 10;
+
+    private static final int HEX_RADIX = 16;
+
+    private static final int HALF_BYTE_BITS = 4;
+
+    private static final int HALF_BYTE_MASK = 0x0F;
+
+    private static final Map<String, Integer> PROGRAMS_BY_KEY = new HashMap<>();
+
+    private static File sCacheDir = null;
+
+    /**
+     * Vendor, renderer, and version of the GPU driver, which is null before the current context is checked.
+     */
+    private static String sDriverId = null;
+
+    private static int sGlesMajorVersion = 0;
+
+    private static boolean sIsBinarySupported = false;
+
+    private static long sCompileCount = 0L;
+
+    private static long sBinaryLoadCount = 0L;
+
+    private static long sShareCount = 0L;
+
+    private ShaderProgramRegistry() {
+    }
+
+    /**
+     * Set the directory in which program binaries are saved. Binaries are not used if the directory is not set.
+     * The code cache directory of the app is recommended, because it is cleared when the app is updated.
+     *
+     * @param dir Directory.
+     */
+    public static synchronized void setCacheDir(File dir) {
+        sCacheDir = dir == null ? null : new File(dir, CACHE_DIR_NAME);
+    }
+
+    /**
+     * Forget the programs of the previous EGL context, whose names are no longer valid. This method is called
+     * when the GL surface is created.
+     */
+    public static synchronized void onContextCreated() {
+        PROGRAMS_BY_KEY.clear();
+        sDriverId = null;
+    }
+
+    /**
+     * Obtain the program of the shader code. The program is loaded from a saved binary or compiled if no
+     * display of the current context uses it yet.
+     *
+     * @param vertexSource Code of the vertex shader.
+     * @param fragmentSource Code of the fragment shader.
+     * @return Program handle, or 0 if the program fails to be created.
+     */
+    public static synchronized int getProgram(String vertexSource, String fragmentSource) {
+        String key = getProgramKey(vertexSource, fragmentSource);
+        Integer sharedProgram = PROGRAMS_BY_KEY.get(key);
+        if (sharedProgram != null) {
+            sShareCount++;
+            return sharedProgram;
+        }
+
+        checkContext();
+        long startTime = System.nanoTime();
+        File binaryFile = getBinaryFile(key);
+        int program = loadProgramBinary(binaryFile);
+        if (program != 0) {
+            sBinaryLoadCount++;
+            LogUtil.debug(TAG, "Program loaded from binary in " + (System.nanoTime() - startTime) + " ns.");
+        } else {
+            program = ShaderUtil.linkGlProgram(vertexSource, fragmentSource, binaryFile != null);
+            if (program == 0) {
+                return 0;
+            }
+            sCompileCount++;
+            LogUtil.debug(TAG, "Program compiled in " + (System.nanoTime() - startTime) + " ns.");
+            saveProgramBinary(program, binaryFile);
+        }
+        PROGRAMS_BY_KEY.put(key, program);
+        return program;
+    }
+
+    /**
+     * Obtain the number of programs compiled from shader code since the app started.
+     *
+     * @return Number of programs.
+     */
+    public static synchronized long getCompileCount() {
+        return sCompileCount;
+    }
+
+    /**
+     * Obtain the number of programs loaded from saved binaries since the app started.
+     *
+     * @return Number of programs.
+     */
+    public static synchronized long getBinaryLoadCount() {
+        return sBinaryLoadCount;
+    }
+
+    /**
+     * Obtain the number of times that an existing program was returned instead of creating a new one.
+     *
+     * @return Number of times.
+     */
+    public static synchronized long getShareCount() {
+        return sShareCount;
+    }
+
+    /**
+     * Obtain the major OpenGL ES version of the current EGL context, which decides whether GLES 3.0 features
+     * such as instanced drawing can be used.
+     *
+     * @return Major version, or 0 if the version string cannot be parsed.
+     */
+    public static synchronized int getGlesMajorVersion() {
+        checkContext();
+        return sGlesMajorVersion;
+    }
+
+    private static void checkContext() {
+        if (sDriverId != null) {
+            return;
+        }
+        String version = GlFacade.get().glGetString(GLES20.GL_VERSION);
+        sDriverId = GlFacade.get().glGetString(GLES20.GL_VENDOR) + "|"
+            + GlFacade.get().glGetString(GLES20.GL_RENDERER) + "|" + version;
+        sGlesMajorVersion = 0;
+        if (version != null && version.startsWith(GLES_VERSION_PREFIX)
+            && version.length() > GLES_VERSION_PREFIX.length()) {
+            sGlesMajorVersion = Math.max(0, Character.digit(version.charAt(GLES_VERSION_PREFIX.length()),
+                DECIMAL_RADIX));
+        }
+        sIsBinarySupported = sGlesMajorVersion >= MIN_BINARY_GLES_VERSION;
+        LogUtil.info(TAG, "Program binary supported: " + sIsBinarySupported + ", " + sDriverId);
+    }
+
+    private static File getBinaryFile(String key) {
+        if (!sIsBinarySupported || sCacheDir == null) {
+            return null;
+        }
+        return new File(sCacheDir, key + BINARY_FILE_SUFFIX);
+    }
+
+    private static int loadProgramBinary(File file) {
+        if (file == null || !file.isFile()) {
+            return 0;
+        }
+        int format;
+        ByteBuffer binary;
+        try (FileInputStream input = new FileInputStream(file); FileChannel channel = input.getChannel()) {
+            long size = channel.size();
+            if (size > MAX_BINARY_SIZE) {
+                LogUtil.warn(TAG, "The program binary is too large: " + size);
+                deleteFile(file);
+                return 0;
+            }
+            ByteBuffer data = ByteBuffer.allocateDirect((int) size);
+            while (data.hasRemaining()) {
+                if (channel.read(data) < 0) {
+                    throw new IOException("Unexpected end of the program binary.");
+                }
+            }
+            data.flip();
+            if (data.getInt() != BINARY_FILE_MAGIC || !sDriverId.equals(readString(data))) {
+                LogUtil.info(TAG, "Discard the program binary of another driver.");
+                deleteFile(file);
+                return 0;
+            }
+            format = data.getInt();
+            binary = data.slice();
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException exception) {
+            LogUtil.warn(TAG, "Read program binary failed, catch " + exception.getClass());
+            deleteFile(file);
+            return 0;
+        }
+
+        int program = GlFacade.get().glCreateProgram();
+        GlFacade.get().glProgramBinary(program, format, binary, binary.remaining());
+        int[] linkStatus = new int[1];
+        GlFacade.get().glGetProgramiv(program, GLES20.GL_LINK_STATUS, linkStatus, 0);
+        if (linkStatus[0] == GLES20.GL_TRUE) {
+            return program;
+        }
+
+        // The driver rejects binaries of other driver versions. Clear the error so that the next check passes.
+        LogUtil.info(TAG, "The program binary is rejected by the driver.");
+        int error;
+        do {
+            error = GlFacade.get().glGetError();
+        } while (error != GLES20.GL_NO_ERROR);
+        GlFacade.get().glDeleteProgram(program);
+        deleteFile(file);
+        return 0;
+    }
+
+    private static void saveProgramBinary(int program, File file) {
+        if (file == null) {
+            return;
+        }
+        int[] length = new int[1];
+        GlFacade.get().glGetProgramiv(program, GLES30.GL_PROGRAM_BINARY_LENGTH, length, 0);
+        if (length[0] <= 0 || length[0] > MAX_BINARY_SIZE) {
+            return;
+        }
+        ByteBuffer binary = ByteBuffer.allocateDirect(length[0]);
+        int[] format = new int[1];
+        GlFacade.get().glGetProgramBinary(program, length[0], length, 0, format, 0, binary);
+        if (length[0] <= 0) {
+            return;
+        }
+        binary.limit(length[0]);
+
+        byte[] driverId = sDriverId.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer header = ByteBuffer.allocate(BYTES_PER_INT * 3 + driverId.length);
+        header.putInt(BINARY_FILE_MAGIC).putInt(driverId.length).put(driverId).putInt(format[0]);
+        header.flip();
+
+        File dir = file.getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+            LogUtil.warn(TAG, "Create the program binary directory failed.");
+            return;
+        }
+
+        // Write to a temporary file first, so that a partly written binary is never loaded.
+        File tempFile = new File(file.getPath() + TEMP_FILE_SUFFIX);
+        try (FileOutputStream output = new FileOutputStream(tempFile); FileChannel channel = output.getChannel()) {
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            while (binary.hasRemaining()) {
+                channel.write(binary);
+            }
+        } catch (IOException exception) {
+            LogUtil.warn(TAG, "Write program binary failed, catch " + exception.getClass());
+            deleteFile(tempFile);
+            return;
+        }
+        if (!tempFile.renameTo(file)) {
+            LogUtil.warn(TAG, "Rename the program binary failed.");
+            deleteFile(tempFile);
+        }
+    }
+
+    private static String readString(ByteBuffer data) {
+        int length = data.getInt();
+        if (length < 0 || length > data.remaining()) {
+            throw new IllegalArgumentException("Invalid string length: " + length);
+        }
+        byte[] bytes = new byte[length];
+        data.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void deleteFile(File file) {
+        if (file.exists() && !file.delete()) {
+            LogUtil.warn(TAG, "Delete file failed: " + file.getName());
+        }
+    }
+
+    private static String getProgramKey(String vertexSource, String fragmentSource) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException exception) {
+            throw new ArDemoRuntimeException("SHA-256 is not supported.", exception);
+        }
+        digest.update(vertexSource.getBytes(StandardCharsets.UTF_8));
+
+        // Separator, so that moving code between the two shaders changes the key.
+        digest.update((byte) 0);
+        digest.update(fragmentSource.getBytes(StandardCharsets.UTF_8));
+        StringBuilder key = new StringBuilder();
+        for (byte value : digest.digest()) {
+            key.append(Character.forDigit((value >> HALF_BYTE_BITS) & HALF_BYTE_MASK, HEX_RADIX));
+            key.append(Character.forDigit(value & HALF_BYTE_MASK, HEX_RADIX));
+        }
+        return key.toString();
+    }
+}
@@ -18,7 +18,7 @@ package com.huawei.arengine.demos.common;
 
 import android.graphics.Bitmap;
 import android.opengl.GLES20;
-import android.opengl.GLUtils;
+import android.opengl.GLES30;
 import android.util.Log;
 import android.widget.TextView;
 
@@ -56,6 +56,26 @@ public class ShaderUtil {
             + "    gl_Position = inMVPMatrix * tempPosition;" + LS
             + "}";
 
+    /**
+     * Vertex shader used for labels that face the camera. The label quad is spanned in the camera coordinate
+     * system around the anchor, with the first row of the bitmap at the top.
+     */
+    public static final String BILLBOARD_LABEL_VERTEX =
+        "uniform mat2 inPlanUVMatrix;" + LS
+            + "uniform mat4 inViewMatrix;" + LS
+            + "uniform mat4 inProjectionMatrix;" + LS
+            + "uniform vec3 inAnchor;" + LS
+            + "uniform vec2 inLabelSize;" + LS
+            + "attribute vec3 inPosXZAlpha;" + LS
+            + "varying vec3 varTexCoordAlpha;" + LS
+            + "void main() {" + LS
+            + "    vec2 tempUV = inPlanUVMatrix * inPosXZAlpha.xy;" + LS
+            + "    varTexCoordAlpha = vec3(tempUV.x + 0.5, tempUV.y + 0.5, inPosXZAlpha.z);" + LS
+            + "    vec4 viewPosition = inViewMatrix * vec4(inAnchor, 1.0);" + LS
+            + "    viewPosition.xy += vec2(inPosXZAlpha.x, -inPosXZAlpha.y) * inLabelSize;" + LS
+            + "    gl_Position = inProjectionMatrix * viewPosition;" + LS
+            + "}";
+
     /**
      * Segment shader used for label rendering.
      */
@@ -101,67 +121,93 @@ public class ShaderUtil {
     }
 
     /**
-     * Check OpenGL ES running exceptions and throw them when necessary.
+     * Check OpenGL ES running exceptions and throw them when necessary. Whether the check is performed, and
+     * whether an error is thrown or logged, depends on {@link GlErrorCheckPolicy}.
      *
      * @param tag Exception information.
      * @param label Program label.
      */
     public static void checkGlError(@NonNull String tag, @NonNull String label) {
+        if (!GlErrorCheckPolicy.isCheckEnabled()) {
+            return;
+        }
         int lastError = GLES20.GL_NO_ERROR;
-        int error = GLES20.glGetError();
+        int error = GlFacade.get().glGetError();
         while (error != GLES20.GL_NO_ERROR) {
             Log.e(tag, label + ": glError " + error);
             lastError = error;
-            error = GLES20.glGetError();
+            error = GlFacade.get().glGetError();
         }
-        if (lastError != GLES20.GL_NO_ERROR) {
+        if (lastError != GLES20.GL_NO_ERROR && GlErrorCheckPolicy.onError(tag, label, lastError)) {
             throw new ArDemoRuntimeException(label + ": glError " + lastError);
         }
     }
 
     /**
-     * Shader program generator.
+     * Shader program generator. Displays that use the same shader code share one program, which is obtained
+     * from {@link ShaderProgramRegistry}.
      *
      * @param vertexName Code of the vertex shader.
      * @param fragmentName Code of the image fragment shader.
      * @return int Program handle.
      */
     public static int createGlProgram(String vertexName, String fragmentName) {
+        return ShaderProgramRegistry.getProgram(vertexName, fragmentName);
+    }
+
+    /**
+     * Compile the shaders and link a new program.
+     *
+     * @param vertexName Code of the vertex shader.
+     * @param fragmentName Code of the image fragment shader.
+     * @param isBinaryRetrievable Whether the program binary will be read with glGetProgramBinary.
+     * @return int Program handle.
+     */
+    static int linkGlProgram(String vertexName, String fragmentName, boolean isBinaryRetrievable) {
         int vertex = loadShader(GLES20.GL_VERTEX_SHADER, vertexName);
         if (vertex == 0) {
             return 0;
         }
         int fragment = loadShader(GLES20.GL_FRAGMENT_SHADER, fragmentName);
         if (fragment == 0) {
+            GlFacade.get().glDeleteShader(vertex);
             return 0;
         }
-        int program = GLES20.glCreateProgram();
+        int program = GlFacade.get().glCreateProgram();
         if (program != 0) {
-            GLES20.glAttachShader(program, vertex);
-            GLES20.glAttachShader(program, fragment);
-            GLES20.glLinkProgram(program);
+            GlFacade.get().glAttachShader(program, vertex);
+            GlFacade.get().glAttachShader(program, fragment);
+            if (isBinaryRetrievable) {
+                GlFacade.get().glProgramParameteri(program, GLES30.GL_PROGRAM_BINARY_RETRIEVABLE_HINT,
+                    GLES20.GL_TRUE);
+            }
+            GlFacade.get().glLinkProgram(program);
             int[] linkStatus = new int[1];
-            GLES20.glGetProgramiv(program, GLES20.GL_LINK_STATUS, linkStatus, 0);
+            GlFacade.get().glGetProgramiv(program, GLES20.GL_LINK_STATUS, linkStatus, 0);
             if (linkStatus[0] != GLES20.GL_TRUE) {
-                Log.e("createGlProgram", "Could not link program:" + GLES20.glGetProgramInfoLog(program));
-                GLES20.glDeleteProgram(program);
+                Log.e("createGlProgram", "Could not link program:" + GlFacade.get().glGetProgramInfoLog(program));
+                GlFacade.get().glDeleteProgram(program);
                 program = 0;
             }
         }
+
+        // The shaders are freed together with the program, or immediately if the program is not created.
+        GlFacade.get().glDeleteShader(vertex);
+        GlFacade.get().glDeleteShader(fragment);
         return program;
     }
 
     private static int loadShader(int shaderType, String source) {
-        int shader = GLES20.glCreateShader(shaderType);
+        int shader = GlFacade.get().glCreateShader(shaderType);
         if (shader != 0) {
-            GLES20.glShaderSource(shader, source);
-            GLES20.glCompileShader(shader);
+            GlFacade.get().glShaderSource(shader, source);
+            GlFacade.get().glCompileShader(shader);
             int[] compiled = new int[1];
-            GLES20.glGetShaderiv(shader, GLES20.GL_COMPILE_STATUS, compiled, 0);
+            GlFacade.get().glGetShaderiv(shader, GLES20.GL_COMPILE_STATUS, compiled, 0);
             if (compiled[0] == 0) {
                 Log.e("createGlProgram", "Could not compile shader:" + shaderType);
-                Log.e("createGlProgram", "GLES20 Error:" + GLES20.glGetShaderInfoLog(shader));
-                GLES20.glDeleteShader(shader);
+                Log.e("createGlProgram", "GLES20 Error:" + GlFacade.get().glGetShaderInfoLog(shader));
+                GlFacade.get().glDeleteShader(shader);
                 shader = 0;
             }
         }
@@ -177,6 +223,15 @@ public class ShaderUtil {
         return createGlProgram(LABEL_VERTEX, LABEL_FRAGMENT);
     }
 
+    /**
+     * Shader program generator of the labels that face the camera.
+     *
+     * @return int Program handle.
+     */
+    public static int getBillboardLabelProgram() {
+        return createGlProgram(BILLBOARD_LABEL_VERTEX, LABEL_FRAGMENT);
+    }
+
     /**
      * Shader program generator.
      *
@@ -196,17 +251,18 @@ public class ShaderUtil {
      */
     public static int[] initLabel(String tag, int[] textures, TextView labelTextView) {
         ShaderUtil.checkGlError(tag, "Update start.");
-        GLES20.glGenTextures(textures.length, textures, 0);
+        GlFacade.get().glGenTextures(textures.length, textures, 0);
 
         // Label plane.
-        GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
-        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, textures[0]);
-        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_LINEAR_MIPMAP_LINEAR);
-        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_LINEAR);
+        GlFacade.get().glActiveTexture(GLES20.GL_TEXTURE0);
+        GlFacade.get().glBindTexture(GLES20.GL_TEXTURE_2D, textures[0]);
+        GlFacade.get().glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER,
+            GLES20.GL_LINEAR_MIPMAP_LINEAR);
+        GlFacade.get().glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_LINEAR);
         Bitmap labelBitmap = getImageBitmap(labelTextView);
-        GLUtils.texImage2D(GLES20.GL_TEXTURE_2D, 0, labelBitmap, 0);
-        GLES20.glGenerateMipmap(GLES20.GL_TEXTURE_2D);
-        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, 0);
+        GlFacade.get().texImage2D(GLES20.GL_TEXTURE_2D, 0, labelBitmap, 0);
+        GlFacade.get().glGenerateMipmap(GLES20.GL_TEXTURE_2D);
+        GlFacade.get().glBindTexture(GLES20.GL_TEXTURE_2D, 0);
         ShaderUtil.checkGlError(tag, "Update end.");
         return textures;
     }
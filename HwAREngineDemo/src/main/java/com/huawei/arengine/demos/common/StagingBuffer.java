@@ -0,0 +1,223 @@
+/*
+ * Copyright 2023. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.huawei.arengine.demos.common;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * Native-order direct float buffer used to stage vertices before they are uploaded to a GL buffer. Displays
+ * write vertices straight into off-heap memory instead of filling a new float[] and wrapping it each frame,
+ * which saves both the heap allocation and the copy that GL makes from a heap buffer. Staging buffers are
+ * pooled per thread and are returned to the pool when closed, for example:
+ * <pre>
+ * try (StagingBuffer staging = StagingBuffer.acquire(pointNum * 3)) {
+ *     staging.put(x, y, z);
+ *     vbo.upload(staging.flip(), staging.getByteSize());
+ * }
+ * </pre>
+ *
+ * @author HW
+ * @since 2023-06-12
+ */
+public final class StagingBuffer implements AutoCloseable {
+    private static final String TAG = "StagingBuffer";
+
+    private static final int BYTES_PER_FLOAT = Float.SIZE / 8;
+
+    /**
+     * Smallest capacity of a staging buffer, in floats.
+     */
+    private static final int MIN_FLOAT_CAPACITY = 256;
+
+    private static final ThreadLocal<ArrayDeque<StagingBuffer>> POOL = ThreadLocal.withInitial(ArrayDeque::new);
+
+    private static long sAllocatedBytes = 0L;
+
+    private FloatBuffer mFloats;
+
+    private boolean mIsAcquired = false;
+
+    private boolean mIsFlipped = false;
+
+    private StagingBuffer() {
+        mFloats = allocate(MIN_FLOAT_CAPACITY);
+    }
+
+    /**
+     * Obtain an empty staging buffer of the current thread. Close it after the data is uploaded.
+     *
+     * @param floatCount Maximum number of floats to be written.
+     * @return Staging buffer.
+     */
+    public static StagingBuffer acquire(int floatCount) {
+        StagingBuffer staging = POOL.get().pollFirst();
+        if (staging == null) {
+            staging = new StagingBuffer();
+        }
+        staging.ensureCapacity(floatCount);
+        staging.mFloats.clear();
+        staging.mIsAcquired = true;
+        staging.mIsFlipped = false;
+        return staging;
+    }
+
+    /**
+     * Obtain the number of bytes allocated for staging buffers by all threads. The value stops growing once the
+     * pools are warmed up, which shows that the per-frame paths no longer allocate memory.
+     *
+     * @return Number of bytes.
+     */
+    public static synchronized long getAllocatedBytes() {
+        return sAllocatedBytes;
+    }
+
+    /**
+     * Write a float.
+     *
+     * @param value Value.
+     * @return This staging buffer.
+     */
+    public StagingBuffer put(float value) {
+        mFloats.put(value);
+        return this;
+    }
+
+    /**
+     * Write a 3D coordinate.
+     *
+     * @param x X coordinate.
+     * @param y Y coordinate.
+     * @param z Z coordinate.
+     * @return This staging buffer.
+     */
+    public StagingBuffer put(float x, float y, float z) {
+        mFloats.put(x).put(y).put(z);
+        return this;
+    }
+
+    /**
+     * Write a 4D coordinate.
+     *
+     * @param x X coordinate.
+     * @param y Y coordinate.
+     * @param z Z coordinate.
+     * @param w W coordinate.
+     * @return This staging buffer.
+     */
+    public StagingBuffer put(float x, float y, float z, float w) {
+        mFloats.put(x).put(y).put(z).put(w);
+        return this;
+    }
+
+    /**
+     * Overwrite a 4D coordinate that has already been written.
+     *
+     * @param floatIndex Index of the first float of the coordinate.
+     * @param x X coordinate.
+     * @param y Y coordinate.
+     * @param z Z coordinate.
+     * @param w W coordinate.
+     * @return This staging buffer.
+     */
+    public StagingBuffer set(int floatIndex, float x, float y, float z, float w) {
+        if (floatIndex < 0 || floatIndex + 4 > getFloatCount()) {
+            throw new IndexOutOfBoundsException("Float index out of range: " + floatIndex);
+        }
+        mFloats.put(floatIndex, x).put(floatIndex + 1, y).put(floatIndex + 2, z).put(floatIndex + 3, w);
+        return this;
+    }
+
+    /**
+     * Write a part of an array.
+     *
+     * @param src Source array.
+     * @param offset Index of the first float to be written.
+     * @param length Number of floats to be written.
+     * @return This staging buffer.
+     */
+    public StagingBuffer put(float[] src, int offset, int length) {
+        mFloats.put(src, offset, length);
+        return this;
+    }
+
+    /**
+     * Obtain the number of floats written.
+     *
+     * @return Number of floats.
+     */
+    public int getFloatCount() {
+        return mIsFlipped ? mFloats.limit() : mFloats.position();
+    }
+
+    /**
+     * Obtain the number of bytes written.
+     *
+     * @return Number of bytes.
+     */
+    public int getByteSize() {
+        return getFloatCount() * BYTES_PER_FLOAT;
+    }
+
+    /**
+     * Finish writing and obtain the written floats, from position 0. No more data can be written after this
+     * method is called.
+     *
+     * @return Direct float buffer that can be passed to glBufferSubData.
+     */
+    public FloatBuffer flip() {
+        if (!mIsFlipped) {
+            mFloats.flip();
+            mIsFlipped = true;
+        }
+        return mFloats;
+    }
+
+    /**
+     * Return the staging buffer to the pool of the current thread.
+     */
+    @Override
+    public void close() {
+        if (!mIsAcquired) {
+            LogUtil.warn(TAG, "The staging buffer is closed twice.");
+            return;
+        }
+        mIsAcquired = false;
+        POOL.get().addFirst(this);
+    }
+
+    private void ensureCapacity(int floatCount) {
+        if (mFloats.capacity() >= floatCount) {
+            return;
+        }
+        int capacity = mFloats.capacity();
+        while (capacity < floatCount) {
+            capacity *= 2;
+        }
+        mFloats = allocate(capacity);
+    }
+
+    private static FloatBuffer allocate(int floatCount) {
+        synchronized (StagingBuffer.class) {
+            sAllocatedBytes += (long) floatCount * BYTES_PER_FLOAT;
+        }
+        return ByteBuffer.allocateDirect(floatCount * BYTES_PER_FLOAT).order(ByteOrder.nativeOrder())
+            .asFloatBuffer();
+    }
+}
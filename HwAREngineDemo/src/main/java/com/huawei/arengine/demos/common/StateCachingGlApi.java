@@ -0,0 +1,558 @@
+/*
+ * Copyright 2023. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.huawei.arengine.demos.common;
+
+import android.graphics.Bitmap;
+import android.opengl.GLES20;
+
+import java.nio.Buffer;
+import java.util.Arrays;
+
+/**
+ * GL API that shadows the GL state and forwards only the calls that change it. The bound program, array and
+ * element array buffers, active texture unit, 2D textures of each unit, common capabilities, depth mask, blend
+ * function, and line width are tracked; a call that sets the value that is already set is dropped. Other calls
+ * are always forwarded. Displays can therefore set all the state that they need before each draw without
+ * restoring it afterwards. The cached state is discarded when the EGL context is created and after the AR session
+ * is updated in each frame, because the session updates the camera texture without this API.
+ * All methods must be called on the GL thread.
+ *
+ * @author HW
+ * @since 2023-06-12
+ */
+public class StateCachingGlApi implements GlApi {
+    /**
+     * Cached value that is unknown, so the next call is always forwarded.
+     */
+    private static final int UNKNOWN = -1;
+
+    private static final int MAX_TEXTURE_UNITS = 32;
+
+    private static final int[] TRACKED_CAPS = {GLES20.GL_BLEND, GLES20.GL_DEPTH_TEST, GLES20.GL_CULL_FACE,
+        GLES20.GL_SCISSOR_TEST, GLES20.GL_STENCIL_TEST, GLES20.GL_POLYGON_OFFSET_FILL, GLES20.GL_DITHER};
+
+    private final GlApi mDelegate;
+
+    private final int[] mBound2dTextures = new int[MAX_TEXTURE_UNITS];
+
+    private final int[] mCapStates = new int[TRACKED_CAPS.length];
+
+    private final int[] mBlendFunc = new int[4];
+
+    private int mProgram;
+
+    private int mArrayBuffer;
+
+    private int mElementArrayBuffer;
+
+    private int mActiveTextureUnit;
+
+    private int mDepthMask;
+
+    private float mLineWidth;
+
+    private long mElidedCallCount = 0L;
+
+    private long mFrameElidedCallCount = 0L;
+
+    private long mLastFrameElidedCallCount = 0L;
+
+    /**
+     * Constructor.
+     *
+     * @param delegate GL API to which the calls that change the state are forwarded.
+     */
+    public StateCachingGlApi(GlApi delegate) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("delegate is null");
+        }
+        mDelegate = delegate;
+        invalidate();
+    }
+
+    /**
+     * Discard the cached state, so that the next call of each state is forwarded. This method is called when
+     * the EGL context is created, or after GL is called without this API.
+     */
+    public void invalidate() {
+        mProgram = UNKNOWN;
+        mArrayBuffer = UNKNOWN;
+        mElementArrayBuffer = UNKNOWN;
+        mActiveTextureUnit = UNKNOWN;
+        mDepthMask = UNKNOWN;
+        mLineWidth = Float.NaN;
+        Arrays.fill(mBound2dTextures, UNKNOWN);
+        Arrays.fill(mCapStates, UNKNOWN);
+        Arrays.fill(mBlendFunc, UNKNOWN);
+    }
+
+    /**
+     * Finish the statistics of the previous frame. This method is called at the beginning of each frame. The
+     * cached state is kept, and must be discarded with {@link #invalidate()} after the AR session is updated.
+     */
+    public void onFrameBegin() {
+        mLastFrameElidedCallCount = mFrameElidedCallCount;
+        mFrameElidedCallCount = 0L;
+    }
+
+    /**
+     * Obtain the number of calls that were dropped because they did not change the state.
+     *
+     * @return Number of calls.
+     */
+    public long getElidedCallCount() {
+        return mElidedCallCount;
+    }
+
+    /**
+     * Obtain the number of calls that were dropped in the previous frame.
+     *
+     * @return Number of calls.
+     */
+    public long getLastFrameElidedCallCount() {
+        return mLastFrameElidedCallCount;
+    }
+
+    /**
+     * Append the number of dropped calls to the text displayed on the screen.
+     *
+     * @param sb String buffer.
+     */
+    public void appendSummary(StringBuilder sb) {
+        sb.append("GL calls elided last frame/total=").append(mLastFrameElidedCallCount).append('/')
+            .append(mElidedCallCount).append(System.lineSeparator());
+    }
+
+    private void onElided() {
+        mElidedCallCount++;
+        mFrameElidedCallCount++;
+    }
+
+    @Override
+    public void glGenBuffers(int count, int[] buffers, int offset) {
+        mDelegate.glGenBuffers(count, buffers, offset);
+    }
+
+    @Override
+    public void glDeleteBuffers(int count, int[] buffers, int offset) {
+        mDelegate.glDeleteBuffers(count, buffers, offset);
+
+        // Deleting a bound buffer binds 0 to its target.
+        for (int i = 0; i < count; i++) {
+            if (mArrayBuffer == buffers[offset + i]) {
+                mArrayBuffer = 0;
+            }
+            if (mElementArrayBuffer == buffers[offset + i]) {
+                mElementArrayBuffer = 0;
+            }
+        }
+    }
+
+    @Override
+    public void glBindBuffer(int target, int buffer) {
+        if (target == GLES20.GL_ARRAY_BUFFER) {
+            if (mArrayBuffer == buffer) {
+                onElided();
+                return;
+            }
+            mArrayBuffer = buffer;
+        } else if (target == GLES20.GL_ELEMENT_ARRAY_BUFFER) {
+            if (mElementArrayBuffer == buffer) {
+                onElided();
+                return;
+            }
+            mElementArrayBuffer = buffer;
+        }
+        mDelegate.glBindBuffer(target, buffer);
+    }
+
+    @Override
+    public void glBufferData(int target, int size, Buffer data, int usage) {
+        mDelegate.glBufferData(target, size, data, usage);
+    }
+
+    @Override
+    public void glBufferSubData(int target, int offset, int size, Buffer data) {
+        mDelegate.glBufferSubData(target, offset, size, data);
+    }
+
+    @Override
+    public void glGenTextures(int count, int[] textures, int offset) {
+        mDelegate.glGenTextures(count, textures, offset);
+    }
+
+    @Override
+    public void glDeleteTextures(int count, int[] textures, int offset) {
+        mDelegate.glDeleteTextures(count, textures, offset);
+
+        // Deleting a bound texture binds 0 to its target on every unit.
+        for (int i = 0; i < count; i++) {
+            for (int unit = 0; unit < MAX_TEXTURE_UNITS; unit++) {
+                if (mBound2dTextures[unit] == textures[offset + i]) {
+                    mBound2dTextures[unit] = 0;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void glActiveTexture(int texture) {
+        int unit = texture - GLES20.GL_TEXTURE0;
+        if (unit < 0 || unit >= MAX_TEXTURE_UNITS) {
+            mActiveTextureUnit = UNKNOWN;
+        } else if (mActiveTextureUnit == unit) {
+            onElided();
+            return;
+        } else {
+            mActiveTextureUnit = unit;
+        }
+        mDelegate.glActiveTexture(texture);
+    }
+
+    @Override
+    public void glBindTexture(int target, int texture) {
+        // External textures are rebound by the camera texture update, so only 2D textures are tracked.
+        if (target == GLES20.GL_TEXTURE_2D && mActiveTextureUnit != UNKNOWN) {
+            if (mBound2dTextures[mActiveTextureUnit] == texture) {
+                onElided();
+                return;
+            }
+            mBound2dTextures[mActiveTextureUnit] = texture;
+        }
+        mDelegate.glBindTexture(target, texture);
+    }
+
+    @Override
+    public void glTexParameteri(int target, int pname, int param) {
+        mDelegate.glTexParameteri(target, pname, param);
+    }
+
+    @Override
+    public void glTexParameterf(int target, int pname, float param) {
+        mDelegate.glTexParameterf(target, pname, param);
+    }
+
+    @Override
+    public void glTexImage2D(int target, int level, int internalFormat, int width, int height, int border,
+        int format, int type, Buffer pixels) {
+        mDelegate.glTexImage2D(target, level, internalFormat, width, height, border, format, type, pixels);
+    }
+
+    @Override
+    public void texImage2D(int target, int level, Bitmap bitmap, int border) {
+        mDelegate.texImage2D(target, level, bitmap, border);
+    }
+
+    @Override
+    public void glGenerateMipmap(int target) {
+        mDelegate.glGenerateMipmap(target);
+    }
+
+    @Override
+    public int glCreateShader(int type) {
+        return mDelegate.glCreateShader(type);
+    }
+
+    @Override
+    public void glShaderSource(int shader, String source) {
+        mDelegate.glShaderSource(shader, source);
+    }
+
+    @Override
+    public void glCompileShader(int shader) {
+        mDelegate.glCompileShader(shader);
+    }
+
+    @Override
+    public void glGetShaderiv(int shader, int pname, int[] params, int offset) {
+        mDelegate.glGetShaderiv(shader, pname, params, offset);
+    }
+
+    @Override
+    public String glGetShaderInfoLog(int shader) {
+        return mDelegate.glGetShaderInfoLog(shader);
+    }
+
+    @Override
+    public void glDeleteShader(int shader) {
+        mDelegate.glDeleteShader(shader);
+    }
+
+    @Override
+    public int glCreateProgram() {
+        return mDelegate.glCreateProgram();
+    }
+
+    @Override
+    public void glAttachShader(int program, int shader) {
+        mDelegate.glAttachShader(program, shader);
+    }
+
+    @Override
+    public void glLinkProgram(int program) {
+        mDelegate.glLinkProgram(program);
+    }
+
+    @Override
+    public void glGetProgramiv(int program, int pname, int[] params, int offset) {
+        mDelegate.glGetProgramiv(program, pname, params, offset);
+    }
+
+    @Override
+    public String glGetProgramInfoLog(int program) {
+        return mDelegate.glGetProgramInfoLog(program);
+    }
+
+    @Override
+    public void glDeleteProgram(int program) {
+        mDelegate.glDeleteProgram(program);
+
+        // The name of a deleted program may be reused by a new program.
+        if (mProgram == program) {
+            mProgram = UNKNOWN;
+        }
+    }
+
+    @Override
+    public void glUseProgram(int program) {
+        if (mProgram == program) {
+            onElided();
+            return;
+        }
+        mProgram = program;
+        mDelegate.glUseProgram(program);
+    }
+
+    @Override
+    public int glGetAttribLocation(int program, String name) {
+        return mDelegate.glGetAttribLocation(program, name);
+    }
+
+    @Override
+    public int glGetUniformLocation(int program, String name) {
+        return mDelegate.glGetUniformLocation(program, name);
+    }
+
+    @Override
+    public void glProgramParameteri(int program, int pname, int value) {
+        mDelegate.glProgramParameteri(program, pname, value);
+    }
+
+    @Override
+    public void glGetProgramBinary(int program, int bufSize, int[] length, int lengthOffset, int[] binaryFormat,
+        int binaryFormatOffset, Buffer binary) {
+        mDelegate.glGetProgramBinary(program, bufSize, length, lengthOffset, binaryFormat, binaryFormatOffset,
+            binary);
+    }
+
+    @Override
+    public void glProgramBinary(int program, int binaryFormat, Buffer binary, int length) {
+        mDelegate.glProgramBinary(program, binaryFormat, binary, length);
+    }
+
+    @Override
+    public void glUniform1i(int location, int x) {
+        mDelegate.glUniform1i(location, x);
+    }
+
+    @Override
+    public void glUniform1f(int location, float x) {
+        mDelegate.glUniform1f(location, x);
+    }
+
+    @Override
+    public void glUniform2f(int location, float x, float y) {
+        mDelegate.glUniform2f(location, x, y);
+    }
+
+    @Override
+    public void glUniform3f(int location, float x, float y, float z) {
+        mDelegate.glUniform3f(location, x, y, z);
+    }
+
+    @Override
+    public void glUniform4f(int location, float x, float y, float z, float w) {
+        mDelegate.glUniform4f(location, x, y, z, w);
+    }
+
+    @Override
+    public void glUniform4fv(int location, int count, float[] value, int offset) {
+        mDelegate.glUniform4fv(location, count, value, offset);
+    }
+
+    @Override
+    public void glUniformMatrix2fv(int location, int count, boolean transpose, float[] value, int offset) {
+        mDelegate.glUniformMatrix2fv(location, count, transpose, value, offset);
+    }
+
+    @Override
+    public void glUniformMatrix4fv(int location, int count, boolean transpose, float[] value, int offset) {
+        mDelegate.glUniformMatrix4fv(location, count, transpose, value, offset);
+    }
+
+    @Override
+    public void glEnableVertexAttribArray(int index) {
+        mDelegate.glEnableVertexAttribArray(index);
+    }
+
+    @Override
+    public void glDisableVertexAttribArray(int index) {
+        mDelegate.glDisableVertexAttribArray(index);
+    }
+
+    @Override
+    public void glVertexAttribPointer(int index, int size, int type, boolean normalized, int stride, int offset) {
+        mDelegate.glVertexAttribPointer(index, size, type, normalized, stride, offset);
+    }
+
+    @Override
+    public void glVertexAttribPointer(int index, int size, int type, boolean normalized, int stride,
+        Buffer pointer) {
+        mDelegate.glVertexAttribPointer(index, size, type, normalized, stride, pointer);
+    }
+
+    @Override
+    public void glVertexAttribDivisor(int index, int divisor) {
+        mDelegate.glVertexAttribDivisor(index, divisor);
+    }
+
+    @Override
+    public void glDrawArrays(int mode, int first, int count) {
+        mDelegate.glDrawArrays(mode, first, count);
+    }
+
+    @Override
+    public void glDrawElements(int mode, int count, int type, int offset) {
+        mDelegate.glDrawElements(mode, count, type, offset);
+    }
+
+    @Override
+    public void glDrawElements(int mode, int count, int type, Buffer indices) {
+        mDelegate.glDrawElements(mode, count, type, indices);
+    }
+
+    @Override
+    public void glDrawElementsInstanced(int mode, int count, int type, int offset, int instanceCount) {
+        mDelegate.glDrawElementsInstanced(mode, count, type, offset, instanceCount);
+    }
+
+    @Override
+    public void glEnable(int cap) {
+        setCapability(cap, true);
+    }
+
+    @Override
+    public void glDisable(int cap) {
+        setCapability(cap, false);
+    }
+
+    private void setCapability(int cap, boolean isEnabled) {
+        int state = isEnabled ? 1 : 0;
+        for (int i = 0; i < TRACKED_CAPS.length; i++) {
+            if (TRACKED_CAPS[i] != cap) {
+                continue;
+            }
+            if (mCapStates[i] == state) {
+                onElided();
+                return;
+            }
+            mCapStates[i] = state;
+            break;
+        }
+        if (isEnabled) {
+            mDelegate.glEnable(cap);
+        } else {
+            mDelegate.glDisable(cap);
+        }
+    }
+
+    @Override
+    public void glBlendFunc(int sfactor, int dfactor) {
+        if (isBlendFuncSet(sfactor, dfactor, sfactor, dfactor)) {
+            onElided();
+            return;
+        }
+        mDelegate.glBlendFunc(sfactor, dfactor);
+    }
+
+    @Override
+    public void glBlendFuncSeparate(int srcRgb, int dstRgb, int srcAlpha, int dstAlpha) {
+        if (isBlendFuncSet(srcRgb, dstRgb, srcAlpha, dstAlpha)) {
+            onElided();
+            return;
+        }
+        mDelegate.glBlendFuncSeparate(srcRgb, dstRgb, srcAlpha, dstAlpha);
+    }
+
+    private boolean isBlendFuncSet(int srcRgb, int dstRgb, int srcAlpha, int dstAlpha) {
+        if (mBlendFunc[0] == srcRgb && mBlendFunc[1] == dstRgb && mBlendFunc[2] == srcAlpha
+            && mBlendFunc[3] == dstAlpha) {
+            return true;
+        }
+        mBlendFunc[0] = srcRgb;
+        mBlendFunc[1] = dstRgb;
+        mBlendFunc[2] = srcAlpha;
+        mBlendFunc[3] = dstAlpha;
+        return false;
+    }
+
+    @Override
+    public void glDepthMask(boolean flag) {
+        int depthMask = flag ? 1 : 0;
+        if (mDepthMask == depthMask) {
+            onElided();
+            return;
+        }
+        mDepthMask = depthMask;
+        mDelegate.glDepthMask(flag);
+    }
+
+    @Override
+    public void glLineWidth(float width) {
+        if (Float.compare(mLineWidth, width) == 0) {
+            onElided();
+            return;
+        }
+        mLineWidth = width;
+        mDelegate.glLineWidth(width);
+    }
+
+    @Override
+    public void glViewport(int x, int y, int width, int height) {
+        mDelegate.glViewport(x, y, width, height);
+    }
+
+    @Override
+    public void glClearColor(float red, float green, float blue, float alpha) {
+        mDelegate.glClearColor(red, green, blue, alpha);
+    }
+
+    @Override
+    public void glClear(int mask) {
+        mDelegate.glClear(mask);
+    }
+
+    @Override
+    public int glGetError() {
+        return mDelegate.glGetError();
+    }
+
+    @Override
+    public String glGetString(int name) {
+        return mDelegate.glGetString(name);
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2023. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.huawei.arengine.demos.common;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.opengl.GLES20;
+import android.opengl.GLES30;
+
+import java.util.List;
+
+/**
+ * Texture that holds several bitmaps, so that quads with different images can be drawn with one texture bind
+ * and one draw call. The bitmaps are packed row by row into a power-of-two texture with transparent padding
+ * around each of them. The padding keeps neighbouring entries apart only in the mipmap levels whose texels span
+ * at most {@link #PADDING} pixels, so on OpenGL ES 3.0 the mipmap chain stops at {@link #MAX_MIP_LEVEL}, and on
+ * OpenGL ES 2.0, which cannot limit the chain, the atlas is not mipmapped. Each entry is described by a UV
+ * rectangle of four floats: left, top, right, and bottom, where the top is the first row of the bitmap.
+ *
+ * @author HW
+ * @since 2023-06-12
+ */
+public class TextureAtlas {
+    /**
+     * Number of floats of a UV rectangle.
+     */
+    public static final int UV_RECT_SIZE = 4;
+
+    private static final String TAG = "TextureAtlas";
+
+    /**
+     * Last mipmap level, whose texels span 2 ^ MAX_MIP_LEVEL pixels of the atlas.
+     */
+    private static final int MAX_MIP_LEVEL = 2;
+
+    /**
+     * Transparent pixels around each entry. Two entries are 2 * PADDING pixels apart, so the texels of the last
+     * mipmap level that are sampled for an entry never cover a pixel of another entry.
+     */
+    private static final int PADDING = 1 << MAX_MIP_LEVEL;
+
+    private final int[] mTextures = new int[1];
+
+    private float[] mUvRects = new float[0];
+
+    private int mEntryCount = 0;
+
+    private int mWidth = 0;
+
+    private int mHeight = 0;
+
+    /**
+     * Pack the bitmaps and upload the atlas texture. This method must be called on the GL thread. A null
+     * bitmap gets an empty UV rectangle.
+     *
+     * @param bitmaps Bitmaps of the entries, whose indexes are the entry indexes.
+     */
+    public void init(List<Bitmap> bitmaps) {
+        ShaderUtil.checkGlError(TAG, "Init start.");
+        mEntryCount = bitmaps.size();
+        mUvRects = new float[mEntryCount * UV_RECT_SIZE];
+        int[] positions = layout(bitmaps);
+        Bitmap atlasBitmap = Bitmap.createBitmap(mWidth, mHeight, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(atlasBitmap);
+        for (int i = 0; i < mEntryCount; i++) {
+            Bitmap bitmap = bitmaps.get(i);
+            if (bitmap == null) {
+                continue;
+            }
+            int left = positions[i * 2];
+            int top = positions[i * 2 + 1];
+            canvas.drawBitmap(bitmap, left, top, null);
+            int offset = i * UV_RECT_SIZE;
+            mUvRects[offset] = (float) left / mWidth;
+            mUvRects[offset + 1] = (float) top / mHeight;
+            mUvRects[offset + 2] = (float) (left + bitmap.getWidth()) / mWidth;
+            mUvRects[offset + 3] = (float) (top + bitmap.getHeight()) / mHeight;
+        }
+
+        boolean isMipmapped = ShaderProgramRegistry.getGlesMajorVersion() >= 3;
+        GlFacade.get().glGenTextures(mTextures.length, mTextures, 0);
+        GlFacade.get().glBindTexture(GLES20.GL_TEXTURE_2D, mTextures[0]);
+        GlFacade.get().glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER,
+            isMipmapped ? GLES20.GL_LINEAR_MIPMAP_LINEAR : GLES20.GL_LINEAR);
+        GlFacade.get().glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_LINEAR);
+        GlFacade.get().glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_S, GLES20.GL_CLAMP_TO_EDGE);
+        GlFacade.get().glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_T, GLES20.GL_CLAMP_TO_EDGE);
+        GlFacade.get().texImage2D(GLES20.GL_TEXTURE_2D, 0, atlasBitmap, 0);
+        if (isMipmapped) {
+            GlFacade.get().glTexParameteri(GLES20.GL_TEXTURE_2D, GLES30.GL_TEXTURE_MAX_LEVEL, MAX_MIP_LEVEL);
+            GlFacade.get().glGenerateMipmap(GLES20.GL_TEXTURE_2D);
+        }
+        atlasBitmap.recycle();
+        LogUtil.debug(TAG, "Packed " + mEntryCount + " bitmaps into " + mWidth + "x" + mHeight);
+        ShaderUtil.checkGlError(TAG, "Init end.");
+    }
+
+    /**
+     * Place the bitmaps row by row, and set the atlas size to the smallest power of two that holds them.
+     *
+     * @param bitmaps Bitmaps of the entries.
+     * @return Left and top pixel position of each entry.
+     */
+    private int[] layout(List<Bitmap> bitmaps) {
+        int maxWidth = 1;
+        long totalArea = 0L;
+        for (Bitmap bitmap : bitmaps) {
+            if (bitmap == null) {
+                continue;
+            }
+            maxWidth = Math.max(maxWidth, bitmap.getWidth() + PADDING * 2);
+            totalArea += (long) (bitmap.getWidth() + PADDING * 2) * (bitmap.getHeight() + PADDING * 2);
+        }
+
+        // A roughly square atlas keeps both sides below the texture size limit for as long as possible.
+        mWidth = nextPowerOfTwo(Math.max(maxWidth, (int) Math.ceil(Math.sqrt(totalArea))));
+        int[] positions = new int[bitmaps.size() * 2];
+        int left = 0;
+        int top = 0;
+        int rowHeight = 0;
+        for (int i = 0; i < bitmaps.size(); i++) {
+            Bitmap bitmap = bitmaps.get(i);
+            if (bitmap == null) {
+                continue;
+            }
+            int cellWidth = bitmap.getWidth() + PADDING * 2;
+            if (left + cellWidth > mWidth) {
+                left = 0;
+                top += rowHeight;
+                rowHeight = 0;
+            }
+            positions[i * 2] = left + PADDING;
+            positions[i * 2 + 1] = top + PADDING;
+            left += cellWidth;
+            rowHeight = Math.max(rowHeight, bitmap.getHeight() + PADDING * 2);
+        }
+        mHeight = nextPowerOfTwo(top + rowHeight);
+        return positions;
+    }
+
+    private static int nextPowerOfTwo(int value) {
+        int highestBit = Integer.highestOneBit(Math.max(1, value));
+        return highestBit == value ? value : highestBit << 1;
+    }
+
+    /**
+     * Bind the atlas texture to the active texture unit.
+     */
+    public void bind() {
+        GlFacade.get().glBindTexture(GLES20.GL_TEXTURE_2D, mTextures[0]);
+    }
+
+    /**
+     * Copy the UV rectangle of an entry.
+     *
+     * @param index Entry index.
+     * @param dest Array that receives left, top, right, and bottom.
+     * @param destOffset Index of the first float in the array.
+     * @return true if the entry exists.
+     */
+    public boolean getUvRect(int index, float[] dest, int destOffset) {
+        if (index < 0 || index >= mEntryCount) {
+            return false;
+        }
+        System.arraycopy(mUvRects, index * UV_RECT_SIZE, dest, destOffset, UV_RECT_SIZE);
+        return true;
+    }
+
+    /**
+     * Obtain the number of entries, including the entries of null bitmaps.
+     *
+     * @return Number of entries.
+     */
+    public int getEntryCount() {
+        return mEntryCount;
+    }
+
+    /**
+     * Obtain the width of the atlas texture, which is a power of two.
+     *
+     * @return Width in pixels, or 0 before {@link #init}.
+     */
+    public int getWidth() {
+        return mWidth;
+    }
+
+    /**
+     * Obtain the height of the atlas texture, which is a power of two.
+     *
+     * @return Height in pixels, or 0 before {@link #init}.
+     */
+    public int getHeight() {
+        return mHeight;
+    }
+}
@@ -123,7 +123,7 @@ public class TextureDisplay implements BaseBackgroundDisplay {
     @Override
     public void init() {
         int[] textures = new int[1];
-        GLES20.glGenTextures(1, textures, 0);
+        GlFacade.get().glGenTextures(1, textures, 0);
         mExternalTextureId = textures[0];
         generateExternalTexture();
         createProgram();
@@ -168,52 +168,57 @@ public class TextureDisplay implements BaseBackgroundDisplay {
         }
         clear();
 
-        GLES20.glDisable(GLES20.GL_DEPTH_TEST);
-        GLES20.glDepthMask(false);
+        GlFacade.get().glDisable(GLES20.GL_DEPTH_TEST);
+        GlFacade.get().glDepthMask(false);
 
-        GLES20.glUseProgram(mProgram);
+        GlFacade.get().glUseProgram(mProgram);
 
         // Set the texture ID.
-        GLES20.glBindTexture(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, mExternalTextureId);
+        GlFacade.get().glBindTexture(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, mExternalTextureId);
 
         // Set the projection matrix.
-        GLES20.glUniformMatrix4fv(mMatrix, 1, false, mProjectionMatrix, 0);
+        GlFacade.get().glUniformMatrix4fv(mMatrix, 1, false, mProjectionMatrix, 0);
 
-        GLES20.glUniformMatrix4fv(mCoordMatrix, 1, false, coordMatrixs, 0);
+        GlFacade.get().glUniformMatrix4fv(mCoordMatrix, 1, false, coordMatrixs, 0);
+
+        // The vertices are read from client memory, so no buffer object can be bound.
+        GlFacade.get().glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
 
         // Set the vertex.
-        GLES20.glEnableVertexAttribArray(mPosition);
-        GLES20.glVertexAttribPointer(mPosition, 2, GLES20.GL_FLOAT, false, 0, mVerBuffer);
+        GlFacade.get().glEnableVertexAttribArray(mPosition);
+        GlFacade.get().glVertexAttribPointer(mPosition, 2, GLES20.GL_FLOAT, false, 0, mVerBuffer);
 
         // Set the texture coordinates.
-        GLES20.glEnableVertexAttribArray(mCoord);
-        GLES20.glVertexAttribPointer(mCoord, 2, GLES20.GL_FLOAT, false, 0, mTexTransformedBuffer);
+        GlFacade.get().glEnableVertexAttribArray(mCoord);
+        GlFacade.get().glVertexAttribPointer(mCoord, 2, GLES20.GL_FLOAT, false, 0, mTexTransformedBuffer);
 
         // Number of vertices.
-        GLES20.glDrawArrays(GLES20.GL_TRIANGLE_STRIP, 0, 4);
-        GLES20.glDisableVertexAttribArray(mPosition);
-        GLES20.glDisableVertexAttribArray(mCoord);
+        GlFacade.get().glDrawArrays(GLES20.GL_TRIANGLE_STRIP, 0, 4);
+        GlFacade.get().glDisableVertexAttribArray(mPosition);
+        GlFacade.get().glDisableVertexAttribArray(mCoord);
 
-        GLES20.glDepthMask(true);
-        GLES20.glEnable(GLES20.GL_DEPTH_TEST);
+        GlFacade.get().glDepthMask(true);
+        GlFacade.get().glEnable(GLES20.GL_DEPTH_TEST);
         ShaderUtil.checkGlError(TAG, "On draw frame end.");
     }
 
     private void generateExternalTexture() {
-        GLES20.glBindTexture(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, mExternalTextureId);
-        GLES20.glTexParameteri(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, GL10.GL_TEXTURE_WRAP_S, GL10.GL_CLAMP_TO_EDGE);
-        GLES20.glTexParameteri(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, GL10.GL_TEXTURE_WRAP_T, GL10.GL_CLAMP_TO_EDGE);
-        GLES20.glTexParameterf(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, GL10.GL_TEXTURE_MIN_FILTER, GL10.GL_NEAREST);
-        GLES20.glTexParameterf(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, GL10.GL_TEXTURE_MAG_FILTER, GL10.GL_NEAREST);
+        GlFacade.get().glBindTexture(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, mExternalTextureId);
+        GlFacade.get().glTexParameteri(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, GL10.GL_TEXTURE_WRAP_S,
+            GL10.GL_CLAMP_TO_EDGE);
+        GlFacade.get().glTexParameteri(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, GL10.GL_TEXTURE_WRAP_T,
+            GL10.GL_CLAMP_TO_EDGE);
+        GlFacade.get().glTexParameterf(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, GL10.GL_TEXTURE_MIN_FILTER, GL10.GL_NEAREST);
+        GlFacade.get().glTexParameterf(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, GL10.GL_TEXTURE_MAG_FILTER, GL10.GL_NEAREST);
     }
 
     private void createProgram() {
         mProgram = ShaderUtil.createGlProgram(BASE_VERTEX, BASE_FRAGMENT);
-        mPosition = GLES20.glGetAttribLocation(mProgram, "vPosition");
-        mCoord = GLES20.glGetAttribLocation(mProgram, "vCoord");
-        mMatrix = GLES20.glGetUniformLocation(mProgram, "vMatrix");
-        mTexture = GLES20.glGetUniformLocation(mProgram, "vTexture");
-        mCoordMatrix = GLES20.glGetUniformLocation(mProgram, "vCoordMatrix");
+        mPosition = GlFacade.get().glGetAttribLocation(mProgram, "vPosition");
+        mCoord = GlFacade.get().glGetAttribLocation(mProgram, "vCoord");
+        mMatrix = GlFacade.get().glGetUniformLocation(mProgram, "vMatrix");
+        mTexture = GlFacade.get().glGetUniformLocation(mProgram, "vTexture");
+        mCoordMatrix = GlFacade.get().glGetUniformLocation(mProgram, "vCoordMatrix");
     }
 
     private void initBuffers() {
@@ -241,7 +246,7 @@ public class TextureDisplay implements BaseBackgroundDisplay {
      * Clear canvas.
      */
     private void clear() {
-        GLES20.glClearColor(RGB_CLEAR_VALUE, RGB_CLEAR_VALUE, RGB_CLEAR_VALUE, 1.0f);
-        GLES20.glClear(GLES20.GL_DEPTH_BUFFER_BIT);
+        GlFacade.get().glClearColor(RGB_CLEAR_VALUE, RGB_CLEAR_VALUE, RGB_CLEAR_VALUE, 1.0f);
+        GlFacade.get().glClear(GLES20.GL_DEPTH_BUFFER_BIT);
     }
 }
\ No newline at end of file
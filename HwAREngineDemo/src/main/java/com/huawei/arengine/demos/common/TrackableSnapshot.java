@@ -0,0 +1,245 @@
+/*
+ * Copyright 2023. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.huawei.arengine.demos.common;
+
+/**
+ * Plain data copy of a trackable (plane, body or hand) in a frame. It does not reference any AR Engine
+ * object, so it can be created from recorded data and used without a device. Arrays are reused when the
+ * length of the new data is unchanged.
+ *
+ * @author HW
+ * @since 2023-06-12
+ */
+public class TrackableSnapshot {
+    /**
+     * Plane. The points are the plane polygon (x, z), and the box is (extentX, extentZ).
+     */
+    public static final int TYPE_PLANE = 1;
+
+    /**
+     * Body. The points are the skeleton points (x, y, z), and the point flags indicate whether each point exists.
+     */
+    public static final int TYPE_BODY = 2;
+
+    /**
+     * Hand. The points are the skeleton points (x, y, z), and the box is the gesture hand box.
+     */
+    public static final int TYPE_HAND = 3;
+
+    /**
+     * Pose size: translation (x, y, z) and rotation quaternion (x, y, z, w).
+     */
+    public static final int POSE_SIZE = 7;
+
+    private static final float[] EMPTY_FLOATS = new float[0];
+
+    private static final int[] EMPTY_INTS = new int[0];
+
+    private int mType;
+
+    private boolean mIsTracking;
+
+    private final float[] mPose = new float[POSE_SIZE];
+
+    private int mLabel;
+
+    private boolean mIs3dCoordinate;
+
+    private float[] mPoints = EMPTY_FLOATS;
+
+    private int[] mPointFlags = EMPTY_INTS;
+
+    private int[] mConnections = EMPTY_INTS;
+
+    private float[] mBox = EMPTY_FLOATS;
+
+    /**
+     * Constructor.
+     *
+     * @param type Trackable type, for example {@link #TYPE_BODY}.
+     */
+    public TrackableSnapshot(int type) {
+        mType = type;
+    }
+
+    public int getType() {
+        return mType;
+    }
+
+    public boolean isTracking() {
+        return mIsTracking;
+    }
+
+    public void setTracking(boolean isTracking) {
+        mIsTracking = isTracking;
+    }
+
+    /**
+     * Obtain the pose, which is stored as translation (x, y, z) and rotation quaternion (x, y, z, w).
+     *
+     * @return Pose array with a length of {@link #POSE_SIZE}. The array is not copied.
+     */
+    public float[] getPose() {
+        return mPose;
+    }
+
+    /**
+     * Obtain the label, which is the semantic label ordinal of a plane, the action of a body, or the gesture
+     * type of a hand.
+     *
+     * @return Label.
+     */
+    public int getLabel() {
+        return mLabel;
+    }
+
+    public void setLabel(int label) {
+        mLabel = label;
+    }
+
+    /**
+     * Check whether the points are in the 3D camera coordinate system.
+     *
+     * @return true if the points are 3D coordinates; false if they are 2D screen coordinates.
+     */
+    public boolean is3dCoordinate() {
+        return mIs3dCoordinate;
+    }
+
+    public void set3dCoordinate(boolean is3dCoordinate) {
+        mIs3dCoordinate = is3dCoordinate;
+    }
+
+    /**
+     * Obtain the points. The array is not copied.
+     *
+     * @return Points of the trackable.
+     */
+    public float[] getPoints() {
+        return mPoints;
+    }
+
+    /**
+     * Set the points. The data is copied.
+     *
+     * @param points Points of the trackable.
+     */
+    public void setPoints(float[] points) {
+        mPoints = copyOf(points, mPoints);
+    }
+
+    public int[] getPointFlags() {
+        return mPointFlags;
+    }
+
+    public void setPointFlags(int[] pointFlags) {
+        mPointFlags = copyOf(pointFlags, mPointFlags);
+    }
+
+    /**
+     * Obtain the skeleton connections, which consist of the indexes of two end points, for example,
+     * [p0,p1;p0,p3;p0,p5;p1,p2].
+     *
+     * @return Skeleton connections. The array is not copied.
+     */
+    public int[] getConnections() {
+        return mConnections;
+    }
+
+    public void setConnections(int[] connections) {
+        mConnections = copyOf(connections, mConnections);
+    }
+
+    public float[] getBox() {
+        return mBox;
+    }
+
+    public void setBox(float[] box) {
+        mBox = copyOf(box, mBox);
+    }
+
+    /**
+     * Obtain the points array with the specified length for in-place writing. The array is reused if its
+     * length is unchanged.
+     *
+     * @param length Number of floats.
+     * @return Points array with the specified length.
+     */
+    public float[] obtainPoints(int length) {
+        if (mPoints.length != length) {
+            mPoints = new float[length];
+        }
+        return mPoints;
+    }
+
+    /**
+     * Obtain the point flags array with the specified length for in-place writing.
+     *
+     * @param length Number of flags.
+     * @return Point flags array with the specified length.
+     */
+    public int[] obtainPointFlags(int length) {
+        if (mPointFlags.length != length) {
+            mPointFlags = new int[length];
+        }
+        return mPointFlags;
+    }
+
+    /**
+     * Obtain the connections array with the specified length for in-place writing.
+     *
+     * @param length Number of indexes.
+     * @return Connections array with the specified length.
+     */
+    public int[] obtainConnections(int length) {
+        if (mConnections.length != length) {
+            mConnections = new int[length];
+        }
+        return mConnections;
+    }
+
+    /**
+     * Obtain the box array with the specified length for in-place writing.
+     *
+     * @param length Number of floats.
+     * @return Box array with the specified length.
+     */
+    public float[] obtainBox(int length) {
+        if (mBox.length != length) {
+            mBox = new float[length];
+        }
+        return mBox;
+    }
+
+    private static float[] copyOf(float[] src, float[] reuse) {
+        if (src == null || src.length == 0) {
+            return EMPTY_FLOATS;
+        }
+        float[] dst = reuse.length == src.length ? reuse : new float[src.length];
+        System.arraycopy(src, 0, dst, 0, src.length);
+        return dst;
+    }
+
+    private static int[] copyOf(int[] src, int[] reuse) {
+        if (src == null || src.length == 0) {
+            return EMPTY_INTS;
+        }
+        int[] dst = reuse.length == src.length ? reuse : new int[src.length];
+        System.arraycopy(src, 0, dst, 0, src.length);
+        return dst;
+    }
+}
@@ -0,0 +1,268 @@
+/*
+ * Copyright 2023. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.huawei.arengine.demos.common;
+
+import android.opengl.Matrix;
+
+import com.huawei.hiar.ARPose;
+
+/**
+ * Node of a transform hierarchy. The local matrix of a node is composed as pose * offset * translation *
+ * rotation * scale, and the world matrix is the world matrix of the parent multiplied by the local matrix.
+ * <p>
+ * The matrices are cached. Setting an input that differs from its current value marks the local matrix dirty,
+ * and the matrices are recomposed lazily when they are read. Each recomposition of the world matrix increases
+ * the version of the node, and a child recomposes its world matrix only when the version of its parent differs
+ * from the one it was composed with. The world-view matrix is cached for the latest view matrix, so drawing and
+ * hit testing in the same frame compute it once. The returned arrays must not be modified.
+ *
+ * @author HW
+ * @since 2023-06-12
+ */
+public class TransformNode {
+    private static final int MATRIX_SIZE = 16;
+
+    private final float[] mPoseMatrix = new float[MATRIX_SIZE];
+
+    private final float[] mOffsetMatrix = new float[MATRIX_SIZE];
+
+    private final float[] mTranslation = new float[3];
+
+    private final float[] mRotationAxis = {0.0f, 1.0f, 0.0f};
+
+    private final float[] mScale = {1.0f, 1.0f, 1.0f};
+
+    private final float[] mLocalMatrix = new float[MATRIX_SIZE];
+
+    private final float[] mWorldMatrix = new float[MATRIX_SIZE];
+
+    private final float[] mViewMatrix = new float[MATRIX_SIZE];
+
+    private final float[] mWorldViewMatrix = new float[MATRIX_SIZE];
+
+    /**
+     * Allocate a temporary matrix to compare the new pose with the current one without allocations.
+     */
+    private final float[] mPoseScratch = new float[MATRIX_SIZE];
+
+    private float mRotationAngle = 0.0f;
+
+    private TransformNode mParent = null;
+
+    private boolean mIsLocalDirty = true;
+
+    private int mWorldVersion = 0;
+
+    /**
+     * Version of the parent with which the world matrix was composed. A node without a parent uses version 0.
+     */
+    private int mParentVersion = -1;
+
+    /**
+     * Version of the world matrix with which the world-view matrix was composed.
+     */
+    private int mWorldViewVersion = -1;
+
+    /**
+     * Constructor.
+     */
+    public TransformNode() {
+        Matrix.setIdentityM(mPoseMatrix, 0);
+        Matrix.setIdentityM(mOffsetMatrix, 0);
+    }
+
+    /**
+     * Set the pose, for example, the pose of the anchor of the node.
+     *
+     * @param arPose Pose provided by AR Engine, or null for the identity.
+     */
+    public void setPose(ARPose arPose) {
+        if (arPose == null) {
+            Matrix.setIdentityM(mPoseScratch, 0);
+        } else {
+            arPose.toMatrix(mPoseScratch, 0);
+        }
+        setPoseMatrix(mPoseScratch, 0);
+    }
+
+    /**
+     * Set the pose matrix.
+     *
+     * @param poseMatrix Array that contains the pose matrix.
+     * @param offset Index of the first float of the matrix.
+     */
+    public void setPoseMatrix(float[] poseMatrix, int offset) {
+        if (copyIfChanged(poseMatrix, offset, mPoseMatrix)) {
+            mIsLocalDirty = true;
+        }
+    }
+
+    /**
+     * Set the offset matrix, which is applied between the pose and the translation, for example, the fixed
+     * scaling and orientation of a model.
+     *
+     * @param offsetMatrix Offset matrix 4 * 4.
+     */
+    public void setOffsetMatrix(float[] offsetMatrix) {
+        if (copyIfChanged(offsetMatrix, 0, mOffsetMatrix)) {
+            mIsLocalDirty = true;
+        }
+    }
+
+    /**
+     * Set the local translation.
+     *
+     * @param x Translation along the X axis.
+     * @param y Translation along the Y axis.
+     * @param z Translation along the Z axis.
+     */
+    public void setTranslation(float x, float y, float z) {
+        if (Float.compare(mTranslation[0], x) == 0 && Float.compare(mTranslation[1], y) == 0
+            && Float.compare(mTranslation[2], z) == 0) {
+            return;
+        }
+        mTranslation[0] = x;
+        mTranslation[1] = y;
+        mTranslation[2] = z;
+        mIsLocalDirty = true;
+    }
+
+    /**
+     * Set the local rotation.
+     *
+     * @param angle Rotation angle, in degrees.
+     * @param axisX X component of the rotation axis.
+     * @param axisY Y component of the rotation axis.
+     * @param axisZ Z component of the rotation axis.
+     */
+    public void setRotation(float angle, float axisX, float axisY, float axisZ) {
+        if (Float.compare(mRotationAngle, angle) == 0 && Float.compare(mRotationAxis[0], axisX) == 0
+            && Float.compare(mRotationAxis[1], axisY) == 0 && Float.compare(mRotationAxis[2], axisZ) == 0) {
+            return;
+        }
+        mRotationAngle = angle;
+        mRotationAxis[0] = axisX;
+        mRotationAxis[1] = axisY;
+        mRotationAxis[2] = axisZ;
+        mIsLocalDirty = true;
+    }
+
+    /**
+     * Set the local scale.
+     *
+     * @param x Scale along the X axis.
+     * @param y Scale along the Y axis.
+     * @param z Scale along the Z axis.
+     */
+    public void setScale(float x, float y, float z) {
+        if (Float.compare(mScale[0], x) == 0 && Float.compare(mScale[1], y) == 0
+            && Float.compare(mScale[2], z) == 0) {
+            return;
+        }
+        mScale[0] = x;
+        mScale[1] = y;
+        mScale[2] = z;
+        mIsLocalDirty = true;
+    }
+
+    /**
+     * Attach the node to a parent, whose world matrix is applied before the local matrix of the node.
+     *
+     * @param parent Parent node, or null to detach the node.
+     */
+    public void setParent(TransformNode parent) {
+        for (TransformNode node = parent; node != null; node = node.mParent) {
+            if (node == this) {
+                throw new IllegalArgumentException("The parent is a descendant of the node.");
+            }
+        }
+        if (mParent != parent) {
+            mParent = parent;
+            mParentVersion = -1;
+        }
+    }
+
+    /**
+     * Obtain the parent of the node.
+     *
+     * @return Parent node, or null if the node is a root.
+     */
+    public TransformNode getParent() {
+        return mParent;
+    }
+
+    /**
+     * Obtain the world matrix, which is recomposed only if an input of the node or of an ancestor has changed.
+     *
+     * @return World matrix 4 * 4, which must not be modified.
+     */
+    public float[] getWorldMatrix() {
+        updateWorldMatrix();
+        return mWorldMatrix;
+    }
+
+    /**
+     * Obtain the world-view matrix, which is recomposed only if the view matrix or the world matrix has changed.
+     *
+     * @param viewMatrix View matrix 4 * 4.
+     * @return World-view matrix 4 * 4, which must not be modified.
+     */
+    public float[] getWorldViewMatrix(float[] viewMatrix) {
+        updateWorldMatrix();
+        if (copyIfChanged(viewMatrix, 0, mViewMatrix) || mWorldViewVersion != mWorldVersion) {
+            Matrix.multiplyMM(mWorldViewMatrix, 0, mViewMatrix, 0, mWorldMatrix, 0);
+            mWorldViewVersion = mWorldVersion;
+        }
+        return mWorldViewMatrix;
+    }
+
+    private void updateWorldMatrix() {
+        int parentVersion = 0;
+        if (mParent != null) {
+            mParent.updateWorldMatrix();
+            parentVersion = mParent.mWorldVersion;
+        }
+        if (!mIsLocalDirty && parentVersion == mParentVersion) {
+            return;
+        }
+        if (mIsLocalDirty) {
+            Matrix.multiplyMM(mLocalMatrix, 0, mPoseMatrix, 0, mOffsetMatrix, 0);
+            Matrix.translateM(mLocalMatrix, 0, mTranslation[0], mTranslation[1], mTranslation[2]);
+            Matrix.rotateM(mLocalMatrix, 0, mRotationAngle, mRotationAxis[0], mRotationAxis[1], mRotationAxis[2]);
+            Matrix.scaleM(mLocalMatrix, 0, mScale[0], mScale[1], mScale[2]);
+            mIsLocalDirty = false;
+        }
+        if (mParent == null) {
+            System.arraycopy(mLocalMatrix, 0, mWorldMatrix, 0, MATRIX_SIZE);
+        } else {
+            Matrix.multiplyMM(mWorldMatrix, 0, mParent.mWorldMatrix, 0, mLocalMatrix, 0);
+        }
+        mParentVersion = parentVersion;
+        mWorldVersion++;
+    }
+
+    private static boolean copyIfChanged(float[] src, int srcOffset, float[] dest) {
+        boolean isChanged = false;
+        for (int i = 0; i < MATRIX_SIZE; i++) {
+            if (Float.compare(dest[i], src[srcOffset + i]) != 0) {
+                dest[i] = src[srcOffset + i];
+                isChanged = true;
+            }
+        }
+        return isChanged;
+    }
+}
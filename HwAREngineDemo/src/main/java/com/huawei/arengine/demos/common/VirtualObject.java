@@ -52,13 +52,16 @@ public class VirtualObject {
 
     private float[] mObjectColors = new float[COLOR_SIZE];
 
-    private float[] mModelMatrix = new float[MATRIX_SIZE];
+    /**
+     * Color returned by {@link #getColor}, which is refilled on each call instead of allocating a new array.
+     */
+    private final float[] mDisplayColor = new float[COLOR_SIZE];
 
-    private boolean mIsSelectedFlag = false;
+    private float[] mModelMatrix = new float[MATRIX_SIZE];
 
-    private float mRotationAngle = 0.0f;
+    private final TransformNode mTransform = new TransformNode();
 
-    private float mScaleFactor = INIT_SCALE;
+    private boolean mIsSelectedFlag = false;
 
     /**
      * The constructor initializes the pose of the virtual object in a space and the
@@ -72,6 +75,7 @@ public class VirtualObject {
         mArAnchor = arAnchor;
         mArPose = arAnchor.getPose();
         initWorldModel();
+        initTransform();
     }
 
     /**
@@ -85,6 +89,7 @@ public class VirtualObject {
         mObjectColors = Arrays.copyOf(color4f, color4f.length);
         mArPose = arPose;
         initInstantModel();
+        initTransform();
     }
 
     /**
@@ -113,6 +118,12 @@ public class VirtualObject {
         Matrix.rotateM(mModelMatrix, 0, ROTATION_ANGLE_Y, 0.0f, 1.0f, 0.0f);
     }
 
+    private void initTransform() {
+        mTransform.setPose(mArPose);
+        mTransform.setOffsetMatrix(mModelMatrix);
+        mTransform.setScale(INIT_SCALE, INIT_SCALE, INIT_SCALE);
+    }
+
     private void initScale() {
         // Set a scaling matrix, in which the elements of the principal diagonal is the scaling coefficient.
         Matrix.setIdentityM(mModelMatrix, 0);
@@ -132,6 +143,7 @@ public class VirtualObject {
         }
         mArAnchor = arAnchor;
         mArPose = arAnchor.getPose();
+        mTransform.setPose(mArPose);
     }
 
     /**
@@ -150,6 +162,7 @@ public class VirtualObject {
      */
     public void setArPose(ARPose arPose) {
         mArPose = arPose;
+        mTransform.setPose(arPose);
     }
 
     /**
@@ -162,21 +175,21 @@ public class VirtualObject {
     }
 
     /**
-     *  Obtain the anchor information of a virtual object corresponding to the class.
+     * Obtain the color of the virtual object, which is inverted while the object is selected. The returned array
+     * is reused by the next call and must not be modified.
      *
      * @return Color of the virtual object, returned in an array with a length of 4.
      */
     public float[] getColor() {
-        float[] rets = new float[4];
         if (mIsSelectedFlag) {
-            rets[0] = 255.0f - mObjectColors[0];
-            rets[1] = 255.0f - mObjectColors[1];
-            rets[2] = 255.0f - mObjectColors[2];
-            rets[3] = mObjectColors[3];
-            return rets;
+            mDisplayColor[0] = 255.0f - mObjectColors[0];
+            mDisplayColor[1] = 255.0f - mObjectColors[1];
+            mDisplayColor[2] = 255.0f - mObjectColors[2];
+            mDisplayColor[3] = mObjectColors[3];
         } else {
-            return Arrays.copyOf(mObjectColors, mObjectColors.length);
+            System.arraycopy(mObjectColors, 0, mDisplayColor, 0, COLOR_SIZE);
         }
+        return mDisplayColor;
     }
 
     /**
@@ -196,7 +209,8 @@ public class VirtualObject {
      * @param scaleFactor Zoom ratio.
      */
     public void updateScaleFactor(float scaleFactor) {
-        mScaleFactor = INSTANT_SCALE_FACTOR * scaleFactor;
+        float scale = INSTANT_SCALE_FACTOR * scaleFactor;
+        mTransform.setScale(scale, scale, scale);
     }
 
     /**
@@ -205,29 +219,27 @@ public class VirtualObject {
      * @param angle Rotation angle.
      */
     public void updateRotation(float angle) {
-        mRotationAngle = angle;
+        // Rotate the object along the Y axis by a certain angle.
+        mTransform.setRotation(angle, 0.0f, 1.0f, 0.0f);
     }
 
     /**
-     * Obtain the ArPose matrix data of the current virtual object.
+     * Obtain the ArPose matrix data of the current virtual object. The matrix is cached and only recomputed after
+     * the pose, scale, or rotation has changed.
      *
-     * @return ArPose matrix data of the current virtual object.
+     * @return ArPose matrix data of the current virtual object, which must not be modified.
      */
     public float[] getModelArPoseMatrix() {
-        float[] modelMatrix = new float[MATRIX_SIZE];
-        if (mArPose != null) {
-            mArPose.toMatrix(modelMatrix, 0);
-        } else {
-            Matrix.setIdentityM(modelMatrix, 0);
-        }
-        float[] rets = new float[MATRIX_SIZE];
-        Matrix.multiplyMM(rets, 0, modelMatrix, 0, mModelMatrix, 0);
-
-        // Rotate the camera along the Y axis by a certain angle.
-        Matrix.rotateM(rets, 0, mRotationAngle, 0.0f, 1.0f, 0.0f);
-        Matrix.scaleM(rets, 0, mScaleFactor, mScaleFactor, mScaleFactor);
+        return mTransform.getWorldMatrix();
+    }
 
-        return rets;
+    /**
+     * Obtain the transform node of the virtual object, for example, to attach other nodes to the object.
+     *
+     * @return Transform node of the virtual object.
+     */
+    public TransformNode getTransform() {
+        return mTransform;
     }
 
     /**
@@ -0,0 +1,676 @@
+/*
+ * Copyright 2023. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.huawei.arengine.demos.common;
+
+import com.huawei.hiar.ARAnchor;
+import com.huawei.hiar.ARPose;
+import com.huawei.hiar.ARTrackable;
+
+import java.util.Arrays;
+
+/**
+ * Store of placed virtual objects, which keeps the attributes of all objects in packed primitive arrays instead
+ * of one {@link VirtualObject} per object. Each object occupies a slot; the pose matrix and the model matrix of
+ * a slot start at slot * {@link #MATRIX_SIZE}, and its colors start at slot * {@link #COLOR_SIZE}. Freed slots
+ * are reused through a free list, and the arrays only grow when all slots are in use.
+ * <p>
+ * Objects are referenced by handles that stay valid until the object is removed. A handle holds the slot and the
+ * generation of the slot, so the handle of a removed object is not mistaken for the object that reuses its slot.
+ * Iterating over the objects with {@link #size}, {@link #getSlot}, {@link #getVisibleCount}, and
+ * {@link #getVisibleSlot} does not allocate memory. All methods should be called on the GL thread.
+ *
+ * @author HW
+ * @since 2023-06-12
+ */
+public class VirtualObjectStore {
+    /**
+     * Handle that does not reference any object.
+     */
+    public static final int INVALID_HANDLE = -1;
+
+    /**
+     * Number of floats of a matrix.
+     */
+    public static final int MATRIX_SIZE = 16;
+
+    /**
+     * Number of floats of a color.
+     */
+    public static final int COLOR_SIZE = 4;
+
+    private static final String TAG = "VirtualObjectStore";
+
+    private static final int SLOT_BITS = 16;
+
+    private static final int SLOT_MASK = (1 << SLOT_BITS) - 1;
+
+    private static final int MAX_CAPACITY = 1 << SLOT_BITS;
+
+    /**
+     * Generations are limited to 15 bits so that valid handles are never negative.
+     */
+    private static final int GENERATION_MASK = 0x7FFF;
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private static final float SCALE_FACTOR = 0.15f;
+
+    private static final float ROTATION_ANGLE = 315.0f;
+
+    private static final float INIT_SCALE = 2.0f;
+
+    private static final float MAX_COLOR_VALUE = 255.0f;
+
+    /**
+     * Scaling and rotation shared by all objects, which matches {@link VirtualObject} created with an anchor.
+     */
+    private final float[] mBaseModelMatrix = new float[MATRIX_SIZE];
+
+    /**
+     * Allocate a temporary matrix to compare the pose of an anchor with the stored one without allocations.
+     */
+    private final float[] mPoseScratch = new float[MATRIX_SIZE];
+
+    private ARAnchor[] mAnchors;
+
+    private float[] mPoseMatrices;
+
+    private float[] mModelMatrices;
+
+    private float[] mScales;
+
+    private float[] mRotations;
+
+    private float[] mColors;
+
+    /**
+     * Colors used for drawing, which are inverted for the selected object.
+     */
+    private float[] mDisplayColors;
+
+    private boolean[] mIsAlive;
+
+    private boolean[] mIsSelected;
+
+    private boolean[] mIsDirty;
+
+    /**
+     * Objects whose pose is set by {@link #setPoseMatrix} instead of their anchor, for example, while dragged.
+     */
+    private boolean[] mIsPoseOverridden;
+
+    private int[] mGenerations;
+
+    private int[] mFreeSlots;
+
+    private int mFreeCount = 0;
+
+    /**
+     * Slots that have never been used start at this index.
+     */
+    private int mUnusedSlot = 0;
+
+    /**
+     * Slots of all objects in the order in which they are added.
+     */
+    private int[] mLiveSlots;
+
+    private int mLiveCount = 0;
+
+    /**
+     * Slots of the objects that are drawn in the current frame.
+     */
+    private int[] mVisibleSlots;
+
+    private int mVisibleCount = 0;
+
+    /**
+     * Increased when an object is added or removed.
+     */
+    private int mStructureVersion = 0;
+
+    /**
+     * Increased when the set of objects that are drawn in the current frame changes.
+     */
+    private int mVisibleVersion = 0;
+
+    /**
+     * Increased when a model matrix is recomputed.
+     */
+    private int mTransformVersion = 0;
+
+    /**
+     * Constructor.
+     */
+    public VirtualObjectStore() {
+        allocate(DEFAULT_CAPACITY);
+        mBaseModelMatrix[0] = SCALE_FACTOR;
+        mBaseModelMatrix[5] = SCALE_FACTOR;
+        mBaseModelMatrix[10] = SCALE_FACTOR;
+        mBaseModelMatrix[15] = 1.0f;
+
+        // Rotate the object along the Y axis by a certain angle.
+        rotateY(mBaseModelMatrix, 0, ROTATION_ANGLE);
+    }
+
+    private void allocate(int capacity) {
+        mAnchors = mAnchors == null ? new ARAnchor[capacity] : Arrays.copyOf(mAnchors, capacity);
+        mPoseMatrices = grow(mPoseMatrices, capacity * MATRIX_SIZE);
+        mModelMatrices = grow(mModelMatrices, capacity * MATRIX_SIZE);
+        mScales = grow(mScales, capacity);
+        mRotations = grow(mRotations, capacity);
+        mColors = grow(mColors, capacity * COLOR_SIZE);
+        mDisplayColors = grow(mDisplayColors, capacity * COLOR_SIZE);
+        mIsAlive = mIsAlive == null ? new boolean[capacity] : Arrays.copyOf(mIsAlive, capacity);
+        mIsSelected = mIsSelected == null ? new boolean[capacity] : Arrays.copyOf(mIsSelected, capacity);
+        mIsDirty = mIsDirty == null ? new boolean[capacity] : Arrays.copyOf(mIsDirty, capacity);
+        mIsPoseOverridden = mIsPoseOverridden == null ? new boolean[capacity]
+            : Arrays.copyOf(mIsPoseOverridden, capacity);
+        mGenerations = grow(mGenerations, capacity);
+        mFreeSlots = grow(mFreeSlots, capacity);
+        mLiveSlots = grow(mLiveSlots, capacity);
+        mVisibleSlots = grow(mVisibleSlots, capacity);
+    }
+
+    private static float[] grow(float[] array, int length) {
+        return array == null ? new float[length] : Arrays.copyOf(array, length);
+    }
+
+    private static int[] grow(int[] array, int length) {
+        return array == null ? new int[length] : Arrays.copyOf(array, length);
+    }
+
+    /**
+     * Add an object at an anchor. The object follows the pose of the anchor in {@link #update}.
+     *
+     * @param arAnchor Anchor of the object.
+     * @param color4f Color data in an array with a length of 4.
+     * @return Handle of the object, or {@link #INVALID_HANDLE} if the store is full, in which case the anchor is
+     *         detached.
+     */
+    public int add(ARAnchor arAnchor, float[] color4f) {
+        int handle = add(arAnchor.getPose(), color4f);
+        if (handle == INVALID_HANDLE) {
+            arAnchor.detach();
+        } else {
+            mAnchors[handle & SLOT_MASK] = arAnchor;
+        }
+        return handle;
+    }
+
+    /**
+     * Add an object at a fixed pose.
+     *
+     * @param arPose Pose of the object.
+     * @param color4f Color data in an array with a length of 4.
+     * @return Handle of the object, or {@link #INVALID_HANDLE} if the store is full.
+     */
+    public int add(ARPose arPose, float[] color4f) {
+        arPose.toMatrix(mPoseScratch, 0);
+        return add(mPoseScratch, color4f);
+    }
+
+    /**
+     * Add an object at a fixed pose matrix.
+     *
+     * @param poseMatrix Pose matrix 4 * 4.
+     * @param color4f Color data in an array with a length of 4.
+     * @return Handle of the object, or {@link #INVALID_HANDLE} if the store is full.
+     */
+    public int add(float[] poseMatrix, float[] color4f) {
+        int slot = allocateSlot();
+        if (slot < 0) {
+            LogUtil.warn(TAG, "The store is full.");
+            return INVALID_HANDLE;
+        }
+        System.arraycopy(poseMatrix, 0, mPoseMatrices, slot * MATRIX_SIZE, MATRIX_SIZE);
+        mAnchors[slot] = null;
+        mIsAlive[slot] = true;
+        mScales[slot] = INIT_SCALE;
+        mRotations[slot] = 0.0f;
+        mIsSelected[slot] = false;
+        mIsPoseOverridden[slot] = false;
+        System.arraycopy(color4f, 0, mColors, slot * COLOR_SIZE, COLOR_SIZE);
+        updateDisplayColor(slot);
+        updateModelMatrix(slot);
+        mLiveSlots[mLiveCount++] = slot;
+        mStructureVersion++;
+        return (mGenerations[slot] << SLOT_BITS) | slot;
+    }
+
+    private int allocateSlot() {
+        if (mFreeCount > 0) {
+            return mFreeSlots[--mFreeCount];
+        }
+        if (mUnusedSlot == mScales.length) {
+            if (mUnusedSlot == MAX_CAPACITY) {
+                return -1;
+            }
+            allocate(Math.min(MAX_CAPACITY, mUnusedSlot * 2));
+        }
+        return mUnusedSlot++;
+    }
+
+    /**
+     * Remove an object and detach its anchor.
+     *
+     * @param handle Handle of the object.
+     * @return true if the object existed.
+     */
+    public boolean remove(int handle) {
+        if (!isValid(handle)) {
+            return false;
+        }
+        int slot = handle & SLOT_MASK;
+        if (mAnchors[slot] != null) {
+            mAnchors[slot].detach();
+            mAnchors[slot] = null;
+        }
+        mIsAlive[slot] = false;
+        mLiveCount = removeSlot(mLiveSlots, mLiveCount, slot);
+        int visibleCount = removeSlot(mVisibleSlots, mVisibleCount, slot);
+        if (visibleCount != mVisibleCount) {
+            mVisibleCount = visibleCount;
+            mVisibleVersion++;
+        }
+        mGenerations[slot] = (mGenerations[slot] + 1) & GENERATION_MASK;
+        mFreeSlots[mFreeCount++] = slot;
+        mStructureVersion++;
+        return true;
+    }
+
+    /**
+     * Remove a slot from a list and keep the order of the others.
+     *
+     * @param slots Slot list.
+     * @param count Number of slots in the list.
+     * @param slot Slot to be removed.
+     * @return Number of slots in the list after the removal.
+     */
+    private static int removeSlot(int[] slots, int count, int slot) {
+        for (int i = 0; i < count; i++) {
+            if (slots[i] == slot) {
+                System.arraycopy(slots, i + 1, slots, i, count - i - 1);
+                return count - 1;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Remove the object that was added first.
+     *
+     * @return true if an object was removed.
+     */
+    public boolean removeOldest() {
+        return mLiveCount > 0 && remove(getHandle(0));
+    }
+
+    /**
+     * Remove all objects and detach their anchors.
+     */
+    public void clear() {
+        while (mLiveCount > 0) {
+            remove(getHandle(mLiveCount - 1));
+        }
+    }
+
+    /**
+     * Check whether a handle references an existing object.
+     *
+     * @param handle Handle of the object.
+     * @return true if the object exists.
+     */
+    public boolean isValid(int handle) {
+        if (handle < 0) {
+            return false;
+        }
+        int slot = handle & SLOT_MASK;
+        return slot < mUnusedSlot && mIsAlive[slot] && mGenerations[slot] == handle >>> SLOT_BITS;
+    }
+
+    /**
+     * Refresh the poses of the anchored objects, remove the objects whose anchors are no longer tracked, and
+     * collect the objects to be drawn in the current frame. Model matrices are recomputed only for the objects
+     * whose pose, scale, or rotation has changed. Call it once per frame before drawing.
+     */
+    public void update() {
+        for (int i = mLiveCount - 1; i >= 0; i--) {
+            int slot = mLiveSlots[i];
+            ARAnchor anchor = mAnchors[slot];
+
+            // An object with an overridden pose is kept, so that a drag can still anchor it again.
+            if (anchor != null && !mIsPoseOverridden[slot]
+                && anchor.getTrackingState() == ARTrackable.TrackingState.STOPPED) {
+                remove(getHandle(i));
+            }
+        }
+
+        int lastVisibleCount = mVisibleCount;
+        boolean isVisibleChanged = false;
+        mVisibleCount = 0;
+        for (int i = 0; i < mLiveCount; i++) {
+            int slot = mLiveSlots[i];
+            ARAnchor anchor = mAnchors[slot];
+            if (anchor != null && !mIsPoseOverridden[slot]) {
+                if (anchor.getTrackingState() != ARTrackable.TrackingState.TRACKING) {
+                    continue;
+                }
+                anchor.getPose().toMatrix(mPoseScratch, 0);
+                updatePoseMatrix(slot);
+            }
+            if (mIsDirty[slot]) {
+                updateModelMatrix(slot);
+            }
+            if (mVisibleCount >= lastVisibleCount || mVisibleSlots[mVisibleCount] != slot) {
+                isVisibleChanged = true;
+            }
+            mVisibleSlots[mVisibleCount++] = slot;
+        }
+        if (isVisibleChanged || mVisibleCount != lastVisibleCount) {
+            mVisibleVersion++;
+        }
+    }
+
+    private void updateModelMatrix(int slot) {
+        int offset = slot * MATRIX_SIZE;
+        MatrixUtil.multiplyMM(mModelMatrices, offset, mPoseMatrices, offset, mBaseModelMatrix, 0);
+
+        // Rotate the object along the Y axis by a certain angle.
+        rotateY(mModelMatrices, offset, mRotations[slot]);
+
+        // Scale the first three columns, as Matrix.scaleM does with the same factor on each axis.
+        for (int i = 0; i < MATRIX_SIZE - 4; i++) {
+            mModelMatrices[offset + i] *= mScales[slot];
+        }
+        mIsDirty[slot] = false;
+        mTransformVersion++;
+    }
+
+    /**
+     * Multiply a matrix by a rotation around the Y axis, as Matrix.rotateM does with the axis (0, 1, 0). Only the
+     * first and the third columns change, so the model matrices are computed in Java without the Android
+     * framework.
+     *
+     * @param matrix Array that contains the matrix.
+     * @param offset Index of the first float of the matrix.
+     * @param angle Rotation angle in degrees.
+     */
+    private static void rotateY(float[] matrix, int offset, float angle) {
+        float radians = (float) Math.toRadians(angle);
+        float sin = (float) Math.sin(radians);
+        float cos = (float) Math.cos(radians);
+        for (int row = 0; row < 4; row++) {
+            float column0 = matrix[offset + row];
+            float column2 = matrix[offset + 8 + row];
+            matrix[offset + row] = column0 * cos - column2 * sin;
+            matrix[offset + 8 + row] = column0 * sin + column2 * cos;
+        }
+    }
+
+    private void updateDisplayColor(int slot) {
+        int offset = slot * COLOR_SIZE;
+        if (mIsSelected[slot]) {
+            mDisplayColors[offset] = MAX_COLOR_VALUE - mColors[offset];
+            mDisplayColors[offset + 1] = MAX_COLOR_VALUE - mColors[offset + 1];
+            mDisplayColors[offset + 2] = MAX_COLOR_VALUE - mColors[offset + 2];
+            mDisplayColors[offset + 3] = mColors[offset + 3];
+        } else {
+            System.arraycopy(mColors, offset, mDisplayColors, offset, COLOR_SIZE);
+        }
+    }
+
+    /**
+     * Replace the anchor of an object and detach the previous one. The object follows the new anchor even if its
+     * pose was overridden by {@link #setPoseMatrix}.
+     *
+     * @param handle Handle of the object.
+     * @param arAnchor New anchor.
+     */
+    public void setAnchor(int handle, ARAnchor arAnchor) {
+        if (!isValid(handle)) {
+            arAnchor.detach();
+            return;
+        }
+        int slot = handle & SLOT_MASK;
+        if (mAnchors[slot] != null) {
+            mAnchors[slot].detach();
+        }
+        mAnchors[slot] = arAnchor;
+        mIsPoseOverridden[slot] = false;
+        arAnchor.getPose().toMatrix(mPoseScratch, 0);
+        updatePoseMatrix(slot);
+    }
+
+    /**
+     * Move an object to a fixed pose, for example, while it is dragged. The anchor of the object is kept but no
+     * longer moves the object, until {@link #setAnchor} or {@link #clearPoseOverride} is called, so that the object
+     * is not left without an anchor if the drag cannot be anchored.
+     *
+     * @param handle Handle of the object.
+     * @param poseMatrix Pose matrix 4 * 4.
+     */
+    public void setPoseMatrix(int handle, float[] poseMatrix) {
+        if (!isValid(handle)) {
+            return;
+        }
+        int slot = handle & SLOT_MASK;
+        mIsPoseOverridden[slot] = mAnchors[slot] != null;
+        System.arraycopy(poseMatrix, 0, mPoseScratch, 0, MATRIX_SIZE);
+        updatePoseMatrix(slot);
+    }
+
+    /**
+     * Let an object follow its anchor again after {@link #setPoseMatrix}. An object without an anchor keeps its
+     * pose.
+     *
+     * @param handle Handle of the object.
+     */
+    public void clearPoseOverride(int handle) {
+        if (isValid(handle)) {
+            mIsPoseOverridden[handle & SLOT_MASK] = false;
+        }
+    }
+
+    /**
+     * Copy the pose in the scratch matrix to a slot, and mark the model matrix dirty only if the pose changed.
+     *
+     * @param slot Slot of the object.
+     */
+    private void updatePoseMatrix(int slot) {
+        int offset = slot * MATRIX_SIZE;
+        for (int i = 0; i < MATRIX_SIZE; i++) {
+            if (Float.compare(mPoseMatrices[offset + i], mPoseScratch[i]) != 0) {
+                System.arraycopy(mPoseScratch, 0, mPoseMatrices, offset, MATRIX_SIZE);
+                mIsDirty[slot] = true;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Set the selection status of an object. The selected object is drawn in the inverted color.
+     *
+     * @param handle Handle of the object.
+     * @param isSelected Whether the object is selected.
+     */
+    public void setSelected(int handle, boolean isSelected) {
+        if (!isValid(handle)) {
+            return;
+        }
+        int slot = handle & SLOT_MASK;
+        mIsSelected[slot] = isSelected;
+        updateDisplayColor(slot);
+    }
+
+    /**
+     * Check whether an object is selected.
+     *
+     * @param handle Handle of the object.
+     * @return true if the object exists and is selected.
+     */
+    public boolean isSelected(int handle) {
+        return isValid(handle) && mIsSelected[handle & SLOT_MASK];
+    }
+
+    /**
+     * Set the color of an object.
+     *
+     * @param handle Handle of the object.
+     * @param color4f Color data in an array with a length of 4.
+     */
+    public void setColor(int handle, float[] color4f) {
+        if (!isValid(handle) || color4f == null || color4f.length != COLOR_SIZE) {
+            return;
+        }
+        int slot = handle & SLOT_MASK;
+        System.arraycopy(color4f, 0, mColors, slot * COLOR_SIZE, COLOR_SIZE);
+        updateDisplayColor(slot);
+    }
+
+    /**
+     * Set the scale of an object.
+     *
+     * @param handle Handle of the object.
+     * @param scale Scale applied after the base scaling.
+     */
+    public void setScale(int handle, float scale) {
+        if (isValid(handle)) {
+            mScales[handle & SLOT_MASK] = scale;
+            mIsDirty[handle & SLOT_MASK] = true;
+        }
+    }
+
+    /**
+     * Set the rotation angle of an object around the Y axis.
+     *
+     * @param handle Handle of the object.
+     * @param angle Rotation angle, in degrees.
+     */
+    public void setRotation(int handle, float angle) {
+        if (isValid(handle)) {
+            mRotations[handle & SLOT_MASK] = angle;
+            mIsDirty[handle & SLOT_MASK] = true;
+        }
+    }
+
+    /**
+     * Obtain the number of objects.
+     *
+     * @return Number of objects.
+     */
+    public int size() {
+        return mLiveCount;
+    }
+
+    /**
+     * Obtain the slot of an object.
+     *
+     * @param index Index of the object, from 0 to {@link #size} - 1, in the order in which they are added.
+     * @return Slot of the object.
+     */
+    public int getSlot(int index) {
+        return mLiveSlots[index];
+    }
+
+    /**
+     * Obtain the handle of an object.
+     *
+     * @param index Index of the object, from 0 to {@link #size} - 1, in the order in which they are added.
+     * @return Handle of the object.
+     */
+    public int getHandle(int index) {
+        return getSlotHandle(mLiveSlots[index]);
+    }
+
+    /**
+     * Obtain the handle of the object in a slot.
+     *
+     * @param slot Slot of a live object, for example, one returned by {@link #getVisibleSlot}.
+     * @return Handle of the object.
+     */
+    public int getSlotHandle(int slot) {
+        return (mGenerations[slot] << SLOT_BITS) | slot;
+    }
+
+    /**
+     * Obtain the number of objects to be drawn in the current frame.
+     *
+     * @return Number of visible objects.
+     */
+    public int getVisibleCount() {
+        return mVisibleCount;
+    }
+
+    /**
+     * Obtain the slot of an object to be drawn in the current frame.
+     *
+     * @param index Index of the visible object, from 0 to {@link #getVisibleCount} - 1.
+     * @return Slot of the object.
+     */
+    public int getVisibleSlot(int index) {
+        return mVisibleSlots[index];
+    }
+
+    /**
+     * Obtain the version of the set of objects, which changes when an object is added or removed.
+     *
+     * @return Structure version.
+     */
+    public int getStructureVersion() {
+        return mStructureVersion;
+    }
+
+    /**
+     * Obtain the version of the set of visible objects, which changes when an object starts or stops being drawn,
+     * for example, when its anchor starts or stops tracking.
+     *
+     * @return Visible version.
+     */
+    public int getVisibleVersion() {
+        return mVisibleVersion;
+    }
+
+    /**
+     * Obtain the version of the model matrices, which changes when any model matrix is recomputed.
+     *
+     * @return Transform version.
+     */
+    public int getTransformVersion() {
+        return mTransformVersion;
+    }
+
+    /**
+     * Obtain the model matrices of all slots. The array must not be modified and may be replaced when the store
+     * grows.
+     *
+     * @return Model matrices, {@link #MATRIX_SIZE} floats per slot.
+     */
+    public float[] getModelMatrices() {
+        return mModelMatrices;
+    }
+
+    /**
+     * Obtain the colors used to draw all slots. The array must not be modified and may be replaced when the
+     * store grows.
+     *
+     * @return Colors, {@link #COLOR_SIZE} floats per slot.
+     */
+    public float[] getDisplayColors() {
+        return mDisplayColors;
+    }
+}
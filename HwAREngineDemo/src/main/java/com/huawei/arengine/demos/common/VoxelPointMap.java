@@ -0,0 +1,425 @@
+/*
+ * Copyright 2023. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.huawei.arengine.demos.common;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+/**
+ * Point map that accumulates the feature points of many frames. Points are grouped into cubic voxels, and each
+ * voxel keeps the running mean position, the maximum confidence, and the last frame in which it was seen. Voxels
+ * that are not seen for a number of frames are evicted.
+ * <p>
+ * The voxels are found through an open-addressing hash table from the packed voxel coordinates (a long) to the
+ * index of the voxel (an int), with linear probing and backward-shift deletion, so that no key is boxed and no
+ * tombstone is left. The voxels are stored densely in primitive arrays; an evicted voxel is replaced by the last
+ * one. The points to be drawn are kept in a direct buffer with four floats per voxel (X, Y, Z and confidence), in
+ * which only the voxels changed since the last {@link #flush} are rewritten. All storage is allocated by the
+ * constructor.
+ *
+ * @author HW
+ * @since 2023-06-12
+ */
+public class VoxelPointMap {
+    /**
+     * Number of floats per point in the input and output buffers: X, Y, Z and confidence.
+     */
+    public static final int FLOATS_PER_POINT = 4;
+
+    private static final int BYTES_PER_FLOAT = Float.SIZE / Byte.SIZE;
+
+    /**
+     * Each voxel coordinate is stored in 21 bits, so a key uses 63 bits and is never negative.
+     */
+    private static final int COORDINATE_BITS = 21;
+
+    private static final int COORDINATE_OFFSET = 1 << (COORDINATE_BITS - 1);
+
+    /**
+     * Key that marks an empty slot, and a point out of range. Valid keys are never negative.
+     */
+    static final long EMPTY_KEY = -1L;
+
+    /**
+     * The running mean weighs new points at least with 1 / MAX_MEAN_COUNT, so that it keeps following the drift
+     * corrections of AR Engine.
+     */
+    private static final int MAX_MEAN_COUNT = 64;
+
+    private final float mInverseVoxelSize;
+
+    private final int mMaxVoxels;
+
+    private final long[] mTableKeys;
+
+    private final int[] mTableValues;
+
+    private final int mTableMask;
+
+    private final long[] mKeys;
+
+    private final float[] mMeans;
+
+    private final int[] mCounts;
+
+    private final float[] mConfidences;
+
+    private final int[] mLastSeenFrames;
+
+    private final boolean[] mIsDirty;
+
+    private final int[] mDirtyIndices;
+
+    private final FloatBuffer mPoints;
+
+    private int mSize = 0;
+
+    private int mDirtyCount = 0;
+
+    private int mFrame = 0;
+
+    private int mVersion = 0;
+
+    private boolean mIsChanged = false;
+
+    private long mDroppedCount = 0L;
+
+    private long mEvictedCount = 0L;
+
+    /**
+     * Constructor.
+     *
+     * @param voxelSize Edge length of a voxel, in meters.
+     * @param maxVoxels Maximum number of voxels. Points in new voxels are dropped when the map is full.
+     */
+    public VoxelPointMap(float voxelSize, int maxVoxels) {
+        if (voxelSize <= 0.0f || maxVoxels <= 0) {
+            throw new IllegalArgumentException("The voxel size and the maximum number of voxels must be positive.");
+        }
+        mInverseVoxelSize = 1.0f / voxelSize;
+        mMaxVoxels = maxVoxels;
+
+        // Keep the load factor of the table at most 0.5, so that probe sequences stay short.
+        int tableSize = Integer.highestOneBit(maxVoxels) << 2;
+        mTableKeys = new long[tableSize];
+        mTableValues = new int[tableSize];
+        mTableMask = tableSize - 1;
+        Arrays.fill(mTableKeys, EMPTY_KEY);
+
+        mKeys = new long[maxVoxels];
+        mMeans = new float[maxVoxels * 3];
+        mCounts = new int[maxVoxels];
+        mConfidences = new float[maxVoxels];
+        mLastSeenFrames = new int[maxVoxels];
+        mIsDirty = new boolean[maxVoxels];
+        mDirtyIndices = new int[maxVoxels];
+        mPoints = ByteBuffer.allocateDirect(maxVoxels * FLOATS_PER_POINT * BYTES_PER_FLOAT)
+            .order(ByteOrder.nativeOrder()).asFloatBuffer();
+        mPoints.limit(0);
+    }
+
+    /**
+     * Start a new frame. Points inserted after this call are seen in the new frame.
+     */
+    public void beginFrame() {
+        mFrame++;
+    }
+
+    /**
+     * Insert the points of a buffer, from its position to its limit. The position is not changed.
+     *
+     * @param points Points with four floats each: X, Y, Z and confidence.
+     */
+    public void insert(FloatBuffer points) {
+        int end = points.limit() - FLOATS_PER_POINT;
+        for (int i = points.position(); i <= end; i += FLOATS_PER_POINT) {
+            insert(points.get(i), points.get(i + 1), points.get(i + 2), points.get(i + 3));
+        }
+    }
+
+    /**
+     * Insert a point into its voxel.
+     *
+     * @param x X coordinate, in meters.
+     * @param y Y coordinate, in meters.
+     * @param z Z coordinate, in meters.
+     * @param confidence Confidence of the point.
+     */
+    public void insert(float x, float y, float z, float confidence) {
+        long key = toKey(x, y, z, mInverseVoxelSize);
+        if (key == EMPTY_KEY) {
+            mDroppedCount++;
+            return;
+        }
+        int index = findOrAdd(key);
+        if (index < 0) {
+            mDroppedCount++;
+            return;
+        }
+        int count = mCounts[index];
+        if (count < MAX_MEAN_COUNT) {
+            count++;
+            mCounts[index] = count;
+        }
+        int offset = index * 3;
+        mMeans[offset] += (x - mMeans[offset]) / count;
+        mMeans[offset + 1] += (y - mMeans[offset + 1]) / count;
+        mMeans[offset + 2] += (z - mMeans[offset + 2]) / count;
+        if (confidence > mConfidences[index]) {
+            mConfidences[index] = confidence;
+        }
+        mLastSeenFrames[index] = mFrame;
+        markDirty(index);
+    }
+
+    /**
+     * Remove the voxels that have not been seen in the last frames.
+     *
+     * @param maxAgeFrames Number of frames after which an unseen voxel is removed.
+     * @return Number of removed voxels.
+     */
+    public int evict(int maxAgeFrames) {
+        int evictedCount = 0;
+
+        // The last voxel replaces a removed one, so iterate backwards to visit every voxel once.
+        for (int i = mSize - 1; i >= 0; i--) {
+            if (mFrame - mLastSeenFrames[i] > maxAgeFrames) {
+                remove(i);
+                evictedCount++;
+            }
+        }
+        mEvictedCount += evictedCount;
+        return evictedCount;
+    }
+
+    /**
+     * Remove all voxels.
+     */
+    public void clear() {
+        Arrays.fill(mTableKeys, EMPTY_KEY);
+        for (int i = 0; i < mDirtyCount; i++) {
+            mIsDirty[mDirtyIndices[i]] = false;
+        }
+        mDirtyCount = 0;
+        mSize = 0;
+        mIsChanged = true;
+    }
+
+    /**
+     * Write the changed voxels into the point buffer.
+     *
+     * @return Point buffer with four floats per voxel, from position 0 to the limit. It must not be modified.
+     */
+    public FloatBuffer flush() {
+        if (mDirtyCount > 0) {
+            mIsChanged = true;
+        }
+        mPoints.limit(mSize * FLOATS_PER_POINT);
+        for (int i = 0; i < mDirtyCount; i++) {
+            int index = mDirtyIndices[i];
+            mIsDirty[index] = false;
+
+            // A dirty voxel may have been evicted since it was marked.
+            if (index >= mSize) {
+                continue;
+            }
+            int offset = index * FLOATS_PER_POINT;
+            mPoints.put(offset, mMeans[index * 3]);
+            mPoints.put(offset + 1, mMeans[index * 3 + 1]);
+            mPoints.put(offset + 2, mMeans[index * 3 + 2]);
+            mPoints.put(offset + 3, mConfidences[index]);
+        }
+        mDirtyCount = 0;
+        if (mIsChanged) {
+            mVersion++;
+            mIsChanged = false;
+        }
+        mPoints.position(0);
+        return mPoints;
+    }
+
+    /**
+     * Obtain the number of voxels, which is the number of points written by the next {@link #flush}.
+     *
+     * @return Number of voxels.
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Obtain the version of the point buffer, which increases with each {@link #flush} that changed it.
+     *
+     * @return Version of the point buffer.
+     */
+    public int getVersion() {
+        return mVersion;
+    }
+
+    /**
+     * Obtain the number of points dropped since the map was created, because they are out of the range of the
+     * voxel coordinates or they fall into a new voxel while the map is full.
+     *
+     * @return Number of dropped points.
+     */
+    public long getDroppedCount() {
+        return mDroppedCount;
+    }
+
+    /**
+     * Obtain the number of voxels removed by {@link #evict} since the map was created.
+     *
+     * @return Number of evicted voxels.
+     */
+    public long getEvictedCount() {
+        return mEvictedCount;
+    }
+
+    /**
+     * Pack the coordinates of the voxel that contains a point into a key.
+     *
+     * @param x X coordinate, in meters.
+     * @param y Y coordinate, in meters.
+     * @param z Z coordinate, in meters.
+     * @param inverseVoxelSize Inverse of the edge length of a voxel.
+     * @return Key, or EMPTY_KEY if the point is out of range.
+     */
+    static long toKey(float x, float y, float z, float inverseVoxelSize) {
+        long voxelX = floorToVoxel(x * inverseVoxelSize);
+        long voxelY = floorToVoxel(y * inverseVoxelSize);
+        long voxelZ = floorToVoxel(z * inverseVoxelSize);
+        if (voxelX < 0 || voxelY < 0 || voxelZ < 0) {
+            return EMPTY_KEY;
+        }
+        return (voxelX << (COORDINATE_BITS * 2)) | (voxelY << COORDINATE_BITS) | voxelZ;
+    }
+
+    /**
+     * Obtain the offset voxel coordinate, which is in [0, 2^21) for points in range, and negative otherwise.
+     */
+    private static int floorToVoxel(float scaled) {
+        if (!(Math.abs(scaled) < COORDINATE_OFFSET)) {
+            return -1;
+        }
+        int voxel = (int) scaled;
+        if (scaled < voxel) {
+            voxel--;
+        }
+        return voxel + COORDINATE_OFFSET;
+    }
+
+    private int slotOf(long key) {
+        return hash(key) & mTableMask;
+    }
+
+    /**
+     * Hash a key with the finalizer of MurmurHash3, which spreads the three coordinates over all bits.
+     *
+     * @param key Voxel key.
+     * @return Hash, whose low bits can be used as a table index.
+     */
+    static int hash(long key) {
+        long hash = key;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return (int) hash;
+    }
+
+    private int findOrAdd(long key) {
+        int slot = slotOf(key);
+        while (true) {
+            long slotKey = mTableKeys[slot];
+            if (slotKey == key) {
+                return mTableValues[slot];
+            }
+            if (slotKey == EMPTY_KEY) {
+                break;
+            }
+            slot = (slot + 1) & mTableMask;
+        }
+        if (mSize == mMaxVoxels) {
+            return -1;
+        }
+        int index = mSize++;
+        mTableKeys[slot] = key;
+        mTableValues[slot] = index;
+        mKeys[index] = key;
+        mCounts[index] = 0;
+        mConfidences[index] = 0.0f;
+        return index;
+    }
+
+    private int findSlot(long key) {
+        int slot = slotOf(key);
+        while (mTableKeys[slot] != key) {
+            slot = (slot + 1) & mTableMask;
+        }
+        return slot;
+    }
+
+    private void remove(int index) {
+        removeFromTable(findSlot(mKeys[index]));
+        int last = --mSize;
+        if (index != last) {
+            mKeys[index] = mKeys[last];
+            System.arraycopy(mMeans, last * 3, mMeans, index * 3, 3);
+            mCounts[index] = mCounts[last];
+            mConfidences[index] = mConfidences[last];
+            mLastSeenFrames[index] = mLastSeenFrames[last];
+            mTableValues[findSlot(mKeys[index])] = index;
+            markDirty(index);
+        }
+        mIsChanged = true;
+    }
+
+    /**
+     * Empty a slot of the table, and move the following entries of the probe sequence back, so that every entry
+     * can still be found from its home slot.
+     */
+    private void removeFromTable(int slot) {
+        int emptySlot = slot;
+        int nextSlot = slot;
+        while (true) {
+            nextSlot = (nextSlot + 1) & mTableMask;
+            long nextKey = mTableKeys[nextSlot];
+            if (nextKey == EMPTY_KEY) {
+                break;
+            }
+
+            // The entry can move back if its home slot is not between the empty slot and its current slot.
+            int homeSlot = slotOf(nextKey);
+            if (((nextSlot - homeSlot) & mTableMask) >= ((nextSlot - emptySlot) & mTableMask)) {
+                mTableKeys[emptySlot] = nextKey;
+                mTableValues[emptySlot] = mTableValues[nextSlot];
+                emptySlot = nextSlot;
+            }
+        }
+        mTableKeys[emptySlot] = EMPTY_KEY;
+    }
+
+    private void markDirty(int index) {
+        if (!mIsDirty[index]) {
+            mIsDirty[index] = true;
+            mDirtyIndices[mDirtyCount++] = index;
+        }
+    }
+}
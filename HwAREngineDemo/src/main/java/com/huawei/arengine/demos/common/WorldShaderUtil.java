@@ -64,6 +64,61 @@ public class WorldShaderUtil {
         + "    gl_FragColor.rgb = objectColor.rgb * + diffuse + specular;" + LS
         + "}";
 
+    /**
+     * GLSL ES 3.00 version of OBJECT_VERTEX, in which the model matrix and the color are per-instance
+     * attributes, and the light direction is calculated from the model matrix of each instance.
+     */
+    private static final String OBJECT_INSTANCED_VERTEX =
+        "#version 300 es" + LS
+        + "uniform mat4 inViewMatrix;" + LS
+        + "uniform mat4 inProjectionMatrix;" + LS
+        + "in vec3 inObjectNormalVector;" + LS
+        + "in vec4 inObjectPosition;" + LS
+        + "in vec2 inTexCoordinate;" + LS
+        + "in mat4 inModelMatrix;" + LS
+        + "in vec4 inObjectColor;" + LS
+        + "out vec3 varCameraNormalVector;" + LS
+        + "out vec2 varTexCoordinate;" + LS
+        + "out vec3 varCameraPos;" + LS
+        + "out vec3 varLightDirection;" + LS
+        + "out vec4 varObjectColor;" + LS
+        + "void main() {" + LS
+        + "    mat4 modelViewMatrix = inViewMatrix * inModelMatrix;" + LS
+        + "    vec4 cameraPosition = modelViewMatrix * inObjectPosition;" + LS
+        + "    gl_Position = inProjectionMatrix * cameraPosition;" + LS
+        + "    varCameraNormalVector = (modelViewMatrix * vec4(inObjectNormalVector, 0.0)).xyz;" + LS
+        + "    varTexCoordinate = inTexCoordinate;" + LS
+        + "    varCameraPos = cameraPosition.xyz;" + LS
+        + "    varLightDirection = normalize((modelViewMatrix * vec4(0.0, 1.0, 0.0, 0.0)).xyz);" + LS
+        + "    varObjectColor = inObjectColor;" + LS
+        + "}";
+
+    private static final String OBJECT_INSTANCED_FRAGMENT =
+        "#version 300 es" + LS
+        + "precision mediump float;" + LS
+        + "uniform float inLightIntensity;" + LS
+        + "uniform sampler2D inObjectTexture;" + LS
+        + "in vec3 varCameraPos;" + LS
+        + "in vec3 varCameraNormalVector;" + LS
+        + "in vec2 varTexCoordinate;" + LS
+        + "in vec3 varLightDirection;" + LS
+        + "in vec4 varObjectColor;" + LS
+        + "out vec4 fragColor;" + LS
+        + "void main() {" + LS
+        + "    vec4 objectColor = texture(inObjectTexture, vec2(varTexCoordinate.x, 1.0 - varTexCoordinate.y));" + LS
+        + "    objectColor.rgb = varObjectColor.rgb / 255.0;" + LS
+        + "    vec3 viewNormal = normalize(varCameraNormalVector);" + LS
+        + "    vec3 reflectedLightDirection = reflect(varLightDirection, viewNormal);" + LS
+        + "    vec3 normalCameraPos = normalize(varCameraPos);" + LS
+        + "    float specularStrength = max(0.0, dot(normalCameraPos, reflectedLightDirection));" + LS
+        + "    fragColor.a = objectColor.a;" + LS
+        + "    float diffuse = inLightIntensity * 3.5 *" + LS
+        + "        0.5 * (dot(viewNormal, varLightDirection) + 1.0);" + LS
+        + "    float specular = inLightIntensity *" + LS
+        + "        pow(specularStrength, 6.0);" + LS
+        + "    fragColor.rgb = objectColor.rgb * diffuse + specular;" + LS
+        + "}";
+
     private static final String POINTCLOUD_VERTEX =
         "uniform mat4 u_ModelViewProjection;" + LS
             + "uniform vec4 u_Color;" + LS
@@ -83,6 +138,25 @@ public class WorldShaderUtil {
             + "    gl_FragColor = v_Color;" + LS
             + "}";
 
+    private static final String PLANE_LABEL_VERTEX =
+        "uniform mat4 inViewProjectionMatrix;" + LS
+            + "attribute vec4 inWorldPosition;" + LS
+            + "attribute vec2 inTexCoord;" + LS
+            + "varying vec2 varTexCoord;" + LS
+            + "void main() {" + LS
+            + "    varTexCoord = inTexCoord;" + LS
+            + "    gl_Position = inViewProjectionMatrix * vec4(inWorldPosition.xyz, 1.0);" + LS
+            + "}";
+
+    private static final String PLANE_LABEL_FRAGMENT =
+        "precision highp float;" + LS
+            + "uniform sampler2D inTexture;" + LS
+            + "varying vec2 varTexCoord;" + LS
+            + "void main() {" + LS
+            + "    vec4 control = texture2D(inTexture, varTexCoord);" + LS
+            + "    gl_FragColor = vec4(control.rgb, 1.0);" + LS
+            + "}";
+
     private WorldShaderUtil() {
     }
 
@@ -95,6 +169,15 @@ public class WorldShaderUtil {
         return ShaderUtil.createGlProgram(ShaderUtil.LABEL_VERTEX, ShaderUtil.LABEL_FRAGMENT);
     }
 
+    /**
+     * Shader program generator of the batched plane labels, whose vertices are in world coordinates.
+     *
+     * @return int Program handle.
+     */
+    public static int getPlaneLabelProgram() {
+        return ShaderUtil.createGlProgram(PLANE_LABEL_VERTEX, PLANE_LABEL_FRAGMENT);
+    }
+
     /**
      * Shader point cloud program generator.
      *
@@ -112,4 +195,13 @@ public class WorldShaderUtil {
     protected static int getObjectProgram() {
         return ShaderUtil.createGlProgram(OBJECT_VERTEX, OBJECT_FRAGMENT);
     }
+
+    /**
+     * Shader program generator of the instanced objects, which requires OpenGL ES 3.0.
+     *
+     * @return int Program handle.
+     */
+    protected static int getInstancedObjectProgram() {
+        return ShaderUtil.createGlProgram(OBJECT_INSTANCED_VERTEX, OBJECT_INSTANCED_FRAGMENT);
+    }
 }
\ No newline at end of file
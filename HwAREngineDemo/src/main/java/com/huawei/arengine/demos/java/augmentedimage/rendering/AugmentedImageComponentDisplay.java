@@ -16,6 +16,7 @@
 
 package com.huawei.arengine.demos.java.augmentedimage.rendering;
 
+import com.huawei.arengine.demos.common.StagingBuffer;
 import com.huawei.hiar.ARAugmentedImage;
 import com.huawei.hiar.ARPose;
 
@@ -41,17 +42,26 @@ public interface AugmentedImageComponentDisplay {
     void onDrawFrame(ARAugmentedImage augmentedImage, float[] viewMatrix, float[] projectionMatrix);
 
     /**
-     * Obtain the four vertexes of the augmented image.
+     * Write a vertex of the augmented image to a staging buffer. The vertex has four components: x, y, z and 1.
      *
      * @param augmentedImage AugmentedImage object.
      * @param cornerType Corner type (upper left, lower left, upper right, or lower right).
-     * @param index Subscript for a function to run periodically.
-     * @param cornerPointCoordinates Write the angular coordinates.
-     * @return Array of four image vertices.
+     * @param cornerPoints Staging buffer to which the vertex is written.
      */
-    default float[] createImageCorner(ARAugmentedImage augmentedImage, CornerType cornerType, int index,
-        float[] cornerPointCoordinates) {
+    default void writeImageCorner(ARAugmentedImage augmentedImage, CornerType cornerType,
+        StagingBuffer cornerPoints) {
+        ARPose cornerPose = getImageCornerPose(augmentedImage, cornerType);
+        cornerPoints.put(cornerPose.tx(), cornerPose.ty(), cornerPose.tz(), 1.0f);
+    }
 
+    /**
+     * Obtain the pose of a vertex of the augmented image.
+     *
+     * @param augmentedImage AugmentedImage object.
+     * @param cornerType Corner type (upper left, lower left, upper right, or lower right).
+     * @return Pose of the vertex.
+     */
+    default ARPose getImageCornerPose(ARAugmentedImage augmentedImage, CornerType cornerType) {
         // 0.5 indicates half of the edge length.
         // The four corners of an image can be obtained by using this parameter and the enums.
         float[] coefficients = {0.5f, 0.5f};
@@ -77,14 +87,7 @@ public interface AugmentedImageComponentDisplay {
             coefficient[1] * augmentedImage.getExtentZ());
 
         ARPose centerPose = augmentedImage.getCenterPose();
-        int bytesPerCorner = 4;
-        int cornerCoordinatePos = index * bytesPerCorner;
-        ARPose composeCenterPose = centerPose.compose(localBoundaryPose);
-        cornerPointCoordinates[cornerCoordinatePos] = composeCenterPose.tx();
-        cornerPointCoordinates[++cornerCoordinatePos] = composeCenterPose.ty();
-        cornerPointCoordinates[++cornerCoordinatePos] = composeCenterPose.tz();
-        cornerPointCoordinates[++cornerCoordinatePos] = 1.0f;
-        return cornerPointCoordinates;
+        return centerPose.compose(localBoundaryPose);
     }
 
     /**
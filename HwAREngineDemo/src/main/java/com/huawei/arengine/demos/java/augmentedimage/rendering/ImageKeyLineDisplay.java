@@ -19,11 +19,12 @@ package com.huawei.arengine.demos.java.augmentedimage.rendering;
 import android.opengl.GLES20;
 import android.opengl.Matrix;
 
+import com.huawei.arengine.demos.common.DynamicVertexBuffer;
+import com.huawei.arengine.demos.common.GlFacade;
 import com.huawei.arengine.demos.common.ShaderUtil;
+import com.huawei.arengine.demos.common.StagingBuffer;
 import com.huawei.hiar.ARAugmentedImage;
 
-import java.nio.FloatBuffer;
-
 /**
  * Draw the border of the augmented image based on the pose of the center,
  * and the width and height of the augmented image.
@@ -46,9 +47,12 @@ public class ImageKeyLineDisplay implements AugmentedImageComponentDisplay {
 
     private static final int BYTES_PER_CORNER = 4;
 
-    private float[] mCornerPointCoordinates;
+    /**
+     * Cached corner types, because CornerType.values() creates an array on each call.
+     */
+    private static final CornerType[] CORNER_TYPES = CornerType.values();
 
-    private int mVboSize = INITIAL_BUFFER_POINTS * BYTES_PER_POINT;
+    private final float[] mViewProjectionMatrix = new float[BYTES_PER_POINT];
 
     private int mModelViewProjectionMatrix;
 
@@ -58,34 +62,28 @@ public class ImageKeyLineDisplay implements AugmentedImageComponentDisplay {
 
     private int mColor;
 
-    private int mVbo;
+    private final DynamicVertexBuffer mVbo =
+        new DynamicVertexBuffer(GLES20.GL_ARRAY_BUFFER, INITIAL_BUFFER_POINTS * BYTES_PER_POINT);
 
     private int mNumPoints = 0;
 
-    private int mIndex = 0;
-
     /**
      * Create and build the augmented image shader on the OpenGL thread.
      */
     @Override
     public void init() {
         ShaderUtil.checkGlError(TAG, "Init start.");
-        int[] vboBuffers = new int[1];
-        GLES20.glGenBuffers(1, vboBuffers, 0);
-        mVbo = vboBuffers[0];
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, mVbo);
+        mVbo.init();
         createProgram();
-        GLES20.glBufferData(GLES20.GL_ARRAY_BUFFER, mVboSize, null, GLES20.GL_DYNAMIC_DRAW);
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
         ShaderUtil.checkGlError(TAG, "Init end.");
     }
 
     private void createProgram() {
         ShaderUtil.checkGlError(TAG, "Create imageKeyLine program start.");
         mProgram = ShaderUtil.getGlProgram();
-        mPosition = GLES20.glGetAttribLocation(mProgram, "inPosition");
-        mColor = GLES20.glGetUniformLocation(mProgram, "inColor");
-        mModelViewProjectionMatrix = GLES20.glGetUniformLocation(mProgram, "inMVPMatrix");
+        mPosition = GlFacade.get().glGetAttribLocation(mProgram, "inPosition");
+        mColor = GlFacade.get().glGetUniformLocation(mProgram, "inColor");
+        mModelViewProjectionMatrix = GlFacade.get().glGetUniformLocation(mProgram, "inMVPMatrix");
         ShaderUtil.checkGlError(TAG, "Create imageKeyLine program end.");
     }
 
@@ -98,9 +96,8 @@ public class ImageKeyLineDisplay implements AugmentedImageComponentDisplay {
      */
     @Override
     public void onDrawFrame(ARAugmentedImage augmentedImage, float[] viewMatrix, float[] projectionMatrix) {
-        float[] vpMatrix = new float[BYTES_PER_POINT];
-        Matrix.multiplyMM(vpMatrix, 0, projectionMatrix, 0, viewMatrix, 0);
-        draw(augmentedImage, vpMatrix);
+        Matrix.multiplyMM(mViewProjectionMatrix, 0, projectionMatrix, 0, viewMatrix, 0);
+        draw(augmentedImage, mViewProjectionMatrix);
     }
 
     /**
@@ -110,44 +107,25 @@ public class ImageKeyLineDisplay implements AugmentedImageComponentDisplay {
      * @param viewProjectionMatrix View projection matrix.
      */
     private void draw(ARAugmentedImage augmentedImage, float[] viewProjectionMatrix) {
-        mCornerPointCoordinates = new float[BYTES_PER_CORNER * 4];
-        for (CornerType cornerType : CornerType.values()) {
-            createImageCorner(augmentedImage, cornerType);
-        }
-
-        updateImageKeyLineData(mCornerPointCoordinates);
+        updateImageKeyLineData(augmentedImage);
         drawImageLine(viewProjectionMatrix);
-        mCornerPointCoordinates = null;
-        mIndex = 0;
     }
 
     /**
-     * Obtain the four vertexes of the augmented image.
+     * Write the four vertexes of the augmented image to the VBO.
      *
      * @param augmentedImage AugmentedImage object.
-     * @param cornerType Corner type (upper left, lower left, upper right, or lower right).
      */
-    private void createImageCorner(ARAugmentedImage augmentedImage, CornerType cornerType) {
-        mCornerPointCoordinates = createImageCorner(augmentedImage, cornerType, mIndex,
-            mCornerPointCoordinates);
-        mIndex++;
-    }
-
-    private void updateImageKeyLineData(float[] cornerPoint) {
-        // Total number of coordinates.
-        mNumPoints = cornerPoint.length / 4;
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, mVbo);
-        int vboSize = mVboSize;
-        if (vboSize < mNumPoints * BYTES_PER_POINT) {
-            while (vboSize < mNumPoints * BYTES_PER_POINT) {
-                // If the size of VBO is insufficient to accommodate the new vertex, resize the VBO.
-                vboSize = vboSize * 2;
+    private void updateImageKeyLineData(ARAugmentedImage augmentedImage) {
+        try (StagingBuffer staging = StagingBuffer.acquire(BYTES_PER_CORNER * CORNER_TYPES.length)) {
+            for (CornerType cornerType : CORNER_TYPES) {
+                writeImageCorner(augmentedImage, cornerType, staging);
             }
-            GLES20.glBufferData(GLES20.GL_ARRAY_BUFFER, vboSize, null, GLES20.GL_DYNAMIC_DRAW);
+
+            // Total number of coordinates.
+            mNumPoints = staging.getFloatCount() / BYTES_PER_CORNER;
+            mVbo.upload(staging.flip(), mNumPoints * BYTES_PER_POINT);
         }
-        FloatBuffer cornerPointBuffer = FloatBuffer.wrap(cornerPoint);
-        GLES20.glBufferSubData(GLES20.GL_ARRAY_BUFFER, 0, mNumPoints * BYTES_PER_POINT, cornerPointBuffer);
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
     }
 
     /**
@@ -157,21 +135,20 @@ public class ImageKeyLineDisplay implements AugmentedImageComponentDisplay {
      */
     private void drawImageLine(float[] viewProjectionMatrix) {
         ShaderUtil.checkGlError(TAG, "Draw image box start.");
-        GLES20.glUseProgram(mProgram);
-        GLES20.glEnableVertexAttribArray(mPosition);
-        GLES20.glEnableVertexAttribArray(mColor);
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, mVbo);
-        GLES20.glVertexAttribPointer(
+        GlFacade.get().glUseProgram(mProgram);
+        GlFacade.get().glEnableVertexAttribArray(mPosition);
+        GlFacade.get().glEnableVertexAttribArray(mColor);
+        mVbo.bind();
+        GlFacade.get().glVertexAttribPointer(
             mPosition, COORDINATE_DIMENSION, GLES20.GL_FLOAT, false, BYTES_PER_POINT, 0);
-        GLES20.glUniform4f(mColor, 0.56f, 0.93f, 0.56f, 0.5f);
-        GLES20.glUniformMatrix4fv(mModelViewProjectionMatrix, 1, false, viewProjectionMatrix, 0);
+        GlFacade.get().glUniform4f(mColor, 0.56f, 0.93f, 0.56f, 0.5f);
+        GlFacade.get().glUniformMatrix4fv(mModelViewProjectionMatrix, 1, false, viewProjectionMatrix, 0);
 
         // Set the width of a rendering stroke.
-        GLES20.glLineWidth(5.0f);
-        GLES20.glDrawArrays(GLES20.GL_LINE_LOOP, 0, mNumPoints);
-        GLES20.glDisableVertexAttribArray(mPosition);
-        GLES20.glDisableVertexAttribArray(mColor);
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+        GlFacade.get().glLineWidth(5.0f);
+        GlFacade.get().glDrawArrays(GLES20.GL_LINE_LOOP, 0, mNumPoints);
+        GlFacade.get().glDisableVertexAttribArray(mPosition);
+        GlFacade.get().glDisableVertexAttribArray(mColor);
         ShaderUtil.checkGlError(TAG, "Draw image box end.");
     }
 }
@@ -22,14 +22,11 @@ import android.opengl.Matrix;
 import android.widget.TextView;
 
 import com.huawei.arengine.demos.R;
+import com.huawei.arengine.demos.common.GlFacade;
+import com.huawei.arengine.demos.common.LabelQuadGeometry;
 import com.huawei.arengine.demos.common.ShaderUtil;
 import com.huawei.hiar.ARAugmentedImage;
 
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.nio.FloatBuffer;
-import java.nio.ShortBuffer;
-
 /**
  * Draw the label through the pose of the image center.
  *
@@ -39,10 +36,6 @@ import java.nio.ShortBuffer;
 public class ImageLabelDisplay implements AugmentedImageComponentDisplay {
     private static final String TAG = ImageLabelDisplay.class.getSimpleName();
 
-    private static final int IMAGE_ANGLE_MATRIX_SIZE = 4;
-
-    private static final int COORDS_PER_VERTEX = 3;
-
     private static final float LABEL_WIDTH = 0.1f;
 
     private static final float LABEL_HEIGHT = 0.05f;
@@ -52,10 +45,9 @@ public class ImageLabelDisplay implements AugmentedImageComponentDisplay {
     private static final int MATRIX_SIZE = 16;
 
     /**
-     * Plane angle UV matrix, which is used to adjust the rotation angle ofz
-     * the label and vertical/horizontal scaling ratio.
+     * Plane angle UV matrix, which is the identity matrix because the label quad is a unit quad.
      */
-    private final float[] mImageAngleUvMatrix = new float[IMAGE_ANGLE_MATRIX_SIZE];
+    private final float[] mImageAngleUvMatrix = {1.0f, 0.0f, 0.0f, 1.0f};
 
     private final int[] mTextures = new int[TEXTURES_SIZE];
 
@@ -104,10 +96,10 @@ public class ImageLabelDisplay implements AugmentedImageComponentDisplay {
     private void createProgram() {
         ShaderUtil.checkGlError(TAG, "program start.");
         mProgram = ShaderUtil.getLabelProgram();
-        mGlTexture = GLES20.glGetUniformLocation(mProgram, "inTexture");
-        mGlPositionParameter = GLES20.glGetAttribLocation(mProgram, "inPosXZAlpha");
-        mGlPlaneUvMatrix = GLES20.glGetUniformLocation(mProgram, "inPlanUVMatrix");
-        mGlModelViewProjectionMatrix = GLES20.glGetUniformLocation(mProgram, "inMVPMatrix");
+        mGlTexture = GlFacade.get().glGetUniformLocation(mProgram, "inTexture");
+        mGlPositionParameter = GlFacade.get().glGetAttribLocation(mProgram, "inPosXZAlpha");
+        mGlPlaneUvMatrix = GlFacade.get().glGetUniformLocation(mProgram, "inPlanUVMatrix");
+        mGlModelViewProjectionMatrix = GlFacade.get().glGetUniformLocation(mProgram, "inMVPMatrix");
         ShaderUtil.checkGlError(TAG, "program end.");
     }
 
@@ -128,11 +120,14 @@ public class ImageLabelDisplay implements AugmentedImageComponentDisplay {
     }
 
     private void prepareForGl() {
-        GLES20.glDepthMask(false);
-        GLES20.glEnable(GLES20.GL_BLEND);
-        GLES20.glBlendFuncSeparate(GLES20.GL_DST_ALPHA, GLES20.GL_ONE, GLES20.GL_ZERO, GLES20.GL_ONE_MINUS_SRC_ALPHA);
-        GLES20.glUseProgram(mProgram);
-        GLES20.glEnableVertexAttribArray(mGlPositionParameter);
+        GlFacade.get().glDepthMask(false);
+        GlFacade.get().glEnable(GLES20.GL_BLEND);
+        GlFacade.get().glBlendFuncSeparate(GLES20.GL_DST_ALPHA, GLES20.GL_ONE, GLES20.GL_ZERO,
+            GLES20.GL_ONE_MINUS_SRC_ALPHA);
+        GlFacade.get().glUseProgram(mProgram);
+        GlFacade.get().glEnableVertexAttribArray(mGlPositionParameter);
+        LabelQuadGeometry.bind(mGlPositionParameter);
+        GlFacade.get().glUniformMatrix2fv(mGlPlaneUvMatrix, 1, false, mImageAngleUvMatrix, 0);
     }
 
     /**
@@ -144,20 +139,11 @@ public class ImageLabelDisplay implements AugmentedImageComponentDisplay {
         float[] imageMatrix = new float[MATRIX_SIZE];
         augmentedImage.getCenterPose().toMatrix(imageMatrix, 0);
         System.arraycopy(imageMatrix, 0, mModelMatrix, 0, MATRIX_SIZE);
+        LabelQuadGeometry.scaleModelMatrix(mModelMatrix, LABEL_WIDTH, LABEL_HEIGHT);
 
-        float scaleU = 1.0f / LABEL_WIDTH;
-
-        // Set the value of the UV matrix.
-        mImageAngleUvMatrix[0] = scaleU;
-        mImageAngleUvMatrix[1] = 0.0f;
-        mImageAngleUvMatrix[2] = 0.0f;
-        float scaleV = 1.0f / LABEL_HEIGHT;
-        mImageAngleUvMatrix[3] = scaleV;
-
-        GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
-        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, mTextures[0]);
-        GLES20.glUniform1i(mGlTexture, 0);
-        GLES20.glUniformMatrix2fv(mGlPlaneUvMatrix, 1, false, mImageAngleUvMatrix, 0);
+        GlFacade.get().glActiveTexture(GLES20.GL_TEXTURE0);
+        GlFacade.get().glBindTexture(GLES20.GL_TEXTURE_2D, mTextures[0]);
+        GlFacade.get().glUniform1i(mGlTexture, 0);
     }
 
     /**
@@ -171,44 +157,14 @@ public class ImageLabelDisplay implements AugmentedImageComponentDisplay {
         Matrix.multiplyMM(mModelViewMatrix, 0, cameraViews, 0, mModelMatrix, 0);
         Matrix.multiplyMM(mModelViewProjectionMatrix, 0, cameraProjection, 0, mModelViewMatrix, 0);
 
-        // Obtain half of the width and height as the coordinate data.
-        float halfWidth = LABEL_WIDTH / 2.0f;
-        float halfHeight = LABEL_HEIGHT / 2.0f;
-        float[] vertices = {-halfWidth, -halfHeight, 1, -halfWidth, halfHeight, 1, halfWidth, halfHeight, 1, halfWidth,
-            -halfHeight, 1};
-
-        // The size of each float is 4 bytes.
-        FloatBuffer vetBuffer =
-            ByteBuffer.allocateDirect(4 * vertices.length).order(ByteOrder.nativeOrder()).asFloatBuffer();
-        vetBuffer.rewind();
-        for (float vertex : vertices) {
-            vetBuffer.put(vertex);
-        }
-        vetBuffer.rewind();
-        GLES20.glVertexAttribPointer(mGlPositionParameter, COORDS_PER_VERTEX, GLES20.GL_FLOAT, false,
-            4 * COORDS_PER_VERTEX, vetBuffer);
-
-        // Set the sequence of OpenGL drawing points to generate two triangles to form a plane.
-        short[] indices = {0, 1, 2, 0, 2, 3};
-
-        // Size of the allocated buffer. The size of each short integer is 2 bytes.
-        ShortBuffer idxBuffer =
-            ByteBuffer.allocateDirect(2 * indices.length).order(ByteOrder.nativeOrder()).asShortBuffer();
-        idxBuffer.rewind();
-        for (int i = 0; i < indices.length; ++i) {
-            idxBuffer.put(indices[i]);
-        }
-        idxBuffer.rewind();
-
-        GLES20.glUniformMatrix4fv(mGlModelViewProjectionMatrix, 1, false, mModelViewProjectionMatrix, 0);
-        GLES20.glDrawElements(GLES20.GL_TRIANGLE_STRIP, idxBuffer.limit(), GLES20.GL_UNSIGNED_SHORT, idxBuffer);
+        GlFacade.get().glUniformMatrix4fv(mGlModelViewProjectionMatrix, 1, false, mModelViewProjectionMatrix, 0);
+        LabelQuadGeometry.draw();
         ShaderUtil.checkGlError(TAG, "Draw image label end.");
     }
 
     private void recycleGl() {
-        GLES20.glDisableVertexAttribArray(mGlPositionParameter);
-        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, 0);
-        GLES20.glDisable(GLES20.GL_BLEND);
-        GLES20.glDepthMask(true);
+        GlFacade.get().glDisableVertexAttribArray(mGlPositionParameter);
+        GlFacade.get().glDisable(GLES20.GL_BLEND);
+        GlFacade.get().glDepthMask(true);
     }
 }
@@ -20,6 +20,7 @@ import android.opengl.GLES20;
 import android.opengl.GLES30;
 
 import com.huawei.arengine.demos.common.BaseBackgroundDisplay;
+import com.huawei.arengine.demos.common.GlFacade;
 import com.huawei.arengine.demos.common.MatrixUtil;
 import com.huawei.arengine.demos.common.ShaderUtil;
 import com.huawei.hiar.ARFrame;
@@ -118,17 +119,17 @@ public class BodyMaskDisplay implements BaseBackgroundDisplay {
     public void init() {
         ShaderUtil.checkGlError(TAG, "Init start.");
         int[] texture = new int[1];
-        GLES20.glGenTextures(1, texture, 0);
+        GlFacade.get().glGenTextures(1, texture, 0);
         mTextureId = texture[0];
-        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, mTextureId);
+        GlFacade.get().glBindTexture(GLES20.GL_TEXTURE_2D, mTextureId);
         setGlTextureParameters();
 
         int[] maskTexture = new int[1];
-        GLES20.glGenTextures(1, maskTexture, 0);
+        GlFacade.get().glGenTextures(1, maskTexture, 0);
         mMaskTextureId = maskTexture[0];
-        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, mMaskTextureId);
+        GlFacade.get().glBindTexture(GLES20.GL_TEXTURE_2D, mMaskTextureId);
         setGlTextureParameters();
-        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, 0);
+        GlFacade.get().glBindTexture(GLES20.GL_TEXTURE_2D, 0);
 
         createProgram();
         ShaderUtil.checkGlError(TAG, "Init end.");
@@ -142,10 +143,10 @@ public class BodyMaskDisplay implements BaseBackgroundDisplay {
      * Set texture parameters.
      */
     public void setGlTextureParameters() {
-        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_S, GLES20.GL_CLAMP_TO_EDGE);
-        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_T, GLES20.GL_CLAMP_TO_EDGE);
-        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_NEAREST);
-        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_NEAREST);
+        GlFacade.get().glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_S, GLES20.GL_CLAMP_TO_EDGE);
+        GlFacade.get().glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_T, GLES20.GL_CLAMP_TO_EDGE);
+        GlFacade.get().glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_NEAREST);
+        GlFacade.get().glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_NEAREST);
     }
 
     @Override
@@ -180,44 +181,48 @@ public class BodyMaskDisplay implements BaseBackgroundDisplay {
             frame.transformDisplayUvCoords(mTextureBuffer, mTexTransformedBuffer);
         }
         clear();
-        GLES20.glDisable(GLES20.GL_DEPTH_TEST);
-        GLES20.glDepthMask(false);
-        GLES20.glUseProgram(mProgram);
+        GlFacade.get().glDisable(GLES20.GL_DEPTH_TEST);
+        GlFacade.get().glDepthMask(false);
+        GlFacade.get().glUseProgram(mProgram);
 
         // Set the texture ID.
-        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, mTextureId);
+        GlFacade.get().glBindTexture(GLES20.GL_TEXTURE_2D, mTextureId);
 
-        GLES20.glActiveTexture(GLES20.GL_TEXTURE1);
-        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, mMaskTextureId);
-        GLES20.glUniform1i(mMaskParam, 1);
+        GlFacade.get().glActiveTexture(GLES20.GL_TEXTURE1);
+        GlFacade.get().glBindTexture(GLES20.GL_TEXTURE_2D, mMaskTextureId);
+        GlFacade.get().glUniform1i(mMaskParam, 1);
 
         if (maskBuffer != null) {
-            GLES20.glUniform1i(mUseMaskParam, 1);
-            GLES30.glTexImage2D(GLES20.GL_TEXTURE_2D, 0, GLES30.GL_R32F, maskWidth, maskHeight, 0, GLES30.GL_RED,
-                GLES20.GL_FLOAT, maskBuffer);
+            GlFacade.get().glUniform1i(mUseMaskParam, 1);
+            GlFacade.get().glTexImage2D(GLES20.GL_TEXTURE_2D, 0, GLES30.GL_R32F, maskWidth, maskHeight, 0,
+                GLES30.GL_RED, GLES20.GL_FLOAT, maskBuffer);
         } else {
-            GLES20.glUniform1i(mUseMaskParam, 0);
+            GlFacade.get().glUniform1i(mUseMaskParam, 0);
         }
 
         // Set the projection matrix.
-        GLES20.glUniformMatrix4fv(mMatrix, 1, false, mProjectionMatrix, 0);
-        GLES20.glUniformMatrix4fv(mCoordMatrix, 1, false, mCoordMatrixs, 0);
+        GlFacade.get().glUniformMatrix4fv(mMatrix, 1, false, mProjectionMatrix, 0);
+        GlFacade.get().glUniformMatrix4fv(mCoordMatrix, 1, false, mCoordMatrixs, 0);
+
+        // The vertices are read from client memory, so no buffer object can be bound.
+        GlFacade.get().glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
 
         // Set the vertex.
-        GLES20.glEnableVertexAttribArray(mPosition);
-        GLES20.glVertexAttribPointer(mPosition, COORDS_PER_VERTEX, GLES20.GL_FLOAT, false, 0, mVertexBuffer);
+        GlFacade.get().glEnableVertexAttribArray(mPosition);
+        GlFacade.get().glVertexAttribPointer(mPosition, COORDS_PER_VERTEX, GLES20.GL_FLOAT, false, 0, mVertexBuffer);
 
         // Set the texture coordinates.
-        GLES20.glEnableVertexAttribArray(mCoord);
-        GLES20.glVertexAttribPointer(mCoord, TEXCOORDS_PER_VERTEX, GLES20.GL_FLOAT, false, 0, mTexTransformedBuffer);
+        GlFacade.get().glEnableVertexAttribArray(mCoord);
+        GlFacade.get().glVertexAttribPointer(mCoord, TEXCOORDS_PER_VERTEX, GLES20.GL_FLOAT, false, 0,
+            mTexTransformedBuffer);
 
         // Number of vertices.
-        GLES20.glDrawArrays(GLES20.GL_TRIANGLE_STRIP, 0, GLDRAW_ARRAYS_COUNT);
-        GLES20.glDisableVertexAttribArray(mPosition);
-        GLES20.glDisableVertexAttribArray(mCoord);
+        GlFacade.get().glDrawArrays(GLES20.GL_TRIANGLE_STRIP, 0, GLDRAW_ARRAYS_COUNT);
+        GlFacade.get().glDisableVertexAttribArray(mPosition);
+        GlFacade.get().glDisableVertexAttribArray(mCoord);
 
-        GLES20.glDepthMask(true);
-        GLES20.glEnable(GLES20.GL_DEPTH_TEST);
+        GlFacade.get().glDepthMask(true);
+        GlFacade.get().glEnable(GLES20.GL_DEPTH_TEST);
         ShaderUtil.checkGlError(TAG, "On draw frame end.");
     }
 
@@ -233,12 +238,12 @@ public class BodyMaskDisplay implements BaseBackgroundDisplay {
     private void createProgram() {
         ShaderUtil.checkGlError(TAG, "Create gl program start.");
         mProgram = BodyShaderUtil.createShadowGlProgram();
-        mPosition = GLES20.glGetAttribLocation(mProgram, "a_Position");
-        mCoord = GLES20.glGetAttribLocation(mProgram, "a_TexCoord");
-        mMatrix = GLES20.glGetUniformLocation(mProgram, "vMatrix");
-        mCoordMatrix = GLES20.glGetUniformLocation(mProgram, "vCoordMatrix");
-        mMaskParam = GLES20.glGetUniformLocation(mProgram, "u_Mask");
-        mUseMaskParam = GLES20.glGetUniformLocation(mProgram, "u_UseMask");
+        mPosition = GlFacade.get().glGetAttribLocation(mProgram, "a_Position");
+        mCoord = GlFacade.get().glGetAttribLocation(mProgram, "a_TexCoord");
+        mMatrix = GlFacade.get().glGetUniformLocation(mProgram, "vMatrix");
+        mCoordMatrix = GlFacade.get().glGetUniformLocation(mProgram, "vCoordMatrix");
+        mMaskParam = GlFacade.get().glGetUniformLocation(mProgram, "u_Mask");
+        mUseMaskParam = GlFacade.get().glGetUniformLocation(mProgram, "u_UseMask");
         ShaderUtil.checkGlError(TAG, "Create gl program end.");
     }
 
@@ -269,7 +274,7 @@ public class BodyMaskDisplay implements BaseBackgroundDisplay {
      * Clear the canvas.
      */
     private void clear() {
-        GLES20.glClearColor(RGB_CLEAR_VALUE, RGB_CLEAR_VALUE, RGB_CLEAR_VALUE, 1.0f);
-        GLES20.glClear(GLES20.GL_DEPTH_BUFFER_BIT);
+        GlFacade.get().glClearColor(RGB_CLEAR_VALUE, RGB_CLEAR_VALUE, RGB_CLEAR_VALUE, 1.0f);
+        GlFacade.get().glClear(GLES20.GL_DEPTH_BUFFER_BIT);
     }
 }
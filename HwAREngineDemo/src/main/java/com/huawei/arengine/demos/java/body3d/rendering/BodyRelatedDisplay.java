@@ -16,9 +16,11 @@
 
 package com.huawei.arengine.demos.java.body3d.rendering;
 
+import com.huawei.arengine.demos.common.TrackableSnapshot;
 import com.huawei.hiar.ARBody;
 
 import java.util.Collection;
+import java.util.List;
 
 /**
  * Rendering body AR type related data.
@@ -39,4 +41,12 @@ public interface BodyRelatedDisplay {
      * @param projectionMatrix Camera projection matrix.
      */
     void onDrawFrame(Collection<ARBody> bodies, float[] projectionMatrix);
+
+    /**
+     * Render the body snapshots of the frame, which come from the live session or from a recording.
+     *
+     * @param bodies Body snapshots.
+     * @param projectionMatrix Camera projection matrix.
+     */
+    void drawSnapshots(List<TrackableSnapshot> bodies, float[] projectionMatrix);
 }
\ No newline at end of file
@@ -20,6 +20,7 @@ import android.app.Activity;
 import android.util.Size;
 
 import com.huawei.arengine.demos.common.ArDemoRuntimeException;
+import com.huawei.arengine.demos.common.ArSessionFrameSource;
 import com.huawei.arengine.demos.common.BaseRendererManager;
 import com.huawei.arengine.demos.common.LogUtil;
 import com.huawei.hiar.ARBody;
@@ -62,6 +63,7 @@ public class BodyRendererManager extends BaseRendererManager implements BaseRend
         mBodyRelatedDisplays.add(bodySkeletonDisplay);
         mBodyRelatedDisplays.add(bodySkeletonLineDisplay);
         setRenderer(this);
+        setCaptureMask(ArSessionFrameSource.CAPTURE_BODIES);
         useDefaultBackGround(new BodyMaskDisplay());
     }
 
@@ -110,7 +112,7 @@ public class BodyRendererManager extends BaseRendererManager implements BaseRend
             mTextDisplay.onDrawFrame(sb.toString());
 
             for (BodyRelatedDisplay bodyRelatedDisplay : mBodyRelatedDisplays) {
-                bodyRelatedDisplay.onDrawFrame(bodies, mProjectionMatrix);
+                bodyRelatedDisplay.drawSnapshots(getFrameSnapshot().getBodies(), mProjectionMatrix);
             }
         } catch (ArDemoRuntimeException e) {
             LogUtil.error(TAG, "Exception on the ArDemoRuntimeException!");
@@ -131,8 +133,7 @@ public class BodyRendererManager extends BaseRendererManager implements BaseRend
         if (body == null) {
             return;
         }
-        float fpsResult = doFpsCalculate();
-        sb.append("FPS=").append(fpsResult).append(System.lineSeparator());
+        appendFrameSummary(sb);
         int bodyAction = body.getBodyAction();
         sb.append("bodyAction=").append(bodyAction).append(System.lineSeparator());
     }
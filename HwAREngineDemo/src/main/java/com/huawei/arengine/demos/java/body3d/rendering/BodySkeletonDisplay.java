@@ -18,13 +18,17 @@ package com.huawei.arengine.demos.java.body3d.rendering;
 
 import android.opengl.GLES20;
 
+import com.huawei.arengine.demos.common.DynamicVertexBuffer;
+import com.huawei.arengine.demos.common.GlFacade;
 import com.huawei.arengine.demos.common.ShaderUtil;
+import com.huawei.arengine.demos.common.StagingBuffer;
+import com.huawei.arengine.demos.common.TrackableSnapshot;
 import com.huawei.hiar.ARBody;
 import com.huawei.hiar.ARCoordinateSystemType;
 import com.huawei.hiar.ARTrackable;
 
-import java.nio.FloatBuffer;
 import java.util.Collection;
+import java.util.List;
 
 /**
  * Obtain and pass the skeleton data to openGL ES, which will render the data and displays it on the screen.
@@ -45,9 +49,8 @@ public class BodySkeletonDisplay implements BodyRelatedDisplay {
 
     private static final float DRAW_COORDINATE = 2.0f;
 
-    private int mVbo;
-
-    private int mVboSize;
+    private final DynamicVertexBuffer mVbo =
+        new DynamicVertexBuffer(GLES20.GL_ARRAY_BUFFER, INITIAL_POINTS_SIZE * BYTES_PER_POINT);
 
     private int mProgram;
 
@@ -63,10 +66,6 @@ public class BodySkeletonDisplay implements BodyRelatedDisplay {
 
     private int mNumPoints = 0;
 
-    private int mPointsNum = 0;
-
-    private FloatBuffer mSkeletonPoints;
-
     /**
      * Create a body skeleton shader on the GL thread.
      * This method is called when {@link BodyRendererManager#onSurfaceCreated}.
@@ -74,14 +73,8 @@ public class BodySkeletonDisplay implements BodyRelatedDisplay {
     @Override
     public void init() {
         ShaderUtil.checkGlError(TAG, "Init body skeleton shader start.");
-        int[] buffers = new int[1];
-        GLES20.glGenBuffers(1, buffers, 0);
-        mVbo = buffers[0];
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, mVbo);
-
-        mVboSize = INITIAL_POINTS_SIZE * BYTES_PER_POINT;
-        GLES20.glBufferData(GLES20.GL_ARRAY_BUFFER, mVboSize, null, GLES20.GL_DYNAMIC_DRAW);
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+        mVbo.init();
+
         ShaderUtil.checkGlError(TAG, "Before create body skeleton gl program.");
         createProgram();
         ShaderUtil.checkGlError(TAG, "Init body skeleton shader end.");
@@ -90,30 +83,20 @@ public class BodySkeletonDisplay implements BodyRelatedDisplay {
     private void createProgram() {
         ShaderUtil.checkGlError(TAG, "Create gl program start.");
         mProgram = BodyShaderUtil.createSkeletonGlProgram();
-        mColor = GLES20.glGetUniformLocation(mProgram, "inColor");
-        mPosition = GLES20.glGetAttribLocation(mProgram, "inPosition");
-        mPointSize = GLES20.glGetUniformLocation(mProgram, "inPointSize");
-        mProjectionMatrix = GLES20.glGetUniformLocation(mProgram, "inProjectionMatrix");
-        mCoordinateSystem = GLES20.glGetUniformLocation(mProgram, "inCoordinateSystem");
+        mColor = GlFacade.get().glGetUniformLocation(mProgram, "inColor");
+        mPosition = GlFacade.get().glGetAttribLocation(mProgram, "inPosition");
+        mPointSize = GlFacade.get().glGetUniformLocation(mProgram, "inPointSize");
+        mProjectionMatrix = GlFacade.get().glGetUniformLocation(mProgram, "inProjectionMatrix");
+        mCoordinateSystem = GlFacade.get().glGetUniformLocation(mProgram, "inCoordinateSystem");
         ShaderUtil.checkGlError(TAG, "Create gl program end.");
     }
 
-    private void updateBodySkeleton() {
+    private void updateBodySkeleton(int[] isExists, float[] skeletonPoints) {
         ShaderUtil.checkGlError(TAG, "Update Body Skeleton data start.");
-
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, mVbo);
-        mNumPoints = mPointsNum;
-
-        if (mVboSize < mNumPoints * BYTES_PER_POINT) {
-            while (mVboSize < mNumPoints * BYTES_PER_POINT) {
-                // If the size of VBO is insufficient to accommodate the new point cloud, resize the VBO.
-                mVboSize *= 2;
-            }
-            GLES20.glBufferData(GLES20.GL_ARRAY_BUFFER, mVboSize, null, GLES20.GL_DYNAMIC_DRAW);
+        try (StagingBuffer staging = StagingBuffer.acquire(isExists.length * 3)) {
+            mNumPoints = findValidSkeletonPoints(isExists, skeletonPoints, staging);
+            mVbo.upload(staging.flip(), mNumPoints * BYTES_PER_POINT);
         }
-        GLES20.glBufferSubData(GLES20.GL_ARRAY_BUFFER, 0, mNumPoints * BYTES_PER_POINT, mSkeletonPoints);
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
-
         ShaderUtil.checkGlError(TAG, "Update Body Skeleton data end.");
     }
 
@@ -129,11 +112,26 @@ public class BodySkeletonDisplay implements BodyRelatedDisplay {
         for (ARBody body : bodies) {
             if (body.getTrackingState() == ARTrackable.TrackingState.TRACKING) {
                 float coordinate = 1.0f;
+
+                // Determine whether the data returned by the algorithm is 3D human
+                // skeleton data or 2D human skeleton data, and obtain valid skeleton points.
                 if (body.getCoordinateSystemType() == ARCoordinateSystemType.COORDINATE_SYSTEM_TYPE_3D_CAMERA) {
                     coordinate = DRAW_COORDINATE;
+                    updateBodySkeleton(body.getSkeletonPointIsExist3D(), body.getSkeletonPoint3D());
+                } else {
+                    updateBodySkeleton(body.getSkeletonPointIsExist2D(), body.getSkeletonPoint2D());
                 }
-                findValidSkeletonPoints(body);
-                updateBodySkeleton();
+                drawBodySkeleton(coordinate, projectionMatrix);
+            }
+        }
+    }
+
+    @Override
+    public void drawSnapshots(List<TrackableSnapshot> bodies, float[] projectionMatrix) {
+        for (TrackableSnapshot body : bodies) {
+            if (body.isTracking()) {
+                float coordinate = body.is3dCoordinate() ? DRAW_COORDINATE : 1.0f;
+                updateBodySkeleton(body.getPointFlags(), body.getPoints());
                 drawBodySkeleton(coordinate, projectionMatrix);
             }
         }
@@ -142,56 +140,35 @@ public class BodySkeletonDisplay implements BodyRelatedDisplay {
     private void drawBodySkeleton(float coordinate, float[] projectionMatrix) {
         ShaderUtil.checkGlError(TAG, "Draw body skeleton start.");
 
-        GLES20.glUseProgram(mProgram);
-        GLES20.glEnableVertexAttribArray(mPosition);
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, mVbo);
+        GlFacade.get().glUseProgram(mProgram);
+        GlFacade.get().glEnableVertexAttribArray(mPosition);
+        mVbo.bind();
 
         // The size of the vertex attribute is 4, and each vertex has four coordinate components.
-        GLES20.glVertexAttribPointer(
+        GlFacade.get().glVertexAttribPointer(
             mPosition, 4, GLES20.GL_FLOAT, false, BYTES_PER_POINT, 0);
-        GLES20.glUniform4f(mColor, 0.0f, 0.0f, 1.0f, 1.0f);
-        GLES20.glUniformMatrix4fv(mProjectionMatrix, 1, false, projectionMatrix, 0);
+        GlFacade.get().glUniform4f(mColor, 0.0f, 0.0f, 1.0f, 1.0f);
+        GlFacade.get().glUniformMatrix4fv(mProjectionMatrix, 1, false, projectionMatrix, 0);
 
         // Set the size of the skeleton points.
-        GLES20.glUniform1f(mPointSize, 30.0f);
-        GLES20.glUniform1f(mCoordinateSystem, coordinate);
+        GlFacade.get().glUniform1f(mPointSize, 30.0f);
+        GlFacade.get().glUniform1f(mCoordinateSystem, coordinate);
 
-        GLES20.glDrawArrays(GLES20.GL_POINTS, 0, mNumPoints);
-        GLES20.glDisableVertexAttribArray(mPosition);
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+        GlFacade.get().glDrawArrays(GLES20.GL_POINTS, 0, mNumPoints);
+        GlFacade.get().glDisableVertexAttribArray(mPosition);
 
         ShaderUtil.checkGlError(TAG, "Draw body skeleton end.");
     }
 
-    private void findValidSkeletonPoints(ARBody arBody) {
-        int[] isExists;
-        float[] points;
-        float[] skeletonPoints;
-
-        // Determine whether the data returned by the algorithm is 3D human
-        // skeleton data or 2D human skeleton data, and obtain valid skeleton points.
-        if (arBody.getCoordinateSystemType() == ARCoordinateSystemType.COORDINATE_SYSTEM_TYPE_3D_CAMERA) {
-            isExists = arBody.getSkeletonPointIsExist3D();
-            points = new float[isExists.length * 3];
-            skeletonPoints = arBody.getSkeletonPoint3D();
-        } else {
-            isExists = arBody.getSkeletonPointIsExist2D();
-            points = new float[isExists.length * 3];
-            skeletonPoints = arBody.getSkeletonPoint2D();
-        }
-
+    private int findValidSkeletonPoints(int[] isExists, float[] skeletonPoints, StagingBuffer points) {
         // Save the three coordinates of each joint point(each point has three coordinates).
-        int index = 0;
         int validPointNum = 0;
         for (int i = 0; i < isExists.length; i++) {
             if (isExists[i] != 0) {
-                points[index++] = skeletonPoints[3 * i];
-                points[index++] = skeletonPoints[3 * i + 1];
-                points[index++] = skeletonPoints[3 * i + 2];
+                points.put(skeletonPoints[3 * i], skeletonPoints[3 * i + 1], skeletonPoints[3 * i + 2]);
                 validPointNum++;
             }
         }
-        mSkeletonPoints = FloatBuffer.wrap(points);
-        mPointsNum = validPointNum;
+        return validPointNum;
     }
 }
\ No newline at end of file
@@ -18,13 +18,17 @@ package com.huawei.arengine.demos.java.body3d.rendering;
 
 import android.opengl.GLES20;
 
+import com.huawei.arengine.demos.common.DynamicVertexBuffer;
+import com.huawei.arengine.demos.common.GlFacade;
 import com.huawei.arengine.demos.common.ShaderUtil;
+import com.huawei.arengine.demos.common.StagingBuffer;
+import com.huawei.arengine.demos.common.TrackableSnapshot;
 import com.huawei.hiar.ARBody;
 import com.huawei.hiar.ARCoordinateSystemType;
 import com.huawei.hiar.ARTrackable;
 
-import java.nio.FloatBuffer;
 import java.util.Collection;
+import java.util.List;
 
 /**
  * Gets the skeleton point connection data and pass it to OpenGL ES for rendering on the screen.
@@ -47,9 +51,8 @@ public class BodySkeletonLineDisplay implements BodyRelatedDisplay {
 
     private static final int LINE_POINT_RATIO = 6;
 
-    private int mVbo;
-
-    private int mVboSize = INITIAL_BUFFER_POINTS * BYTES_PER_POINT;
+    private final DynamicVertexBuffer mVbo =
+        new DynamicVertexBuffer(GLES20.GL_ARRAY_BUFFER, INITIAL_BUFFER_POINTS * BYTES_PER_POINT);
 
     private int mProgram;
 
@@ -65,10 +68,6 @@ public class BodySkeletonLineDisplay implements BodyRelatedDisplay {
 
     private int mNumPoints = 0;
 
-    private int mPointsLineNum = 0;
-
-    private FloatBuffer mLinePoints;
-
     /**
      * Create a body skeleton line shader on the GL thread.
      * This method is called when {@link BodyRendererManager#onSurfaceCreated}.
@@ -77,53 +76,47 @@ public class BodySkeletonLineDisplay implements BodyRelatedDisplay {
     public void init() {
         ShaderUtil.checkGlError(TAG, "Init start.");
 
-        int[] buffers = new int[1];
-        GLES20.glGenBuffers(1, buffers, 0);
-        mVbo = buffers[0];
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, mVbo);
+        mVbo.init();
 
         ShaderUtil.checkGlError(TAG, "Before create gl program.");
         createProgram();
-        GLES20.glBufferData(GLES20.GL_ARRAY_BUFFER, mVboSize, null, GLES20.GL_DYNAMIC_DRAW);
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
         ShaderUtil.checkGlError(TAG, "Init end.");
     }
 
     private void createProgram() {
         ShaderUtil.checkGlError(TAG, "Create gl program start.");
         mProgram = BodyShaderUtil.createSkeletonGlProgram();
-        mPosition = GLES20.glGetAttribLocation(mProgram, "inPosition");
-        mColor = GLES20.glGetUniformLocation(mProgram, "inColor");
-        mPointSize = GLES20.glGetUniformLocation(mProgram, "inPointSize");
-        mProjectionMatrix = GLES20.glGetUniformLocation(mProgram, "inProjectionMatrix");
-        mCoordinateSystem = GLES20.glGetUniformLocation(mProgram, "inCoordinateSystem");
+        mPosition = GlFacade.get().glGetAttribLocation(mProgram, "inPosition");
+        mColor = GlFacade.get().glGetUniformLocation(mProgram, "inColor");
+        mPointSize = GlFacade.get().glGetUniformLocation(mProgram, "inPointSize");
+        mProjectionMatrix = GlFacade.get().glGetUniformLocation(mProgram, "inProjectionMatrix");
+        mCoordinateSystem = GlFacade.get().glGetUniformLocation(mProgram, "inCoordinateSystem");
         ShaderUtil.checkGlError(TAG, "Create gl program end.");
     }
 
     private void drawSkeletonLine(float coordinate, float[] projectionMatrix) {
         ShaderUtil.checkGlError(TAG, "Draw skeleton line start.");
-        GLES20.glUseProgram(mProgram);
-        GLES20.glEnableVertexAttribArray(mPosition);
-        GLES20.glEnableVertexAttribArray(mColor);
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, mVbo);
+        GlFacade.get().glUseProgram(mProgram);
+        GlFacade.get().glEnableVertexAttribArray(mPosition);
+        GlFacade.get().glEnableVertexAttribArray(mColor);
+        mVbo.bind();
 
         // Set the width of the rendered skeleton line.
-        GLES20.glLineWidth(18.0f);
+        GlFacade.get().glLineWidth(18.0f);
 
         // The size of the vertex attribute is 4, and each vertex has four coordinate components.
-        GLES20.glVertexAttribPointer(
+        GlFacade.get().glVertexAttribPointer(
             mPosition, 4, GLES20.GL_FLOAT, false, BYTES_PER_POINT, 0);
-        GLES20.glUniform4f(mColor, 1.0f, 0.0f, 0.0f, 1.0f);
-        GLES20.glUniformMatrix4fv(mProjectionMatrix, 1, false, projectionMatrix, 0);
+        GlFacade.get().glUniform4f(mColor, 1.0f, 0.0f, 0.0f, 1.0f);
+        GlFacade.get().glUniformMatrix4fv(mProjectionMatrix, 1, false, projectionMatrix, 0);
 
         // Set the size of the points.
-        GLES20.glUniform1f(mPointSize, 100.0f);
-        GLES20.glUniform1f(mCoordinateSystem, coordinate);
+        GlFacade.get().glUniform1f(mPointSize, 100.0f);
+        GlFacade.get().glUniform1f(mCoordinateSystem, coordinate);
 
-        GLES20.glDrawArrays(GLES20.GL_LINES, 0, mNumPoints);
-        GLES20.glDisableVertexAttribArray(mPosition);
-        GLES20.glDisableVertexAttribArray(mColor);
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+        GlFacade.get().glDrawArrays(GLES20.GL_LINES, 0, mNumPoints);
+        GlFacade.get().glDisableVertexAttribArray(mPosition);
+        GlFacade.get().glDisableVertexAttribArray(mColor);
 
         ShaderUtil.checkGlError(TAG, "Draw skeleton line end.");
     }
@@ -142,49 +135,47 @@ public class BodySkeletonLineDisplay implements BodyRelatedDisplay {
                 float coordinate = 1.0f;
                 if (body.getCoordinateSystemType() == ARCoordinateSystemType.COORDINATE_SYSTEM_TYPE_3D_CAMERA) {
                     coordinate = COORDINATE_SYSTEM_TYPE_3D_FLAG;
+                    updateBodySkeletonLineData(body.getSkeletonPointIsExist3D(), body.getSkeletonPoint3D(),
+                        body.getBodySkeletonConnection());
+                } else {
+                    updateBodySkeletonLineData(body.getSkeletonPointIsExist2D(), body.getSkeletonPoint2D(),
+                        body.getBodySkeletonConnection());
                 }
-                updateBodySkeletonLineData(body);
+                drawSkeletonLine(coordinate, projectionMatrix);
+            }
+        }
+    }
+
+    @Override
+    public void drawSnapshots(List<TrackableSnapshot> bodies, float[] projectionMatrix) {
+        for (TrackableSnapshot body : bodies) {
+            if (body.isTracking()) {
+                float coordinate = body.is3dCoordinate() ? COORDINATE_SYSTEM_TYPE_3D_FLAG : 1.0f;
+                updateBodySkeletonLineData(body.getPointFlags(), body.getPoints(), body.getConnections());
                 drawSkeletonLine(coordinate, projectionMatrix);
             }
         }
     }
 
     /**
-     * Update body connection data.
+     * Update body connection data found by findValidConnectionSkeletonLines.
      *
-     * @param body tracking results for body skeleton tracking.
+     * @param isExists Whether each skeleton point exists.
+     * @param coors Coordinates of the skeleton points.
+     * @param connections Indexes of the two ends of each connection line.
      */
-    private void updateBodySkeletonLineData(ARBody body) {
-        findValidConnectionSkeletonLines(body);
+    private void updateBodySkeletonLineData(int[] isExists, float[] coors, int[] connections) {
         ShaderUtil.checkGlError(TAG, "Update body skeleton line data start.");
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, mVbo);
-        mNumPoints = mPointsLineNum;
-        if (mVboSize < mNumPoints * BYTES_PER_POINT) {
-            while (mVboSize < mNumPoints * BYTES_PER_POINT) {
-                // If the storage space is insufficient, allocate double the space.
-                mVboSize *= 2;
-            }
-            GLES20.glBufferData(GLES20.GL_ARRAY_BUFFER, mVboSize, null, GLES20.GL_DYNAMIC_DRAW);
+        try (StagingBuffer staging = StagingBuffer.acquire(LINE_POINT_RATIO * connections.length)) {
+            mNumPoints = findValidConnectionSkeletonLines(isExists, coors, connections, staging);
+            mVbo.upload(staging.flip(), mNumPoints * BYTES_PER_POINT);
         }
-        GLES20.glBufferSubData(GLES20.GL_ARRAY_BUFFER, 0, mNumPoints * BYTES_PER_POINT, mLinePoints);
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
         ShaderUtil.checkGlError(TAG, "Update body skeleton line data end.");
     }
 
-    private void findValidConnectionSkeletonLines(ARBody arBody) {
-        mPointsLineNum = 0;
-        int[] connections = arBody.getBodySkeletonConnection();
-        float[] linePoints = new float[LINE_POINT_RATIO * connections.length];
-        float[] coors;
-        int[] isExists;
-
-        if (arBody.getCoordinateSystemType() == ARCoordinateSystemType.COORDINATE_SYSTEM_TYPE_3D_CAMERA) {
-            coors = arBody.getSkeletonPoint3D();
-            isExists = arBody.getSkeletonPointIsExist3D();
-        } else {
-            coors = arBody.getSkeletonPoint2D();
-            isExists = arBody.getSkeletonPointIsExist2D();
-        }
+    private int findValidConnectionSkeletonLines(int[] isExists, float[] coors, int[] connections,
+        StagingBuffer linePoints) {
+        int pointsLineNum = 0;
 
         // Filter out valid skeleton connection lines based on the returned results,
         // which consist of indexes of two ends, for example, [p0,p1;p0,p3;p0,p5;p1,p2].
@@ -192,15 +183,13 @@ public class BodySkeletonLineDisplay implements BodyRelatedDisplay {
         // line and saves them in sequence.
         for (int j = 0; j < connections.length; j += 2) {
             if (isExists[connections[j]] != 0 && isExists[connections[j + 1]] != 0) {
-                linePoints[mPointsLineNum * 3] = coors[3 * connections[j]];
-                linePoints[mPointsLineNum * 3 + 1] = coors[3 * connections[j] + 1];
-                linePoints[mPointsLineNum * 3 + 2] = coors[3 * connections[j] + 2];
-                linePoints[mPointsLineNum * 3 + 3] = coors[3 * connections[j + 1]];
-                linePoints[mPointsLineNum * 3 + 4] = coors[3 * connections[j + 1] + 1];
-                linePoints[mPointsLineNum * 3 + 5] = coors[3 * connections[j + 1] + 2];
-                mPointsLineNum += 2;
+                int start = 3 * connections[j];
+                int end = 3 * connections[j + 1];
+                linePoints.put(coors[start], coors[start + 1], coors[start + 2])
+                    .put(coors[end], coors[end + 1], coors[end + 2]);
+                pointsLineNum += 2;
             }
         }
-        mLinePoints = FloatBuffer.wrap(linePoints);
+        return pointsLineNum;
     }
 }
\ No newline at end of file
@@ -95,8 +95,7 @@ public class ObjectRendererManager extends BaseRendererManager implements BaseRe
      * @param updatedObjects updated ar objects
      */
     private void updateMessageData(StringBuilder sb, Collection<ARObject> updatedObjects) {
-        float fpsResult = doFpsCalculate();
-        sb.append("FPS=").append(fpsResult).append(System.lineSeparator());
+        appendFrameSummary(sb);
         sb.append("object size: ").append(updatedObjects.size()).append(System.lineSeparator());
         for (ARObject arObject : updatedObjects) {
             sb.append("object state: ").append(arObject.getTrackingState()).append(System.lineSeparator());
@@ -18,12 +18,12 @@ package com.huawei.arengine.demos.java.cloudimage.model;
 
 import android.opengl.GLES20;
 
+import com.huawei.arengine.demos.common.GlFacade;
+import com.huawei.arengine.demos.common.StagingBuffer;
 import com.huawei.arengine.demos.java.cloudimage.common.CornerType;
 import com.huawei.hiar.ARAugmentedImage;
 import com.huawei.hiar.ARPose;
 
-import java.nio.FloatBuffer;
-
 /**
  * cloud image box augmented.
  *
@@ -48,13 +48,16 @@ public class ImageBox {
 
     private static final float[] COEFFICIENTS = {0.5f, 0.5f, 0.5f, 0.35f, 0.35f, 0.5f};
 
-    private ShaderPojo shaderPojo;
+    /**
+     * Cached corner types, because CornerType.values() creates an array on each call.
+     */
+    private static final CornerType[] CORNER_TYPES = CornerType.values();
 
-    private ARAugmentedImage augmentedImage;
+    private final float[] coefficient = new float[COEFFICIENTS.length];
 
-    private float[] cornerPointCoordinates;
+    private ShaderPojo shaderPojo;
 
-    private int index = 0;
+    private ARAugmentedImage augmentedImage;
 
     /**
      * constructor to augmented image.
@@ -73,40 +76,36 @@ public class ImageBox {
      * @param viewProjectionMatrix view Projection Matrix
      */
     public void draw(float[] viewProjectionMatrix) {
-        cornerPointCoordinates = new float[BYTES_PER_CORNER * MATRIX_COLUMNS_FOURTH];
-        for (CornerType cornerType : CornerType.values()) {
-            createImageBoxCorner(cornerType);
+        try (StagingBuffer staging = StagingBuffer.acquire(BYTES_PER_CORNER * CORNER_TYPES.length)) {
+            for (CornerType cornerType : CORNER_TYPES) {
+                writeImageBoxCorner(cornerType, staging);
+            }
+            updateImageBoxCornerPoints(staging);
         }
-
-        updateImageBoxCornerPoints(cornerPointCoordinates);
         drawImageBox(viewProjectionMatrix);
-        cornerPointCoordinates = null;
-        index = 0;
     }
 
     private void drawImageBox(float[] viewProjectionMatrix) {
-        GLES20.glUseProgram(shaderPojo.getProgram());
-        GLES20.glEnableVertexAttribArray(shaderPojo.getPosition());
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, shaderPojo.getVbo());
+        GlFacade.get().glUseProgram(shaderPojo.getProgram());
+        GlFacade.get().glEnableVertexAttribArray(shaderPojo.getPosition());
+        shaderPojo.getVbo().bind();
 
         // The size of the vertex attribute is 4, and each vertex has four coordinate components
-        GLES20.glVertexAttribPointer(shaderPojo.getPosition(), MATRIX_COLUMNS_FOURTH, GLES20.GL_FLOAT, false,
+        GlFacade.get().glVertexAttribPointer(shaderPojo.getPosition(), MATRIX_COLUMNS_FOURTH, GLES20.GL_FLOAT, false,
             BYTES_PER_POINT, 0);
 
         // Set the color of the skeleton points to blue.
-        GLES20.glUniform4f(shaderPojo.getColor(), 0.56f, 0.93f, 0.56f, 0.5f);
-        GLES20.glUniformMatrix4fv(shaderPojo.getMvpMatrix(), 1, false, viewProjectionMatrix, 0);
+        GlFacade.get().glUniform4f(shaderPojo.getColor(), 0.56f, 0.93f, 0.56f, 0.5f);
+        GlFacade.get().glUniformMatrix4fv(shaderPojo.getMvpMatrix(), 1, false, viewProjectionMatrix, 0);
 
         // Set the size of the skeleton points.
-        GLES20.glUniform1f(shaderPojo.getPointSize(), POINT_SIZE);
+        GlFacade.get().glUniform1f(shaderPojo.getPointSize(), POINT_SIZE);
 
-        GLES20.glDrawArrays(GLES20.GL_TRIANGLES, 0, shaderPojo.getNumPoints());
-        GLES20.glDisableVertexAttribArray(shaderPojo.getPosition());
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+        GlFacade.get().glDrawArrays(GLES20.GL_TRIANGLES, 0, shaderPojo.getNumPoints());
+        GlFacade.get().glDisableVertexAttribArray(shaderPojo.getPosition());
     }
 
-    private void createImageBoxCorner(CornerType cornerType) {
-        float[] coefficient = new float[COEFFICIENTS.length];
+    private void writeImageBoxCorner(CornerType cornerType, StagingBuffer cornerPoints) {
         switch (cornerType) {
             case LOWER_RIGHT:
                 // generate point coordinates coefficent
@@ -125,26 +124,14 @@ public class ImageBox {
                 break;
         }
 
-        ARPose[] localBoundaryPoses = new ARPose[MATRIX_COLUMNS_THIRD];
-        for (int i = 0; i < localBoundaryPoses.length; i++) {
-            localBoundaryPoses[i] =
+        ARPose centerPose = augmentedImage.getCenterPose();
+        for (int i = 0; i < MATRIX_COLUMNS_THIRD; ++i) {
+            ARPose localBoundaryPose =
                 ARPose.makeTranslation(coefficient[i * MATRIX_COLUMNS_SECOND] * augmentedImage.getExtentX(), 0.0f,
                     coefficient[i * MATRIX_COLUMNS_SECOND + MATRIX_COLUMNS_FIRST] * augmentedImage.getExtentZ());
+            ARPose composeCenterPose = centerPose.compose(localBoundaryPose);
+            cornerPoints.put(composeCenterPose.tx(), composeCenterPose.ty(), composeCenterPose.tz(), 1.0f);
         }
-
-        ARPose centerPose = augmentedImage.getCenterPose();
-        ARPose[] composeCenterPose = new ARPose[localBoundaryPoses.length];
-        int cornerCoordinatePos = index * BYTES_PER_CORNER;
-        for (int i = 0; i < composeCenterPose.length; ++i) {
-            composeCenterPose[i] = centerPose.compose(localBoundaryPoses[i]);
-            cornerPointCoordinates[cornerCoordinatePos + i * MATRIX_COLUMNS_FOURTH] = composeCenterPose[i].tx();
-            cornerPointCoordinates[cornerCoordinatePos + i * MATRIX_COLUMNS_FOURTH + MATRIX_COLUMNS_FIRST] =
-                composeCenterPose[i].ty();
-            cornerPointCoordinates[cornerCoordinatePos + i * MATRIX_COLUMNS_FOURTH + MATRIX_COLUMNS_SECOND] =
-                composeCenterPose[i].tz();
-            cornerPointCoordinates[cornerCoordinatePos + i * MATRIX_COLUMNS_FOURTH + MATRIX_COLUMNS_THIRD] = 1.0f;
-        }
-        index++;
     }
 
     private void generateCoefficent(float[] coefficient, int coefficentX, int coefficentZ) {
@@ -159,22 +146,10 @@ public class ImageBox {
      *
      * @param cornerPoints 4 corner points of the image
      */
-    private void updateImageBoxCornerPoints(float[] cornerPoints) {
+    private void updateImageBoxCornerPoints(StagingBuffer cornerPoints) {
         // Each point has an 3D coordinate. The total number of coordinates
-        int mPointsNum = cornerPoints.length / MATRIX_COLUMNS_FOURTH;
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, shaderPojo.getVbo());
+        int mPointsNum = cornerPoints.getFloatCount() / MATRIX_COLUMNS_FOURTH;
         shaderPojo.setNumPoints(mPointsNum);
-        int vboSize = shaderPojo.getVboSize();
-        int numPoints = shaderPojo.getNumPoints();
-        if (vboSize < shaderPojo.getNumPoints() * BYTES_PER_POINT) {
-            while (vboSize < numPoints * BYTES_PER_POINT) {
-                // If the size of VBO is insufficient to accommodate the new point cloud, resize the VBO.
-                vboSize *= MATRIX_COLUMNS_SECOND;
-            }
-            GLES20.glBufferData(GLES20.GL_ARRAY_BUFFER, vboSize, null, GLES20.GL_DYNAMIC_DRAW);
-        }
-        FloatBuffer cornerPointBuffer = FloatBuffer.wrap(cornerPoints);
-        GLES20.glBufferSubData(GLES20.GL_ARRAY_BUFFER, 0, numPoints * BYTES_PER_POINT, cornerPointBuffer);
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+        shaderPojo.getVbo().upload(cornerPoints.flip(), mPointsNum * BYTES_PER_POINT);
     }
 }
@@ -16,6 +16,8 @@
 
 package com.huawei.arengine.demos.java.cloudimage.model;
 
+import com.huawei.arengine.demos.common.DynamicVertexBuffer;
+
 /**
  * Shader parameters used to draw OpenGL elements.
  *
@@ -23,9 +25,7 @@ package com.huawei.arengine.demos.java.cloudimage.model;
  * @since 2021-08-24
  */
 public class ShaderPojo {
-    private int vbo;
-
-    private int vboSize;
+    private DynamicVertexBuffer vbo;
 
     private int program;
 
@@ -39,22 +39,14 @@ public class ShaderPojo {
 
     private int numPoints;
 
-    public int getVbo() {
+    public DynamicVertexBuffer getVbo() {
         return vbo;
     }
 
-    public void setVbo(int vbo) {
+    public void setVbo(DynamicVertexBuffer vbo) {
         this.vbo = vbo;
     }
 
-    public int getVboSize() {
-        return vboSize;
-    }
-
-    public void setVboSize(int vboSize) {
-        this.vboSize = vboSize;
-    }
-
     public int getProgram() {
         return program;
     }
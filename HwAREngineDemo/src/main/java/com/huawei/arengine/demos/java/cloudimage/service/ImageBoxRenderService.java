@@ -19,6 +19,8 @@ package com.huawei.arengine.demos.java.cloudimage.service;
 import android.opengl.GLES20;
 import android.opengl.Matrix;
 
+import com.huawei.arengine.demos.common.DynamicVertexBuffer;
+import com.huawei.arengine.demos.common.GlFacade;
 import com.huawei.arengine.demos.common.ShaderUtil;
 import com.huawei.arengine.demos.java.cloudimage.model.ImageBox;
 import com.huawei.arengine.demos.java.cloudimage.model.ShaderPojo;
@@ -45,13 +47,10 @@ public class ImageBoxRenderService {
      */
     public void init() {
         ShaderUtil.checkGlError(TAG, "Init start.");
-        int[] buffers = new int[1];
-        GLES20.glGenBuffers(1, buffers, 0);
-        shaderPojo.setVbo(buffers[0]);
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, shaderPojo.getVbo());
-        shaderPojo.setVboSize(INITIAL_POINTS_SIZE * BYTES_PER_POINT);
-        GLES20.glBufferData(GLES20.GL_ARRAY_BUFFER, shaderPojo.getVboSize(), null, GLES20.GL_DYNAMIC_DRAW);
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+        DynamicVertexBuffer vbo =
+            new DynamicVertexBuffer(GLES20.GL_ARRAY_BUFFER, INITIAL_POINTS_SIZE * BYTES_PER_POINT);
+        vbo.init();
+        shaderPojo.setVbo(vbo);
         createProgram();
         ShaderUtil.checkGlError(TAG, "Init end.");
     }
@@ -61,10 +60,10 @@ public class ImageBoxRenderService {
         shaderPojo.setProgram(ShaderUtil.getGlProgram());
         int program = shaderPojo.getProgram();
         ShaderUtil.checkGlError(TAG, "program");
-        shaderPojo.setPosition(GLES20.glGetAttribLocation(program, "inPosition"));
-        shaderPojo.setColor(GLES20.glGetUniformLocation(program, "inColor"));
-        shaderPojo.setPointSize(GLES20.glGetUniformLocation(program, "inPointSize"));
-        shaderPojo.setMvpMatrix(GLES20.glGetUniformLocation(program, "inMVPMatrix"));
+        shaderPojo.setPosition(GlFacade.get().glGetAttribLocation(program, "inPosition"));
+        shaderPojo.setColor(GlFacade.get().glGetUniformLocation(program, "inColor"));
+        shaderPojo.setPointSize(GlFacade.get().glGetUniformLocation(program, "inPointSize"));
+        shaderPojo.setMvpMatrix(GlFacade.get().glGetUniformLocation(program, "inMVPMatrix"));
         ShaderUtil.checkGlError(TAG, "Create program end.");
     }
 
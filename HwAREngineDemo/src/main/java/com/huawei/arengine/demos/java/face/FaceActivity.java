@@ -18,7 +18,6 @@ package com.huawei.arengine.demos.java.face;
 
 import android.graphics.SurfaceTexture;
 import android.hardware.camera2.CameraCharacteristics;
-import android.opengl.GLES20;
 import android.opengl.GLSurfaceView;
 import android.os.Bundle;
 import android.os.Handler;
@@ -35,6 +34,7 @@ import android.widget.Toast;
 
 import com.huawei.arengine.demos.R;
 import com.huawei.arengine.demos.common.BaseActivity;
+import com.huawei.arengine.demos.common.GlFacade;
 import com.huawei.arengine.demos.common.ListDialog;
 import com.huawei.arengine.demos.common.LogUtil;
 import com.huawei.arengine.demos.common.SecurityUtil;
@@ -313,7 +313,7 @@ public class FaceActivity extends BaseActivity {
         // Check whether setCamera is called for the first time.
         if (textureId == -1) {
             int[] textureIds = new int[1];
-            GLES20.glGenTextures(1, textureIds, 0);
+            GlFacade.get().glGenTextures(1, textureIds, 0);
             textureId = textureIds[0];
         }
         mArSession.setCameraTextureName(textureId);
@@ -20,10 +20,12 @@ import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.opengl.GLES20;
-import android.opengl.GLUtils;
 import android.opengl.Matrix;
 
+import com.huawei.arengine.demos.common.DynamicVertexBuffer;
+import com.huawei.arengine.demos.common.GlFacade;
 import com.huawei.arengine.demos.common.LogUtil;
+import com.huawei.arengine.demos.common.NativeResourceTracker;
 import com.huawei.arengine.demos.common.ShaderUtil;
 import com.huawei.hiar.ARCamera;
 import com.huawei.hiar.ARFace;
@@ -90,8 +92,6 @@ public class FaceGeometryDisplay {
      */
     private static final int BYTES_PER_COORD = 4 * 2;
 
-    private static final int BUFFER_OBJECT_NUMBER = 2;
-
     private static final int POSITION_COMPONENTS_NUMBER = 4;
 
     private static final int TEXCOORD_COMPONENTS_NUMBER = 2;
@@ -100,19 +100,16 @@ public class FaceGeometryDisplay {
 
     private static final float PROJECTION_MATRIX_FAR = 100.0f;
 
-    private int mVerticeId;
-
     /**
-     * Initialize the size of the vertex VBO.
+     * Initialize the size of the vertex VBO to 8000 points.
      */
-    private int mVerticeBufferSize = 8000;
-
-    private int mTriangleId;
+    private final DynamicVertexBuffer mVerticeId =
+        new DynamicVertexBuffer(GLES20.GL_ARRAY_BUFFER, 8000 * BYTES_PER_POINT);
 
     /**
-     * Initialize the size of the triangle VBO.
+     * Initialize the size of the triangle VBO to 5000 indexes. Each index occupies 4 bytes.
      */
-    private int mTriangleBufferSize = 5000;
+    private final DynamicVertexBuffer mTriangleId = new DynamicVertexBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, 5000 * 4);
 
     private int mProgram;
 
@@ -148,26 +145,13 @@ public class FaceGeometryDisplay {
     void init(Context context) {
         ShaderUtil.checkGlError(TAG, "Init start.");
         int[] texNames = new int[1];
-        GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
-        GLES20.glGenTextures(1, texNames, 0);
+        GlFacade.get().glActiveTexture(GLES20.GL_TEXTURE0);
+        GlFacade.get().glGenTextures(1, texNames, 0);
         mTextureName = texNames[0];
 
-        int[] buffers = new int[BUFFER_OBJECT_NUMBER];
-        GLES20.glGenBuffers(BUFFER_OBJECT_NUMBER, buffers, 0);
-        mVerticeId = buffers[0];
-        mTriangleId = buffers[1];
-
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, mVerticeId);
-        GLES20.glBufferData(GLES20.GL_ARRAY_BUFFER, mVerticeBufferSize * BYTES_PER_POINT, null, GLES20.GL_DYNAMIC_DRAW);
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
-
-        GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, mTriangleId);
-
-        // Each floating-point number occupies 4 bytes.
-        GLES20.glBufferData(GLES20.GL_ELEMENT_ARRAY_BUFFER, mTriangleBufferSize * 4, null,
-            GLES20.GL_DYNAMIC_DRAW);
-        GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, 0);
-        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, mTextureName);
+        mVerticeId.init();
+        mTriangleId.init();
+        GlFacade.get().glBindTexture(GLES20.GL_TEXTURE_2D, mTextureName);
 
         createProgram();
         Bitmap textureBitmap;
@@ -178,25 +162,26 @@ public class FaceGeometryDisplay {
             return;
         }
 
-        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_S, GLES20.GL_CLAMP_TO_EDGE);
-        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_T, GLES20.GL_CLAMP_TO_EDGE);
-        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_LINEAR_MIPMAP_LINEAR);
-        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_LINEAR);
-        GLUtils.texImage2D(GLES20.GL_TEXTURE_2D, 0, textureBitmap, 0);
-        GLES20.glGenerateMipmap(GLES20.GL_TEXTURE_2D);
-        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, 0);
+        GlFacade.get().glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_S, GLES20.GL_CLAMP_TO_EDGE);
+        GlFacade.get().glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_T, GLES20.GL_CLAMP_TO_EDGE);
+        GlFacade.get().glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER,
+            GLES20.GL_LINEAR_MIPMAP_LINEAR);
+        GlFacade.get().glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_LINEAR);
+        GlFacade.get().texImage2D(GLES20.GL_TEXTURE_2D, 0, textureBitmap, 0);
+        GlFacade.get().glGenerateMipmap(GLES20.GL_TEXTURE_2D);
+        GlFacade.get().glBindTexture(GLES20.GL_TEXTURE_2D, 0);
         ShaderUtil.checkGlError(TAG, "Init end.");
     }
 
     private void createProgram() {
         ShaderUtil.checkGlError(TAG, "Create gl program start.");
         mProgram = ShaderUtil.createGlProgram(FACE_GEOMETRY_VERTEX, FACE_GEOMETRY_FRAGMENT);
-        mPositionAttribute = GLES20.glGetAttribLocation(mProgram, "inPosition");
-        mColorUniform = GLES20.glGetUniformLocation(mProgram, "inColor");
-        mModelViewProjectionUniform = GLES20.glGetUniformLocation(mProgram, "inMVPMatrix");
-        mPointSizeUniform = GLES20.glGetUniformLocation(mProgram, "inPointSize");
-        mTextureUniform = GLES20.glGetUniformLocation(mProgram, "inTexture");
-        mTextureCoordAttribute = GLES20.glGetAttribLocation(mProgram, "inTexCoord");
+        mPositionAttribute = GlFacade.get().glGetAttribLocation(mProgram, "inPosition");
+        mColorUniform = GlFacade.get().glGetUniformLocation(mProgram, "inColor");
+        mModelViewProjectionUniform = GlFacade.get().glGetUniformLocation(mProgram, "inMVPMatrix");
+        mPointSizeUniform = GlFacade.get().glGetUniformLocation(mProgram, "inPointSize");
+        mTextureUniform = GlFacade.get().glGetUniformLocation(mProgram, "inTexture");
+        mTextureCoordAttribute = GlFacade.get().glGetAttribLocation(mProgram, "inTexCoord");
         ShaderUtil.checkGlError(TAG, "Create gl program end.");
     }
 
@@ -208,11 +193,12 @@ public class FaceGeometryDisplay {
      * @param face ARFace.
      */
     public void onDrawFrame(ARCamera camera, ARFace face) {
-        ARFaceGeometry faceGeometry = face.getFaceGeometry();
-        updateFaceGeometryData(faceGeometry);
+        try (NativeResourceTracker.Handle<ARFaceGeometry> faceGeometry = NativeResourceTracker.acquire(
+            "face geometry", face.getFaceGeometry(), ARFaceGeometry::release)) {
+            updateFaceGeometryData(faceGeometry.get());
+        }
         updateModelViewProjectionData(camera, face);
         drawFaceGeometry();
-        faceGeometry.release();
     }
 
     private void updateFaceGeometryData(ARFaceGeometry faceGeometry) {
@@ -229,34 +215,17 @@ public class FaceGeometryDisplay {
         int texNum = textureCoordinates.limit() / 2;
         LogUtil.debug(TAG, "Update face geometry data: texture coordinates size:" + texNum);
 
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, mVerticeId);
-        if (mVerticeBufferSize < (mPointsNum + texNum) * BYTES_PER_POINT) {
-            while (mVerticeBufferSize < (mPointsNum + texNum) * BYTES_PER_POINT) {
-                // If the capacity of the vertex VBO buffer is insufficient, expand the capacity.
-                mVerticeBufferSize *= 2;
-            }
-            GLES20.glBufferData(GLES20.GL_ARRAY_BUFFER, mVerticeBufferSize, null, GLES20.GL_DYNAMIC_DRAW);
-        }
-        GLES20.glBufferSubData(GLES20.GL_ARRAY_BUFFER, 0, mPointsNum * BYTES_PER_POINT, faceVertices);
-
-        GLES20.glBufferSubData(GLES20.GL_ARRAY_BUFFER, mPointsNum * BYTES_PER_POINT, texNum * BYTES_PER_COORD,
-            textureCoordinates);
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+        // The vertices are followed by the texture coordinates in the same VBO.
+        mVerticeId.beginUpload(mPointsNum * BYTES_PER_POINT + texNum * BYTES_PER_COORD);
+        mVerticeId.write(0, mPointsNum * BYTES_PER_POINT, faceVertices);
+        mVerticeId.write(mPointsNum * BYTES_PER_POINT, texNum * BYTES_PER_COORD, textureCoordinates);
+        mVerticeId.endUpload();
 
         mTrianglesNum = faceGeometry.getTriangleCount();
         IntBuffer faceTriangleIndices = faceGeometry.getTriangleIndices();
         LogUtil.debug(TAG, "update face geometry data: faceTriangleIndices.size: " + faceTriangleIndices.limit());
 
-        GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, mTriangleId);
-        if (mTriangleBufferSize < mTrianglesNum * BYTES_PER_POINT) {
-            while (mTriangleBufferSize < mTrianglesNum * BYTES_PER_POINT) {
-                // If the capacity of the vertex VBO buffer is insufficient, expand the capacity.
-                mTriangleBufferSize *= 2;
-            }
-            GLES20.glBufferData(GLES20.GL_ELEMENT_ARRAY_BUFFER, mTriangleBufferSize, null, GLES20.GL_DYNAMIC_DRAW);
-        }
-        GLES20.glBufferSubData(GLES20.GL_ELEMENT_ARRAY_BUFFER, 0, mTrianglesNum * BYTES_PER_POINT, faceTriangleIndices);
-        GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, 0);
+        mTriangleId.upload(faceTriangleIndices, mTrianglesNum * BYTES_PER_POINT);
         ShaderUtil.checkGlError(TAG, "After update data.");
     }
 
@@ -280,50 +249,47 @@ public class FaceGeometryDisplay {
         ShaderUtil.checkGlError(TAG, "Before draw.");
         LogUtil.debug(TAG, "Draw face geometry: mPointsNum: " + mPointsNum + " mTrianglesNum: " + mTrianglesNum);
 
-        GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
-        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, mTextureName);
+        GlFacade.get().glActiveTexture(GLES20.GL_TEXTURE0);
+        GlFacade.get().glBindTexture(GLES20.GL_TEXTURE_2D, mTextureName);
         ShaderUtil.checkGlError(TAG, "Init texture.");
 
-        GLES20.glEnable(GLES20.GL_DEPTH_TEST);
-        GLES20.glEnable(GLES20.GL_CULL_FACE);
+        GlFacade.get().glEnable(GLES20.GL_DEPTH_TEST);
+        GlFacade.get().glEnable(GLES20.GL_CULL_FACE);
 
         // Draw point.
-        GLES20.glUseProgram(mProgram);
-        GLES20.glEnableVertexAttribArray(mPositionAttribute);
-        GLES20.glEnableVertexAttribArray(mTextureCoordAttribute);
-        GLES20.glEnableVertexAttribArray(mColorUniform);
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, mVerticeId);
-        GLES20.glVertexAttribPointer(mPositionAttribute, POSITION_COMPONENTS_NUMBER, GLES20.GL_FLOAT, false,
+        GlFacade.get().glUseProgram(mProgram);
+        GlFacade.get().glEnableVertexAttribArray(mPositionAttribute);
+        GlFacade.get().glEnableVertexAttribArray(mTextureCoordAttribute);
+        GlFacade.get().glEnableVertexAttribArray(mColorUniform);
+        mVerticeId.bind();
+        GlFacade.get().glVertexAttribPointer(mPositionAttribute, POSITION_COMPONENTS_NUMBER, GLES20.GL_FLOAT, false,
             BYTES_PER_POINT, 0);
-        GLES20.glVertexAttribPointer(mTextureCoordAttribute, TEXCOORD_COMPONENTS_NUMBER, GLES20.GL_FLOAT, false,
+        GlFacade.get().glVertexAttribPointer(mTextureCoordAttribute, TEXCOORD_COMPONENTS_NUMBER, GLES20.GL_FLOAT, false,
             BYTES_PER_COORD, 0);
-        GLES20.glUniform4f(mColorUniform, 1.0f, 0.0f, 0.0f, 1.0f);
-        GLES20.glUniformMatrix4fv(mModelViewProjectionUniform, 1, false, mModelViewProjections, 0);
-        GLES20.glUniform1f(mPointSizeUniform, 5.0f); // Set the size of Point to 5.
-        GLES20.glDrawArrays(GLES20.GL_POINTS, 0, mPointsNum);
-        GLES20.glDisableVertexAttribArray(mColorUniform);
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+        GlFacade.get().glUniform4f(mColorUniform, 1.0f, 0.0f, 0.0f, 1.0f);
+        GlFacade.get().glUniformMatrix4fv(mModelViewProjectionUniform, 1, false, mModelViewProjections, 0);
+        GlFacade.get().glUniform1f(mPointSizeUniform, 5.0f); // Set the size of Point to 5.
+        GlFacade.get().glDrawArrays(GLES20.GL_POINTS, 0, mPointsNum);
+        GlFacade.get().glDisableVertexAttribArray(mColorUniform);
         ShaderUtil.checkGlError(TAG, "Draw point.");
 
         // Draw triangles.
-        GLES20.glEnableVertexAttribArray(mColorUniform);
+        GlFacade.get().glEnableVertexAttribArray(mColorUniform);
 
         // Clear the color and use the texture color to draw triangles.
-        GLES20.glUniform4f(mColorUniform, 0.0f, 0.0f, 0.0f, 0.0f);
-        GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, mTriangleId);
+        GlFacade.get().glUniform4f(mColorUniform, 0.0f, 0.0f, 0.0f, 0.0f);
+        mTriangleId.bind();
 
         // The number of input triangle points
-        GLES20.glDrawElements(GLES20.GL_TRIANGLES, mTrianglesNum * 3, GLES20.GL_UNSIGNED_INT, 0);
-        GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, 0);
-        GLES20.glDisableVertexAttribArray(mColorUniform);
+        GlFacade.get().glDrawElements(GLES20.GL_TRIANGLES, mTrianglesNum * 3, GLES20.GL_UNSIGNED_INT, 0);
+        GlFacade.get().glDisableVertexAttribArray(mColorUniform);
         ShaderUtil.checkGlError(TAG, "Draw triangles.");
 
-        GLES20.glDisableVertexAttribArray(mTextureCoordAttribute);
-        GLES20.glDisableVertexAttribArray(mPositionAttribute);
-        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, 0);
+        GlFacade.get().glDisableVertexAttribArray(mTextureCoordAttribute);
+        GlFacade.get().glDisableVertexAttribArray(mPositionAttribute);
 
-        GLES20.glDisable(GLES20.GL_DEPTH_TEST);
-        GLES20.glDisable(GLES20.GL_CULL_FACE);
+        GlFacade.get().glDisable(GLES20.GL_DEPTH_TEST);
+        GlFacade.get().glDisable(GLES20.GL_CULL_FACE);
         ShaderUtil.checkGlError(TAG, "Draw after.");
     }
 }
\ No newline at end of file
@@ -21,9 +21,11 @@ import android.app.Activity;
 import com.huawei.arengine.demos.common.ArDemoRuntimeException;
 import com.huawei.arengine.demos.common.BaseRendererManager;
 import com.huawei.arengine.demos.common.LogUtil;
+import com.huawei.arengine.demos.common.NativeResourceTracker;
 import com.huawei.arengine.demos.java.face.FaceActivity;
 import com.huawei.hiar.ARConfigBase;
 import com.huawei.hiar.ARFace;
+import com.huawei.hiar.ARFaceGeometry;
 import com.huawei.hiar.ARFrame;
 import com.huawei.hiar.ARLightEstimate;
 import com.huawei.hiar.ARPose;
@@ -134,8 +136,7 @@ public class FaceRendererManager extends BaseRendererManager implements BaseRend
                 }
             }
             StringBuilder sb = new StringBuilder();
-            float fpsResult = doFpsCalculate();
-            updateMessageData(sb, fpsResult, faces, mArFrame);
+            updateMessageData(sb, faces, mArFrame);
             mTextDisplay.onDrawFrame(sb.toString());
         } catch (ArDemoRuntimeException e) {
             LogUtil.error(TAG, "Exception on the ArDemoRuntimeException!");
@@ -146,8 +147,8 @@ public class FaceRendererManager extends BaseRendererManager implements BaseRend
         }
     }
 
-    private void updateMessageData(StringBuilder sb, float fpsResult, Collection<ARFace> faces, ARFrame frame) {
-        sb.append("FPS= ").append(fpsResult).append(System.lineSeparator());
+    private void updateMessageData(StringBuilder sb, Collection<ARFace> faces, ARFrame frame) {
+        appendFrameSummary(sb);
         int index = 1;
         for (ARFace face : faces) {
             if (face.getTrackingState() != TrackingState.TRACKING) {
@@ -163,8 +164,11 @@ public class FaceRendererManager extends BaseRendererManager implements BaseRend
             sb.append("face pose tz:[").append(pose.tz()).append("]").append(System.lineSeparator());
             sb.append(System.lineSeparator());
 
-            float[] textureCoordinates = face.getFaceGeometry().getTextureCoordinates().array();
-            sb.append("textureCoordinates length:[ ").append(textureCoordinates.length).append(" ]");
+            try (NativeResourceTracker.Handle<ARFaceGeometry> faceGeometry = NativeResourceTracker.acquire(
+                "face geometry", face.getFaceGeometry(), ARFaceGeometry::release)) {
+                int textureCoordinateCount = faceGeometry.get().getTextureCoordinates().limit();
+                sb.append("textureCoordinates length:[ ").append(textureCoordinateCount).append(" ]");
+            }
             sb.append(System.lineSeparator()).append(System.lineSeparator());
             index++;
 
@@ -18,15 +18,19 @@ package com.huawei.arengine.demos.java.hand.rendering;
 
 import android.opengl.GLES20;
 
+import com.huawei.arengine.demos.common.DynamicVertexBuffer;
+import com.huawei.arengine.demos.common.GlFacade;
 import com.huawei.arengine.demos.common.LogUtil;
 import com.huawei.arengine.demos.common.MatrixUtil;
 import com.huawei.arengine.demos.common.ShaderUtil;
+import com.huawei.arengine.demos.common.StagingBuffer;
+import com.huawei.arengine.demos.common.TrackableSnapshot;
 import com.huawei.hiar.ARHand;
 import com.huawei.hiar.ARTrackable;
 
-import java.nio.FloatBuffer;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 
 /**
  * This class shows how to use the hand bounding box. With this class,
@@ -35,7 +39,7 @@ import java.util.Collection;
  * @author HW
  * @since 2020-03-16
  */
-class HandBoxDisplay implements HandRelatedDisplay {
+public class HandBoxDisplay implements HandRelatedDisplay {
     private static final String TAG = HandBoxDisplay.class.getSimpleName();
 
     /**
@@ -45,10 +49,10 @@ class HandBoxDisplay implements HandRelatedDisplay {
     private static final int BYTES_PER_POINT = 4 * 3;
     private static final int INITIAL_BUFFER_POINTS = 150;
     private static final int COORDINATE_DIMENSION = 3;
+    private static final int BOX_POINTS_NUM = 4;
 
-    private int mVbo;
-
-    private int mVboSize = INITIAL_BUFFER_POINTS * BYTES_PER_POINT;
+    private final DynamicVertexBuffer mVbo =
+        new DynamicVertexBuffer(GLES20.GL_ARRAY_BUFFER, INITIAL_BUFFER_POINTS * BYTES_PER_POINT);
 
     private int mProgram;
 
@@ -72,24 +76,19 @@ class HandBoxDisplay implements HandRelatedDisplay {
     public void init() {
         ShaderUtil.checkGlError(TAG, "Init start.");
         mMVPMatrix = MatrixUtil.getOriginalMatrix();
-        int[] buffers = new int[1];
-        GLES20.glGenBuffers(1, buffers, 0);
-        mVbo = buffers[0];
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, mVbo);
+        mVbo.init();
         LogUtil.debug(TAG, "create hand box program.");
         createProgram();
-        GLES20.glBufferData(GLES20.GL_ARRAY_BUFFER, mVboSize, null, GLES20.GL_DYNAMIC_DRAW);
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
         ShaderUtil.checkGlError(TAG, "Init end.");
     }
 
     private void createProgram() {
         ShaderUtil.checkGlError(TAG, "Create program start.");
         mProgram = ShaderUtil.getGlProgram();
-        mPosition = GLES20.glGetAttribLocation(mProgram, "inPosition");
-        mColor = GLES20.glGetUniformLocation(mProgram, "inColor");
-        mPointSize = GLES20.glGetUniformLocation(mProgram, "inPointSize");
-        mModelViewProjectionMatrix = GLES20.glGetUniformLocation(mProgram, "inMVPMatrix");
+        mPosition = GlFacade.get().glGetAttribLocation(mProgram, "inPosition");
+        mColor = GlFacade.get().glGetUniformLocation(mProgram, "inColor");
+        mPointSize = GlFacade.get().glGetUniformLocation(mProgram, "inPointSize");
+        mModelViewProjectionMatrix = GlFacade.get().glGetUniformLocation(mProgram, "inMVPMatrix");
         ShaderUtil.checkGlError(TAG, "Create program start.");
     }
 
@@ -117,6 +116,16 @@ class HandBoxDisplay implements HandRelatedDisplay {
         }
     }
 
+    @Override
+    public void drawSnapshots(List<TrackableSnapshot> hands, float[] projectionMatrix) {
+        for (TrackableSnapshot hand : hands) {
+            if (hand.isTracking() && hand.getBox().length != 0) {
+                updateHandBoxData(hand.getBox());
+                drawHandBox();
+            }
+        }
+    }
+
     /**
      * Update the coordinates of the hand bounding box.
      *
@@ -124,30 +133,15 @@ class HandBoxDisplay implements HandRelatedDisplay {
      */
     private void updateHandBoxData(float[] gesturePoints) {
         ShaderUtil.checkGlError(TAG, "Update hand box data start.");
-        float[] glGesturePoints = {
+        try (StagingBuffer staging = StagingBuffer.acquire(BOX_POINTS_NUM * COORDINATE_DIMENSION)) {
             // Get the four coordinates of a rectangular box bounding the hand.
-            gesturePoints[0], gesturePoints[1], gesturePoints[2],
-            gesturePoints[3], gesturePoints[1], gesturePoints[2],
-            gesturePoints[3], gesturePoints[4], gesturePoints[5],
-            gesturePoints[0], gesturePoints[4], gesturePoints[5]
-        };
-        int gesturePointsNum = glGesturePoints.length / COORDINATE_DIMENSION;
-
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, mVbo);
-
-        mNumPoints = gesturePointsNum;
-        if (mVboSize < mNumPoints * BYTES_PER_POINT) {
-            while (mVboSize < mNumPoints * BYTES_PER_POINT) {
-                // If the size of VBO is insufficient to accommodate the new point cloud, resize the VBO.
-                mVboSize *= 2;
-            }
-            GLES20.glBufferData(GLES20.GL_ARRAY_BUFFER, mVboSize, null, GLES20.GL_DYNAMIC_DRAW);
+            staging.put(gesturePoints[0], gesturePoints[1], gesturePoints[2])
+                .put(gesturePoints[3], gesturePoints[1], gesturePoints[2])
+                .put(gesturePoints[3], gesturePoints[4], gesturePoints[5])
+                .put(gesturePoints[0], gesturePoints[4], gesturePoints[5]);
+            mNumPoints = BOX_POINTS_NUM;
+            mVbo.upload(staging.flip(), mNumPoints * BYTES_PER_POINT);
         }
-        LogUtil.debug(TAG, "gesture.getGestureHandPointsNum()" + mNumPoints);
-        FloatBuffer mVertices = FloatBuffer.wrap(glGesturePoints);
-        GLES20.glBufferSubData(GLES20.GL_ARRAY_BUFFER, 0, mNumPoints * BYTES_PER_POINT,
-            mVertices);
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
         ShaderUtil.checkGlError(TAG, "Update hand box data end.");
     }
 
@@ -156,25 +150,24 @@ class HandBoxDisplay implements HandRelatedDisplay {
      */
     private void drawHandBox() {
         ShaderUtil.checkGlError(TAG, "Draw hand box start.");
-        GLES20.glUseProgram(mProgram);
-        GLES20.glEnableVertexAttribArray(mPosition);
-        GLES20.glEnableVertexAttribArray(mColor);
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, mVbo);
-        GLES20.glVertexAttribPointer(
+        GlFacade.get().glUseProgram(mProgram);
+        GlFacade.get().glEnableVertexAttribArray(mPosition);
+        GlFacade.get().glEnableVertexAttribArray(mColor);
+        mVbo.bind();
+        GlFacade.get().glVertexAttribPointer(
             mPosition, COORDINATE_DIMENSION, GLES20.GL_FLOAT, false, BYTES_PER_POINT, 0);
-        GLES20.glUniform4f(mColor, 1.0f, 0.0f, 0.0f, 1.0f);
+        GlFacade.get().glUniform4f(mColor, 1.0f, 0.0f, 0.0f, 1.0f);
 
-        GLES20.glUniformMatrix4fv(mModelViewProjectionMatrix, 1, false, mMVPMatrix, 0);
+        GlFacade.get().glUniformMatrix4fv(mModelViewProjectionMatrix, 1, false, mMVPMatrix, 0);
 
         // Set the size of the rendering vertex.
-        GLES20.glUniform1f(mPointSize, 50.0f);
+        GlFacade.get().glUniform1f(mPointSize, 50.0f);
 
         // Set the width of a rendering stroke.
-        GLES20.glLineWidth(18.0f);
-        GLES20.glDrawArrays(GLES20.GL_LINE_LOOP, 0, mNumPoints);
-        GLES20.glDisableVertexAttribArray(mPosition);
-        GLES20.glDisableVertexAttribArray(mColor);
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+        GlFacade.get().glLineWidth(18.0f);
+        GlFacade.get().glDrawArrays(GLES20.GL_LINE_LOOP, 0, mNumPoints);
+        GlFacade.get().glDisableVertexAttribArray(mPosition);
+        GlFacade.get().glDisableVertexAttribArray(mColor);
 
         ShaderUtil.checkGlError(TAG, "Draw hand box end.");
     }
@@ -16,9 +16,11 @@
 
 package com.huawei.arengine.demos.java.hand.rendering;
 
+import com.huawei.arengine.demos.common.TrackableSnapshot;
 import com.huawei.hiar.ARHand;
 
 import java.util.Collection;
+import java.util.List;
 
 /**
  * Rendering hand AR type related data.
@@ -26,7 +28,7 @@ import java.util.Collection;
  * @author HW
  * @since 2020-05-22
  */
-interface HandRelatedDisplay {
+public interface HandRelatedDisplay {
     /**
      * Init render.
      */
@@ -39,4 +41,12 @@ interface HandRelatedDisplay {
      * @param projectionMatrix Camera projection matrix.
      */
     void onDrawFrame(Collection<ARHand> hands, float[] projectionMatrix);
+
+    /**
+     * Render the hand snapshots of the frame, which come from the live session or from a recording.
+     *
+     * @param hands Hand snapshots.
+     * @param projectionMatrix Camera projection matrix.
+     */
+    void drawSnapshots(List<TrackableSnapshot> hands, float[] projectionMatrix);
 }
\ No newline at end of file
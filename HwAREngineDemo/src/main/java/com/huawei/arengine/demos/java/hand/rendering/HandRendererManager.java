@@ -19,6 +19,7 @@ package com.huawei.arengine.demos.java.hand.rendering;
 import android.app.Activity;
 
 import com.huawei.arengine.demos.common.ArDemoRuntimeException;
+import com.huawei.arengine.demos.common.ArSessionFrameSource;
 import com.huawei.arengine.demos.common.BaseRendererManager;
 import com.huawei.arengine.demos.common.LogUtil;
 import com.huawei.hiar.ARHand;
@@ -57,6 +58,7 @@ public class HandRendererManager extends BaseRendererManager implements BaseRend
         mHandRelatedDisplays.add(mHandSkeletonDisplay);
         mHandRelatedDisplays.add(mHandSkeletonLineDisplay);
         setRenderer(this);
+        setCaptureMask(ArSessionFrameSource.CAPTURE_HANDS);
     }
 
     @Override
@@ -76,7 +78,6 @@ public class HandRendererManager extends BaseRendererManager implements BaseRend
             Collection<ARHand> hands = mSession.getAllTrackables(ARHand.class);
             if (hands.size() == 0) {
                 mTextDisplay.onDrawFrame("");
-                return;
             }
             for (ARHand hand : hands) {
                 // Update the hand recognition information to be displayed on the screen.
@@ -87,7 +88,7 @@ public class HandRendererManager extends BaseRendererManager implements BaseRend
                 mTextDisplay.onDrawFrame(sb.toString());
             }
             for (HandRelatedDisplay handRelatedDisplay : mHandRelatedDisplays) {
-                handRelatedDisplay.onDrawFrame(hands, mProjectionMatrix);
+                handRelatedDisplay.drawSnapshots(getFrameSnapshot().getHands(), mProjectionMatrix);
             }
         } catch (ArDemoRuntimeException e) {
             LogUtil.error(TAG, "Exception on the ArDemoRuntimeException!");
@@ -105,8 +106,7 @@ public class HandRendererManager extends BaseRendererManager implements BaseRend
      * @param hand ARHand.
      */
     private void updateMessageData(StringBuilder sb, ARHand hand) {
-        float fpsResult = doFpsCalculate();
-        sb.append("FPS=").append(fpsResult).append(System.lineSeparator());
+        appendFrameSummary(sb);
         addHandNormalStringBuffer(sb, hand);
         addGestureActionStringBuffer(sb, hand);
         addGestureCenterStringBuffer(sb, hand);
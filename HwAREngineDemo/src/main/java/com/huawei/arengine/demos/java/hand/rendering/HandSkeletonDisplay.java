@@ -18,12 +18,16 @@ package com.huawei.arengine.demos.java.hand.rendering;
 
 import android.opengl.GLES20;
 
+import com.huawei.arengine.demos.common.DynamicVertexBuffer;
+import com.huawei.arengine.demos.common.GlFacade;
 import com.huawei.arengine.demos.common.LogUtil;
 import com.huawei.arengine.demos.common.ShaderUtil;
+import com.huawei.arengine.demos.common.StagingBuffer;
+import com.huawei.arengine.demos.common.TrackableSnapshot;
 import com.huawei.hiar.ARHand;
 
-import java.nio.FloatBuffer;
 import java.util.Collection;
+import java.util.List;
 
 /**
  * Draw hand skeleton points based on the coordinates of the hand skeleton points.
@@ -31,7 +35,7 @@ import java.util.Collection;
  * @author HW
  * @since 2020-03-16
  */
-class HandSkeletonDisplay implements HandRelatedDisplay {
+public class HandSkeletonDisplay implements HandRelatedDisplay {
     private static final String TAG = HandSkeletonDisplay.class.getSimpleName();
 
     /**
@@ -42,9 +46,8 @@ class HandSkeletonDisplay implements HandRelatedDisplay {
 
     private static final int INITIAL_POINTS_SIZE = 150;
 
-    private int mVbo;
-
-    private int mVboSize;
+    private final DynamicVertexBuffer mVbo =
+        new DynamicVertexBuffer(GLES20.GL_ARRAY_BUFFER, INITIAL_POINTS_SIZE * BYTES_PER_POINT);
 
     private int mProgram;
 
@@ -65,13 +68,7 @@ class HandSkeletonDisplay implements HandRelatedDisplay {
     @Override
     public void init() {
         ShaderUtil.checkGlError(TAG, "Init hand skeleton points shader start.");
-        int[] buffers = new int[1];
-        GLES20.glGenBuffers(1, buffers, 0);
-        mVbo = buffers[0];
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, mVbo);
-        mVboSize = INITIAL_POINTS_SIZE * BYTES_PER_POINT;
-        GLES20.glBufferData(GLES20.GL_ARRAY_BUFFER, mVboSize, null, GLES20.GL_DYNAMIC_DRAW);
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+        mVbo.init();
         createProgram();
         ShaderUtil.checkGlError(TAG, "Init hand skeleton points shader end.");
     }
@@ -80,10 +77,10 @@ class HandSkeletonDisplay implements HandRelatedDisplay {
         ShaderUtil.checkGlError(TAG, "Create hand skeleton points program start.");
         mProgram = ShaderUtil.getGlProgram();
         ShaderUtil.checkGlError(TAG, "program");
-        mPosition = GLES20.glGetAttribLocation(mProgram, "inPosition");
-        mColor = GLES20.glGetUniformLocation(mProgram, "inColor");
-        mPointSize = GLES20.glGetUniformLocation(mProgram, "inPointSize");
-        mModelViewProjectionMatrix = GLES20.glGetUniformLocation(mProgram, "inMVPMatrix");
+        mPosition = GlFacade.get().glGetAttribLocation(mProgram, "inPosition");
+        mColor = GlFacade.get().glGetUniformLocation(mProgram, "inColor");
+        mPointSize = GlFacade.get().glGetUniformLocation(mProgram, "inPointSize");
+        mModelViewProjectionMatrix = GlFacade.get().glGetUniformLocation(mProgram, "inMVPMatrix");
         ShaderUtil.checkGlError(TAG, "Create hand skeleton points program end.");
     }
 
@@ -111,6 +108,21 @@ class HandSkeletonDisplay implements HandRelatedDisplay {
         }
     }
 
+    @Override
+    public void drawSnapshots(List<TrackableSnapshot> hands, float[] projectionMatrix) {
+        if (projectionMatrix == null || projectionMatrix.length != 16) {
+            LogUtil.error(TAG, "drawSnapshots Illegal external input!");
+            return;
+        }
+        for (TrackableSnapshot hand : hands) {
+            if (hand.getPoints().length == 0) {
+                continue;
+            }
+            updateHandSkeletonsData(hand.getPoints());
+            drawHandSkeletons(projectionMatrix);
+        }
+    }
+
     /**
      * Update the coordinates of hand skeleton points.
      *
@@ -122,20 +134,11 @@ class HandSkeletonDisplay implements HandRelatedDisplay {
         // Each point has a 3D coordinate. The total number of coordinates
         // is three times the number of skeleton points.
         int mPointsNum = handSkeletons.length / 3;
-        LogUtil.debug(TAG, "ARHand HandSkeletonNumber = " + mPointsNum);
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, mVbo);
         mNumPoints = mPointsNum;
-        if (mVboSize < mNumPoints * BYTES_PER_POINT) {
-            while (mVboSize < mNumPoints * BYTES_PER_POINT) {
-                // If the size of VBO is insufficient to accommodate the new point cloud, resize the VBO.
-                mVboSize *= 2;
-            }
-            GLES20.glBufferData(GLES20.GL_ARRAY_BUFFER, mVboSize, null, GLES20.GL_DYNAMIC_DRAW);
+        try (StagingBuffer staging = StagingBuffer.acquire(handSkeletons.length)) {
+            staging.put(handSkeletons, 0, handSkeletons.length);
+            mVbo.upload(staging.flip(), mNumPoints * BYTES_PER_POINT);
         }
-        FloatBuffer mSkeletonPoints = FloatBuffer.wrap(handSkeletons);
-        GLES20.glBufferSubData(GLES20.GL_ARRAY_BUFFER, 0, mNumPoints * BYTES_PER_POINT,
-            mSkeletonPoints);
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
 
         ShaderUtil.checkGlError(TAG, "Update hand skeletons data end.");
     }
@@ -147,24 +150,23 @@ class HandSkeletonDisplay implements HandRelatedDisplay {
      */
     private void drawHandSkeletons(float[] projectionMatrix) {
         ShaderUtil.checkGlError(TAG, "Draw hand skeletons start.");
-        GLES20.glUseProgram(mProgram);
-        GLES20.glEnableVertexAttribArray(mPosition);
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, mVbo);
+        GlFacade.get().glUseProgram(mProgram);
+        GlFacade.get().glEnableVertexAttribArray(mPosition);
+        mVbo.bind();
 
         // The size of the vertex attribute is 4, and each vertex has four coordinate components
-        GLES20.glVertexAttribPointer(
+        GlFacade.get().glVertexAttribPointer(
             mPosition, 4, GLES20.GL_FLOAT, false, BYTES_PER_POINT, 0);
 
         // Set the color of the skeleton points to blue.
-        GLES20.glUniform4f(mColor, 0.0f, 0.0f, 1.0f, 1.0f);
-        GLES20.glUniformMatrix4fv(mModelViewProjectionMatrix, 1, false, projectionMatrix, 0);
+        GlFacade.get().glUniform4f(mColor, 0.0f, 0.0f, 1.0f, 1.0f);
+        GlFacade.get().glUniformMatrix4fv(mModelViewProjectionMatrix, 1, false, projectionMatrix, 0);
 
         // Set the size of the skeleton points.
-        GLES20.glUniform1f(mPointSize, 30.0f);
+        GlFacade.get().glUniform1f(mPointSize, 30.0f);
 
-        GLES20.glDrawArrays(GLES20.GL_POINTS, 0, mNumPoints);
-        GLES20.glDisableVertexAttribArray(mPosition);
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+        GlFacade.get().glDrawArrays(GLES20.GL_POINTS, 0, mNumPoints);
+        GlFacade.get().glDisableVertexAttribArray(mPosition);
 
         ShaderUtil.checkGlError(TAG, "Draw hand skeletons end.");
     }
@@ -18,12 +18,16 @@ package com.huawei.arengine.demos.java.hand.rendering;
 
 import android.opengl.GLES20;
 
+import com.huawei.arengine.demos.common.DynamicVertexBuffer;
+import com.huawei.arengine.demos.common.GlFacade;
 import com.huawei.arengine.demos.common.LogUtil;
 import com.huawei.arengine.demos.common.ShaderUtil;
+import com.huawei.arengine.demos.common.StagingBuffer;
+import com.huawei.arengine.demos.common.TrackableSnapshot;
 import com.huawei.hiar.ARHand;
 
-import java.nio.FloatBuffer;
 import java.util.Collection;
+import java.util.List;
 
 /**
  * Draw hand skeleton connection line based on the coordinates of the hand skeleton points..
@@ -31,7 +35,7 @@ import java.util.Collection;
  * @author HW
  * @since 2020-03-09
  */
-class HandSkeletonLineDisplay implements HandRelatedDisplay {
+public class HandSkeletonLineDisplay implements HandRelatedDisplay {
     private static final String TAG = HandSkeletonLineDisplay.class.getSimpleName();
 
     /**
@@ -44,9 +48,8 @@ class HandSkeletonLineDisplay implements HandRelatedDisplay {
 
     private static final float JOINT_POINT_SIZE = 100f;
 
-    private int mVbo;
-
-    private int mVboSize = INITIAL_BUFFER_POINTS * BYTES_PER_POINT;
+    private final DynamicVertexBuffer mVbo =
+        new DynamicVertexBuffer(GLES20.GL_ARRAY_BUFFER, INITIAL_BUFFER_POINTS * BYTES_PER_POINT);
 
     private int mProgram;
 
@@ -68,14 +71,9 @@ class HandSkeletonLineDisplay implements HandRelatedDisplay {
     public void init() {
         ShaderUtil.checkGlError(TAG, "Init start.");
 
-        int[] buffers = new int[1];
-        GLES20.glGenBuffers(1, buffers, 0);
-        mVbo = buffers[0];
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, mVbo);
+        mVbo.init();
 
         createProgram();
-        GLES20.glBufferData(GLES20.GL_ARRAY_BUFFER, mVboSize, null, GLES20.GL_DYNAMIC_DRAW);
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
         ShaderUtil.checkGlError(TAG, "Init end.");
     }
 
@@ -83,10 +81,10 @@ class HandSkeletonLineDisplay implements HandRelatedDisplay {
         ShaderUtil.checkGlError(TAG, "Create hand skeleton line program start.");
         mProgram = ShaderUtil.getGlProgram();
         ShaderUtil.checkGlError(TAG, "program");
-        mPosition = GLES20.glGetAttribLocation(mProgram, "inPosition");
-        mColor = GLES20.glGetUniformLocation(mProgram, "inColor");
-        mPointSize = GLES20.glGetUniformLocation(mProgram, "inPointSize");
-        mModelViewProjectionMatrix = GLES20.glGetUniformLocation(mProgram, "inMVPMatrix");
+        mPosition = GlFacade.get().glGetAttribLocation(mProgram, "inPosition");
+        mColor = GlFacade.get().glGetUniformLocation(mProgram, "inColor");
+        mPointSize = GlFacade.get().glGetUniformLocation(mProgram, "inPointSize");
+        mModelViewProjectionMatrix = GlFacade.get().glGetUniformLocation(mProgram, "inMVPMatrix");
         ShaderUtil.checkGlError(TAG, "Create hand skeleton line program end.");
     }
 
@@ -116,6 +114,21 @@ class HandSkeletonLineDisplay implements HandRelatedDisplay {
         }
     }
 
+    @Override
+    public void drawSnapshots(List<TrackableSnapshot> hands, float[] projectionMatrix) {
+        if (projectionMatrix == null || projectionMatrix.length != 16) {
+            LogUtil.error(TAG, "drawSnapshots Illegal external input!");
+            return;
+        }
+        for (TrackableSnapshot hand : hands) {
+            if (hand.getPoints().length == 0 || hand.getConnections().length == 0) {
+                continue;
+            }
+            updateHandSkeletonLinesData(hand.getPoints(), hand.getConnections());
+            drawHandSkeletonLine(projectionMatrix);
+        }
+    }
+
     /**
      * This method updates the connection data of skeleton points and is called when any frame is updated.
      *
@@ -127,37 +140,21 @@ class HandSkeletonLineDisplay implements HandRelatedDisplay {
         int pointsLineNum = 0;
 
         // Each point is a set of 3D coordinate. Each connection line consists of two points.
-        float[] linePoint = new float[handSkeletonConnection.length * 3 * 2];
-
-        // The format of HandSkeletonConnection data is [p0,p1;p0,p3;p0,p5;p1,p2].
-        // handSkeletonConnection saves the node indexes. Two indexes obtain a set
-        // of connection point data. Therefore, j = j + 2. This loop obtains related
-        // coordinates and saves them in linePoint.
-        for (int j = 0; j < handSkeletonConnection.length; j += 2) {
-            linePoint[pointsLineNum * 3] = handSkeletons[3 * handSkeletonConnection[j]];
-            linePoint[pointsLineNum * 3 + 1] = handSkeletons[3 * handSkeletonConnection[j] + 1];
-            linePoint[pointsLineNum * 3 + 2] = handSkeletons[3 * handSkeletonConnection[j] + 2];
-            linePoint[pointsLineNum * 3 + 3] = handSkeletons[3 * handSkeletonConnection[j + 1]];
-            linePoint[pointsLineNum * 3 + 4] = handSkeletons[3 * handSkeletonConnection[j + 1] + 1];
-            linePoint[pointsLineNum * 3 + 5] = handSkeletons[3 * handSkeletonConnection[j + 1] + 2];
-            pointsLineNum += 2;
-        }
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, mVbo);
-        mPointsNum = pointsLineNum;
-
-        // If the storage space is insufficient, apply for twice the memory each time.
-        if (mVboSize < mPointsNum * BYTES_PER_POINT) {
-            while (mVboSize < mPointsNum * BYTES_PER_POINT) {
-                mVboSize *= 2;
+        try (StagingBuffer staging = StagingBuffer.acquire(handSkeletonConnection.length * 3)) {
+            // The format of HandSkeletonConnection data is [p0,p1;p0,p3;p0,p5;p1,p2].
+            // handSkeletonConnection saves the node indexes. Two indexes obtain a set
+            // of connection point data. Therefore, j = j + 2. This loop obtains related
+            // coordinates and writes them to the staging buffer.
+            for (int j = 0; j < handSkeletonConnection.length; j += 2) {
+                int start = 3 * handSkeletonConnection[j];
+                int end = 3 * handSkeletonConnection[j + 1];
+                staging.put(handSkeletons[start], handSkeletons[start + 1], handSkeletons[start + 2])
+                    .put(handSkeletons[end], handSkeletons[end + 1], handSkeletons[end + 2]);
+                pointsLineNum += 2;
             }
-            GLES20.glBufferData(GLES20.GL_ARRAY_BUFFER, mVboSize, null, GLES20.GL_DYNAMIC_DRAW);
+            mPointsNum = pointsLineNum;
+            mVbo.upload(staging.flip(), mPointsNum * BYTES_PER_POINT);
         }
-        FloatBuffer linePoints = FloatBuffer.wrap(linePoint);
-        LogUtil.debug(TAG, "Skeleton skeleton line points num: " + mPointsNum);
-        LogUtil.debug(TAG, "Skeleton line points: " + linePoints.toString());
-        GLES20.glBufferSubData(GLES20.GL_ARRAY_BUFFER, 0, mPointsNum * BYTES_PER_POINT,
-            linePoints);
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
         ShaderUtil.checkGlError(TAG, "Update hand skeleton lines data end.");
     }
 
@@ -168,26 +165,25 @@ class HandSkeletonLineDisplay implements HandRelatedDisplay {
      */
     private void drawHandSkeletonLine(float[] projectionMatrix) {
         ShaderUtil.checkGlError(TAG, "Draw hand skeleton line start.");
-        GLES20.glUseProgram(mProgram);
-        GLES20.glEnableVertexAttribArray(mPosition);
-        GLES20.glEnableVertexAttribArray(mColor);
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, mVbo);
+        GlFacade.get().glUseProgram(mProgram);
+        GlFacade.get().glEnableVertexAttribArray(mPosition);
+        GlFacade.get().glEnableVertexAttribArray(mColor);
+        mVbo.bind();
 
         // Set the width of the drawn line
-        GLES20.glLineWidth(18.0f);
+        GlFacade.get().glLineWidth(18.0f);
 
         // Represented each point by 4D coordinates in the shader.
-        GLES20.glVertexAttribPointer(
+        GlFacade.get().glVertexAttribPointer(
             mPosition, 4, GLES20.GL_FLOAT, false, BYTES_PER_POINT, 0);
-        GLES20.glUniform4f(mColor, 0.0f, 0.0f, 0.0f, 1.0f);
-        GLES20.glUniformMatrix4fv(mModelViewProjectionMatrix, 1, false, projectionMatrix, 0);
+        GlFacade.get().glUniform4f(mColor, 0.0f, 0.0f, 0.0f, 1.0f);
+        GlFacade.get().glUniformMatrix4fv(mModelViewProjectionMatrix, 1, false, projectionMatrix, 0);
 
-        GLES20.glUniform1f(mPointSize, JOINT_POINT_SIZE);
+        GlFacade.get().glUniform1f(mPointSize, JOINT_POINT_SIZE);
 
-        GLES20.glDrawArrays(GLES20.GL_LINES, 0, mPointsNum);
-        GLES20.glDisableVertexAttribArray(mPosition);
-        GLES20.glDisableVertexAttribArray(mColor);
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+        GlFacade.get().glDrawArrays(GLES20.GL_LINES, 0, mPointsNum);
+        GlFacade.get().glDisableVertexAttribArray(mPosition);
+        GlFacade.get().glDisableVertexAttribArray(mColor);
 
         ShaderUtil.checkGlError(TAG, "Draw hand skeleton line end.");
     }
@@ -24,7 +24,7 @@ import android.widget.Toast;
 import com.huawei.arengine.demos.R;
 import com.huawei.arengine.demos.common.BaseActivity;
 import com.huawei.arengine.demos.common.GestureDetectorUtils;
-import com.huawei.arengine.demos.common.GestureEvent;
+import com.huawei.arengine.demos.common.GestureEventRing;
 import com.huawei.arengine.demos.common.LogUtil;
 import com.huawei.arengine.demos.java.instant.rendering.InstantRendererManager;
 import com.huawei.hiar.ARConfigBase;
@@ -36,8 +36,6 @@ import com.huawei.hiar.exceptions.ARUnavailableClientSdkTooOldException;
 import com.huawei.hiar.exceptions.ARUnavailableServiceApkTooOldException;
 import com.huawei.hiar.exceptions.ARUnavailableServiceNotInstalledException;
 
-import java.util.concurrent.ArrayBlockingQueue;
-
 /**
  * This AR example shows how to use the Instant AR scene of HUAWEI AR Engine,
  * including how to use the click function, drag function, rotation function, and scale function.
@@ -48,13 +46,13 @@ import java.util.concurrent.ArrayBlockingQueue;
 public class InstantActivity extends BaseActivity {
     private static final String TAG = "InstantActivity";
 
-    private static final int MOTIONEVENT_QUEUE_CAPACITY = 2;
+    private static final int MOTIONEVENT_QUEUE_CAPACITY = 64;
 
     private static final int OPENGLES_VERSION = 2;
 
     private InstantRendererManager mInstantRendererManager;
 
-    private ArrayBlockingQueue<GestureEvent> mQueuedSingleTaps = new ArrayBlockingQueue<>(MOTIONEVENT_QUEUE_CAPACITY);
+    private GestureEventRing mQueuedSingleTaps = new GestureEventRing(MOTIONEVENT_QUEUE_CAPACITY);
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -23,6 +23,8 @@ import com.huawei.arengine.demos.R;
 import com.huawei.arengine.demos.common.ArDemoRuntimeException;
 import com.huawei.arengine.demos.common.BaseRendererManager;
 import com.huawei.arengine.demos.common.GestureEvent;
+import com.huawei.arengine.demos.common.GestureEventPipeline;
+import com.huawei.arengine.demos.common.GestureEventRing;
 import com.huawei.arengine.demos.common.LogUtil;
 import com.huawei.arengine.demos.common.ObjectDisplay;
 import com.huawei.arengine.demos.common.VirtualObject;
@@ -34,7 +36,7 @@ import com.huawei.hiar.ARTrackable;
 import com.huawei.hiar.exceptions.ARFatalException;
 import com.huawei.hiar.exceptions.ARSessionPausedException;
 
-import java.util.concurrent.ArrayBlockingQueue;
+import java.util.List;
 
 import javax.microedition.khronos.egl.EGLConfig;
 import javax.microedition.khronos.opengles.GL10;
@@ -53,7 +55,7 @@ public class InstantRendererManager extends BaseRendererManager implements BaseR
 
     private ObjectDisplay mObjectDisplay = new ObjectDisplay();
 
-    private ArrayBlockingQueue<GestureEvent> mQueuedSingleTaps;
+    private GestureEventPipeline mGesturePipeline;
 
     private VirtualObject mSelectedObj = null;
 
@@ -79,12 +81,12 @@ public class InstantRendererManager extends BaseRendererManager implements BaseR
      *
      * @param queuedSingleTaps Gesture type queue.
      */
-    public void setQueuedSingleTaps(ArrayBlockingQueue<GestureEvent> queuedSingleTaps) {
+    public void setQueuedSingleTaps(GestureEventRing queuedSingleTaps) {
         if (queuedSingleTaps == null) {
             LogUtil.error(TAG, "setQueuedSingleTaps error, queuedSingleTaps is null!");
             return;
         }
-        mQueuedSingleTaps = queuedSingleTaps;
+        mGesturePipeline = new GestureEventPipeline(queuedSingleTaps);
     }
 
     @Override
@@ -177,13 +179,18 @@ public class InstantRendererManager extends BaseRendererManager implements BaseR
     }
 
     private void updateMessageData(StringBuilder sb) {
-        float fpsResult = doFpsCalculate();
-        sb.append("FPS = ").append(fpsResult).append(System.lineSeparator());
+        appendFrameSummary(sb);
+        if (mGesturePipeline != null) {
+            mGesturePipeline.appendSummary(sb);
+        }
     }
 
     private void handleGestureEvent(ARFrame arFrame, ARCamera arCamera, float[] projectionMatrix, float[] viewMatrix) {
-        GestureEvent event = mQueuedSingleTaps.poll();
-        if (event == null) {
+        if (mGesturePipeline == null) {
+            return;
+        }
+        List<GestureEvent> events = mGesturePipeline.drain();
+        if (events.isEmpty()) {
             return;
         }
 
@@ -192,6 +199,15 @@ public class InstantRendererManager extends BaseRendererManager implements BaseR
             return;
         }
 
+        for (int i = 0; i < events.size(); i++) {
+            GestureEvent event = events.get(i);
+            applyGestureEvent(arFrame, projectionMatrix, viewMatrix, event);
+            mGesturePipeline.onEventApplied(event);
+        }
+    }
+
+    private void applyGestureEvent(ARFrame arFrame, float[] projectionMatrix, float[] viewMatrix,
+        GestureEvent event) {
         switch (event.getType()) {
             case GestureEvent.GESTURE_EVENT_TYPE_DOUBLETAP: {
                 doWhenEventTypeDoubleTap(viewMatrix, projectionMatrix, event);
@@ -202,7 +218,11 @@ public class InstantRendererManager extends BaseRendererManager implements BaseR
                     LogUtil.info(TAG, "Selected object is null when instant scroll event.");
                     break;
                 }
-                CommonUtil.hitTest(arFrame, event.getEventSecond());
+                CommonUtil.hitTest(arFrame, event.getX(), event.getY());
+                break;
+            }
+            case GestureEvent.GESTURE_EVENT_TYPE_SCROLLEND: {
+                LogUtil.debug(TAG, "Instant scroll end event.");
                 break;
             }
             case GestureEvent.GESTURE_EVENT_TYPE_SINGLETAPCONFIRMED: {
@@ -211,7 +231,7 @@ public class InstantRendererManager extends BaseRendererManager implements BaseR
                     mSelectedObj.setIsSelected(false);
                     mSelectedObj = null;
                 }
-                CommonUtil.hitTest(arFrame, event.getEventFirst());
+                CommonUtil.hitTest(arFrame, event.getX(), event.getY());
                 break;
             }
             default: {
@@ -227,7 +247,7 @@ public class InstantRendererManager extends BaseRendererManager implements BaseR
             mSelectedObj = null;
         }
 
-        if (mObjectDisplay.hitTest(viewMatrix, projectionMatrix, mVirtualObject, event.getEventFirst())) {
+        if (mObjectDisplay.hitTest(viewMatrix, projectionMatrix, mVirtualObject, event.getX(), event.getY())) {
             mVirtualObject.setIsSelected(true);
             mSelectedObj = mVirtualObject;
         }
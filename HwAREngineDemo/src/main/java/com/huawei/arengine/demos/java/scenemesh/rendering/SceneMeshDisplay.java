@@ -24,10 +24,13 @@ import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.opengl.GLES20;
-import android.opengl.GLUtils;
-import android.opengl.Matrix;
 
+import com.huawei.arengine.demos.common.ChunkedMeshBuffer;
+import com.huawei.arengine.demos.common.FrameSnapshot;
+import com.huawei.arengine.demos.common.GlFacade;
 import com.huawei.arengine.demos.common.LogUtil;
+import com.huawei.arengine.demos.common.MatrixUtil;
+import com.huawei.arengine.demos.common.NativeResourceTracker;
 import com.huawei.arengine.demos.common.ShaderUtil;
 import com.huawei.hiar.ARFrame;
 import com.huawei.hiar.ARSceneMesh;
@@ -51,27 +54,28 @@ public class SceneMeshDisplay implements SceneMeshComponenDisplay {
 
     private static final int BYTES_PER_POINT = BYTES_PER_FLOAT * FLOATS_PER_POINT;
 
-    private static final int BUFFER_OBJECT_NUMBER = 2;
-
     private static final int INT_PER_TRIANGE = 3;
 
-    private static final int MODLE_VIEW_PROJ_SIZE = 16;
-
-    private static final int POSITION_COMPONENTS_NUMBER = 4;
-
-    private int mVerticeVBO;
+    /**
+     * Initial capacity of the vertex buffer. A typical room mesh has about 7400 vertices, and each chunk rounds
+     * its vertex count up to a power of two.
+     */
+    private static final int INITIAL_VERTEX_CAPACITY = 16384;
 
     /**
-     * Initialize the VBO size. The actual size is 7365.
+     * Initial capacity of the index buffer. A typical room mesh has about 4500 triangles.
      */
-    private int mVerticeVBOSize = 8000;
+    private static final int INITIAL_INDEX_CAPACITY = 32768;
 
-    private int mTriangleVBO;
+    private static final int MODLE_VIEW_PROJ_SIZE = 16;
+
+    private static final int POSITION_COMPONENTS_NUMBER = 4;
 
     /**
-     * Initialize the size of the triangle VBO. The actual size is 4434.
+     * Mesh split into 1 m chunks, of which only the changed ones are uploaded.
      */
-    private int mTriangleVBOSize = 5000;
+    private final ChunkedMeshBuffer mMeshBuffer = new ChunkedMeshBuffer(ChunkedMeshBuffer.DEFAULT_CHUNK_SIZE,
+        INITIAL_VERTEX_CAPACITY, INITIAL_INDEX_CAPACITY);
 
     private int mProgram;
 
@@ -95,33 +99,26 @@ public class SceneMeshDisplay implements SceneMeshComponenDisplay {
 
     @Override
     public void init(Context context) {
-        int[] buffers = new int[BUFFER_OBJECT_NUMBER];
-        GLES20.glGenBuffers(BUFFER_OBJECT_NUMBER, buffers, 0);
-        mVerticeVBO = buffers[0];
-        mTriangleVBO = buffers[1];
-
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, mVerticeVBO);
-        GLES20.glBufferData(GLES20.GL_ARRAY_BUFFER, mVerticeVBOSize * BYTES_PER_POINT, null, GLES20.GL_DYNAMIC_DRAW);
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
-
-        GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, mTriangleVBO);
-        GLES20.glBufferData(GLES20.GL_ELEMENT_ARRAY_BUFFER, mTriangleVBOSize * BYTES_PER_FLOAT, null,
-            GLES20.GL_DYNAMIC_DRAW);
-        GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, 0);
+        mMeshBuffer.init();
 
         ShaderUtil.checkGlError(TAG, "buffer alloc");
 
         mProgram = SceneMeshShaderUtil.getMeshDisplayProgram();
-        GLES20.glUseProgram(mProgram);
+        GlFacade.get().glUseProgram(mProgram);
         ShaderUtil.checkGlError(TAG, "program");
 
-        mPositionAttribute = GLES20.glGetAttribLocation(mProgram, "a_Position");
-        mModelViewProjectionUniform = GLES20.glGetUniformLocation(mProgram, "u_ModelViewProjection");
+        mPositionAttribute = GlFacade.get().glGetAttribLocation(mProgram, "a_Position");
+        mModelViewProjectionUniform = GlFacade.get().glGetUniformLocation(mProgram, "u_ModelViewProjection");
         loadTexture(context);
         ShaderUtil.checkGlError(TAG, "program params");
     }
 
     private void loadTexture(Context context) {
+        if (context == null) {
+            // The mesh is drawn without the grid texture, for example, when a recording is replayed off the device.
+            LogUtil.debug(TAG, "loadTexture skipped, no context.");
+            return;
+        }
         Bitmap textureBitmap;
         try {
             textureBitmap = BitmapFactory.decodeStream(context.getAssets().open("grid.png"));
@@ -130,72 +127,77 @@ public class SceneMeshDisplay implements SceneMeshComponenDisplay {
             return;
         }
 
-        GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
-        GLES20.glGenTextures(mTexture.length, mTexture, 0);
-        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, mTexture[0]);
-
-        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_S, GLES20.GL_REPEAT);
-        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_T, GLES20.GL_REPEAT);
-        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_LINEAR_MIPMAP_LINEAR);
-        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_LINEAR);
-        GLUtils.texImage2D(GLES20.GL_TEXTURE_2D, 0, textureBitmap, 0);
-        GLES20.glGenerateMipmap(GLES20.GL_TEXTURE_2D);
-        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, 0);
+        GlFacade.get().glActiveTexture(GLES20.GL_TEXTURE0);
+        GlFacade.get().glGenTextures(mTexture.length, mTexture, 0);
+        GlFacade.get().glBindTexture(GLES20.GL_TEXTURE_2D, mTexture[0]);
+
+        GlFacade.get().glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_S, GLES20.GL_REPEAT);
+        GlFacade.get().glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_T, GLES20.GL_REPEAT);
+        GlFacade.get().glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER,
+            GLES20.GL_LINEAR_MIPMAP_LINEAR);
+        GlFacade.get().glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_LINEAR);
+        GlFacade.get().texImage2D(GLES20.GL_TEXTURE_2D, 0, textureBitmap, 0);
+        GlFacade.get().glGenerateMipmap(GLES20.GL_TEXTURE_2D);
+        GlFacade.get().glBindTexture(GLES20.GL_TEXTURE_2D, 0);
         ShaderUtil.checkGlError(TAG, "loadTexture end");
     }
 
     @Override
     public void onDrawFrame(ARFrame arFrame, float[] viewmtxs, float[] projmtxs) {
-        ARSceneMesh arSceneMesh = arFrame.acquireSceneMesh();
-        updateSceneMeshData(arSceneMesh);
-        arSceneMesh.release();
+        try (NativeResourceTracker.Handle<ARSceneMesh> sceneMesh = NativeResourceTracker.acquire("scene mesh",
+            arFrame.acquireSceneMesh(), ARSceneMesh::release)) {
+            updateSceneMeshData(sceneMesh.get());
+        }
         draw(viewmtxs, projmtxs);
     }
 
+    /**
+     * Update the mesh with the scene mesh of a frame snapshot, which comes from the live session or from a
+     * recording, and draw it.
+     *
+     * @param snapshot Frame snapshot.
+     * @param cameraView Camera view data.
+     * @param cameraPerspective Perspective data of the camera.
+     */
+    public void onDrawFrame(FrameSnapshot snapshot, float[] cameraView, float[] cameraPerspective) {
+        updateSceneMeshData(snapshot.getMeshVertices(), snapshot.getMeshIndices());
+        draw(cameraView, cameraPerspective);
+    }
+
     /**
      * Update the mesh data in the buffer.
      *
      * @param sceneMesh Data structure in the AR mesh scene.
      */
     public void updateSceneMeshData(ARSceneMesh sceneMesh) {
+        updateSceneMeshData(sceneMesh.getVertices(), sceneMesh.getTriangleIndices());
+    }
+
+    /**
+     * Update the mesh data in the buffer.
+     *
+     * @param meshVertices Vertex buffer, in which each vertex has three floats.
+     * @param meshTriangleIndices Triangle index buffer, in which each triangle has three indexes.
+     */
+    public void updateSceneMeshData(FloatBuffer meshVertices, IntBuffer meshTriangleIndices) {
         ShaderUtil.checkGlError(TAG, "before update");
-        FloatBuffer meshVertices = sceneMesh.getVertices();
         mPointsNum = meshVertices.limit() / FLOATS_PER_POINT;
-        LogUtil.debug(TAG, "updateData: Meshsize:" + mPointsNum + "position:" + meshVertices.position() + " limit:"
-            + meshVertices.limit() + " remaining:" + meshVertices.remaining());
-        LogUtil.debug(TAG, "Vertices = ");
-
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, mVerticeVBO);
-        if (mVerticeVBOSize < mPointsNum * BYTES_PER_POINT) {
-            while (mVerticeVBOSize < mPointsNum * BYTES_PER_POINT) {
-                // If the VBO is not large enough in size, double it.
-                mVerticeVBOSize *= 2;
-            }
-            GLES20.glBufferData(GLES20.GL_ARRAY_BUFFER, mVerticeVBOSize, null, GLES20.GL_DYNAMIC_DRAW);
-        }
-        GLES20.glBufferSubData(GLES20.GL_ARRAY_BUFFER, 0, mPointsNum * BYTES_PER_POINT, meshVertices);
-
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
-
-        IntBuffer meshTriangleIndices = sceneMesh.getTriangleIndices();
         mTrianglesNum = meshTriangleIndices.limit() / INT_PER_TRIANGE;
-        LogUtil.debug(TAG,
-            "updateData: MeshTrianglesize:" + mTrianglesNum + "position:" + meshTriangleIndices.position() + " limit:"
-                + meshTriangleIndices.limit() + " remaining:" + meshTriangleIndices.remaining());
-
-        GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, mTriangleVBO);
-        if (mTriangleVBOSize < mTrianglesNum * BYTES_PER_POINT) {
-            while (mTriangleVBOSize < mTrianglesNum * BYTES_PER_POINT) {
-                // If the triangle VBO is not large enough in size, double it.
-                mTriangleVBOSize *= 2;
-            }
-            GLES20.glBufferData(GLES20.GL_ELEMENT_ARRAY_BUFFER, mTriangleVBOSize, null, GLES20.GL_DYNAMIC_DRAW);
-        }
-        GLES20.glBufferSubData(GLES20.GL_ELEMENT_ARRAY_BUFFER, 0, mTrianglesNum * BYTES_PER_POINT, meshTriangleIndices);
-        GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, 0);
+
+        // Only the chunks of the mesh that have changed since the previous update are uploaded.
+        mMeshBuffer.update(meshVertices, meshTriangleIndices);
         ShaderUtil.checkGlError(TAG, "after update");
     }
 
+    /**
+     * Append the chunk and upload statistics of the mesh to the information displayed on the screen.
+     *
+     * @param sb String builder to which the statistics are appended.
+     */
+    public void appendSummary(StringBuilder sb) {
+        mMeshBuffer.appendSummary(sb);
+    }
+
     /**
      * Set up the input data in the shader program and in the drawing program.
      *
@@ -204,39 +206,32 @@ public class SceneMeshDisplay implements SceneMeshComponenDisplay {
      */
     public void draw(float[] cameraView, float[] cameraPerspective) {
         ShaderUtil.checkGlError(TAG, "Before draw");
-        LogUtil.debug(TAG, "draw: mPointsNum:" + mPointsNum + " mTrianglesNum:" + mTrianglesNum);
 
-        GLES20.glEnable(GLES20.GL_DEPTH_TEST);
-        GLES20.glEnable(GLES20.GL_CULL_FACE);
-        Matrix.multiplyMM(mModelViewProjection, 0, cameraPerspective, 0, cameraView, 0);
+        GlFacade.get().glEnable(GLES20.GL_DEPTH_TEST);
+        GlFacade.get().glEnable(GLES20.GL_CULL_FACE);
+        MatrixUtil.multiplyMM(mModelViewProjection, 0, cameraPerspective, 0, cameraView, 0);
 
         // Drawing point.
-        GLES20.glUseProgram(mProgram);
-        GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
-        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, mTexture[0]);
-        GLES20.glEnableVertexAttribArray(mPositionAttribute);
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, mVerticeVBO);
-        GLES20.glVertexAttribPointer(mPositionAttribute, POSITION_COMPONENTS_NUMBER, GLES20.GL_FLOAT, false,
+        GlFacade.get().glUseProgram(mProgram);
+        GlFacade.get().glActiveTexture(GLES20.GL_TEXTURE0);
+        GlFacade.get().glBindTexture(GLES20.GL_TEXTURE_2D, mTexture[0]);
+        GlFacade.get().glEnableVertexAttribArray(mPositionAttribute);
+        mMeshBuffer.bindVertexBuffer();
+        GlFacade.get().glVertexAttribPointer(mPositionAttribute, POSITION_COMPONENTS_NUMBER, GLES20.GL_FLOAT, false,
             BYTES_PER_POINT, 0);
-        GLES20.glUniformMatrix4fv(mModelViewProjectionUniform, 1, false, mModelViewProjection, 0);
+        GlFacade.get().glUniformMatrix4fv(mModelViewProjectionUniform, 1, false, mModelViewProjection, 0);
 
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
         ShaderUtil.checkGlError(TAG, "Draw point");
 
-        GLES20.glEnable(GL_BLEND);
-        GLES20.glBlendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
-        GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, mTriangleVBO);
-
-        // Each triangle has three vertices.
-        GLES20.glDrawElements(GLES20.GL_TRIANGLES, mTrianglesNum * 3, GLES20.GL_UNSIGNED_INT, 0);
-        GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, 0);
+        GlFacade.get().glEnable(GL_BLEND);
+        GlFacade.get().glBlendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
+        mMeshBuffer.drawTriangles();
         ShaderUtil.checkGlError(TAG, "Draw triangles");
-        GLES20.glDisableVertexAttribArray(mPositionAttribute);
-        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, 0);
+        GlFacade.get().glDisableVertexAttribArray(mPositionAttribute);
 
-        GLES20.glDisable(GLES20.GL_DEPTH_TEST);
-        GLES20.glDisable(GLES20.GL_CULL_FACE);
-        GLES20.glDisable(GL_BLEND);
+        GlFacade.get().glDisable(GLES20.GL_DEPTH_TEST);
+        GlFacade.get().glDisable(GLES20.GL_CULL_FACE);
+        GlFacade.get().glDisable(GL_BLEND);
         ShaderUtil.checkGlError(TAG, "Draw after");
     }
 }
@@ -23,6 +23,7 @@ import android.widget.TextView;
 
 import com.huawei.arengine.demos.R;
 import com.huawei.arengine.demos.common.ArDemoRuntimeException;
+import com.huawei.arengine.demos.common.ArSessionFrameSource;
 import com.huawei.arengine.demos.common.BaseRendererManager;
 import com.huawei.arengine.demos.common.LogUtil;
 import com.huawei.hiar.ARTrackable;
@@ -56,6 +57,7 @@ public class SceneMeshRendererManager extends BaseRendererManager implements Bas
         mActivity = activity;
         mSearchingTextView = activity.findViewById(R.id.scene_mesh_searchingTextView);
         setRenderer(this);
+        setCaptureMask(ArSessionFrameSource.CAPTURE_SCENE_MESH);
     }
 
     @Override
@@ -70,7 +72,10 @@ public class SceneMeshRendererManager extends BaseRendererManager implements Bas
 
     @Override
     public void drawFrame(GL10 gl) {
-        mTextDisplay.onDrawFrame(String.valueOf(doFpsCalculate()));
+        StringBuilder sb = new StringBuilder();
+        appendFrameSummary(sb);
+        mSceneMesh.appendSummary(sb);
+        mTextDisplay.onDrawFrame(sb.toString());
         try {
             if (mArCamera.getTrackingState() == ARTrackable.TrackingState.PAUSED) {
                 LogUtil.debug(TAG, "Camera TrackingState Paused: ");
@@ -80,7 +85,7 @@ public class SceneMeshRendererManager extends BaseRendererManager implements Bas
             showSearchingMessage(View.GONE);
 
             // Draw a grid.
-            mSceneMesh.onDrawFrame(mArFrame, mViewMatrix, mProjectionMatrix);
+            mSceneMesh.onDrawFrame(getFrameSnapshot(), mViewMatrix, mProjectionMatrix);
 
             // Process the click event and add a virtual model.
             mHitResultDisplay.onDrawFrame(mArFrame, mViewMatrix, mProjectionMatrix);
@@ -20,9 +20,9 @@ import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.opengl.GLES20;
-import android.opengl.GLUtils;
 import android.opengl.Matrix;
 
+import com.huawei.arengine.demos.common.GlFacade;
 import com.huawei.arengine.demos.common.LogUtil;
 import com.huawei.arengine.demos.common.ShaderUtil;
 
@@ -172,12 +172,13 @@ public class VirtualObjectData {
      * @param context Load the shader and the context of the following model and texture assets.
      */
     public void init(Context context) {
-        GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
-        GLES20.glGenTextures(mTextures.length, mTextures, 0);
-        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, mTextures[0]);
+        GlFacade.get().glActiveTexture(GLES20.GL_TEXTURE0);
+        GlFacade.get().glGenTextures(mTextures.length, mTextures, 0);
+        GlFacade.get().glBindTexture(GLES20.GL_TEXTURE_2D, mTextures[0]);
 
-        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_LINEAR_MIPMAP_LINEAR);
-        GLES20.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_LINEAR);
+        GlFacade.get().glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER,
+            GLES20.GL_LINEAR_MIPMAP_LINEAR);
+        GlFacade.get().glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_LINEAR);
         initGlImageData(context);
 
         ObjectData objectData = null;
@@ -192,21 +193,22 @@ public class VirtualObjectData {
         mTexCoordsBaseAddress = mVerticesBaseAddress + FLOAT_BYTE_SIZE * objectData.objectIndices.limit();
         mNormalsBaseAddress = mTexCoordsBaseAddress + FLOAT_BYTE_SIZE * objectData.texCoords.limit();
         final int totalBytes = mNormalsBaseAddress + FLOAT_BYTE_SIZE * objectData.normals.limit();
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, mVertexBufferId);
-        GLES20.glBufferData(GLES20.GL_ARRAY_BUFFER, totalBytes, null, GLES20.GL_STATIC_DRAW);
-        GLES20.glBufferSubData(GLES20.GL_ARRAY_BUFFER, mVerticesBaseAddress,
+        GlFacade.get().glBindBuffer(GLES20.GL_ARRAY_BUFFER, mVertexBufferId);
+        GlFacade.get().glBufferData(GLES20.GL_ARRAY_BUFFER, totalBytes, null, GLES20.GL_STATIC_DRAW);
+        GlFacade.get().glBufferSubData(GLES20.GL_ARRAY_BUFFER, mVerticesBaseAddress,
             FLOAT_BYTE_SIZE * objectData.objectVertices.limit(), objectData.objectVertices);
-        GLES20.glBufferSubData(GLES20.GL_ARRAY_BUFFER, mTexCoordsBaseAddress,
+        GlFacade.get().glBufferSubData(GLES20.GL_ARRAY_BUFFER, mTexCoordsBaseAddress,
             FLOAT_BYTE_SIZE * objectData.texCoords.limit(), objectData.texCoords);
-        GLES20.glBufferSubData(GLES20.GL_ARRAY_BUFFER, mNormalsBaseAddress,
+        GlFacade.get().glBufferSubData(GLES20.GL_ARRAY_BUFFER, mNormalsBaseAddress,
             FLOAT_BYTE_SIZE * objectData.normals.limit(), objectData.normals);
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
-        GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, mIndexBufferId);
+        GlFacade.get().glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+        GlFacade.get().glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, mIndexBufferId);
         mIndexCount = objectData.indices.limit();
 
         // Prevent the memory from being insufficient and multiply the memory.
-        GLES20.glBufferData(GLES20.GL_ELEMENT_ARRAY_BUFFER, 2 * mIndexCount, objectData.indices, GLES20.GL_STATIC_DRAW);
-        GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, 0);
+        GlFacade.get().glBufferData(GLES20.GL_ELEMENT_ARRAY_BUFFER, 2 * mIndexCount, objectData.indices,
+            GLES20.GL_STATIC_DRAW);
+        GlFacade.get().glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, 0);
 
         loadShaderAndGetOpenGLESVariable();
     }
@@ -233,7 +235,7 @@ public class VirtualObjectData {
         }
         indices.rewind();
         int[] buffers = new int[BUFFER_OBJECT_NUMBER];
-        GLES20.glGenBuffers(BUFFER_OBJECT_NUMBER, buffers, 0);
+        GlFacade.get().glGenBuffers(BUFFER_OBJECT_NUMBER, buffers, 0);
         mVertexBufferId = buffers[0];
         mIndexBufferId = buffers[1];
         mVerticesBaseAddress = 0;
@@ -253,9 +255,9 @@ public class VirtualObjectData {
             LogUtil.error(TAG, "Get data error!");
             return;
         }
-        GLUtils.texImage2D(GLES20.GL_TEXTURE_2D, 0, textureBitmap, 0);
-        GLES20.glGenerateMipmap(GLES20.GL_TEXTURE_2D);
-        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, 0);
+        GlFacade.get().texImage2D(GLES20.GL_TEXTURE_2D, 0, textureBitmap, 0);
+        GlFacade.get().glGenerateMipmap(GLES20.GL_TEXTURE_2D);
+        GlFacade.get().glBindTexture(GLES20.GL_TEXTURE_2D, 0);
         textureBitmap.recycle();
         ShaderUtil.checkGlError(TAG, "Init gl texture data end.");
     }
@@ -265,20 +267,20 @@ public class VirtualObjectData {
      */
     private void loadShaderAndGetOpenGLESVariable() {
         mProgram = SceneMeshShaderUtil.getVirtualObjectProgram();
-        GLES20.glUseProgram(mProgram);
+        GlFacade.get().glUseProgram(mProgram);
 
-        mModelViewUniform = GLES20.glGetUniformLocation(mProgram, "u_ModelView");
-        mModelViewProjectionUniform = GLES20.glGetUniformLocation(mProgram, "u_ModelViewProjection");
+        mModelViewUniform = GlFacade.get().glGetUniformLocation(mProgram, "u_ModelView");
+        mModelViewProjectionUniform = GlFacade.get().glGetUniformLocation(mProgram, "u_ModelViewProjection");
 
-        mPositionAttribute = GLES20.glGetAttribLocation(mProgram, "a_Position");
-        mNormalAttribute = GLES20.glGetAttribLocation(mProgram, "a_Normal");
-        mTexCoordAttribute = GLES20.glGetAttribLocation(mProgram, "a_TexCoord");
+        mPositionAttribute = GlFacade.get().glGetAttribLocation(mProgram, "a_Position");
+        mNormalAttribute = GlFacade.get().glGetAttribLocation(mProgram, "a_Normal");
+        mTexCoordAttribute = GlFacade.get().glGetAttribLocation(mProgram, "a_TexCoord");
 
-        mTextureUniform = GLES20.glGetUniformLocation(mProgram, "u_Texture");
+        mTextureUniform = GlFacade.get().glGetUniformLocation(mProgram, "u_Texture");
 
-        mLightingParametersUniform = GLES20.glGetUniformLocation(mProgram, "u_LightingParameters");
-        mMaterialParametersUniform = GLES20.glGetUniformLocation(mProgram, "u_MaterialParameters");
-        mColorUniform = GLES20.glGetUniformLocation(mProgram, "u_ObjColor");
+        mLightingParametersUniform = GlFacade.get().glGetUniformLocation(mProgram, "u_LightingParameters");
+        mMaterialParametersUniform = GlFacade.get().glGetUniformLocation(mProgram, "u_MaterialParameters");
+        mColorUniform = GlFacade.get().glGetUniformLocation(mProgram, "u_ObjColor");
 
         Matrix.setIdentityM(mModelMatrixs, 0);
     }
@@ -331,62 +333,58 @@ public class VirtualObjectData {
         Matrix.multiplyMM(mModelViewMatrixs, 0, cameraView, 0, mModelMatrixs, 0);
         Matrix.multiplyMM(mModelViewProjectionMatrixs, 0, cameraPerspective, 0, mModelViewMatrixs, 0);
 
-        GLES20.glUseProgram(mProgram);
+        GlFacade.get().glUseProgram(mProgram);
 
         Matrix.multiplyMV(mViewLightDirections, 0, mModelViewMatrixs, 0, LIGHT_DIRECTIONS, 0);
         normalizeVec3(mViewLightDirections);
 
         // The lighting direction data has three dimensions (0, 1, and 2).
-        GLES20.glUniform4f(mLightingParametersUniform, mViewLightDirections[0], mViewLightDirections[1],
+        GlFacade.get().glUniform4f(mLightingParametersUniform, mViewLightDirections[0], mViewLightDirections[1],
             mViewLightDirections[2], lightIntensity);
 
         // Set the object color.
         switch (objColor) {
             case ColoredArAnchor.AR_TRACK_POINT_COLOR:
-                GLES20.glUniform4fv(mColorUniform, 1, TRACK_POINT_COLOR, 0);
+                GlFacade.get().glUniform4fv(mColorUniform, 1, TRACK_POINT_COLOR, 0);
                 break;
             case ColoredArAnchor.AR_TRACK_PLANE_COLOR:
-                GLES20.glUniform4fv(mColorUniform, 1, TRACK_PLANE_COLOR, 0);
+                GlFacade.get().glUniform4fv(mColorUniform, 1, TRACK_PLANE_COLOR, 0);
                 break;
             case ColoredArAnchor.AR_DEFAULT_COLOR:
-                GLES20.glUniform4fv(mColorUniform, 1, DEFAULT_COLORS, 0);
+                GlFacade.get().glUniform4fv(mColorUniform, 1, DEFAULT_COLORS, 0);
                 break;
             default:
                 LogUtil.error(TAG, "draw, obj color error");
                 break;
         }
 
-        GLES20.glUniform4f(mMaterialParametersUniform, mAmbient, mDiffuse, mSpecular, mSpecularPower);
+        GlFacade.get().glUniform4f(mMaterialParametersUniform, mAmbient, mDiffuse, mSpecular, mSpecularPower);
 
-        GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
-        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, mTextures[0]);
-        GLES20.glUniform1i(mTextureUniform, 0);
+        GlFacade.get().glActiveTexture(GLES20.GL_TEXTURE0);
+        GlFacade.get().glBindTexture(GLES20.GL_TEXTURE_2D, mTextures[0]);
+        GlFacade.get().glUniform1i(mTextureUniform, 0);
 
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, mVertexBufferId);
+        GlFacade.get().glBindBuffer(GLES20.GL_ARRAY_BUFFER, mVertexBufferId);
 
-        GLES20.glVertexAttribPointer(mPositionAttribute, COORDS_PER_VERTEX, GLES20.GL_FLOAT, false, 0,
+        GlFacade.get().glVertexAttribPointer(mPositionAttribute, COORDS_PER_VERTEX, GLES20.GL_FLOAT, false, 0,
             mVerticesBaseAddress);
-        GLES20.glVertexAttribPointer(mNormalAttribute, A_NORMAL_SIZE, GLES20.GL_FLOAT, false, 0, mNormalsBaseAddress);
-        GLES20.glVertexAttribPointer(mTexCoordAttribute, A_TEXCOORD_SIZE, GLES20.GL_FLOAT, false, 0,
+        GlFacade.get().glVertexAttribPointer(mNormalAttribute, A_NORMAL_SIZE, GLES20.GL_FLOAT, false, 0,
+            mNormalsBaseAddress);
+        GlFacade.get().glVertexAttribPointer(mTexCoordAttribute, A_TEXCOORD_SIZE, GLES20.GL_FLOAT, false, 0,
             mTexCoordsBaseAddress);
 
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+        GlFacade.get().glUniformMatrix4fv(mModelViewUniform, 1, false, mModelViewMatrixs, 0);
+        GlFacade.get().glUniformMatrix4fv(mModelViewProjectionUniform, 1, false, mModelViewProjectionMatrixs, 0);
+        GlFacade.get().glEnableVertexAttribArray(mPositionAttribute);
+        GlFacade.get().glEnableVertexAttribArray(mNormalAttribute);
+        GlFacade.get().glEnableVertexAttribArray(mTexCoordAttribute);
 
-        GLES20.glUniformMatrix4fv(mModelViewUniform, 1, false, mModelViewMatrixs, 0);
-        GLES20.glUniformMatrix4fv(mModelViewProjectionUniform, 1, false, mModelViewProjectionMatrixs, 0);
-        GLES20.glEnableVertexAttribArray(mPositionAttribute);
-        GLES20.glEnableVertexAttribArray(mNormalAttribute);
-        GLES20.glEnableVertexAttribArray(mTexCoordAttribute);
+        GlFacade.get().glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, mIndexBufferId);
+        GlFacade.get().glDrawElements(GLES20.GL_TRIANGLES, mIndexCount, GLES20.GL_UNSIGNED_SHORT, 0);
 
-        GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, mIndexBufferId);
-        GLES20.glDrawElements(GLES20.GL_TRIANGLES, mIndexCount, GLES20.GL_UNSIGNED_SHORT, 0);
-        GLES20.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, 0);
-
-        GLES20.glDisableVertexAttribArray(mPositionAttribute);
-        GLES20.glDisableVertexAttribArray(mNormalAttribute);
-        GLES20.glDisableVertexAttribArray(mTexCoordAttribute);
-
-        GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, 0);
+        GlFacade.get().glDisableVertexAttribArray(mPositionAttribute);
+        GlFacade.get().glDisableVertexAttribArray(mNormalAttribute);
+        GlFacade.get().glDisableVertexAttribArray(mTexCoordAttribute);
 
         LogUtil.debug(TAG, "After draw Virtual Object : ");
     }
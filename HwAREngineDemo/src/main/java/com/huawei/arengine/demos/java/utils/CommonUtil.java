@@ -240,4 +240,20 @@ public class CommonUtil {
         }
         return frame.hitTest(event);
     }
+
+    /**
+     * Get hit result of the position in the screen
+     *
+     * @param frame ARFrame
+     * @param x X coordinate of the position in the screen
+     * @param y Y coordinate of the position in the screen
+     * @return List of ARHitResult
+     */
+    public static List<ARHitResult> hitTest(ARFrame frame, float x, float y) {
+        if (x < 0 || y < 0) {
+            LogUtil.error(TAG, "hitTest, coordinate is below zero.");
+            return Collections.emptyList();
+        }
+        return frame.hitTest(x, y);
+    }
 }
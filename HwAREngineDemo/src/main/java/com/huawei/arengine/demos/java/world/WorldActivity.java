@@ -33,7 +33,7 @@ import android.widget.ToggleButton;
 import com.huawei.arengine.demos.R;
 import com.huawei.arengine.demos.common.BaseActivity;
 import com.huawei.arengine.demos.common.GestureDetectorUtils;
-import com.huawei.arengine.demos.common.GestureEvent;
+import com.huawei.arengine.demos.common.GestureEventRing;
 import com.huawei.arengine.demos.common.LogUtil;
 import com.huawei.arengine.demos.java.world.rendering.WorldRendererManager;
 import com.huawei.hiar.ARConfigBase;
@@ -41,8 +41,6 @@ import com.huawei.hiar.ARSession;
 import com.huawei.hiar.ARWorldTrackingConfig;
 import com.huawei.hiar.exceptions.ARUnavailableServiceApkTooOldException;
 
-import java.util.concurrent.ArrayBlockingQueue;
-
 /**
  * This AR example shows how to use the world AR scene of HUAWEI AR Engine,
  * including how to identify planes, use the click function, and identify
@@ -56,7 +54,7 @@ public class WorldActivity extends BaseActivity {
 
     private static final String UPDATE_TOAST_MSG = "Please update HUAWEI AR Engine app in the AppGallery.";
 
-    private static final int MOTIONEVENT_QUEUE_CAPACITY = 2;
+    private static final int MOTIONEVENT_QUEUE_CAPACITY = 64;
 
     private static final int OPENGLES_VERSION = 2;
 
@@ -80,7 +78,7 @@ public class WorldActivity extends BaseActivity {
 
     private WorldRendererManager mWorldRendererManager;
 
-    private ArrayBlockingQueue<GestureEvent> mQueuedSingleTaps = new ArrayBlockingQueue<>(MOTIONEVENT_QUEUE_CAPACITY);
+    private GestureEventRing mQueuedSingleTaps = new GestureEventRing(MOTIONEVENT_QUEUE_CAPACITY);
 
     private boolean mIsEnvLightModeOpen = false;
 
@@ -16,15 +16,11 @@
 
 package com.huawei.arengine.demos.java.world.rendering;
 
-import android.opengl.GLES20;
-import android.opengl.Matrix;
-
 import com.huawei.arengine.demos.common.LogUtil;
 import com.huawei.arengine.demos.common.ShaderUtil;
+import com.huawei.arengine.demos.common.StagingBuffer;
 import com.huawei.hiar.ARTarget;
 
-import java.nio.FloatBuffer;
-
 /**
  * The bounding box renderer that renders a bounding box of an object identified in target semantic recognition.
  *
@@ -44,7 +40,15 @@ public class AabbRenderer extends TargetRenderer {
      */
     private static final int SQUARE_SIZE = 4;
 
-    private float[] linePoints = new float[SQUARE_SIZE * CUBE_POINT_NUM * FLOATS_PER_POINT * MAX_BOX_NUM];
+    /**
+     * Number of line vertices of the box: 12 edges, each with two vertices.
+     */
+    private static final int LINE_POINTS_NUM = SQUARE_SIZE * CUBE_POINT_NUM;
+
+    /**
+     * Signs of the Y coordinates of the top and the bottom faces of the box.
+     */
+    private static final float[] SCALE_Y = new float[] {W_VALUE, -W_VALUE};
 
     @Override
     public int getVboSize() {
@@ -54,7 +58,6 @@ public class AabbRenderer extends TargetRenderer {
     @Override
     public void updateParameters(ARTarget target) {
         arTarget = target;
-        float[] boxMatrix = new float[MATRIX_SIZE];
         target.getCenterPose().toMatrix(boxMatrix, 0);
 
         float[] axisAlignBoundingBox = target.getAxisAlignBoundingBox();
@@ -71,78 +74,56 @@ public class AabbRenderer extends TargetRenderer {
         float baseY;
         float baseZ = axisAlignBoundingBox[OFFSET_Z];
 
-        float[] scaleY = new float[] {W_VALUE, -W_VALUE};
-        float[] calcVertexs = new float[SQUARE_SIZE * CUBE_POINT_NUM];
-        float[] res = new float[QUATERNION_SIZE];
-        float[] in;
+        // The vertices are written to the same array in every frame.
+        if (vertices == null) {
+            vertices = new float[SQUARE_SIZE * CUBE_POINT_NUM];
+        }
         int idx = 0;
-        for (float value : scaleY) {
+        for (float value : SCALE_Y) {
             baseY = value * axisAlignBoundingBox[OFFSET_Y];
 
-            in = new float[] {baseX, baseY, -baseZ, W_VALUE};
-            Matrix.multiplyMV(res, 0, boxMatrix, 0, in, 0);
-            numericalNormalization(idx, res, calcVertexs);
+            transformPoint(baseX, baseY, -baseZ, vertices, idx);
             idx = idx + FLOATS_PER_POINT;
 
-            in = new float[] {baseX, baseY, baseZ, W_VALUE};
-            Matrix.multiplyMV(res, 0, boxMatrix, 0, in, 0);
-            numericalNormalization(idx, res, calcVertexs);
+            transformPoint(baseX, baseY, baseZ, vertices, idx);
             idx = idx + FLOATS_PER_POINT;
 
-            in = new float[] {-baseX, baseY, baseZ, W_VALUE};
-            Matrix.multiplyMV(res, 0, boxMatrix, 0, in, 0);
-            numericalNormalization(idx, res, calcVertexs);
+            transformPoint(-baseX, baseY, baseZ, vertices, idx);
             idx = idx + FLOATS_PER_POINT;
 
-            in = new float[] {-baseX, baseY, -baseZ, W_VALUE};
-            Matrix.multiplyMV(res, 0, boxMatrix, 0, in, 0);
-            numericalNormalization(idx, res, calcVertexs);
+            transformPoint(-baseX, baseY, -baseZ, vertices, idx);
             idx = idx + FLOATS_PER_POINT;
         }
-
-        vertices = calcVertexs.clone();
     }
 
     @Override
     public void updateVertices(float[] vertices) {
-        int verticeIndex = 0;
-        for (int index = 0; index < SQUARE_SIZE * FLOATS_PER_POINT; index += FLOATS_PER_POINT) {
-            System.arraycopy(vertices, index, linePoints, verticeIndex, FLOATS_PER_POINT);
-            verticeIndex = verticeIndex + FLOATS_PER_POINT;
-
-            int endIdx = (index + FLOATS_PER_POINT) % (SQUARE_SIZE * FLOATS_PER_POINT);
-            System.arraycopy(vertices, endIdx, linePoints, verticeIndex, FLOATS_PER_POINT);
-            verticeIndex = verticeIndex + FLOATS_PER_POINT;
+        try (StagingBuffer linePoints = StagingBuffer.acquire(LINE_POINTS_NUM * FLOATS_PER_POINT)) {
+            for (int index = 0; index < SQUARE_SIZE * FLOATS_PER_POINT; index += FLOATS_PER_POINT) {
+                linePoints.put(vertices, index, FLOATS_PER_POINT);
+                int endIdx = (index + FLOATS_PER_POINT) % (SQUARE_SIZE * FLOATS_PER_POINT);
+                linePoints.put(vertices, endIdx, FLOATS_PER_POINT);
+            }
+
+            for (int index = SQUARE_SIZE * FLOATS_PER_POINT;
+                index < SQUARE_SIZE * FLOATS_PER_POINT + SQUARE_SIZE * FLOATS_PER_POINT; index += FLOATS_PER_POINT) {
+                linePoints.put(vertices, index, FLOATS_PER_POINT);
+                int endIdx =
+                    (index + FLOATS_PER_POINT) % (SQUARE_SIZE * FLOATS_PER_POINT) + SQUARE_SIZE * FLOATS_PER_POINT;
+                linePoints.put(vertices, endIdx, FLOATS_PER_POINT);
+            }
+
+            for (int index = 0; index < SQUARE_SIZE * FLOATS_PER_POINT; index += FLOATS_PER_POINT) {
+                linePoints.put(vertices, index, FLOATS_PER_POINT);
+                int endIdx = index + SQUARE_SIZE * FLOATS_PER_POINT;
+                linePoints.put(vertices, endIdx, FLOATS_PER_POINT);
+            }
+
+            pointNum = linePoints.getFloatCount() / FLOATS_PER_POINT;
+
+            ShaderUtil.checkGlError(TAG, "before line points update");
+            vbo.upload(linePoints.flip(), pointNum * BYTES_PER_POINT);
         }
-
-        for (int index = SQUARE_SIZE * FLOATS_PER_POINT;
-            index < SQUARE_SIZE * FLOATS_PER_POINT + SQUARE_SIZE * FLOATS_PER_POINT; index += FLOATS_PER_POINT) {
-            System.arraycopy(vertices, index, linePoints, verticeIndex, FLOATS_PER_POINT);
-            verticeIndex = verticeIndex + FLOATS_PER_POINT;
-
-            int endIdx = (index + FLOATS_PER_POINT) % (SQUARE_SIZE * FLOATS_PER_POINT) + SQUARE_SIZE * FLOATS_PER_POINT;
-            System.arraycopy(vertices, endIdx, linePoints, verticeIndex, FLOATS_PER_POINT);
-            verticeIndex = verticeIndex + FLOATS_PER_POINT;
-        }
-
-        for (int index = 0; index < SQUARE_SIZE * FLOATS_PER_POINT; index += FLOATS_PER_POINT) {
-            System.arraycopy(vertices, index, linePoints, verticeIndex, FLOATS_PER_POINT);
-            verticeIndex = verticeIndex + FLOATS_PER_POINT;
-
-            int endIdx = index + SQUARE_SIZE * FLOATS_PER_POINT;
-            System.arraycopy(vertices, endIdx, linePoints, verticeIndex, FLOATS_PER_POINT);
-            verticeIndex = verticeIndex + FLOATS_PER_POINT;
-        }
-
-        pointNum = SQUARE_SIZE * vertices.length;
-
-        ShaderUtil.checkGlError(TAG, "before line points update");
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, vbo);
-        updateBufferSizeIfNeeded();
-        FloatBuffer linePointsBuffer = FloatBuffer.wrap(linePoints);
-        GLES20.glBufferSubData(GLES20.GL_ARRAY_BUFFER, 0, pointNum * BYTES_PER_POINT, linePointsBuffer);
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
-
         ShaderUtil.checkGlError(TAG, "after line points update");
     }
 
@@ -16,14 +16,10 @@
 
 package com.huawei.arengine.demos.java.world.rendering;
 
-import android.opengl.GLES20;
-import android.opengl.Matrix;
-
 import com.huawei.arengine.demos.common.ShaderUtil;
+import com.huawei.arengine.demos.common.StagingBuffer;
 import com.huawei.hiar.ARTarget;
 
-import java.nio.FloatBuffer;
-
 /**
  * A renderer for circles, configured to render a circle identified in target semantic recognition.
  *
@@ -35,13 +31,14 @@ public class CircleRenderer extends TargetRenderer {
 
     private static final int INITIAL_BUFFER_POINTS = 300;
 
-    private static final int SQUARE_SIZE = 50;
-
     private static final int ELLIPSE_SIZE = 50;
 
     private static final int MULTI_NUM = 2;
 
-    private float[] linePoints = new float[SQUARE_SIZE * CUBE_POINT_NUM * FLOATS_PER_POINT * MAX_BOX_NUM];
+    /**
+     * Number of line vertices of the circle: each segment has two vertices.
+     */
+    private static final int LINE_POINTS_NUM = ELLIPSE_SIZE * 2;
 
     @Override
     public int getVboSize() {
@@ -50,32 +47,24 @@ public class CircleRenderer extends TargetRenderer {
 
     @Override
     public void updateVertices(float[] vertices) {
-        int idx = 0;
-        for (int index = 0; index < ELLIPSE_SIZE * FLOATS_PER_POINT; index += FLOATS_PER_POINT) {
-            System.arraycopy(vertices, index, linePoints, idx, FLOATS_PER_POINT);
-            idx = idx + FLOATS_PER_POINT;
-
-            int endIdx = (index + FLOATS_PER_POINT) % (ELLIPSE_SIZE * FLOATS_PER_POINT);
-            System.arraycopy(vertices, endIdx, linePoints, idx, FLOATS_PER_POINT);
-            idx = idx + FLOATS_PER_POINT;
-        }
-
-        pointNum = ELLIPSE_SIZE * vertices.length;
+        try (StagingBuffer linePoints = StagingBuffer.acquire(LINE_POINTS_NUM * FLOATS_PER_POINT)) {
+            for (int index = 0; index < ELLIPSE_SIZE * FLOATS_PER_POINT; index += FLOATS_PER_POINT) {
+                linePoints.put(vertices, index, FLOATS_PER_POINT);
+                int endIdx = (index + FLOATS_PER_POINT) % (ELLIPSE_SIZE * FLOATS_PER_POINT);
+                linePoints.put(vertices, endIdx, FLOATS_PER_POINT);
+            }
 
-        ShaderUtil.checkGlError(TAG, "before update");
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, vbo);
-        updateBufferSizeIfNeeded();
-        FloatBuffer linePointBuffer = FloatBuffer.wrap(linePoints);
-        GLES20.glBufferSubData(GLES20.GL_ARRAY_BUFFER, 0, pointNum * BYTES_PER_POINT, linePointBuffer);
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+            pointNum = linePoints.getFloatCount() / FLOATS_PER_POINT;
 
+            ShaderUtil.checkGlError(TAG, "before update");
+            vbo.upload(linePoints.flip(), pointNum * BYTES_PER_POINT);
+        }
         ShaderUtil.checkGlError(TAG, "after update");
     }
 
     @Override
     public void updateParameters(ARTarget target) {
         arTarget = target;
-        float[] boxMatrix = new float[MATRIX_SIZE];
         target.getCenterPose().toMatrix(boxMatrix, 0);
 
         float[] axisAlignBoundingBox = target.getAxisAlignBoundingBox();
@@ -85,21 +74,16 @@ public class CircleRenderer extends TargetRenderer {
         extentY = Math.abs(axisAlignBoundingBox[OFFSET_Y]) * LENGTH_MULTIPLE_NUM;
         extentZ = Math.abs(axisAlignBoundingBox[OFFSET_Z]) * LENGTH_MULTIPLE_NUM;
 
-        float[] in = new float[QUATERNION_SIZE];
+        // The vertices are written to the same array in every frame.
+        if (vertices == null) {
+            vertices = new float[ELLIPSE_SIZE * FLOATS_PER_POINT];
+        }
         int idx = 0;
-        float[] res = new float[QUATERNION_SIZE];
-        float[] calcVertexes = new float[ELLIPSE_SIZE * FLOATS_PER_POINT];
         for (int index = 0; index < ELLIPSE_SIZE; index++) {
-            in[OFFSET_X] = radius * (float) Math.cos(MULTI_NUM * Math.PI / ELLIPSE_SIZE * index);
-            in[OFFSET_Y] = 0f;
-            in[OFFSET_Z] = radius * (float) Math.sin(MULTI_NUM * Math.PI / ELLIPSE_SIZE * index);
-            in[in.length - 1] = W_VALUE;
-            Matrix.multiplyMV(res, 0, boxMatrix, 0, in, 0);
-            numericalNormalization(idx, res, calcVertexes);
+            transformPoint(radius * (float) Math.cos(MULTI_NUM * Math.PI / ELLIPSE_SIZE * index), 0f,
+                radius * (float) Math.sin(MULTI_NUM * Math.PI / ELLIPSE_SIZE * index), vertices, idx);
             idx = idx + FLOATS_PER_POINT;
         }
-
-        vertices = calcVertexes.clone();
     }
 
     @Override
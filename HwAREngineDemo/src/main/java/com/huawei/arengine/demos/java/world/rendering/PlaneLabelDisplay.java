@@ -0,0 +1,277 @@
+/*
+ * Copyright 2023. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.huawei.arengine.demos.java.world.rendering;
+
+import android.graphics.Bitmap;
+import android.opengl.GLES20;
+import android.opengl.Matrix;
+import android.util.Pair;
+
+import com.huawei.arengine.demos.common.DynamicVertexBuffer;
+import com.huawei.arengine.demos.common.GlFacade;
+import com.huawei.arengine.demos.common.LogUtil;
+import com.huawei.arengine.demos.common.ShaderUtil;
+import com.huawei.arengine.demos.common.StagingBuffer;
+import com.huawei.arengine.demos.common.TextureAtlas;
+import com.huawei.arengine.demos.common.WorldShaderUtil;
+import com.huawei.hiar.ARPlane;
+import com.huawei.hiar.ARPose;
+import com.huawei.hiar.ARTrackable;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+
+/**
+ * This class demonstrates how to use ARPlane, including how to obtain the center point of a plane.
+ * If the plane type can be identified, it is also displayed at the center of the plane. Otherwise,
+ * "other" is displayed. The bitmaps of all plane types are packed into one texture atlas, and the labels of
+ * all planes are written into one vertex buffer in world coordinates and drawn with a single draw call.
+ *
+ * @author HW
+ * @since 2023-06-12
+ */
+public class PlaneLabelDisplay {
+    private static final String TAG = PlaneLabelDisplay.class.getSimpleName();
+
+    private static final float LABEL_WIDTH = 0.1f;
+
+    private static final float LABEL_HEIGHT = 0.1f;
+
+    private static final int MATRIX_SIZE = 16;
+
+    private static final int POSITION_COMPONENTS_NUMBER = 3;
+
+    private static final int TEXCOORD_COMPONENTS_NUMBER = 2;
+
+    private static final int FLOATS_PER_VERTEX = POSITION_COMPONENTS_NUMBER + TEXCOORD_COMPONENTS_NUMBER;
+
+    private static final int BYTES_PER_FLOAT = Float.SIZE / 8;
+
+    private static final int BYTES_PER_VERTEX = FLOATS_PER_VERTEX * BYTES_PER_FLOAT;
+
+    private static final int VERTICES_PER_LABEL = 6;
+
+    private static final int INITIAL_LABEL_NUM = 32;
+
+    /**
+     * X and Z coordinates of the two triangles of a label quad in the plane, for a label of size 1 * 1. The
+     * UV coordinates are these values plus 0.5.
+     */
+    private static final float[] QUAD_CORNERS = {-0.5f, -0.5f, -0.5f, 0.5f, 0.5f, 0.5f, -0.5f, -0.5f, 0.5f, 0.5f,
+        0.5f, -0.5f};
+
+    private final TextureAtlas mAtlas = new TextureAtlas();
+
+    private final DynamicVertexBuffer mVertexBuffer =
+        new DynamicVertexBuffer(GLES20.GL_ARRAY_BUFFER, INITIAL_LABEL_NUM * VERTICES_PER_LABEL * BYTES_PER_VERTEX);
+
+    /**
+     * Allocate temporary matrices here to reduce the number of allocations per frame.
+     */
+    private final float[] mModelMatrix = new float[MATRIX_SIZE];
+
+    private final float[] mViewMatrix = new float[MATRIX_SIZE];
+
+    private final float[] mViewProjectionMatrix = new float[MATRIX_SIZE];
+
+    private final float[] mUvRect = new float[TextureAtlas.UV_RECT_SIZE];
+
+    private int mProgram;
+
+    private int mPositionAttribute;
+
+    private int mTexCoordAttribute;
+
+    private int mViewProjectionUniform;
+
+    private int mTextureUniform;
+
+    private int mLabelCount = 0;
+
+    /**
+     * Create the shader program, the vertex buffer, and the label atlas on the OpenGL thread.
+     * This method will be called when {@link WorldRendererManager#onSurfaceCreated}.
+     *
+     * @param labelBitmaps Bitmaps of the plane types, whose indexes are the ordinals of ARPlane.SemanticPlaneLabel.
+     */
+    public void init(ArrayList<Bitmap> labelBitmaps) {
+        ShaderUtil.checkGlError(TAG, "Init start.");
+        if (labelBitmaps.size() == 0) {
+            LogUtil.error(TAG, "No bitmap.");
+        }
+        mProgram = WorldShaderUtil.getPlaneLabelProgram();
+        mPositionAttribute = GlFacade.get().glGetAttribLocation(mProgram, "inWorldPosition");
+        mTexCoordAttribute = GlFacade.get().glGetAttribLocation(mProgram, "inTexCoord");
+        mViewProjectionUniform = GlFacade.get().glGetUniformLocation(mProgram, "inViewProjectionMatrix");
+        mTextureUniform = GlFacade.get().glGetUniformLocation(mProgram, "inTexture");
+        mVertexBuffer.init();
+        mAtlas.init(labelBitmaps);
+        ShaderUtil.checkGlError(TAG, "Init end.");
+    }
+
+    /**
+     * Render the plane type at the center of the currently identified plane.
+     * This method will be called when {@link WorldRendererManager#onDrawFrame}.
+     *
+     * @param allPlanes All identified planes.
+     * @param cameraPose Location and pose of the current camera.
+     * @param cameraProjection Projection matrix of the current camera.
+     */
+    public void onDrawFrame(Collection<ARPlane> allPlanes, ARPose cameraPose, float[] cameraProjection) {
+        ArrayList<ARPlane> sortedPlanes = getSortedPlanes(allPlanes, cameraPose);
+        updateVertices(sortedPlanes);
+        if (mLabelCount == 0) {
+            return;
+        }
+        cameraPose.inverse().toMatrix(mViewMatrix, 0);
+        Matrix.multiplyMM(mViewProjectionMatrix, 0, cameraProjection, 0, mViewMatrix, 0);
+        drawLabels();
+    }
+
+    private ArrayList<ARPlane> getSortedPlanes(Collection<ARPlane> allPlanes, ARPose cameraPose) {
+        // Planes must be sorted by the distance from the camera so that we can
+        // first draw the closer planes, and have them block the further planes.
+        ArrayList<Pair<ARPlane, Float>> pairPlanes = new ArrayList<>();
+        for (ARPlane plane : allPlanes) {
+            if ((plane.getType() == ARPlane.PlaneType.UNKNOWN_FACING)
+                || plane.getTrackingState() != ARTrackable.TrackingState.TRACKING || plane.getSubsumedBy() != null) {
+                continue;
+            }
+
+            // Store the normal vector of the current plane.
+            float[] planeNormalVector = new float[3];
+            ARPose planeCenterPose = plane.getCenterPose();
+            planeCenterPose.getTransformedAxis(1, 1.0f, planeNormalVector, 0);
+
+            // Calculate the distance from the camera to the plane. If the value is negative,
+            // it indicates that the camera is behind the plane (the normal vector distinguishes
+            // the front side from the back side).
+            float distanceBetweenPlaneAndCamera = (cameraPose.tx() - planeCenterPose.tx()) * planeNormalVector[0]
+                + (cameraPose.ty() - planeCenterPose.ty()) * planeNormalVector[1]
+                + (cameraPose.tz() - planeCenterPose.tz()) * planeNormalVector[2];
+            pairPlanes.add(new Pair<>(plane, distanceBetweenPlaneAndCamera));
+        }
+
+        pairPlanes.sort(new PlanCompare());
+
+        ArrayList<ARPlane> sortedPlanes = new ArrayList<>();
+        for (Pair<ARPlane, Float> eachPlane : pairPlanes) {
+            sortedPlanes.add(eachPlane.first);
+        }
+        return sortedPlanes;
+    }
+
+    /**
+     * Sort the planes.
+     *
+     * @author HW
+     * @since 2020-04-17
+     */
+    static class PlanCompare implements Comparator<Pair<ARPlane, Float>>, Serializable {
+        private static final long serialVersionUID = -7710923839970415650L;
+
+        @Override
+        public int compare(Pair<ARPlane, Float> planA, Pair<ARPlane, Float> planB) {
+            return planB.second.compareTo(planA.second);
+        }
+    }
+
+    /**
+     * Write the label quads of the planes into the vertex buffer in drawing order. Each vertex has the world
+     * coordinates and the atlas UV coordinates, so that labels of different types can be drawn together.
+     *
+     * @param sortedPlanes Planes sorted from near to far.
+     */
+    private void updateVertices(ArrayList<ARPlane> sortedPlanes) {
+        mLabelCount = 0;
+        if (sortedPlanes.isEmpty()) {
+            return;
+        }
+        try (StagingBuffer vertices =
+            StagingBuffer.acquire(sortedPlanes.size() * VERTICES_PER_LABEL * FLOATS_PER_VERTEX)) {
+            for (ARPlane plane : sortedPlanes) {
+                if (!mAtlas.getUvRect(plane.getLabel().ordinal(), mUvRect, 0)) {
+                    continue;
+                }
+                plane.getCenterPose().toMatrix(mModelMatrix, 0);
+                putLabelVertices(vertices);
+                mLabelCount++;
+            }
+            if (mLabelCount > 0) {
+                mVertexBuffer.upload(vertices.flip(), vertices.getByteSize());
+            }
+        }
+    }
+
+    private void putLabelVertices(StagingBuffer vertices) {
+        for (int i = 0; i < QUAD_CORNERS.length; i += 2) {
+            float cornerX = QUAD_CORNERS[i];
+            float cornerZ = QUAD_CORNERS[i + 1];
+            float x = cornerX * LABEL_WIDTH;
+            float z = cornerZ * LABEL_HEIGHT;
+
+            // Transform (x, 0, z) by the model matrix, which is stored in column-major order.
+            vertices.put(mModelMatrix[0] * x + mModelMatrix[8] * z + mModelMatrix[12],
+                mModelMatrix[1] * x + mModelMatrix[9] * z + mModelMatrix[13],
+                mModelMatrix[2] * x + mModelMatrix[10] * z + mModelMatrix[14]);
+            vertices.put(mUvRect[0] + (mUvRect[2] - mUvRect[0]) * (cornerX + 0.5f));
+            vertices.put(mUvRect[1] + (mUvRect[3] - mUvRect[1]) * (cornerZ + 0.5f));
+        }
+    }
+
+    private void drawLabels() {
+        ShaderUtil.checkGlError(TAG, "Draw plane labels start.");
+        GlFacade.get().glDepthMask(false);
+        GlFacade.get().glEnable(GLES20.GL_BLEND);
+        GlFacade.get().glBlendFuncSeparate(GLES20.GL_DST_ALPHA, GLES20.GL_ONE, GLES20.GL_ZERO,
+            GLES20.GL_ONE_MINUS_SRC_ALPHA);
+        GlFacade.get().glUseProgram(mProgram);
+
+        GlFacade.get().glActiveTexture(GLES20.GL_TEXTURE0);
+        mAtlas.bind();
+        GlFacade.get().glUniform1i(mTextureUniform, 0);
+        GlFacade.get().glUniformMatrix4fv(mViewProjectionUniform, 1, false, mViewProjectionMatrix, 0);
+
+        GlFacade.get().glEnableVertexAttribArray(mPositionAttribute);
+        GlFacade.get().glEnableVertexAttribArray(mTexCoordAttribute);
+        mVertexBuffer.bind();
+        GlFacade.get().glVertexAttribPointer(mPositionAttribute, POSITION_COMPONENTS_NUMBER, GLES20.GL_FLOAT, false,
+            BYTES_PER_VERTEX, 0);
+        GlFacade.get().glVertexAttribPointer(mTexCoordAttribute, TEXCOORD_COMPONENTS_NUMBER, GLES20.GL_FLOAT, false,
+            BYTES_PER_VERTEX, POSITION_COMPONENTS_NUMBER * BYTES_PER_FLOAT);
+
+        // The labels are drawn in the order of the vertices, so the closer labels still block the further ones.
+        GlFacade.get().glDrawArrays(GLES20.GL_TRIANGLES, 0, mLabelCount * VERTICES_PER_LABEL);
+
+        GlFacade.get().glDisableVertexAttribArray(mPositionAttribute);
+        GlFacade.get().glDisableVertexAttribArray(mTexCoordAttribute);
+        GlFacade.get().glDisable(GLES20.GL_BLEND);
+        GlFacade.get().glDepthMask(true);
+        ShaderUtil.checkGlError(TAG, "Draw plane labels end.");
+    }
+
+    /**
+     * Obtain the number of labels drawn in the latest frame.
+     *
+     * @return Number of labels.
+     */
+    public int getLabelCount() {
+        return mLabelCount;
+    }
+}
@@ -18,12 +18,21 @@ package com.huawei.arengine.demos.java.world.rendering;
 
 import android.content.Context;
 import android.opengl.GLES20;
-import android.opengl.Matrix;
 
+import com.huawei.arengine.demos.common.DynamicVertexBuffer;
+import com.huawei.arengine.demos.common.FrameSnapshot;
+import com.huawei.arengine.demos.common.GlFacade;
+import com.huawei.arengine.demos.common.MatrixUtil;
+import com.huawei.arengine.demos.common.PointCloudChangeDetector;
+import com.huawei.arengine.demos.common.PointCloudFilter;
 import com.huawei.arengine.demos.common.ShaderUtil;
+import com.huawei.arengine.demos.common.StagingBuffer;
+import com.huawei.arengine.demos.common.VoxelPointMap;
 import com.huawei.arengine.demos.common.WorldShaderUtil;
 import com.huawei.hiar.ARPointCloud;
 
+import java.nio.FloatBuffer;
+
 /**
  * Point cloud rendering class, including creating shader to update point cloud data and rendering.
  *
@@ -37,21 +46,44 @@ public class PointCloudRenderer {
     private static final int FLOATS_POINT = 4; // X,Y,Z,confidence.
     private static final int BYTES_POINT = BYTES_FLOAT * FLOATS_POINT;
     private static final int INITIAL_BUFFER_POINT_SIZE = 1000;
+    private static final int MATRIX_SIZE = 16;
+
+    /**
+     * Voxels of the point map that are not seen for this number of point clouds are removed.
+     */
+    private static final int POINT_MAP_MAX_AGE_FRAMES = 300;
+
+    private final DynamicVertexBuffer mPointBuffer =
+        new DynamicVertexBuffer(GLES20.GL_ARRAY_BUFFER, INITIAL_BUFFER_POINT_SIZE * BYTES_POINT);
 
     private int mProgramName;
-    private int mPointBuffer;
-    private int mPointBufferSize;
     private int mPositionAttribute;
     private int mViewProjectionUniform;
     private int mPointUniform;
     private int mColorUniform;
     private int mNumPoints = 0;
-    private ARPointCloud mPointCloud = null;
+    private final PointCloudChangeDetector mChangeDetector = new PointCloudChangeDetector();
+    private final VoxelPointMap mPointMap;
+    private PointCloudFilter mFilter = new PointCloudFilter();
+    private int mUploadedPointMapVersion = -1;
+    private long mUploadCount = 0L;
+    private long mSkippedUploadCount = 0L;
+    private final float[] mModelViewProjection = new float[MATRIX_SIZE];
 
     /**
-     * Constructor.
+     * Constructor of a renderer that draws the point cloud of the current frame.
      */
     public PointCloudRenderer() {
+        this(null);
+    }
+
+    /**
+     * Constructor of a renderer that accumulates the point clouds of all frames in a point map, and draws the map.
+     *
+     * @param pointMap Point map, or null to draw the point cloud of the current frame only.
+     */
+    public PointCloudRenderer(VoxelPointMap pointMap) {
+        mPointMap = pointMap;
     }
 
     /**
@@ -63,70 +95,161 @@ public class PointCloudRenderer {
     public void init(Context context) {
         ShaderUtil.checkGlError(TAG, "before create");
 
-        int[] buffers = new int[1];
-        GLES20.glGenBuffers(1, buffers, 0);
-        mPointBuffer = buffers[0];
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, mPointBuffer);
-
-        mPointBufferSize = INITIAL_BUFFER_POINT_SIZE * BYTES_POINT;
-        GLES20.glBufferData(GLES20.GL_ARRAY_BUFFER, mPointBufferSize, null, GLES20.GL_DYNAMIC_DRAW);
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
-
+        mPointBuffer.init();
         ShaderUtil.checkGlError(TAG, "buffer alloc");
 
+        // The points uploaded to the buffer of a lost GL context must be uploaded again.
+        mChangeDetector.reset();
+        mUploadedPointMapVersion = -1;
+
         mProgramName = WorldShaderUtil.getPointCloudProgram();
-        GLES20.glUseProgram(mProgramName);
+        GlFacade.get().glUseProgram(mProgramName);
 
         ShaderUtil.checkGlError(TAG, "program");
 
-        mPositionAttribute = GLES20.glGetAttribLocation(mProgramName, "a_Position");
-        mColorUniform = GLES20.glGetUniformLocation(mProgramName, "u_Color");
-        mViewProjectionUniform = GLES20.glGetUniformLocation(mProgramName, "u_ModelViewProjection");
-        mPointUniform = GLES20.glGetUniformLocation(mProgramName, "u_PointSize");
+        mPositionAttribute = GlFacade.get().glGetAttribLocation(mProgramName, "a_Position");
+        mColorUniform = GlFacade.get().glGetUniformLocation(mProgramName, "u_Color");
+        mViewProjectionUniform = GlFacade.get().glGetUniformLocation(mProgramName, "u_ModelViewProjection");
+        mPointUniform = GlFacade.get().glGetUniformLocation(mProgramName, "u_PointSize");
         ShaderUtil.checkGlError(TAG, "program params");
     }
 
+    /**
+     * Set the stage that drops and downsamples the points before they are uploaded or accumulated.
+     *
+     * @param filter Point cloud filter, or null to use all points.
+     */
+    public void setFilter(PointCloudFilter filter) {
+        mFilter = filter;
+    }
+
+    public PointCloudFilter getFilter() {
+        return mFilter;
+    }
+
+    /**
+     * Obtain the number of times the points have been uploaded to the vertex buffer.
+     *
+     * @return Number of uploads.
+     */
+    public long getUploadCount() {
+        return mUploadCount;
+    }
+
+    /**
+     * Obtain the number of frames in which the upload has been skipped, because the point cloud or the point map
+     * has not changed.
+     *
+     * @return Number of skipped uploads.
+     */
+    public long getSkippedUploadCount() {
+        return mSkippedUploadCount;
+    }
+
+    /**
+     * Append the upload counters to the information displayed on the screen.
+     *
+     * @param sb String builder to which the counters are appended.
+     */
+    public void appendSummary(StringBuilder sb) {
+        sb.append("Point cloud uploads performed/skipped=").append(mUploadCount).append('/')
+            .append(mSkippedUploadCount).append(System.lineSeparator());
+    }
+
     /**
      * Update point cloud data in buffer and setting up input data in shader program and drawing, when draw the point.
+     * The points are uploaded only if the timestamp of the point cloud has changed.
      *
      * @param cloud Data types defined by HW(ARPointCloud).
      * @param cameraView Camera view data.
      * @param cameraPerspective Camera perspective data.
      */
     public void onDrawFrame(ARPointCloud cloud, float[] cameraView, float[] cameraPerspective) {
+        onDrawFrame(cloud.getPoints(), cloud.getTimestampNs(), cameraView, cameraPerspective);
+    }
+
+    /**
+     * Update point cloud data in buffer and draw the points of a frame snapshot, which comes from the live
+     * session or from a recording. The points are uploaded only if the timestamp of the point cloud has changed.
+     *
+     * @param snapshot Frame snapshot.
+     * @param cameraView Camera view data.
+     * @param cameraPerspective Camera perspective data.
+     */
+    public void onDrawFrame(FrameSnapshot snapshot, float[] cameraView, float[] cameraPerspective) {
+        onDrawFrame(snapshot.getPointCloud(), snapshot.getPointCloudTimestampNs(), cameraView, cameraPerspective);
+    }
+
+    private void onDrawFrame(FloatBuffer points, long timestampNs, float[] cameraView, float[] cameraPerspective) {
         ShaderUtil.checkGlError(TAG, "start update");
-        if (mPointCloud == cloud) {
+        if (mChangeDetector.isChanged(timestampNs)) {
+            updatePoints(points);
+        } else {
+            mSkippedUploadCount++;
+        }
+        ShaderUtil.checkGlError(TAG, "end update and before draw");
+        drawPoints(cameraView, cameraPerspective);
+    }
+
+    private void updatePoints(FloatBuffer points) {
+        if (mPointMap == null) {
+            uploadPoints(points);
+            return;
+        }
+        mPointMap.beginFrame();
+        insertIntoPointMap(points);
+        mPointMap.evict(POINT_MAP_MAX_AGE_FRAMES);
+
+        // The map is uploaded only when a voxel has changed.
+        FloatBuffer mapPoints = mPointMap.flush();
+        if (mPointMap.getVersion() == mUploadedPointMapVersion) {
+            mSkippedUploadCount++;
             return;
         }
-        ShaderUtil.checkGlError(TAG, "before update");
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, mPointBuffer);
-        mPointCloud = cloud;
-
-        mNumPoints = mPointCloud.getPoints().remaining() / FLOATS_POINT;
-        if (mPointBufferSize < mNumPoints * BYTES_POINT) {
-            while (mPointBufferSize < mNumPoints * BYTES_POINT) {
-                mPointBufferSize *= 2; // If vertice VBO size is not big enough ,double it.
+        mNumPoints = mapPoints.remaining() / FLOATS_POINT;
+        mPointBuffer.upload(mapPoints, mNumPoints * BYTES_POINT);
+        mUploadedPointMapVersion = mPointMap.getVersion();
+        mUploadCount++;
+    }
+
+    private void uploadPoints(FloatBuffer points) {
+        if (mFilter == null) {
+            mNumPoints = points.remaining() / FLOATS_POINT;
+            mPointBuffer.upload(points, mNumPoints * BYTES_POINT);
+        } else {
+            try (StagingBuffer filteredPoints = StagingBuffer.acquire(mFilter.getMaxFloatCount(points))) {
+                mNumPoints = mFilter.filter(points, filteredPoints);
+                mPointBuffer.upload(filteredPoints.flip(), filteredPoints.getByteSize());
             }
-            GLES20.glBufferData(GLES20.GL_ARRAY_BUFFER, mPointBufferSize, null, GLES20.GL_DYNAMIC_DRAW);
         }
-        GLES20.glBufferSubData(GLES20.GL_ARRAY_BUFFER, 0, mNumPoints * BYTES_POINT, mPointCloud.getPoints());
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
-        ShaderUtil.checkGlError(TAG, "end update and before draw");
-        float[] modelViewProjection = new float[16];
-        Matrix.multiplyMM(modelViewProjection, 0, cameraPerspective, 0, cameraView, 0);
+        mUploadCount++;
+    }
+
+    private void insertIntoPointMap(FloatBuffer points) {
+        if (mFilter == null) {
+            mPointMap.insert(points);
+            return;
+        }
+        try (StagingBuffer filteredPoints = StagingBuffer.acquire(mFilter.getMaxFloatCount(points))) {
+            mFilter.filter(points, filteredPoints);
+            mPointMap.insert(filteredPoints.flip());
+        }
+    }
+
+    private void drawPoints(float[] cameraView, float[] cameraPerspective) {
+        MatrixUtil.multiplyMM(mModelViewProjection, 0, cameraPerspective, 0, cameraView, 0);
 
-        GLES20.glUseProgram(mProgramName);
-        GLES20.glEnableVertexAttribArray(mPositionAttribute);
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, mPointBuffer);
-        GLES20.glVertexAttribPointer(mPositionAttribute, POSITION_COMPONENTS_NUMBERS, GLES20.GL_FLOAT, false,
+        GlFacade.get().glUseProgram(mProgramName);
+        GlFacade.get().glEnableVertexAttribArray(mPositionAttribute);
+        mPointBuffer.bind();
+        GlFacade.get().glVertexAttribPointer(mPositionAttribute, POSITION_COMPONENTS_NUMBERS, GLES20.GL_FLOAT, false,
             BYTES_POINT, 0);
-        GLES20.glUniform4f(mColorUniform, 255.0f / 255.0f, 241.0f / 255.0f, 67.0f / 255.0f, 1.0f);
-        GLES20.glUniformMatrix4fv(mViewProjectionUniform, 1, false, modelViewProjection, 0);
-        GLES20.glUniform1f(mPointUniform, 10.0f); // Set the size of Point to 10.
+        GlFacade.get().glUniform4f(mColorUniform, 255.0f / 255.0f, 241.0f / 255.0f, 67.0f / 255.0f, 1.0f);
+        GlFacade.get().glUniformMatrix4fv(mViewProjectionUniform, 1, false, mModelViewProjection, 0);
+        GlFacade.get().glUniform1f(mPointUniform, 10.0f); // Set the size of Point to 10.
 
-        GLES20.glDrawArrays(GLES20.GL_POINTS, 0, mNumPoints);
-        GLES20.glDisableVertexAttribArray(mPositionAttribute);
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+        GlFacade.get().glDrawArrays(GLES20.GL_POINTS, 0, mNumPoints);
+        GlFacade.get().glDisableVertexAttribArray(mPositionAttribute);
         ShaderUtil.checkGlError(TAG, "after draw");
     }
 }
\ No newline at end of file
@@ -16,14 +16,10 @@
 
 package com.huawei.arengine.demos.java.world.rendering;
 
-import android.opengl.GLES20;
-import android.opengl.Matrix;
-
 import com.huawei.arengine.demos.common.ShaderUtil;
+import com.huawei.arengine.demos.common.StagingBuffer;
 import com.huawei.hiar.ARTarget;
 
-import java.nio.FloatBuffer;
-
 /**
  * A renderer for rectangles, configured to render a rectangle identified in target semantic recognition.
  *
@@ -33,13 +29,14 @@ import java.nio.FloatBuffer;
 public class RectRenderer extends TargetRenderer {
     private static final String TAG = RectRenderer.class.getSimpleName();
 
-    private static final int MAX_BOX_NUM = 100;
-
     private static final int SQUARE_SIZE = 4;
 
     private static final int INITIAL_BUFFER_POINTS = 150;
 
-    private final float[] linePoints = new float[SQUARE_SIZE * CUBE_POINT_NUM * FLOATS_PER_POINT * MAX_BOX_NUM];
+    /**
+     * Number of line vertices of the rectangle: four edges, each with two vertices.
+     */
+    private static final int LINE_POINTS_NUM = SQUARE_SIZE * 2;
 
     @Override
     public int getVboSize() {
@@ -48,25 +45,18 @@ public class RectRenderer extends TargetRenderer {
 
     @Override
     public void updateVertices(float[] vertices) {
-        int idx = 0;
-        for (int index = 0; index < SQUARE_SIZE * FLOATS_PER_POINT; index += FLOATS_PER_POINT) {
-            System.arraycopy(vertices, index, linePoints, idx, FLOATS_PER_POINT);
-            idx = idx + FLOATS_PER_POINT;
-
-            int endIdx = (index + FLOATS_PER_POINT) % (SQUARE_SIZE * FLOATS_PER_POINT);
-            System.arraycopy(vertices, endIdx, linePoints, idx, FLOATS_PER_POINT);
-            idx = idx + FLOATS_PER_POINT;
-        }
-
-        pointNum = SQUARE_SIZE * vertices.length;
+        try (StagingBuffer linePoints = StagingBuffer.acquire(LINE_POINTS_NUM * FLOATS_PER_POINT)) {
+            for (int index = 0; index < SQUARE_SIZE * FLOATS_PER_POINT; index += FLOATS_PER_POINT) {
+                linePoints.put(vertices, index, FLOATS_PER_POINT);
+                int endIdx = (index + FLOATS_PER_POINT) % (SQUARE_SIZE * FLOATS_PER_POINT);
+                linePoints.put(vertices, endIdx, FLOATS_PER_POINT);
+            }
 
-        ShaderUtil.checkGlError(TAG, "before update");
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, vbo);
-        updateBufferSizeIfNeeded();
-        FloatBuffer linePointBuffer = FloatBuffer.wrap(linePoints);
-        GLES20.glBufferSubData(GLES20.GL_ARRAY_BUFFER, 0, pointNum * BYTES_PER_POINT, linePointBuffer);
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+            pointNum = linePoints.getFloatCount() / FLOATS_PER_POINT;
 
+            ShaderUtil.checkGlError(TAG, "before update");
+            vbo.upload(linePoints.flip(), pointNum * BYTES_PER_POINT);
+        }
         ShaderUtil.checkGlError(TAG, "after update");
     }
 
@@ -74,7 +64,6 @@ public class RectRenderer extends TargetRenderer {
     public void updateParameters(ARTarget target) {
         arTarget = target;
 
-        float[] boxMatrix = new float[MATRIX_SIZE];
         target.getCenterPose().toMatrix(boxMatrix, 0);
 
         float[] axisAlignBoundingBox = target.getAxisAlignBoundingBox();
@@ -83,33 +72,25 @@ public class RectRenderer extends TargetRenderer {
         extentY = Math.abs(axisAlignBoundingBox[OFFSET_Y]) * LENGTH_MULTIPLE_NUM;
         extentZ = Math.abs(axisAlignBoundingBox[OFFSET_Z]) * LENGTH_MULTIPLE_NUM;
 
-        float[] res = new float[QUATERNION_SIZE];
         float baseX = axisAlignBoundingBox[OFFSET_X];
         float baseY = axisAlignBoundingBox[OFFSET_Y];
         float baseZ = axisAlignBoundingBox[OFFSET_Z];
 
-        float[] in = new float[] {baseX, baseY, -baseZ, W_VALUE};
-        Matrix.multiplyMV(res, 0, boxMatrix, 0, in, 0);
-        float[] calcVertexes = new float[SQUARE_SIZE * CUBE_POINT_NUM];
+        // The vertices are written to the same array in every frame.
+        if (vertices == null) {
+            vertices = new float[SQUARE_SIZE * CUBE_POINT_NUM];
+        }
         int idx = 0;
-        numericalNormalization(idx, res, calcVertexes);
+        transformPoint(baseX, baseY, -baseZ, vertices, idx);
         idx = idx + FLOATS_PER_POINT;
 
-        in = new float[] {baseX, baseY, baseZ, W_VALUE};
-        Matrix.multiplyMV(res, 0, boxMatrix, 0, in, 0);
-        numericalNormalization(idx, res, calcVertexes);
+        transformPoint(baseX, baseY, baseZ, vertices, idx);
         idx = idx + FLOATS_PER_POINT;
 
-        in = new float[] {-baseX, baseY, baseZ, W_VALUE};
-        Matrix.multiplyMV(res, 0, boxMatrix, 0, in, 0);
-        numericalNormalization(idx, res, calcVertexes);
+        transformPoint(-baseX, baseY, baseZ, vertices, idx);
         idx = idx + FLOATS_PER_POINT;
 
-        in = new float[] {-baseX, baseY, -baseZ, W_VALUE};
-        Matrix.multiplyMV(res, 0, boxMatrix, 0, in, 0);
-        numericalNormalization(idx, res, calcVertexes);
-
-        vertices = calcVertexes.clone();
+        transformPoint(-baseX, baseY, -baseZ, vertices, idx);
     }
 
     @Override
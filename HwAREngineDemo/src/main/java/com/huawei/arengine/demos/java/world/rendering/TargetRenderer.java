@@ -17,9 +17,11 @@
 package com.huawei.arengine.demos.java.world.rendering;
 
 import android.opengl.GLES20;
-import android.opengl.Matrix;
 
+import com.huawei.arengine.demos.common.DynamicVertexBuffer;
+import com.huawei.arengine.demos.common.GlFacade;
 import com.huawei.arengine.demos.common.LogUtil;
+import com.huawei.arengine.demos.common.MatrixUtil;
 import com.huawei.arengine.demos.common.ShaderUtil;
 import com.huawei.arengine.demos.common.WorldShaderUtil;
 import com.huawei.hiar.ARTarget;
@@ -87,11 +89,6 @@ public abstract class TargetRenderer {
      */
     protected static final float LENGTH_MULTIPLE_NUM = 2.0f;
 
-    /**
-     * Double the VBO size if it is too small.
-     */
-    protected static final int VBO_SIZE_GROWTH_FACTOR = 2;
-
     /**
      * W component.
      */
@@ -139,14 +136,9 @@ public abstract class TargetRenderer {
     protected float radius = 0.0f;
 
     /**
-     * VBO storage location.
+     * VBO that stores the line vertices, which is updated every frame.
      */
-    protected int vbo;
-
-    /**
-     * VBO size.
-     */
-    protected int vboSize;
+    protected DynamicVertexBuffer vbo;
 
     /**
      * Vertices information.
@@ -158,6 +150,17 @@ public abstract class TargetRenderer {
      */
     protected int pointNum = 0;
 
+    /**
+     * Center pose matrix of the target, which is reused by every update.
+     */
+    protected final float[] boxMatrix = new float[MATRIX_SIZE];
+
+    private final float[] pointIn = new float[QUATERNION_SIZE];
+
+    private final float[] pointOut = new float[QUATERNION_SIZE];
+
+    private final float[] modelViewProjections = new float[MATRIX_SIZE];
+
     private int programName;
 
     private int positionAttribute;
@@ -171,26 +174,19 @@ public abstract class TargetRenderer {
      */
     public void createOnGlThread() {
         ShaderUtil.checkGlError(TAG, "before create");
-        int[] buffer = new int[1];
-        GLES20.glGenBuffers(1, buffer, 0);
-        vbo = buffer[0];
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, vbo);
-
-        vboSize = getVboSize();
-        GLES20.glBufferData(GLES20.GL_ARRAY_BUFFER, vboSize, null, GLES20.GL_DYNAMIC_DRAW);
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+        vbo = new DynamicVertexBuffer(GLES20.GL_ARRAY_BUFFER, getVboSize());
+        vbo.init();
 
         ShaderUtil.checkGlError(TAG, "buffer alloc");
 
         programName = WorldShaderUtil.getPointCloudProgram();
-        GLES20.glLinkProgram(programName);
-        GLES20.glUseProgram(programName);
+        GlFacade.get().glUseProgram(programName);
 
         ShaderUtil.checkGlError(TAG, "program");
 
-        positionAttribute = GLES20.glGetAttribLocation(programName, "a_Position");
-        colorUniform = GLES20.glGetUniformLocation(programName, "u_Color");
-        modelViewProjectionUniform = GLES20.glGetUniformLocation(programName, "u_ModelViewProjection");
+        positionAttribute = GlFacade.get().glGetAttribLocation(programName, "a_Position");
+        colorUniform = GlFacade.get().glGetUniformLocation(programName, "u_Color");
+        modelViewProjectionUniform = GlFacade.get().glGetUniformLocation(programName, "u_ModelViewProjection");
 
         ShaderUtil.checkGlError(TAG, "program params");
     }
@@ -208,35 +204,45 @@ public abstract class TargetRenderer {
 
         ShaderUtil.checkGlError(TAG, "Before draw");
 
-        float[] modelViewProjections = new float[MATRIX_SIZE];
-        Matrix.multiplyMM(modelViewProjections, 0, projectionMatrix, 0, cameraViewMatrix, 0);
-        GLES20.glUseProgram(programName);
-        GLES20.glEnableVertexAttribArray(positionAttribute);
-        GLES20.glEnableVertexAttribArray(colorUniform);
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, vbo);
-        GLES20.glLineWidth(LINE_WIDTH);
-        GLES20.glVertexAttribPointer(positionAttribute, QUATERNION_SIZE, GLES20.GL_FLOAT, false, BYTES_PER_POINT, 0);
+        MatrixUtil.multiplyMM(modelViewProjections, 0, projectionMatrix, 0, cameraViewMatrix, 0);
+        GlFacade.get().glUseProgram(programName);
+        GlFacade.get().glEnableVertexAttribArray(positionAttribute);
+        GlFacade.get().glEnableVertexAttribArray(colorUniform);
+        vbo.bind();
+        GlFacade.get().glLineWidth(LINE_WIDTH);
+        GlFacade.get().glVertexAttribPointer(positionAttribute, QUATERNION_SIZE, GLES20.GL_FLOAT, false,
+            BYTES_PER_POINT, 0);
 
         // Set the line color.
-        GLES20.glUniform4f(colorUniform, 10.0f / 255.0f, 89.0f / 255.0f, 247.0f / 255.0f, 1.0f);
-        GLES20.glUniformMatrix4fv(modelViewProjectionUniform, 1, false, modelViewProjections, 0);
+        GlFacade.get().glUniform4f(colorUniform, 10.0f / 255.0f, 89.0f / 255.0f, 247.0f / 255.0f, 1.0f);
+        GlFacade.get().glUniformMatrix4fv(modelViewProjectionUniform, 1, false, modelViewProjections, 0);
 
-        GLES20.glDrawArrays(GLES20.GL_LINES, 0, pointNum);
-        GLES20.glDisableVertexAttribArray(positionAttribute);
-        GLES20.glDisableVertexAttribArray(colorUniform);
-        GLES20.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 0);
+        GlFacade.get().glDrawArrays(GLES20.GL_LINES, 0, pointNum);
+        GlFacade.get().glDisableVertexAttribArray(positionAttribute);
+        GlFacade.get().glDisableVertexAttribArray(colorUniform);
         LogUtil.debug(TAG, "draw end");
 
         ShaderUtil.checkGlError(TAG, "Draw");
     }
 
-    void updateBufferSizeIfNeeded() {
-        if (vboSize < pointNum * BYTES_PER_POINT) {
-            while (vboSize < pointNum * BYTES_PER_POINT) {
-                vboSize *= VBO_SIZE_GROWTH_FACTOR;
-            }
-            GLES20.glBufferData(GLES20.GL_ARRAY_BUFFER, vboSize, null, GLES20.GL_DYNAMIC_DRAW);
-        }
+
+    /**
+     * Transform a point of the target coordinate system by {@link #boxMatrix} and write it to an array, without
+     * allocating memory.
+     *
+     * @param x X coordinate in the target coordinate system.
+     * @param y Y coordinate in the target coordinate system.
+     * @param z Z coordinate in the target coordinate system.
+     * @param dst Target array.
+     * @param startIndex Index of the X coordinate in the target array.
+     */
+    protected void transformPoint(float x, float y, float z, float[] dst, int startIndex) {
+        pointIn[OFFSET_X] = x;
+        pointIn[OFFSET_Y] = y;
+        pointIn[OFFSET_Z] = z;
+        pointIn[QUATERNION_SIZE - 1] = W_VALUE;
+        MatrixUtil.multiplyMV(pointOut, 0, boxMatrix, 0, pointIn, 0);
+        numericalNormalization(startIndex, pointOut, dst);
     }
 
     /**
@@ -18,19 +18,24 @@ package com.huawei.arengine.demos.java.world.rendering;
 
 import android.app.Activity;
 import android.graphics.Bitmap;
-import android.view.MotionEvent;
 import android.view.View;
 import android.widget.ImageView;
 import android.widget.TextView;
 
 import com.huawei.arengine.demos.R;
 import com.huawei.arengine.demos.common.ArDemoRuntimeException;
+import com.huawei.arengine.demos.common.ArSessionFrameSource;
 import com.huawei.arengine.demos.common.BaseRendererManager;
+import com.huawei.arengine.demos.common.DragPlane;
 import com.huawei.arengine.demos.common.GestureEvent;
+import com.huawei.arengine.demos.common.GestureEventPipeline;
+import com.huawei.arengine.demos.common.GestureEventRing;
 import com.huawei.arengine.demos.common.LogUtil;
 import com.huawei.arengine.demos.common.ObjectDisplay;
-import com.huawei.arengine.demos.common.VirtualObject;
+import com.huawei.arengine.demos.common.VirtualObjectStore;
+import com.huawei.arengine.demos.common.VoxelPointMap;
 import com.huawei.arengine.demos.java.utils.CommonUtil;
+import com.huawei.hiar.ARAnchor;
 import com.huawei.hiar.ARCamera;
 import com.huawei.hiar.ARConfigBase;
 import com.huawei.hiar.ARFrame;
@@ -38,7 +43,6 @@ import com.huawei.hiar.ARHitResult;
 import com.huawei.hiar.ARLightEstimate;
 import com.huawei.hiar.ARPlane;
 import com.huawei.hiar.ARPoint;
-import com.huawei.hiar.ARPointCloud;
 import com.huawei.hiar.ARSession;
 import com.huawei.hiar.ARTarget;
 import com.huawei.hiar.ARTrackable;
@@ -51,9 +55,8 @@ import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.Iterator;
+import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.atomic.AtomicReference;
 
 import javax.microedition.khronos.egl.EGLConfig;
@@ -77,6 +80,19 @@ public class WorldRendererManager extends BaseRendererManager implements BaseRen
 
     private static final float[] GREEN_COLORS = new float[] {66.0f, 244.0f, 133.0f, 255.0f};
 
+    /**
+     * Maximum number of placed objects. All objects are drawn in one batch, so the limit is set by the number
+     * of anchors that AR Engine keeps tracking rather than by rendering.
+     */
+    private static final int MAX_VIRTUAL_OBJECT_NUM = 256;
+
+    /**
+     * Edge length of the voxels of the accumulated point map, in meters.
+     */
+    private static final float POINT_MAP_VOXEL_SIZE = 0.02f;
+
+    private static final int POINT_MAP_MAX_VOXELS = 1 << 16;
+
     private static final int SIDE_LENGTH = 128;
 
     private static final int LIGHTING_CUBE_MAP_SINGLE_FACE_SIZE = SIDE_LENGTH * SIDE_LENGTH * 3;
@@ -103,17 +119,24 @@ public class WorldRendererManager extends BaseRendererManager implements BaseRen
 
     private AtomicReference<Bitmap> mBitmap = new AtomicReference<>();
 
-    private LabelDisplay mLabelDisplay = new LabelDisplay();
+    private PlaneLabelDisplay mLabelDisplay = new PlaneLabelDisplay();
 
     private ObjectDisplay mObjectDisplay = new ObjectDisplay();
 
-    private PointCloudRenderer mPointCloud = new PointCloudRenderer();
+    private PointCloudRenderer mPointCloud =
+        new PointCloudRenderer(new VoxelPointMap(POINT_MAP_VOXEL_SIZE, POINT_MAP_MAX_VOXELS));
+
+    private GestureEventPipeline mGesturePipeline;
+
+    private int mSelectedHandle = VirtualObjectStore.INVALID_HANDLE;
 
-    private ArrayBlockingQueue<GestureEvent> mQueuedSingleTaps;
+    private DragPlane mDragPlane = new DragPlane();
 
-    private VirtualObject mSelectedObj = null;
+    private float[] mRayOrigin = new float[3];
 
-    private ArrayList<VirtualObject> mVirtualObjects = new ArrayList<>();
+    private float[] mRayDirection = new float[3];
+
+    private VirtualObjectStore mVirtualObjects = new VirtualObjectStore();
 
     private TargetRenderManager mTargetRenderManager = new TargetRenderManager();
 
@@ -136,6 +159,7 @@ public class WorldRendererManager extends BaseRendererManager implements BaseRen
         mTextureImageLeft = activity.findViewById(R.id.img_env_texture_left);
         mTextureImageBack = activity.findViewById(R.id.img_env_Texture_back);
         setRenderer(this);
+        setCaptureMask(ArSessionFrameSource.CAPTURE_POINT_CLOUD);
         LogUtil.info(TAG, "mSearchingTextView init.");
     }
 
@@ -159,12 +183,12 @@ public class WorldRendererManager extends BaseRendererManager implements BaseRen
      *
      * @param queuedSingleTaps Gesture type queue.
      */
-    public void setQueuedSingleTaps(ArrayBlockingQueue<GestureEvent> queuedSingleTaps) {
+    public void setQueuedSingleTaps(GestureEventRing queuedSingleTaps) {
         if (queuedSingleTaps == null) {
             LogUtil.error(TAG, "setSession error, arSession is null!");
             return;
         }
-        mQueuedSingleTaps = queuedSingleTaps;
+        mGesturePipeline = new GestureEventPipeline(queuedSingleTaps);
     }
 
     @Override
@@ -207,10 +231,9 @@ public class WorldRendererManager extends BaseRendererManager implements BaseRen
                 mProjectionMatrix);
             handleGestureEvent(mArFrame, mArCamera, mProjectionMatrix, mViewMatrix);
             ARLightEstimate lightEstimate = mArFrame.getLightEstimate();
-            ARPointCloud arPointCloud = mArFrame.acquirePointCloud();
             getEnvironmentTexture(lightEstimate);
             drawAllObjects(mProjectionMatrix, mViewMatrix, getPixelIntensity(lightEstimate));
-            mPointCloud.onDrawFrame(arPointCloud, mViewMatrix, mProjectionMatrix);
+            mPointCloud.onDrawFrame(getFrameSnapshot(), mViewMatrix, mProjectionMatrix);
         } catch (ArDemoRuntimeException e) {
             LogUtil.error(TAG, "Exception on the ArDemoRuntimeException!");
         } catch (ARFatalException | IllegalArgumentException | ARDeadlineExceededException |
@@ -251,13 +274,14 @@ public class WorldRendererManager extends BaseRendererManager implements BaseRen
         if ((mArWorldTrackingConfig.getLightingMode() & ARConfigBase.LIGHT_MODE_ENVIRONMENT_TEXTURE) == 0) {
             return;
         }
-        ByteBuffer byteBuffer = lightEstimate.acquireEnvironmentTexture();
-        if (byteBuffer == null) {
-            return;
-        }
 
-        // Update the environment texture every 10 frames.
+        // Update the environment texture every 10 frames. The texture is only acquired in these frames, because
+        // AR Engine copies the whole cube map for each acquisition.
         if ((mUpdateIndex % 10) == 0) {
+            ByteBuffer byteBuffer = lightEstimate.acquireEnvironmentTexture();
+            if (byteBuffer == null) {
+                return;
+            }
             byte[] bytes = new byte[LIGHTING_CUBE_MAP_SIZE];
             byteBuffer.get(bytes);
             mActivity.runOnUiThread(new Runnable() {
@@ -321,16 +345,8 @@ public class WorldRendererManager extends BaseRendererManager implements BaseRen
     }
 
     private void drawAllObjects(float[] projectionMatrix, float[] viewMatrix, float lightPixelIntensity) {
-        Iterator<VirtualObject> ite = mVirtualObjects.iterator();
-        while (ite.hasNext()) {
-            VirtualObject obj = ite.next();
-            if (obj.getAnchor().getTrackingState() == ARTrackable.TrackingState.STOPPED) {
-                ite.remove();
-            }
-            if (obj.getAnchor().getTrackingState() == ARTrackable.TrackingState.TRACKING) {
-                mObjectDisplay.onDrawFrame(viewMatrix, projectionMatrix, lightPixelIntensity, obj);
-            }
-        }
+        mVirtualObjects.update();
+        mObjectDisplay.onDrawFrame(viewMatrix, projectionMatrix, lightPixelIntensity, mVirtualObjects);
     }
 
     private ArrayList<Bitmap> getPlaneBitmaps() {
@@ -380,8 +396,11 @@ public class WorldRendererManager extends BaseRendererManager implements BaseRen
     }
 
     private void updateMessageData(ARFrame arFrame, StringBuilder sb) {
-        float fpsResult = doFpsCalculate();
-        sb.append("FPS=").append(fpsResult).append(System.lineSeparator());
+        appendFrameSummary(sb);
+        if (mGesturePipeline != null) {
+            mGesturePipeline.appendSummary(sb);
+        }
+        mPointCloud.appendSummary(sb);
 
         ARLightEstimate lightEstimate = arFrame.getLightEstimate();
 
@@ -426,16 +445,28 @@ public class WorldRendererManager extends BaseRendererManager implements BaseRen
     }
 
     private void handleGestureEvent(ARFrame arFrame, ARCamera arCamera, float[] projectionMatrix, float[] viewMatrix) {
-        GestureEvent event = mQueuedSingleTaps.poll();
-        if (event == null) {
+        if (mGesturePipeline == null) {
             return;
         }
-
-        // Do not perform anything when the object is not tracked.
-        if (arCamera.getTrackingState() != ARTrackable.TrackingState.TRACKING) {
+        List<GestureEvent> events = mGesturePipeline.drain();
+        if (events.isEmpty()) {
             return;
         }
 
+        // Only the end of a drag is handled when the camera is not tracked, so that a drag does not stay open.
+        boolean isTracking = arCamera.getTrackingState() == ARTrackable.TrackingState.TRACKING;
+        for (int i = 0; i < events.size(); i++) {
+            GestureEvent event = events.get(i);
+            if (!isTracking && event.getType() != GestureEvent.GESTURE_EVENT_TYPE_SCROLLEND) {
+                continue;
+            }
+            applyGestureEvent(arFrame, arCamera, projectionMatrix, viewMatrix, event);
+            mGesturePipeline.onEventApplied(event);
+        }
+    }
+
+    private void applyGestureEvent(ARFrame arFrame, ARCamera arCamera, float[] projectionMatrix, float[] viewMatrix,
+        GestureEvent event) {
         int eventType = event.getType();
         switch (eventType) {
             case GestureEvent.GESTURE_EVENT_TYPE_DOUBLETAP: {
@@ -443,26 +474,24 @@ public class WorldRendererManager extends BaseRendererManager implements BaseRen
                 break;
             }
             case GestureEvent.GESTURE_EVENT_TYPE_SCROLL: {
-                if (mSelectedObj == null) {
+                if (!mVirtualObjects.isValid(mSelectedHandle)) {
                     break;
                 }
-                ARHitResult hitResult = hitTest4Result(arFrame, arCamera, event.getEventSecond());
-                if (hitResult != null) {
-                    mSelectedObj.setAnchor(hitResult.createAnchor());
-                }
+                doWhenEventTypeScroll(arFrame, arCamera, viewMatrix, projectionMatrix, event);
+                break;
+            }
+            case GestureEvent.GESTURE_EVENT_TYPE_SCROLLEND: {
+                endDrag();
                 break;
             }
             case GestureEvent.GESTURE_EVENT_TYPE_SINGLETAPCONFIRMED: {
-                // Do not perform anything when an object is selected.
-                if (mSelectedObj != null) {
-                    mSelectedObj.setIsSelected(false);
-                    mSelectedObj = null;
-                }
+                endDrag();
 
-                MotionEvent tap = event.getEventFirst();
-                ARHitResult hitResult = null;
+                // Do not perform anything when an object is selected.
+                mVirtualObjects.setSelected(mSelectedHandle, false);
+                mSelectedHandle = VirtualObjectStore.INVALID_HANDLE;
 
-                hitResult = hitTest4Result(arFrame, arCamera, tap);
+                ARHitResult hitResult = hitTest4Result(arFrame, arCamera, event.getX(), event.getY());
 
                 if (hitResult == null) {
                     break;
@@ -477,32 +506,55 @@ public class WorldRendererManager extends BaseRendererManager implements BaseRen
     }
 
     private void doWhenEventTypeDoubleTap(float[] viewMatrix, float[] projectionMatrix, GestureEvent event) {
-        if (mSelectedObj != null) {
-            mSelectedObj.setIsSelected(false);
-            mSelectedObj = null;
-        }
-        for (VirtualObject obj : mVirtualObjects) {
-            if (mObjectDisplay.hitTest(viewMatrix, projectionMatrix, obj, event.getEventFirst())) {
-                obj.setIsSelected(true);
-                mSelectedObj = obj;
-                break;
+        endDrag();
+        mVirtualObjects.setSelected(mSelectedHandle, false);
+        mSelectedHandle = mObjectDisplay.hitTest(viewMatrix, projectionMatrix, mVirtualObjects, event.getX(),
+            event.getY());
+        mVirtualObjects.setSelected(mSelectedHandle, true);
+    }
+
+    private void doWhenEventTypeScroll(ARFrame arFrame, ARCamera arCamera, float[] viewMatrix,
+        float[] projectionMatrix, GestureEvent event) {
+        // Only the start of a drag is hit tested by AR Engine. After that, the screen ray is intersected with the
+        // plane that was hit, and the object is moved without creating anchors.
+        if (!mDragPlane.isActive()) {
+            ARHitResult hitResult = hitTest4Result(arFrame, arCamera, event.getX(), event.getY());
+            if (hitResult == null) {
+                return;
             }
+            mDragPlane.begin(hitResult);
+        } else if (!mObjectDisplay.getTapRay(viewMatrix, projectionMatrix, event.getX(), event.getY(), mRayOrigin,
+            mRayDirection) || !mDragPlane.intersect(mRayOrigin, mRayDirection)) {
+            return;
+        }
+        mVirtualObjects.setPoseMatrix(mSelectedHandle, mDragPlane.getPoseMatrix());
+    }
+
+    private void endDrag() {
+        if (!mDragPlane.isActive()) {
+            return;
+        }
+        ARAnchor anchor = mDragPlane.end();
+        if (anchor != null) {
+            mVirtualObjects.setAnchor(mSelectedHandle, anchor);
+        } else {
+            // The object was not detached from its anchor while dragged, so it goes back to the anchor.
+            mVirtualObjects.clearPoseOverride(mSelectedHandle);
         }
     }
 
     private void doWhenEventTypeSingleTap(ARHitResult hitResult) {
         // The hit results are sorted by distance. Only the nearest hit point is valid.
-        // Set the number of stored objects to 10 to avoid the overload of rendering and AR Engine.
-        if (mVirtualObjects.size() >= 16) {
-            mVirtualObjects.get(0).getAnchor().detach();
-            mVirtualObjects.remove(0);
+        // Limit the number of stored objects to avoid the overload of AR Engine.
+        if (mVirtualObjects.size() >= MAX_VIRTUAL_OBJECT_NUM) {
+            mVirtualObjects.removeOldest();
         }
 
         ARTrackable currentTrackable = hitResult.getTrackable();
         if (currentTrackable instanceof ARPoint) {
-            mVirtualObjects.add(new VirtualObject(hitResult.createAnchor(), BLUE_COLORS));
+            mVirtualObjects.add(hitResult.createAnchor(), BLUE_COLORS);
         } else if (currentTrackable instanceof ARPlane) {
-            mVirtualObjects.add(new VirtualObject(hitResult.createAnchor(), GREEN_COLORS));
+            mVirtualObjects.add(hitResult.createAnchor(), GREEN_COLORS);
         } else {
             LogUtil.info(TAG, "Hit result is not plane or point.");
         }
@@ -512,11 +564,7 @@ public class WorldRendererManager extends BaseRendererManager implements BaseRen
      * Release the anchor when destroying Activity.
      */
     public void releaseARAnchor() {
-        if (mVirtualObjects == null) {
-            return;
-        }
-        for (VirtualObject object : mVirtualObjects) {
-            object.detachAnchor();
-        }
+        mDragPlane.cancel();
+        mVirtualObjects.clear();
     }
 }
\ No newline at end of file
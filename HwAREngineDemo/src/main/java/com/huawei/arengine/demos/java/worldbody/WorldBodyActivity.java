@@ -24,7 +24,7 @@ import android.widget.TextView;
 import com.huawei.arengine.demos.R;
 import com.huawei.arengine.demos.common.BaseActivity;
 import com.huawei.arengine.demos.common.GestureDetectorUtils;
-import com.huawei.arengine.demos.common.GestureEvent;
+import com.huawei.arengine.demos.common.GestureEventRing;
 import com.huawei.arengine.demos.common.LogUtil;
 import com.huawei.arengine.demos.java.worldbody.rendering.WorldBodyRendererManager;
 import com.huawei.hiar.ARConfigBase;
@@ -35,8 +35,6 @@ import com.huawei.hiar.exceptions.ARUnSupportedConfigurationException;
 import com.huawei.hiar.exceptions.ARUnavailableServiceApkTooOldException;
 import com.huawei.hiar.exceptions.ARUnavailableServiceNotInstalledException;
 
-import java.util.concurrent.ArrayBlockingQueue;
-
 /**
  * This demo shows how to use the world body AR type.
  *
@@ -46,13 +44,13 @@ import java.util.concurrent.ArrayBlockingQueue;
 public class WorldBodyActivity extends BaseActivity {
     private static final String TAG = WorldBodyActivity.class.getSimpleName();
 
-    private static final int MOTIONEVENT_QUEUE_CAPACITY = 2;
+    private static final int MOTIONEVENT_QUEUE_CAPACITY = 64;
 
     private static final int OPENGLES_VERSION = 2;
 
     private WorldBodyRendererManager mWorldBodyRendererManager;
 
-    private ArrayBlockingQueue<GestureEvent> mQueuedSingleTaps = new ArrayBlockingQueue<>(MOTIONEVENT_QUEUE_CAPACITY);
+    private GestureEventRing mQueuedSingleTaps = new GestureEventRing(MOTIONEVENT_QUEUE_CAPACITY);
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
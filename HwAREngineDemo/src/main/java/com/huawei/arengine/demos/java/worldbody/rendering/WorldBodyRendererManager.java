@@ -17,14 +17,16 @@
 package com.huawei.arengine.demos.java.worldbody.rendering;
 
 import android.app.Activity;
-import android.view.MotionEvent;
 
 import com.huawei.arengine.demos.common.ArDemoRuntimeException;
+import com.huawei.arengine.demos.common.ArSessionFrameSource;
 import com.huawei.arengine.demos.common.BaseRendererManager;
 import com.huawei.arengine.demos.common.GestureEvent;
+import com.huawei.arengine.demos.common.GestureEventPipeline;
+import com.huawei.arengine.demos.common.GestureEventRing;
 import com.huawei.arengine.demos.common.LogUtil;
 import com.huawei.arengine.demos.common.ObjectDisplay;
-import com.huawei.arengine.demos.common.VirtualObject;
+import com.huawei.arengine.demos.common.VirtualObjectStore;
 import com.huawei.arengine.demos.java.body3d.rendering.BodyRelatedDisplay;
 import com.huawei.arengine.demos.java.body3d.rendering.BodySkeletonDisplay;
 import com.huawei.arengine.demos.java.body3d.rendering.BodySkeletonLineDisplay;
@@ -35,7 +37,6 @@ import com.huawei.hiar.ARFrame;
 import com.huawei.hiar.ARHitResult;
 import com.huawei.hiar.ARPlane;
 import com.huawei.hiar.ARPoint;
-import com.huawei.hiar.ARPointCloud;
 import com.huawei.hiar.ARTrackable;
 import com.huawei.hiar.exceptions.ARDeadlineExceededException;
 import com.huawei.hiar.exceptions.ARFatalException;
@@ -43,8 +44,7 @@ import com.huawei.hiar.exceptions.ARUnavailableServiceApkTooOldException;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Iterator;
-import java.util.concurrent.ArrayBlockingQueue;
+import java.util.List;
 
 import javax.microedition.khronos.egl.EGLConfig;
 import javax.microedition.khronos.opengles.GL10;
@@ -60,13 +60,19 @@ public class WorldBodyRendererManager extends BaseRendererManager implements Bas
 
     private static final float[] BLUE_COLORS = new float[] {66.0f, 133.0f, 244.0f, 255.0f};
 
+    /**
+     * Maximum number of placed objects. All objects are drawn in one batch, so the limit is set by the number
+     * of anchors that AR Engine keeps tracking rather than by rendering.
+     */
+    private static final int MAX_VIRTUAL_OBJECT_NUM = 256;
+
     private ObjectDisplay mObjectDisplay = new ObjectDisplay();
 
     private PointCloudRenderer mPointCloud = new PointCloudRenderer();
 
-    private ArrayBlockingQueue<GestureEvent> mQueuedSingleTaps;
+    private GestureEventPipeline mGesturePipeline;
 
-    private ArrayList<VirtualObject> mVirtualObjects = new ArrayList<>();
+    private VirtualObjectStore mVirtualObjects = new VirtualObjectStore();
 
     private ArrayList<BodyRelatedDisplay> mBodyRelatedDisplays = new ArrayList<>();
 
@@ -82,6 +88,7 @@ public class WorldBodyRendererManager extends BaseRendererManager implements Bas
         mBodyRelatedDisplays.add(bodySkeletonDisplay);
         mBodyRelatedDisplays.add(bodySkeletonLineDisplay);
         setRenderer(this);
+        setCaptureMask(ArSessionFrameSource.CAPTURE_POINT_CLOUD | ArSessionFrameSource.CAPTURE_BODIES);
     }
 
     /**
@@ -89,12 +96,12 @@ public class WorldBodyRendererManager extends BaseRendererManager implements Bas
      *
      * @param queuedSingleTaps Gesture type queue.
      */
-    public void setQueuedSingleTaps(ArrayBlockingQueue<GestureEvent> queuedSingleTaps) {
+    public void setQueuedSingleTaps(GestureEventRing queuedSingleTaps) {
         if (queuedSingleTaps == null) {
             LogUtil.error(TAG, "setQueuedSingleTaps params is invalid!");
             return;
         }
-        mQueuedSingleTaps = queuedSingleTaps;
+        mGesturePipeline = new GestureEventPipeline(queuedSingleTaps);
     }
 
     @Override
@@ -116,8 +123,7 @@ public class WorldBodyRendererManager extends BaseRendererManager implements Bas
         try {
             handleGestureEvent(mArFrame, mArCamera);
             drawAllObjects(mProjectionMatrix, mViewMatrix);
-            ARPointCloud arPointCloud = mArFrame.acquirePointCloud();
-            mPointCloud.onDrawFrame(arPointCloud, mViewMatrix, mProjectionMatrix);
+            mPointCloud.onDrawFrame(getFrameSnapshot(), mViewMatrix, mProjectionMatrix);
             Collection<ARBody> bodies = mSession.getAllTrackables(ARBody.class);
 
             StringBuilder sb = new StringBuilder();
@@ -125,7 +131,7 @@ public class WorldBodyRendererManager extends BaseRendererManager implements Bas
             mTextDisplay.onDrawFrame(sb.toString());
 
             for (BodyRelatedDisplay bodyRelatedDisplay : mBodyRelatedDisplays) {
-                bodyRelatedDisplay.onDrawFrame(bodies, mProjectionMatrix);
+                bodyRelatedDisplay.drawSnapshots(getFrameSnapshot().getBodies(), mProjectionMatrix);
             }
             LogUtil.debug(TAG, "after worldBody display.");
         } catch (ArDemoRuntimeException e) {
@@ -138,17 +144,10 @@ public class WorldBodyRendererManager extends BaseRendererManager implements Bas
     }
 
     private void drawAllObjects(float[] projectionMatrix, float[] viewMatrix) {
-        Iterator<VirtualObject> ite = mVirtualObjects.iterator();
-        while (ite.hasNext()) {
-            VirtualObject obj = ite.next();
-            if (obj.getAnchor().getTrackingState() == ARTrackable.TrackingState.STOPPED) {
-                ite.remove();
-            }
-            if (obj.getAnchor().getTrackingState() == ARTrackable.TrackingState.TRACKING) {
-                // Light intensity 1.
-                mObjectDisplay.onDrawFrame(viewMatrix, projectionMatrix, 1.0f, obj);
-            }
-        }
+        mVirtualObjects.update();
+
+        // Light intensity 1.
+        mObjectDisplay.onDrawFrame(viewMatrix, projectionMatrix, 1.0f, mVirtualObjects);
     }
 
     /**
@@ -158,8 +157,11 @@ public class WorldBodyRendererManager extends BaseRendererManager implements Bas
      * @param bodies identified ARBody.
      */
     private void updateMessageData(StringBuilder sb, Collection<ARBody> bodies) {
-        float fpsResult = doFpsCalculate();
-        sb.append("FPS=").append(fpsResult).append(System.lineSeparator());
+        appendFrameSummary(sb);
+        if (mGesturePipeline != null) {
+            mGesturePipeline.appendSummary(sb);
+        }
+        mPointCloud.appendSummary(sb);
         int trackingBodySum = 0;
         for (ARBody body : bodies) {
             if (body.getTrackingState() != ARTrackable.TrackingState.TRACKING) {
@@ -173,8 +175,11 @@ public class WorldBodyRendererManager extends BaseRendererManager implements Bas
     }
 
     private void handleGestureEvent(ARFrame arFrame, ARCamera arCamera) {
-        GestureEvent event = mQueuedSingleTaps.poll();
-        if (event == null) {
+        if (mGesturePipeline == null) {
+            return;
+        }
+        List<GestureEvent> events = mGesturePipeline.drain();
+        if (events.isEmpty()) {
             return;
         }
 
@@ -183,28 +188,28 @@ public class WorldBodyRendererManager extends BaseRendererManager implements Bas
             return;
         }
 
-        int eventType = event.getType();
-        if (eventType == GestureEvent.GESTURE_EVENT_TYPE_SINGLETAPCONFIRMED) {
-            MotionEvent tap = event.getEventFirst();
-            ARHitResult hitResult = hitTest4Result(arFrame, arCamera, tap);
-            if (hitResult == null) {
-                return;
+        for (int i = 0; i < events.size(); i++) {
+            GestureEvent event = events.get(i);
+            if (event.getType() == GestureEvent.GESTURE_EVENT_TYPE_SINGLETAPCONFIRMED) {
+                ARHitResult hitResult = hitTest4Result(arFrame, arCamera, event.getX(), event.getY());
+                if (hitResult != null) {
+                    doWhenEventTypeSingleTap(hitResult);
+                }
             }
-            doWhenEventTypeSingleTap(hitResult);
+            mGesturePipeline.onEventApplied(event);
         }
     }
 
     private void doWhenEventTypeSingleTap(ARHitResult hitResult) {
         // The hit results are sorted by distance. Only the nearest hit point is valid.
-        // Set the number of stored objects to 10 to avoid the overload of rendering and AR Engine.
-        if (mVirtualObjects.size() >= 16) {
-            mVirtualObjects.get(0).getAnchor().detach();
-            mVirtualObjects.remove(0);
+        // Limit the number of stored objects to avoid the overload of AR Engine.
+        if (mVirtualObjects.size() >= MAX_VIRTUAL_OBJECT_NUM) {
+            mVirtualObjects.removeOldest();
         }
 
         ARTrackable currentTrackable = hitResult.getTrackable();
         if (currentTrackable instanceof ARPoint || currentTrackable instanceof ARPlane) {
-            mVirtualObjects.add(new VirtualObject(hitResult.createAnchor(), BLUE_COLORS));
+            mVirtualObjects.add(hitResult.createAnchor(), BLUE_COLORS);
         } else {
             LogUtil.info(TAG, "Hit result is not plane or point.");
         }
@@ -0,0 +1,599 @@
+/*
+ * Copyright 2023. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.huawei.arengine.demos.common;
+
+import android.graphics.Bitmap;
+import android.opengl.GLES20;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Headless GL API, which does not draw anything but counts the GL commands: draw calls, state changes, bytes
+ * uploaded by glBufferData, glBufferSubData and glTexImage2D, and binds of the buffer, texture or program that
+ * is already bound. Object names are generated locally, and shaders always compile and link successfully, so
+ * that the displays can be initialized and drawn on a JVM without a GPU.
+ *
+ * @author HW
+ * @since 2023-06-12
+ */
+public class CountingGlApi implements GlApi {
+    private static final int MAX_TEXTURE_UNITS = 32;
+
+    private static final int BYTES_PER_SHORT = 2;
+
+    private static final int BYTES_PER_INT = 4;
+
+    private static final int BYTES_PER_KB = 1024;
+
+    private final Map<String, Integer> mLocations = new HashMap<>();
+
+    private final int[] mBound2dTextures = new int[MAX_TEXTURE_UNITS];
+
+    private final int[] mBoundOtherTextures = new int[MAX_TEXTURE_UNITS];
+
+    private int mNextName = 1;
+
+    private int mArrayBuffer = 0;
+
+    private int mElementArrayBuffer = 0;
+
+    private int mActiveTextureUnit = 0;
+
+    private int mProgram = 0;
+
+    private long mCallCount = 0L;
+
+    private long mDrawCallCount = 0L;
+
+    private long mDrawnVertexCount = 0L;
+
+    private long mStateChangeCount = 0L;
+
+    private long mRedundantBindCount = 0L;
+
+    private long mUniformCount = 0L;
+
+    private long mUploadCount = 0L;
+
+    private long mUploadedBytes = 0L;
+
+    /**
+     * Obtain the number of GL calls.
+     *
+     * @return Number of calls.
+     */
+    public long getCallCount() {
+        return mCallCount;
+    }
+
+    /**
+     * Obtain the number of glDrawArrays, glDrawElements and glDrawElementsInstanced calls.
+     *
+     * @return Number of draw calls.
+     */
+    public long getDrawCallCount() {
+        return mDrawCallCount;
+    }
+
+    /**
+     * Obtain the number of vertices or indexes submitted by draw calls, multiplied by the instance count.
+     *
+     * @return Number of vertices.
+     */
+    public long getDrawnVertexCount() {
+        return mDrawnVertexCount;
+    }
+
+    /**
+     * Obtain the number of calls that change the pipeline state, including binds, program switches, capability
+     * switches, blending, depth mask, line width and vertex attribute array switches.
+     *
+     * @return Number of state changes.
+     */
+    public long getStateChangeCount() {
+        return mStateChangeCount;
+    }
+
+    /**
+     * Obtain the number of binds of the buffer, texture or program that is already bound.
+     *
+     * @return Number of redundant binds.
+     */
+    public long getRedundantBindCount() {
+        return mRedundantBindCount;
+    }
+
+    /**
+     * Obtain the number of uniform updates.
+     *
+     * @return Number of uniform calls.
+     */
+    public long getUniformCount() {
+        return mUniformCount;
+    }
+
+    /**
+     * Obtain the number of calls that upload data to buffers or textures.
+     *
+     * @return Number of uploads.
+     */
+    public long getUploadCount() {
+        return mUploadCount;
+    }
+
+    /**
+     * Obtain the number of bytes uploaded to buffers and textures.
+     *
+     * @return Number of bytes.
+     */
+    public long getUploadedBytes() {
+        return mUploadedBytes;
+    }
+
+    /**
+     * Clear the counters, for example, at the beginning of each frame. The bound objects are kept, so that
+     * redundant binds across frames are still detected.
+     */
+    public void reset() {
+        mCallCount = 0L;
+        mDrawCallCount = 0L;
+        mDrawnVertexCount = 0L;
+        mStateChangeCount = 0L;
+        mRedundantBindCount = 0L;
+        mUniformCount = 0L;
+        mUploadCount = 0L;
+        mUploadedBytes = 0L;
+    }
+
+    /**
+     * Append the counters to the string.
+     *
+     * @param sb String builder to which the counters are appended.
+     */
+    public void appendSummary(StringBuilder sb) {
+        sb.append("GL calls=").append(mCallCount)
+            .append(", draws=").append(mDrawCallCount)
+            .append(", vertices=").append(mDrawnVertexCount)
+            .append(System.lineSeparator());
+        sb.append("GL state changes=").append(mStateChangeCount)
+            .append(", redundant binds=").append(mRedundantBindCount)
+            .append(", uniforms=").append(mUniformCount)
+            .append(System.lineSeparator());
+        sb.append("GL uploads=").append(mUploadCount)
+            .append(", uploaded(KB)=").append(mUploadedBytes / BYTES_PER_KB)
+            .append(System.lineSeparator());
+    }
+
+    private void onStateChange() {
+        mCallCount++;
+        mStateChangeCount++;
+    }
+
+    private void onUpload(long bytes) {
+        mCallCount++;
+        mUploadCount++;
+        mUploadedBytes += bytes;
+    }
+
+    private void onDraw(long count) {
+        mCallCount++;
+        mDrawCallCount++;
+        mDrawnVertexCount += count;
+    }
+
+    private void generateNames(int count, int[] names, int offset) {
+        mCallCount++;
+        for (int i = 0; i < count; i++) {
+            names[offset + i] = mNextName++;
+        }
+    }
+
+    private static long getByteCount(Buffer buffer) {
+        if (buffer == null) {
+            return 0L;
+        }
+        if (buffer instanceof ByteBuffer) {
+            return buffer.remaining();
+        }
+        if (buffer instanceof ShortBuffer) {
+            return (long) buffer.remaining() * BYTES_PER_SHORT;
+        }
+
+        // Float, int and other buffers used by the displays have 4-byte elements.
+        return (long) buffer.remaining() * BYTES_PER_INT;
+    }
+
+    @Override
+    public void glGenBuffers(int count, int[] buffers, int offset) {
+        generateNames(count, buffers, offset);
+    }
+
+    @Override
+    public void glDeleteBuffers(int count, int[] buffers, int offset) {
+        mCallCount++;
+        for (int i = 0; i < count; i++) {
+            int buffer = buffers[offset + i];
+            if (mArrayBuffer == buffer) {
+                mArrayBuffer = 0;
+            }
+            if (mElementArrayBuffer == buffer) {
+                mElementArrayBuffer = 0;
+            }
+        }
+    }
+
+    @Override
+    public void glBindBuffer(int target, int buffer) {
+        onStateChange();
+        if (target == GLES20.GL_ARRAY_BUFFER) {
+            if (mArrayBuffer == buffer) {
+                mRedundantBindCount++;
+            }
+            mArrayBuffer = buffer;
+        } else if (target == GLES20.GL_ELEMENT_ARRAY_BUFFER) {
+            if (mElementArrayBuffer == buffer) {
+                mRedundantBindCount++;
+            }
+            mElementArrayBuffer = buffer;
+        }
+    }
+
+    @Override
+    public void glBufferData(int target, int size, Buffer data, int usage) {
+        onUpload(data == null ? 0L : size);
+    }
+
+    @Override
+    public void glBufferSubData(int target, int offset, int size, Buffer data) {
+        onUpload(size);
+    }
+
+    @Override
+    public void glGenTextures(int count, int[] textures, int offset) {
+        generateNames(count, textures, offset);
+    }
+
+    @Override
+    public void glDeleteTextures(int count, int[] textures, int offset) {
+        mCallCount++;
+        for (int i = 0; i < count; i++) {
+            for (int unit = 0; unit < MAX_TEXTURE_UNITS; unit++) {
+                if (mBound2dTextures[unit] == textures[offset + i]) {
+                    mBound2dTextures[unit] = 0;
+                }
+                if (mBoundOtherTextures[unit] == textures[offset + i]) {
+                    mBoundOtherTextures[unit] = 0;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void glActiveTexture(int texture) {
+        onStateChange();
+        mActiveTextureUnit = Math.max(0, Math.min(MAX_TEXTURE_UNITS - 1, texture - GLES20.GL_TEXTURE0));
+    }
+
+    @Override
+    public void glBindTexture(int target, int texture) {
+        onStateChange();
+        int[] boundTextures = target == GLES20.GL_TEXTURE_2D ? mBound2dTextures : mBoundOtherTextures;
+        if (boundTextures[mActiveTextureUnit] == texture) {
+            mRedundantBindCount++;
+        }
+        boundTextures[mActiveTextureUnit] = texture;
+    }
+
+    @Override
+    public void glTexParameteri(int target, int pname, int param) {
+        mCallCount++;
+    }
+
+    @Override
+    public void glTexParameterf(int target, int pname, float param) {
+        mCallCount++;
+    }
+
+    @Override
+    public void glTexImage2D(int target, int level, int internalFormat, int width, int height, int border,
+        int format, int type, Buffer pixels) {
+        onUpload(getByteCount(pixels));
+    }
+
+    @Override
+    public void texImage2D(int target, int level, Bitmap bitmap, int border) {
+        onUpload(bitmap == null ? 0L : bitmap.getByteCount());
+    }
+
+    @Override
+    public void glGenerateMipmap(int target) {
+        mCallCount++;
+    }
+
+    @Override
+    public int glCreateShader(int type) {
+        mCallCount++;
+        return mNextName++;
+    }
+
+    @Override
+    public void glShaderSource(int shader, String source) {
+        mCallCount++;
+    }
+
+    @Override
+    public void glCompileShader(int shader) {
+        mCallCount++;
+    }
+
+    @Override
+    public void glGetShaderiv(int shader, int pname, int[] params, int offset) {
+        mCallCount++;
+        params[offset] = GLES20.GL_TRUE;
+    }
+
+    @Override
+    public String glGetShaderInfoLog(int shader) {
+        mCallCount++;
+        return "";
+    }
+
+    @Override
+    public void glDeleteShader(int shader) {
+        mCallCount++;
+    }
+
+    @Override
+    public int glCreateProgram() {
+        mCallCount++;
+        return mNextName++;
+    }
+
+    @Override
+    public void glAttachShader(int program, int shader) {
+        mCallCount++;
+    }
+
+    @Override
+    public void glLinkProgram(int program) {
+        mCallCount++;
+    }
+
+    @Override
+    public void glGetProgramiv(int program, int pname, int[] params, int offset) {
+        mCallCount++;
+        params[offset] = GLES20.GL_TRUE;
+    }
+
+    @Override
+    public String glGetProgramInfoLog(int program) {
+        mCallCount++;
+        return "";
+    }
+
+    @Override
+    public void glDeleteProgram(int program) {
+        mCallCount++;
+        if (mProgram == program) {
+            mProgram = 0;
+        }
+    }
+
+    @Override
+    public void glUseProgram(int program) {
+        onStateChange();
+        if (mProgram == program) {
+            mRedundantBindCount++;
+        }
+        mProgram = program;
+    }
+
+    @Override
+    public int glGetAttribLocation(int program, String name) {
+        return getLocation(program, name);
+    }
+
+    @Override
+    public int glGetUniformLocation(int program, String name) {
+        return getLocation(program, name);
+    }
+
+    private int getLocation(int program, String name) {
+        mCallCount++;
+        String key = program + ":" + name;
+        Integer location = mLocations.get(key);
+        if (location == null) {
+            location = mLocations.size();
+            mLocations.put(key, location);
+        }
+        return location;
+    }
+
+    @Override
+    public void glProgramParameteri(int program, int pname, int value) {
+        mCallCount++;
+    }
+
+    @Override
+    public void glGetProgramBinary(int program, int bufSize, int[] length, int lengthOffset, int[] binaryFormat,
+        int binaryFormatOffset, Buffer binary) {
+        mCallCount++;
+        length[lengthOffset] = 0;
+    }
+
+    @Override
+    public void glProgramBinary(int program, int binaryFormat, Buffer binary, int length) {
+        mCallCount++;
+    }
+
+    @Override
+    public void glUniform1i(int location, int x) {
+        mCallCount++;
+        mUniformCount++;
+    }
+
+    @Override
+    public void glUniform1f(int location, float x) {
+        mCallCount++;
+        mUniformCount++;
+    }
+
+    @Override
+    public void glUniform2f(int location, float x, float y) {
+        mCallCount++;
+        mUniformCount++;
+    }
+
+    @Override
+    public void glUniform3f(int location, float x, float y, float z) {
+        mCallCount++;
+        mUniformCount++;
+    }
+
+    @Override
+    public void glUniform4f(int location, float x, float y, float z, float w) {
+        mCallCount++;
+        mUniformCount++;
+    }
+
+    @Override
+    public void glUniform4fv(int location, int count, float[] value, int offset) {
+        mCallCount++;
+        mUniformCount++;
+    }
+
+    @Override
+    public void glUniformMatrix2fv(int location, int count, boolean transpose, float[] value, int offset) {
+        mCallCount++;
+        mUniformCount++;
+    }
+
+    @Override
+    public void glUniformMatrix4fv(int location, int count, boolean transpose, float[] value, int offset) {
+        mCallCount++;
+        mUniformCount++;
+    }
+
+    @Override
+    public void glEnableVertexAttribArray(int index) {
+        onStateChange();
+    }
+
+    @Override
+    public void glDisableVertexAttribArray(int index) {
+        onStateChange();
+    }
+
+    @Override
+    public void glVertexAttribPointer(int index, int size, int type, boolean normalized, int stride, int offset) {
+        mCallCount++;
+    }
+
+    @Override
+    public void glVertexAttribPointer(int index, int size, int type, boolean normalized, int stride,
+        Buffer pointer) {
+        mCallCount++;
+    }
+
+    @Override
+    public void glVertexAttribDivisor(int index, int divisor) {
+        onStateChange();
+    }
+
+    @Override
+    public void glDrawArrays(int mode, int first, int count) {
+        onDraw(count);
+    }
+
+    @Override
+    public void glDrawElements(int mode, int count, int type, int offset) {
+        onDraw(count);
+    }
+
+    @Override
+    public void glDrawElements(int mode, int count, int type, Buffer indices) {
+        onDraw(count);
+    }
+
+    @Override
+    public void glDrawElementsInstanced(int mode, int count, int type, int offset, int instanceCount) {
+        onDraw((long) count * instanceCount);
+    }
+
+    @Override
+    public void glEnable(int cap) {
+        onStateChange();
+    }
+
+    @Override
+    public void glDisable(int cap) {
+        onStateChange();
+    }
+
+    @Override
+    public void glBlendFunc(int sfactor, int dfactor) {
+        onStateChange();
+    }
+
+    @Override
+    public void glBlendFuncSeparate(int srcRgb, int dstRgb, int srcAlpha, int dstAlpha) {
+        onStateChange();
+    }
+
+    @Override
+    public void glDepthMask(boolean flag) {
+        onStateChange();
+    }
+
+    @Override
+    public void glLineWidth(float width) {
+        onStateChange();
+    }
+
+    @Override
+    public void glViewport(int x, int y, int width, int height) {
+        onStateChange();
+    }
+
+    @Override
+    public void glClearColor(float red, float green, float blue, float alpha) {
+        onStateChange();
+    }
+
+    @Override
+    public void glClear(int mask) {
+        mCallCount++;
+    }
+
+    @Override
+    public int glGetError() {
+        mCallCount++;
+        return GLES20.GL_NO_ERROR;
+    }
+
+    @Override
+    public String glGetString(int name) {
+        mCallCount++;
+
+        // Program binaries require OpenGL ES 3.0, so they are never used by the headless API.
+        return name == GLES20.GL_VERSION ? "OpenGL ES 2.0 Headless" : "Headless";
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ * Copyright 2023. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.huawei.arengine.demos.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeNotNull;
+
+import com.huawei.arengine.demos.java.body3d.rendering.BodyRelatedDisplay;
+import com.huawei.arengine.demos.java.body3d.rendering.BodySkeletonDisplay;
+import com.huawei.arengine.demos.java.body3d.rendering.BodySkeletonLineDisplay;
+import com.huawei.arengine.demos.java.hand.rendering.HandBoxDisplay;
+import com.huawei.arengine.demos.java.hand.rendering.HandRelatedDisplay;
+import com.huawei.arengine.demos.java.hand.rendering.HandSkeletonDisplay;
+import com.huawei.arengine.demos.java.hand.rendering.HandSkeletonLineDisplay;
+import com.huawei.arengine.demos.java.scenemesh.rendering.SceneMeshDisplay;
+import com.huawei.arengine.demos.java.world.rendering.PointCloudRenderer;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Replays a recording in the format of {@link FrameRecorder} through the point cloud, scene mesh, body and hand
+ * displays, and reports the CPU time and the GL work of each frame. The displays draw from the snapshots exactly
+ * as the renderer managers do on the device, and the GL calls go to a {@link CountingGlApi}, so the replayed path
+ * runs on the JVM without the Android framework. A recording of a device can be replayed by setting the system
+ * property {@value #RECORDING_PROPERTY} to its path. The results are printed to the test output.
+ *
+ * @author HW
+ * @since 2023-06-12
+ */
+public class FrameReplayBenchmarkTest {
+    private static final String RECORDING_PROPERTY = "frameReplay.recording";
+
+    private static final int MEASURE_PASSES = 2;
+
+    private static final int FRAME_COUNT = 120;
+
+    private static final int CLOUD_POINT_COUNT = 4000;
+
+    private static final int MESH_GRID_SIZE = 100;
+
+    private static final float MESH_GRID_SPACING = 0.1f;
+
+    private static final int BODY_POINT_COUNT = 23;
+
+    private static final int HAND_POINT_COUNT = 21;
+
+    private static final int HAND_BOX_SIZE = 6;
+
+    private static final long FRAME_INTERVAL_NS = 33333333L;
+
+    private static final double NANOSECOND_TO_MILLISECOND = 1000000.0;
+
+    private static final double BYTES_TO_KILOBYTES = 1024.0;
+
+    private static final float PERCENTILE_50 = 50.0f;
+
+    private static final float PERCENTILE_95 = 95.0f;
+
+    private static final float PERCENTILE_100 = 100.0f;
+
+    /**
+     * Replay a synthetic recording, in which the point cloud changes every second frame and a vertex of the scene
+     * mesh moves every tenth frame.
+     *
+     * @throws IOException If the recording cannot be read.
+     */
+    @Test
+    public void replaySyntheticRecording() throws IOException {
+        ReplayFrameSource frameSource = new ReplayFrameSource(createRecording());
+        assertEquals(FRAME_COUNT, frameSource.getFrameCount());
+        CountingGlApi glApi = new CountingGlApi();
+        GlFacade.set(glApi);
+        ShaderProgramRegistry.onContextCreated();
+        System.out.print(replay(frameSource, glApi));
+        assertTrue(glApi.getDrawCallCount() > 0);
+    }
+
+    /**
+     * Replay the recording file set in the system property {@value #RECORDING_PROPERTY}, if any.
+     *
+     * @throws IOException If the file cannot be read or is not a recording.
+     */
+    @Test
+    public void replayRecordingFile() throws IOException {
+        String path = System.getProperty(RECORDING_PROPERTY);
+        assumeNotNull(path);
+        CountingGlApi glApi = new CountingGlApi();
+        GlFacade.set(glApi);
+        ShaderProgramRegistry.onContextCreated();
+        System.out.print(replay(ReplayFrameSource.fromFile(new File(path)), glApi));
+    }
+
+    /**
+     * Replay all frames of the recording twice, and report the time and GL work of the second pass. The upload
+     * counters of the displays cover both passes.
+     */
+    private static String replay(ReplayFrameSource frameSource, CountingGlApi glApi) {
+        PointCloudRenderer pointCloud = new PointCloudRenderer();
+        SceneMeshDisplay sceneMesh = new SceneMeshDisplay();
+        BodyRelatedDisplay[] bodyDisplays = {new BodySkeletonDisplay(), new BodySkeletonLineDisplay()};
+        HandRelatedDisplay[] handDisplays = {new HandBoxDisplay(), new HandSkeletonDisplay(),
+            new HandSkeletonLineDisplay()};
+
+        // The grid texture needs a context, and the mesh is drawn without it.
+        pointCloud.init(null);
+        sceneMesh.init(null);
+        for (BodyRelatedDisplay bodyDisplay : bodyDisplays) {
+            bodyDisplay.init();
+        }
+        for (HandRelatedDisplay handDisplay : handDisplays) {
+            handDisplay.init();
+        }
+
+        long[] frameTimes = new long[frameSource.getFrameCount()];
+        int frameCount = 0;
+
+        // The first pass warms up the JIT compiler and the buffers, and only the last pass is reported.
+        for (int pass = 0; pass < MEASURE_PASSES; pass++) {
+            frameSource.rewind();
+            glApi.reset();
+            frameCount = 0;
+            while (frameCount < frameTimes.length && frameSource.update()) {
+                FrameSnapshot snapshot = frameSource.getSnapshot();
+                long startTime = System.nanoTime();
+                pointCloud.onDrawFrame(snapshot, snapshot.getViewMatrix(), snapshot.getProjectionMatrix());
+                sceneMesh.onDrawFrame(snapshot, snapshot.getViewMatrix(), snapshot.getProjectionMatrix());
+                for (BodyRelatedDisplay bodyDisplay : bodyDisplays) {
+                    bodyDisplay.drawSnapshots(snapshot.getBodies(), snapshot.getProjectionMatrix());
+                }
+                for (HandRelatedDisplay handDisplay : handDisplays) {
+                    handDisplay.drawSnapshots(snapshot.getHands(), snapshot.getProjectionMatrix());
+                }
+                frameTimes[frameCount++] = System.nanoTime() - startTime;
+            }
+        }
+
+        StringBuilder sb = new StringBuilder();
+        appendResult(sb, Arrays.copyOf(frameTimes, frameCount), glApi);
+        pointCloud.appendSummary(sb);
+        sceneMesh.appendSummary(sb);
+        return sb.toString();
+    }
+
+    private static ByteBuffer createRecording() {
+        Random random = new Random(1);
+        FloatBuffer cloud = FloatBuffer.allocate(CLOUD_POINT_COUNT * FrameSnapshot.FLOATS_PER_CLOUD_POINT);
+        FloatBuffer vertices = createGridVertices();
+        IntBuffer indices = createGridIndices();
+        FrameSnapshot snapshot = new FrameSnapshot();
+        ByteBuffer recording = null;
+        for (int frame = 0; frame < FRAME_COUNT; frame++) {
+            snapshot.clear();
+            snapshot.setTimestampNs(frame * FRAME_INTERVAL_NS);
+            snapshot.setCameraTracking(true);
+            if (frame % 2 == 0) {
+                cloud.clear();
+                while (cloud.hasRemaining()) {
+                    cloud.put(random.nextFloat());
+                }
+                cloud.flip();
+            }
+            snapshot.setPointCloud(cloud.duplicate(), (frame / 2) * 2 * FRAME_INTERVAL_NS);
+            if (frame % 10 == 0) {
+                int vertex = (frame / 10 * 7) % (MESH_GRID_SIZE * MESH_GRID_SIZE);
+                vertices.put(vertex * FrameSnapshot.FLOATS_PER_MESH_VERTEX + 1, frame * 0.01f);
+            }
+            snapshot.setSceneMesh(vertices.duplicate(), indices.duplicate());
+            fillTrackable(snapshot.obtainTrackable(TrackableSnapshot.TYPE_BODY), BODY_POINT_COUNT, random);
+            TrackableSnapshot hand = snapshot.obtainTrackable(TrackableSnapshot.TYPE_HAND);
+            fillTrackable(hand, HAND_POINT_COUNT, random);
+            float[] box = hand.obtainBox(HAND_BOX_SIZE);
+            for (int i = 0; i < box.length; i++) {
+                box[i] = random.nextFloat();
+            }
+            if (recording == null) {
+                // All frames have the same size.
+                recording = ByteBuffer.allocate(FrameSnapshotCodec.FILE_HEADER_SIZE
+                    + FRAME_COUNT * FrameSnapshotCodec.getEncodedSize(snapshot)).order(FrameSnapshotCodec.BYTE_ORDER);
+                FrameSnapshotCodec.writeFileHeader(recording);
+            }
+            FrameSnapshotCodec.encode(snapshot, recording);
+        }
+        recording.flip();
+        return recording;
+    }
+
+    private static void fillTrackable(TrackableSnapshot trackable, int pointCount, Random random) {
+        trackable.setTracking(true);
+        trackable.set3dCoordinate(true);
+        float[] points = trackable.obtainPoints(pointCount * 3);
+        for (int i = 0; i < points.length; i++) {
+            points[i] = random.nextFloat();
+        }
+        Arrays.fill(trackable.obtainPointFlags(pointCount), 1);
+
+        // Connect the points to a chain.
+        int[] connections = trackable.obtainConnections((pointCount - 1) * 2);
+        for (int i = 0; i < pointCount - 1; i++) {
+            connections[2 * i] = i;
+            connections[2 * i + 1] = i + 1;
+        }
+    }
+
+    private static FloatBuffer createGridVertices() {
+        FloatBuffer vertices = FloatBuffer.allocate(
+            MESH_GRID_SIZE * MESH_GRID_SIZE * FrameSnapshot.FLOATS_PER_MESH_VERTEX);
+        for (int z = 0; z < MESH_GRID_SIZE; z++) {
+            for (int x = 0; x < MESH_GRID_SIZE; x++) {
+                vertices.put(x * MESH_GRID_SPACING).put(0.0f).put(z * MESH_GRID_SPACING);
+            }
+        }
+        vertices.flip();
+        return vertices;
+    }
+
+    private static IntBuffer createGridIndices() {
+        IntBuffer indices = IntBuffer.allocate((MESH_GRID_SIZE - 1) * (MESH_GRID_SIZE - 1) * 6);
+        for (int z = 0; z < MESH_GRID_SIZE - 1; z++) {
+            for (int x = 0; x < MESH_GRID_SIZE - 1; x++) {
+                int index = z * MESH_GRID_SIZE + x;
+                indices.put(index).put(index + 1).put(index + MESH_GRID_SIZE);
+                indices.put(index + 1).put(index + MESH_GRID_SIZE + 1).put(index + MESH_GRID_SIZE);
+            }
+        }
+        indices.flip();
+        return indices;
+    }
+
+    private static void appendResult(StringBuilder sb, long[] frameTimes, CountingGlApi glApi) {
+        int frameCount = Math.max(1, frameTimes.length);
+        Arrays.sort(frameTimes);
+        sb.append(String.format(Locale.ROOT, "Frames=%d, cpuMs p50/p95/max=%.3f/%.3f/%.3f", frameTimes.length,
+            getPercentile(frameTimes, PERCENTILE_50) / NANOSECOND_TO_MILLISECOND,
+            getPercentile(frameTimes, PERCENTILE_95) / NANOSECOND_TO_MILLISECOND,
+            getPercentile(frameTimes, PERCENTILE_100) / NANOSECOND_TO_MILLISECOND)).append(System.lineSeparator());
+        sb.append(String.format(Locale.ROOT, "GL calls/frame=%.1f, drawCalls/frame=%.1f, uploadKB/frame=%.1f",
+            (double) glApi.getCallCount() / frameCount, (double) glApi.getDrawCallCount() / frameCount,
+            glApi.getUploadedBytes() / BYTES_TO_KILOBYTES / frameCount)).append(System.lineSeparator());
+    }
+
+    private static long getPercentile(long[] sortedValues, float percentile) {
+        if (sortedValues.length == 0) {
+            return 0L;
+        }
+        int index = (int) Math.ceil(percentile / PERCENTILE_100 * sortedValues.length) - 1;
+        return sortedValues[Math.max(0, Math.min(index, sortedValues.length - 1))];
+    }
+}
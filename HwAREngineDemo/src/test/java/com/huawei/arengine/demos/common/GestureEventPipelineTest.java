@@ -0,0 +1,115 @@
+/*
+ * Copyright 2023. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.huawei.arengine.demos.common;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.util.List;
+
+/**
+ * Tests the order and the coalescing of the events taken by {@link GestureEventPipeline}.
+ *
+ * @author HW
+ * @since 2023-06-12
+ */
+public class GestureEventPipelineTest {
+    private static final int CAPACITY = 16;
+
+    private static final float DELTA = 0.0f;
+
+    private static final int SCROLL = GestureEvent.GESTURE_EVENT_TYPE_SCROLL;
+
+    private static final int SCROLL_END = GestureEvent.GESTURE_EVENT_TYPE_SCROLLEND;
+
+    private static final int SINGLE_TAP = GestureEvent.GESTURE_EVENT_TYPE_SINGLETAPCONFIRMED;
+
+    private static final int DOUBLE_TAP = GestureEvent.GESTURE_EVENT_TYPE_DOUBLETAP;
+
+    /**
+     * A run of scrolls is replaced by one that ends at the last position and moves by the total distance.
+     */
+    @Test
+    public void coalescesConsecutiveScrolls() {
+        GestureEventRing ring = new GestureEventRing(CAPACITY);
+        GestureEventPipeline pipeline = new GestureEventPipeline(ring);
+        ring.offer(SCROLL, 1.0f, 1.0f, 1.0f, 2.0f, 0);
+        ring.offer(SCROLL, 2.0f, 2.0f, 1.0f, 2.0f, 0);
+        ring.offer(SCROLL, 3.0f, 3.0f, 1.0f, 2.0f, 0);
+
+        List<GestureEvent> events = pipeline.drain();
+        assertEquals(1, events.size());
+        assertEquals(SCROLL, events.get(0).getType());
+        assertEquals(3.0f, events.get(0).getX(), DELTA);
+        assertEquals(3.0f, events.get(0).getDistanceX(), DELTA);
+        assertEquals(6.0f, events.get(0).getDistanceY(), DELTA);
+        assertEquals(2L, pipeline.getCoalescedCount());
+        assertEquals(3, pipeline.getLastQueueDepth());
+    }
+
+    /**
+     * Scrolls and scroll ends before a tap stay ahead of it, and scrolls after the tap are not merged with them.
+     */
+    @Test
+    public void keepsOrderAroundTaps() {
+        GestureEventRing ring = new GestureEventRing(CAPACITY);
+        GestureEventPipeline pipeline = new GestureEventPipeline(ring);
+        ring.offer(SCROLL, 1.0f, 1.0f, 1.0f, 1.0f, 0);
+        ring.offer(SCROLL, 2.0f, 2.0f, 1.0f, 1.0f, 0);
+        ring.offer(SCROLL_END, 2.0f, 2.0f, 0.0f, 0.0f, 0);
+        ring.offer(SINGLE_TAP, 9.0f, 9.0f, 0.0f, 0.0f, 0);
+        ring.offer(SCROLL, 3.0f, 3.0f, 1.0f, 1.0f, 0);
+        ring.offer(DOUBLE_TAP, 8.0f, 8.0f, 0.0f, 0.0f, 0);
+        ring.offer(SCROLL, 4.0f, 4.0f, 5.0f, 5.0f, 0);
+        ring.offer(SCROLL, 5.0f, 5.0f, 5.0f, 5.0f, 0);
+
+        List<GestureEvent> events = pipeline.drain();
+        assertEquals(6, events.size());
+        assertEvent(events.get(0), SCROLL, 2.0f, 2.0f);
+        assertEvent(events.get(1), SCROLL_END, 2.0f, 0.0f);
+        assertEvent(events.get(2), SINGLE_TAP, 9.0f, 0.0f);
+        assertEvent(events.get(3), SCROLL, 3.0f, 1.0f);
+        assertEvent(events.get(4), DOUBLE_TAP, 8.0f, 0.0f);
+        assertEvent(events.get(5), SCROLL, 5.0f, 10.0f);
+    }
+
+    /**
+     * A scroll run that is interrupted by a tap is not merged across the tap, even without a scroll end.
+     */
+    @Test
+    public void doesNotMergeScrollsAcrossTap() {
+        GestureEventRing ring = new GestureEventRing(CAPACITY);
+        GestureEventPipeline pipeline = new GestureEventPipeline(ring);
+        ring.offer(SCROLL, 1.0f, 1.0f, 1.0f, 1.0f, 0);
+        ring.offer(SINGLE_TAP, 9.0f, 9.0f, 0.0f, 0.0f, 0);
+        ring.offer(SCROLL, 2.0f, 2.0f, 1.0f, 1.0f, 0);
+
+        List<GestureEvent> events = pipeline.drain();
+        assertEquals(3, events.size());
+        assertEvent(events.get(0), SCROLL, 1.0f, 1.0f);
+        assertEvent(events.get(1), SINGLE_TAP, 9.0f, 0.0f);
+        assertEvent(events.get(2), SCROLL, 2.0f, 1.0f);
+        assertEquals(0L, pipeline.getCoalescedCount());
+    }
+
+    private static void assertEvent(GestureEvent event, int type, float x, float distanceX) {
+        assertEquals(type, event.getType());
+        assertEquals(x, event.getX(), DELTA);
+        assertEquals(distanceX, event.getDistanceX(), DELTA);
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2023. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.huawei.arengine.demos.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests the wrap-around, the full-ring drop, and the tap reserve of {@link GestureEventRing} on one thread.
+ *
+ * @author HW
+ * @since 2023-06-12
+ */
+public class GestureEventRingTest {
+    private static final int CAPACITY = 8;
+
+    private static final int TAP_RESERVE = CAPACITY / 4;
+
+    private static final float DELTA = 0.0f;
+
+    private static final int SCROLL = GestureEvent.GESTURE_EVENT_TYPE_SCROLL;
+
+    private static final int SINGLE_TAP = GestureEvent.GESTURE_EVENT_TYPE_SINGLETAPCONFIRMED;
+
+    /**
+     * The capacity is rounded up to a power of two.
+     */
+    @Test
+    public void roundsCapacityUpToPowerOfTwo() {
+        assertEquals(CAPACITY, new GestureEventRing(CAPACITY - 1).capacity());
+        assertEquals(CAPACITY, new GestureEventRing(CAPACITY).capacity());
+        assertEquals(1, new GestureEventRing(1).capacity());
+    }
+
+    /**
+     * Records are reused after the indexes pass the end of the array, and the events keep their order and values.
+     */
+    @Test
+    public void keepsOrderAcrossWrapAround() {
+        GestureEventRing ring = new GestureEventRing(CAPACITY);
+        GestureEvent out = new GestureEvent();
+        int next = 0;
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < CAPACITY - 1; i++) {
+                assertTrue(ring.offer(SINGLE_TAP, next + i, -(next + i), 0.0f, 0.0f, next + i));
+            }
+            assertEquals(CAPACITY - 1, ring.size());
+            for (int i = 0; i < CAPACITY - 1; i++) {
+                assertTrue(ring.poll(out));
+                assertEquals(SINGLE_TAP, out.getType());
+                assertEquals(next, out.getX(), DELTA);
+                assertEquals(-next, out.getY(), DELTA);
+                assertEquals(next, out.getPointerId());
+                next++;
+            }
+            assertEquals(0, ring.size());
+            assertFalse(ring.poll(out));
+        }
+    }
+
+    /**
+     * Taps are refused once all records are pending, and accepted again after one record is taken.
+     */
+    @Test
+    public void dropsWhenFull() {
+        GestureEventRing ring = new GestureEventRing(CAPACITY);
+        for (int i = 0; i < CAPACITY; i++) {
+            assertTrue(ring.offer(SINGLE_TAP, i, i, 0.0f, 0.0f, 0));
+        }
+        assertFalse(ring.offer(SINGLE_TAP, CAPACITY, CAPACITY, 0.0f, 0.0f, 0));
+        assertEquals(CAPACITY, ring.size());
+
+        GestureEvent out = new GestureEvent();
+        assertTrue(ring.poll(out));
+        assertEquals(0.0f, out.getX(), DELTA);
+        assertTrue(ring.offer(SINGLE_TAP, CAPACITY, CAPACITY, 0.0f, 0.0f, 0));
+
+        // The dropped tap is not recorded, so the last event is the one offered after the poll.
+        for (int i = 1; i < CAPACITY; i++) {
+            assertTrue(ring.poll(out));
+            assertEquals(i, out.getX(), DELTA);
+        }
+        assertTrue(ring.poll(out));
+        assertEquals(CAPACITY, out.getX(), DELTA);
+    }
+
+    /**
+     * Scrolls cannot fill the tap reserve, so taps are still recorded during a long scroll.
+     */
+    @Test
+    public void reservesRecordsForTaps() {
+        GestureEventRing ring = new GestureEventRing(CAPACITY);
+        int scrollCount = 0;
+        while (ring.offer(SCROLL, scrollCount, scrollCount, 1.0f, 1.0f, 0)) {
+            scrollCount++;
+        }
+        assertEquals(CAPACITY - TAP_RESERVE, scrollCount);
+        for (int i = 0; i < TAP_RESERVE; i++) {
+            assertTrue(ring.offer(SINGLE_TAP, i, i, 0.0f, 0.0f, 0));
+        }
+        assertFalse(ring.offer(SINGLE_TAP, 0.0f, 0.0f, 0.0f, 0.0f, 0));
+        assertFalse(ring.offer(SCROLL, 0.0f, 0.0f, 1.0f, 1.0f, 0));
+
+        GestureEvent out = new GestureEvent();
+        for (int i = 0; i < scrollCount; i++) {
+            assertTrue(ring.poll(out));
+            assertEquals(SCROLL, out.getType());
+        }
+        for (int i = 0; i < TAP_RESERVE; i++) {
+            assertTrue(ring.poll(out));
+            assertEquals(SINGLE_TAP, out.getType());
+        }
+        assertFalse(ring.poll(out));
+    }
+}
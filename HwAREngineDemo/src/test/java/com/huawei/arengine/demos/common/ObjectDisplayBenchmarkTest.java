@@ -0,0 +1,148 @@
+/*
+ * Copyright 2023. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.huawei.arengine.demos.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.opengl.GLES20;
+
+import org.junit.Test;
+
+import java.util.Locale;
+
+/**
+ * Measures the draw calls and the CPU time of {@link ObjectDisplay} for growing numbers of virtual objects, with
+ * and without instancing. The objects are placed on a grid in front of the camera. The GL calls go to a
+ * {@link CountingGlApi}, and the matrices of the drawn objects are computed by {@link MatrixUtil}, so the measured
+ * path runs on the JVM without the Android framework. The results are printed to the test output.
+ *
+ * @author HW
+ * @since 2023-06-12
+ */
+public class ObjectDisplayBenchmarkTest {
+    private static final int[] OBJECT_COUNTS = {16, 256, 4096};
+
+    private static final int MATRIX_SIZE = 16;
+
+    private static final int WARM_UP_FRAMES = 200;
+
+    private static final int MEASURED_FRAMES = 500;
+
+    private static final float GRID_SPACING = 0.2f;
+
+    private static final float GRID_DISTANCE = -2.0f;
+
+    private static final float NEAR = 0.1f;
+
+    private static final float FAR = 100.0f;
+
+    private static final float FIELD_OF_VIEW = 60.0f;
+
+    private static final double NANOSECOND_TO_MILLISECOND = 1000000.0;
+
+    private static final float[] OBJECT_COLOR = new float[] {66.0f, 133.0f, 244.0f, 255.0f};
+
+    /**
+     * Each object is drawn with its own draw call on OpenGL ES 2.0.
+     */
+    @Test
+    public void measureBatchedDrawing() {
+        ObjectDisplay objectDisplay = createDisplay(new CountingGlApi());
+        assertFalse(objectDisplay.isInstancingSupported());
+        StringBuilder sb = new StringBuilder();
+        for (int objectCount : OBJECT_COUNTS) {
+            int drawCallCount = measure(sb, "batched", objectDisplay, createObjects(objectCount));
+            assertEquals(objectCount, drawCallCount);
+        }
+        System.out.print(sb);
+    }
+
+    /**
+     * All objects are drawn with one instanced draw call on OpenGL ES 3.0.
+     */
+    @Test
+    public void measureInstancedDrawing() {
+        ObjectDisplay objectDisplay = createDisplay(new CountingGlApi() {
+            @Override
+            public String glGetString(int name) {
+                return name == GLES20.GL_VERSION ? "OpenGL ES 3.0 Headless" : super.glGetString(name);
+            }
+        });
+        assertTrue(objectDisplay.isInstancingSupported());
+        StringBuilder sb = new StringBuilder();
+        for (int objectCount : OBJECT_COUNTS) {
+            int drawCallCount = measure(sb, "instanced", objectDisplay, createObjects(objectCount));
+            assertEquals(1, drawCallCount);
+        }
+        System.out.print(sb);
+    }
+
+    private static ObjectDisplay createDisplay(CountingGlApi glApi) {
+        GlFacade.set(glApi);
+        ShaderProgramRegistry.onContextCreated();
+        ObjectDisplay objectDisplay = new ObjectDisplay();
+
+        // The model is not loaded without a context, which does not change the CPU cost of a draw call.
+        objectDisplay.init(null);
+        return objectDisplay;
+    }
+
+    private static int measure(StringBuilder sb, String path, ObjectDisplay objectDisplay,
+        VirtualObjectStore objects) {
+        float[] viewMatrix = MatrixUtil.getOriginalMatrix();
+        float[] projectionMatrix = createProjectionMatrix();
+        for (int i = 0; i < WARM_UP_FRAMES; i++) {
+            objectDisplay.onDrawFrame(viewMatrix, projectionMatrix, 1.0f, objects);
+        }
+        long startTime = System.nanoTime();
+        for (int i = 0; i < MEASURED_FRAMES; i++) {
+            objectDisplay.onDrawFrame(viewMatrix, projectionMatrix, 1.0f, objects);
+        }
+        double frameTimeMs = (System.nanoTime() - startTime) / NANOSECOND_TO_MILLISECOND / MEASURED_FRAMES;
+        sb.append(String.format(Locale.ROOT, "objects=%d, path=%s, drawCalls=%d, cpuMs/frame=%.4f", objects.size(),
+            path, objectDisplay.getLastDrawCallCount(), frameTimeMs)).append(System.lineSeparator());
+        return objectDisplay.getLastDrawCallCount();
+    }
+
+    private static VirtualObjectStore createObjects(int objectCount) {
+        VirtualObjectStore objects = new VirtualObjectStore();
+        int columns = Math.max(1, (int) Math.ceil(Math.sqrt(objectCount)));
+        float halfWidth = (columns - 1) * GRID_SPACING / 2.0f;
+        float[] poseMatrix = MatrixUtil.getOriginalMatrix();
+        for (int i = 0; i < objectCount; i++) {
+            poseMatrix[12] = (i % columns) * GRID_SPACING - halfWidth;
+            poseMatrix[13] = (i / columns) * GRID_SPACING - halfWidth;
+            poseMatrix[14] = GRID_DISTANCE;
+            objects.add(poseMatrix, OBJECT_COLOR);
+        }
+        objects.update();
+        return objects;
+    }
+
+    private static float[] createProjectionMatrix() {
+        float[] matrix = new float[MATRIX_SIZE];
+        float focal = 1.0f / (float) Math.tan(Math.toRadians(FIELD_OF_VIEW / 2.0f));
+        matrix[0] = focal;
+        matrix[5] = focal;
+        matrix[10] = (FAR + NEAR) / (NEAR - FAR);
+        matrix[11] = -1.0f;
+        matrix[14] = 2.0f * FAR * NEAR / (NEAR - FAR);
+        return matrix;
+    }
+}
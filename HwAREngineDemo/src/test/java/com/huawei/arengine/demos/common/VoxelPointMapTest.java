@@ -0,0 +1,174 @@
+/*
+ * Copyright 2023. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.huawei.arengine.demos.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.nio.FloatBuffer;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Tests the backward-shift deletion of {@link VoxelPointMap} with keys whose probe sequences overlap. A voxel that
+ * can no longer be found after a deletion is added again, which shows as a larger size or as a dropped point when
+ * the map is full.
+ *
+ * @author HW
+ * @since 2023-06-12
+ */
+public class VoxelPointMapTest {
+    private static final float VOXEL_SIZE = 1.0f;
+
+    private static final float CENTER = 0.5f;
+
+    private static final int MAX_VOXELS = 4;
+
+    /**
+     * Size of the table for MAX_VOXELS, which the map keeps at four times the voxels rounded down to a power of two.
+     */
+    private static final int TABLE_SIZE = 16;
+
+    private static final int SEARCH_LIMIT = 10000;
+
+    private static final int FRAME_COUNT = 1000;
+
+    private static final long SEED = 20230612L;
+
+    /**
+     * Three voxels share a home slot and a fourth one starts in the second slot of their probe sequence. After
+     * the first voxel is evicted, the others are shifted back and must all still be found.
+     */
+    @Test
+    public void findsCollidingVoxelsAfterDeletion() {
+        int[] voxels = findCollidingVoxels();
+        VoxelPointMap pointMap = new VoxelPointMap(VOXEL_SIZE, MAX_VOXELS);
+        pointMap.beginFrame();
+        insertVoxel(pointMap, voxels[0]);
+        pointMap.beginFrame();
+        for (int i = 1; i < voxels.length; i++) {
+            insertVoxel(pointMap, voxels[i]);
+        }
+        assertEquals(MAX_VOXELS, pointMap.size());
+
+        pointMap.beginFrame();
+        assertEquals(1, pointMap.evict(1));
+        assertEquals(MAX_VOXELS - 1, pointMap.size());
+        for (int i = 1; i < voxels.length; i++) {
+            insertVoxel(pointMap, voxels[i]);
+        }
+        assertEquals(MAX_VOXELS - 1, pointMap.size());
+
+        // The map is full again, so a lost voxel would be dropped instead of added.
+        insertVoxel(pointMap, voxels[0]);
+        for (int i = 1; i < voxels.length; i++) {
+            insertVoxel(pointMap, voxels[i]);
+        }
+        assertEquals(MAX_VOXELS, pointMap.size());
+        assertEquals(0L, pointMap.getDroppedCount());
+    }
+
+    /**
+     * Voxels in a small region are inserted and evicted at random, and the map always holds exactly the voxels
+     * seen within the age limit.
+     */
+    @Test
+    public void matchesReferenceUnderRandomEviction() {
+        int regionSize = 4;
+        int maxVoxels = regionSize * regionSize * regionSize;
+        int maxAgeFrames = 3;
+        VoxelPointMap pointMap = new VoxelPointMap(VOXEL_SIZE, maxVoxels);
+        Map<Long, Integer> lastSeenFrames = new HashMap<>();
+        Random random = new Random(SEED);
+        for (int frame = 1; frame <= FRAME_COUNT; frame++) {
+            pointMap.beginFrame();
+            int pointCount = random.nextInt(maxVoxels / 2);
+            for (int i = 0; i < pointCount; i++) {
+                int x = random.nextInt(regionSize);
+                int y = random.nextInt(regionSize);
+                int z = random.nextInt(regionSize);
+                pointMap.insert(x + CENTER, y + CENTER, z + CENTER, 1.0f);
+                lastSeenFrames.put(toKey(x, y, z), frame);
+            }
+            pointMap.evict(maxAgeFrames);
+            Iterator<Map.Entry<Long, Integer>> iterator = lastSeenFrames.entrySet().iterator();
+            while (iterator.hasNext()) {
+                if (frame - iterator.next().getValue() > maxAgeFrames) {
+                    iterator.remove();
+                }
+            }
+            assertEquals(lastSeenFrames.keySet(), toKeys(pointMap.flush()));
+            assertEquals(lastSeenFrames.size(), pointMap.size());
+        }
+        assertEquals(0L, pointMap.getDroppedCount());
+        assertTrue(pointMap.getEvictedCount() > 0L);
+    }
+
+    /**
+     * Find voxels on the X axis: the first three share a home slot, and the fourth one is at home in the slot
+     * after it.
+     */
+    private static int[] findCollidingVoxels() {
+        int sharedCount = MAX_VOXELS - 1;
+        int[][] voxelsBySlot = new int[TABLE_SIZE][sharedCount];
+        int[] countBySlot = new int[TABLE_SIZE];
+        int sharedSlot = -1;
+        for (int x = 0; x < SEARCH_LIMIT && sharedSlot < 0; x++) {
+            int slot = homeSlot(x);
+            voxelsBySlot[slot][countBySlot[slot]++] = x;
+            if (countBySlot[slot] == sharedCount) {
+                sharedSlot = slot;
+            }
+        }
+        int nextSlot = (sharedSlot + 1) % TABLE_SIZE;
+        for (int x = 0; x < SEARCH_LIMIT && sharedSlot >= 0; x++) {
+            if (homeSlot(x) == nextSlot) {
+                int[] voxels = new int[MAX_VOXELS];
+                System.arraycopy(voxelsBySlot[sharedSlot], 0, voxels, 0, sharedCount);
+                voxels[sharedCount] = x;
+                return voxels;
+            }
+        }
+        throw new AssertionError("No colliding voxels are found.");
+    }
+
+    private static int homeSlot(int x) {
+        return VoxelPointMap.hash(toKey(x, 0, 0)) & (TABLE_SIZE - 1);
+    }
+
+    private static long toKey(int x, int y, int z) {
+        return VoxelPointMap.toKey(x + CENTER, y + CENTER, z + CENTER, 1.0f / VOXEL_SIZE);
+    }
+
+    private static void insertVoxel(VoxelPointMap pointMap, int x) {
+        pointMap.insert(x + CENTER, CENTER, CENTER, 1.0f);
+    }
+
+    private static Set<Long> toKeys(FloatBuffer points) {
+        Set<Long> keys = new HashSet<>();
+        for (int i = 0; i < points.limit(); i += VoxelPointMap.FLOATS_PER_POINT) {
+            keys.add(VoxelPointMap.toKey(points.get(i), points.get(i + 1), points.get(i + 2), 1.0f / VOXEL_SIZE));
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2023. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.huawei.arengine.demos.common;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building, refitting, and picking of {@link ObjectPicker} against a linear test of every box, for
+ * randomly placed, rotated, and scaled boxes. Each pick benchmark tests the next ray of a fixed set, part of which
+ * miss all objects. The setup checks that the hierarchy and the linear test find every hit at the same distance;
+ * overlapping boxes may tie, so the distances are compared rather than the objects.
+ *
+ * @author HW
+ * @since 2023-06-12
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ObjectPickerBenchmark {
+    private static final int RAY_COUNT = 1024;
+
+    private static final int MATRIX_SIZE = 16;
+
+    private static final float[] LOCAL_BOX = {-0.5f, 0.0f, -0.5f, 0.5f, 1.0f, 0.5f};
+
+    /**
+     * Objects are placed in a cube of this half size around the origin.
+     */
+    private static final float SCENE_HALF_SIZE = 5.0f;
+
+    private static final float MIN_SCALE = 0.05f;
+
+    private static final float MAX_SCALE = 0.3f;
+
+    private static final long SEED = 20230612L;
+
+    /**
+     * Number of objects.
+     */
+    @Param({"16", "256", "4096"})
+    public int objectCount;
+
+    private final float[] mOrigin = new float[3];
+
+    private final float[] mDirection = new float[3];
+
+    private float[] mModelMatrices;
+
+    private float[] mInverseMatrices;
+
+    private int[] mSlots;
+
+    private float[] mOrigins;
+
+    private float[] mDirections;
+
+    private ObjectPicker mPicker;
+
+    private int mRayIndex = 0;
+
+    /**
+     * Create the objects, the rays, and the hierarchy, and check the hierarchy against the linear test.
+     */
+    @Setup
+    public void setUp() {
+        Random random = new Random(SEED);
+        mModelMatrices = new float[objectCount * MATRIX_SIZE];
+        mInverseMatrices = new float[objectCount * MATRIX_SIZE];
+        mSlots = new int[objectCount];
+        for (int i = 0; i < objectCount; i++) {
+            mSlots[i] = i;
+            randomModelMatrix(random, mModelMatrices, i * MATRIX_SIZE);
+            ObjectPicker.invertAffine(mModelMatrices, i * MATRIX_SIZE, mInverseMatrices, i * MATRIX_SIZE);
+        }
+        mOrigins = new float[RAY_COUNT * 3];
+        mDirections = new float[RAY_COUNT * 3];
+        for (int i = 0; i < RAY_COUNT; i++) {
+            randomRay(random, mModelMatrices, objectCount, mOrigins, mDirections, i * 3);
+        }
+        mPicker = new ObjectPicker(LOCAL_BOX);
+        mPicker.build(mModelMatrices, mSlots, objectCount);
+        for (int i = 0; i < RAY_COUNT; i++) {
+            float linearDistance = pickLinear();
+            mPicker.pick(mOrigin, mDirection);
+            if (Float.compare(linearDistance, mPicker.getHitDistance()) != 0) {
+                throw new IllegalStateException("The hierarchy and the linear test differ for ray " + i + ".");
+            }
+        }
+        mRayIndex = 0;
+    }
+
+    /**
+     * Build the hierarchy, as after an object is added or removed.
+     *
+     * @return Number of nodes.
+     */
+    @Benchmark
+    public int build() {
+        mPicker.build(mModelMatrices, mSlots, objectCount);
+        return mPicker.getNodeCount();
+    }
+
+    /**
+     * Refit the bounds of the hierarchy, as after the objects have moved.
+     *
+     * @return Number of nodes.
+     */
+    @Benchmark
+    public int refit() {
+        mPicker.refit(mModelMatrices);
+        return mPicker.getNodeCount();
+    }
+
+    /**
+     * Pick the next ray through the hierarchy.
+     *
+     * @return Index of the hit object, or {@link ObjectPicker#NO_HIT}.
+     */
+    @Benchmark
+    public int pickBvh() {
+        nextRay();
+        return mPicker.pick(mOrigin, mDirection);
+    }
+
+    /**
+     * Pick the next ray by testing every box.
+     *
+     * @return Distance of the nearest hit, or positive infinity.
+     */
+    @Benchmark
+    public float pickLinear() {
+        nextRay();
+        float hitDistance = Float.POSITIVE_INFINITY;
+        for (int i = 0; i < objectCount; i++) {
+            float distance = ObjectPicker.intersectObb(LOCAL_BOX, mInverseMatrices, i * MATRIX_SIZE, mOrigin,
+                mDirection);
+            if (distance >= 0.0f && distance < hitDistance) {
+                hitDistance = distance;
+            }
+        }
+        return hitDistance;
+    }
+
+    /**
+     * Copy the next ray into the ray arrays, and go back to the first ray after the last one.
+     */
+    private void nextRay() {
+        System.arraycopy(mOrigins, mRayIndex * 3, mOrigin, 0, 3);
+        System.arraycopy(mDirections, mRayIndex * 3, mDirection, 0, 3);
+        mRayIndex = (mRayIndex + 1) % RAY_COUNT;
+    }
+
+    /**
+     * Write a column-major matrix that scales uniformly, rotates around the Y axis, and translates.
+     */
+    private static void randomModelMatrix(Random random, float[] matrices, int offset) {
+        float scale = MIN_SCALE + random.nextFloat() * (MAX_SCALE - MIN_SCALE);
+        double angle = random.nextDouble() * Math.PI * 2.0;
+        float cos = (float) Math.cos(angle) * scale;
+        float sin = (float) Math.sin(angle) * scale;
+        matrices[offset] = cos;
+        matrices[offset + 2] = -sin;
+        matrices[offset + 5] = scale;
+        matrices[offset + 8] = sin;
+        matrices[offset + 10] = cos;
+        matrices[offset + 12] = randomCoordinate(random);
+        matrices[offset + 13] = randomCoordinate(random);
+        matrices[offset + 14] = randomCoordinate(random);
+        matrices[offset + 15] = 1.0f;
+    }
+
+    private static float randomCoordinate(Random random) {
+        return (random.nextFloat() * 2.0f - 1.0f) * SCENE_HALF_SIZE;
+    }
+
+    /**
+     * Create a ray from a random point towards a random object, either exactly at its center or with a large
+     * offset, so that a part of the rays miss all objects.
+     */
+    private static void randomRay(Random random, float[] modelMatrices, int objectCount, float[] origins,
+        float[] directions, int offset) {
+        int target = random.nextInt(objectCount) * MATRIX_SIZE;
+        float jitter = random.nextBoolean() ? 0.0f : SCENE_HALF_SIZE;
+        for (int axis = 0; axis < 3; axis++) {
+            origins[offset + axis] = randomCoordinate(random) * 2.0f;
+            float aim = modelMatrices[target + 12 + axis] + (random.nextFloat() - 0.5f) * jitter;
+            directions[offset + axis] = aim - origins[offset + axis];
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2023. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.huawei.arengine.demos.common;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link PointCloudFilter} for synthetic clouds of different sizes. The points are scattered in a
+ * room-sized cube with uniformly distributed confidence, and each cloud is filtered into a staging buffer as it is
+ * before the upload. The default point budget samples the kept cells of large clouds, and the unlimited budget
+ * measures the downsampling without sampling.
+ *
+ * @author HW
+ * @since 2023-06-12
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PointCloudFilterBenchmark {
+    private static final float ROOM_HALF_SIZE = 2.0f;
+
+    private static final long SEED = 20230612L;
+
+    /**
+     * Number of points per cloud.
+     */
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int pointCount;
+
+    /**
+     * Maximum number of kept points. 1048576 is large enough for every cloud, so no point is sampled out.
+     */
+    @Param({"4096", "1048576"})
+    public int pointBudget;
+
+    private FloatBuffer mCloud;
+
+    private PointCloudFilter mFilter;
+
+    /**
+     * Create the cloud and the filter.
+     */
+    @Setup
+    public void setUp() {
+        mCloud = randomCloud(new Random(SEED), pointCount);
+        mFilter = new PointCloudFilter(PointCloudFilter.DEFAULT_MIN_CONFIDENCE, PointCloudFilter.DEFAULT_CELL_SIZE,
+            pointBudget);
+    }
+
+    /**
+     * Filter the cloud into a staging buffer.
+     *
+     * @return Number of kept points.
+     */
+    @Benchmark
+    public int filter() {
+        try (StagingBuffer staging = StagingBuffer.acquire(mFilter.getMaxFloatCount(mCloud))) {
+            return mFilter.filter(mCloud, staging);
+        }
+    }
+
+    private static FloatBuffer randomCloud(Random random, int pointCount) {
+        FloatBuffer points = ByteBuffer.allocateDirect(pointCount * VoxelPointMap.FLOATS_PER_POINT * Float.BYTES)
+            .order(ByteOrder.nativeOrder()).asFloatBuffer();
+        for (int i = 0; i < pointCount; i++) {
+            points.put((random.nextFloat() * 2.0f - 1.0f) * ROOM_HALF_SIZE);
+            points.put((random.nextFloat() * 2.0f - 1.0f) * ROOM_HALF_SIZE);
+            points.put((random.nextFloat() * 2.0f - 1.0f) * ROOM_HALF_SIZE);
+            points.put(random.nextFloat());
+        }
+        points.flip();
+        return points;
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2023. Huawei Technologies Co., Ltd. All rights reserved.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.huawei.arengine.demos.common;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures one frame of {@link VoxelPointMap} in a simulated scan: each frame inserts a batch of points around a
+ * camera that moves through a room, evicts the voxels that aged out, and flushes the changed voxels. Most points
+ * fall into voxels that already exist, and the voxels behind the camera age out. The frames are replayed in a
+ * loop, so the map stays in a steady state over the iterations.
+ *
+ * @author HW
+ * @since 2023-06-12
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VoxelPointMapBenchmark {
+    private static final int FRAME_COUNT = 32;
+
+    private static final float VOXEL_SIZE = 0.05f;
+
+    private static final int MAX_VOXELS = 1 << 20;
+
+    private static final int MAX_AGE_FRAMES = 16;
+
+    /**
+     * Points are scattered in a cube of this half size around the camera.
+     */
+    private static final float VIEW_HALF_SIZE = 1.5f;
+
+    private static final float CAMERA_STEP = 0.05f;
+
+    private static final long SEED = 20230612L;
+
+    /**
+     * Number of points inserted per frame.
+     */
+    @Param({"1000", "10000", "100000"})
+    public int pointsPerFrame;
+
+    private FloatBuffer[] mFrames;
+
+    private VoxelPointMap mPointMap;
+
+    private int mFrameIndex = 0;
+
+    /**
+     * Create the frames and the map.
+     */
+    @Setup
+    public void setUp() {
+        Random random = new Random(SEED);
+        mFrames = new FloatBuffer[FRAME_COUNT];
+        for (int i = 0; i < FRAME_COUNT; i++) {
+            mFrames[i] = randomFrame(random, pointsPerFrame, i * CAMERA_STEP);
+        }
+        mPointMap = new VoxelPointMap(VOXEL_SIZE, MAX_VOXELS);
+        mFrameIndex = 0;
+    }
+
+    /**
+     * Insert the points of the next frame, evict the voxels that aged out, and flush the changed voxels.
+     *
+     * @return Number of voxels.
+     */
+    @Benchmark
+    public int scanFrame() {
+        mPointMap.beginFrame();
+        mPointMap.insert(mFrames[mFrameIndex]);
+        mPointMap.evict(MAX_AGE_FRAMES);
+        mPointMap.flush();
+        mFrameIndex = (mFrameIndex + 1) % FRAME_COUNT;
+        return mPointMap.size();
+    }
+
+    /**
+     * Create the points of one frame around a camera that moves along the X axis.
+     */
+    private static FloatBuffer randomFrame(Random random, int pointCount, float cameraX) {
+        FloatBuffer points = ByteBuffer.allocateDirect(pointCount * VoxelPointMap.FLOATS_PER_POINT * Float.BYTES)
+            .order(ByteOrder.nativeOrder()).asFloatBuffer();
+        for (int i = 0; i < pointCount; i++) {
+            points.put(cameraX + randomOffset(random));
+            points.put(randomOffset(random));
+            points.put(randomOffset(random));
+            points.put(random.nextFloat());
+        }
+        points.flip();
+        return points;
+    }
+
+    private static float randomOffset(Random random) {
+        return (random.nextFloat() * 2.0f - 1.0f) * VIEW_HALF_SIZE;
+    }
+}